@@ -1,11 +1,20 @@
 package com.example.langchain4j.app;
 
+import com.example.langchain4j.config.RoutingChatModel;
+import com.example.langchain4j.service.ChatResponseCache;
+import com.example.langchain4j.service.PromptCoalescer;
+import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.model.azure.AzureOpenAiChatModel;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Simple REST controller exposing a chat endpoint.
@@ -19,28 +28,60 @@ import java.util.Map;
 public class ChatController {
 
   private final AzureOpenAiChatModel model;
+  private final ChatResponseCache cache;
+  private final PromptCoalescer coalescer;
 
   /**
    * Constructor injection of the chat model bean.
    * Model is configured via LangChainConfig or environment variables.
    *
    * @param model configured Azure OpenAI chat model
+   * @param cache cache of answers to repeated prompts
+   * @param coalescer shares model calls between identical prompts in flight
    */
-  public ChatController(AzureOpenAiChatModel model) {
+  public ChatController(AzureOpenAiChatModel model, ChatResponseCache cache, PromptCoalescer coalescer) {
     this.model = model;
+    this.cache = cache;
+    this.coalescer = coalescer;
   }
 
   /**
    * Accept a JSON payload containing a "message" and return a
    * response generated by the underlying Azure model.  Example
    * request: {"message":"Hello"}
+   * <p>
+   * Repeated prompts are answered from {@link ChatResponseCache}; the
+   * response's "cached" field says whether this one was. Send
+   * {@code Cache-Control: no-cache} to skip the lookup, or {@code no-store}
+   * to also keep the answer out of the cache. Identical prompts that arrive
+   * while one is being answered share its model call ({@link PromptCoalescer}).
    */
   @PostMapping
-  public ResponseEntity<Map<String, Object>> chat(@RequestBody Map<String, String> body) {
+  public ResponseEntity<Map<String, Object>> chat(
+      @RequestBody Map<String, String> body,
+      @RequestHeader(value = HttpHeaders.CACHE_CONTROL, required = false) String cacheControl) {
     String prompt = body.getOrDefault("message", "Hello");
+    String directives = cacheControl != null ? cacheControl.toLowerCase(Locale.ROOT) : "";
+    boolean noStore = directives.contains("no-store");
+    boolean noCache = noStore || directives.contains("no-cache");
     try {
-      String answer = model.chat(prompt);
-      return ResponseEntity.ok(Map.of("prompt", prompt, "answer", answer));
+      if (noCache) {
+        cache.bypass();
+      } else {
+        Optional<String> cached = cache.lookup(prompt);
+        if (cached.isPresent()) {
+          return ResponseEntity.ok(Map.of("prompt", prompt, "answer", cached.get(), "cached", true));
+        }
+      }
+      ChatResponse response = coalescer.call(prompt, () -> {
+        long start = System.nanoTime();
+        ChatResponse answered = model.chat(UserMessage.from(prompt));
+        if (!noStore) {
+          cache.store(prompt, answered, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+        return answered;
+      });
+      return ResponseEntity.ok(Map.of("prompt", prompt, "answer", response.aiMessage().text(), "cached", false));
     } catch (Exception e) {
       // Propagate error details back to the client
       return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -51,6 +92,40 @@ public class ChatController {
     }
   }
 
+  /**
+   * Get response cache metrics.
+   *
+   * @return hits, misses, size, and the tokens and latency saved
+   */
+  @GetMapping("/cache/stats")
+  public Map<String, Object> cacheStats() {
+    return cache.stats();
+  }
+
+  /**
+   * Get request coalescing metrics.
+   *
+   * @return upstream model calls made and calls saved by coalescing
+   */
+  @GetMapping("/coalescing/stats")
+  public Map<String, Object> coalescingStats() {
+    return coalescer.stats();
+  }
+
+  /**
+   * Get per-deployment routing metrics, when calls are spread over several
+   * Azure OpenAI deployments ({@code azure.openai.backends}).
+   *
+   * @return traffic share, latency, failures and quota left of each deployment
+   */
+  @GetMapping("/backends")
+  public Map<String, Object> backendStats() {
+    if (model instanceof RoutingChatModel routing) {
+      return routing.stats();
+    }
+    return Map.of("routing", false);
+  }
+
   /**
    * Simple health check endpoint used by deployment probes.
    */
@@ -1,10 +1,18 @@
 package com.example.langchain4j.app;
 
+import com.example.langchain4j.service.ConversationBusyException;
 import com.example.langchain4j.service.ConversationService;
+import com.example.langchain4j.service.ConversationStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -15,26 +23,42 @@ import java.util.Map;
 @RequestMapping("/api/conversation")
 public class ConversationController {
 
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final int STREAM_FLUSH_EVERY = 100;
+
     private final ConversationService conversationService;
+    private final ObjectMapper objectMapper;
 
-    public ConversationController(ConversationService conversationService) {
+    public ConversationController(ConversationService conversationService, ObjectMapper objectMapper) {
         this.conversationService = conversationService;
+        this.objectMapper = objectMapper;
     }
 
     /**
      * Start a new conversation session.
      * Returns a unique conversation ID to be used in subsequent requests.
+     * An optional "promptFormat" ("messages" or "flattened") overrides the
+     * configured format for this conversation, to compare the two side by side.
      *
+     * @param body optional request containing promptFormat
      * @return conversation ID
      */
     @PostMapping("/start")
-    public ResponseEntity<Map<String, String>> startConversation() {
+    public ResponseEntity<Map<String, String>> startConversation(
+            @RequestBody(required = false) Map<String, String> body) {
+        String promptFormat = body != null ? body.get("promptFormat") : null;
         try {
-            String conversationId = conversationService.startConversation();
+            String conversationId = promptFormat != null
+                ? conversationService.startConversation(ConversationService.PromptFormat.parse(promptFormat))
+                : conversationService.startConversation();
             return ResponseEntity.ok(Map.of(
                 "conversationId", conversationId,
                 "message", "Conversation started successfully"
             ));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("error", "promptFormat must be \"messages\" or \"flattened\""));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(Map.of("error", e.getMessage() != null ? e.getMessage() : "Unknown error"));
@@ -76,6 +100,12 @@ public class ConversationController {
                 "message", message,
                 "answer", answer
             ));
+        } catch (ConversationBusyException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of(
+                    "conversationId", conversationId,
+                    "error", e.getMessage()
+                ));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(Map.of(
@@ -87,30 +117,117 @@ public class ConversationController {
 
     /**
      * Get the conversation history for a given conversation ID.
+     * <p>
+     * Without parameters this returns the history the model sees: the summary
+     * and the recent messages. With {@code limit} and/or {@code cursor} it
+     * returns one page of the full stored history, read straight from storage;
+     * pass the returned "nextCursor" to get the next page, until it is null.
+     * Example response:
+     * <pre>
+     * {
+     *   "conversationId": "uuid-here",
+     *   "messages": [{"index": 0, "type": "USER", "text": "My name is John"}, ...],
+     *   "nextCursor": "MjoxNDI"
+     * }
+     * </pre>
      *
      * @param conversationId the conversation ID
+     * @param limit page size, 1 to 500 (default 50 when only a cursor is given)
+     * @param cursor position to continue from
      * @return list of messages in the conversation
      */
     @GetMapping("/{conversationId}/history")
-    public ResponseEntity<Map<String, Object>> getHistory(@PathVariable String conversationId) {
+    public ResponseEntity<Map<String, Object>> getHistory(
+            @PathVariable String conversationId,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
         try {
             if (!conversationService.conversationExists(conversationId)) {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(Map.of("error", "Conversation not found"));
             }
+            if (limit == null && cursor == null) {
+                var history = conversationService.getHistory(conversationId);
+                return ResponseEntity.ok(Map.of(
+                    "conversationId", conversationId,
+                    "messageCount", history.size(),
+                    "messages", history
+                ));
+            }
 
-            var history = conversationService.getHistory(conversationId);
-            return ResponseEntity.ok(Map.of(
-                "conversationId", conversationId,
-                "messageCount", history.size(),
-                "messages", history
-            ));
+            int pageSize = limit != null ? limit : DEFAULT_PAGE_SIZE;
+            if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+                return ResponseEntity.badRequest()
+                    .body(Map.of("error", String.format("limit must be 1 to %d", MAX_PAGE_SIZE)));
+            }
+            List<ConversationStore.HistoryEntry> page = new ArrayList<>(pageSize);
+            String nextCursor = conversationService.readHistory(conversationId, cursor, pageSize, page::add);
+            Map<String, Object> body = new HashMap<>();
+            body.put("conversationId", conversationId);
+            body.put("messages", page);
+            body.put("nextCursor", nextCursor);
+            return ResponseEntity.ok(body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(Map.of("error", e.getMessage() != null ? e.getMessage() : "Unknown error"));
         }
     }
 
+    /**
+     * Stream the full stored history as NDJSON, one message per line, written
+     * to the response as it is read from storage.
+     * Example line: {@code {"index":0,"type":"USER","text":"My name is John"}}
+     *
+     * @param conversationId the conversation ID
+     * @param cursor optional position to start from, as returned by the paged history
+     * @return the history stream
+     */
+    @GetMapping("/{conversationId}/history/stream")
+    public ResponseEntity<StreamingResponseBody> streamHistory(
+            @PathVariable String conversationId,
+            @RequestParam(required = false) String cursor) {
+        if (!conversationService.conversationExists(conversationId)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        if (!ConversationStore.isValidCursor(cursor)) {
+            return ResponseEntity.badRequest().build();
+        }
+        StreamingResponseBody body = out -> {
+            int[] unflushed = {0};
+            conversationService.readHistory(conversationId, cursor, Long.MAX_VALUE, entry -> {
+                out.write(objectMapper.writeValueAsBytes(entry));
+                out.write('\n');
+                if (++unflushed[0] == STREAM_FLUSH_EVERY) {
+                    out.flush();
+                    unflushed[0] = 0;
+                }
+            });
+            out.flush();
+        };
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .body(body);
+    }
+
+    /**
+     * Get the prompt size and summarization cost of a conversation.
+     *
+     * @param conversationId the conversation ID
+     * @return tokens in the last prompt, in recent turns and in the summary,
+     *         and the tokens and time spent on summaries
+     */
+    @GetMapping("/{conversationId}/stats")
+    public ResponseEntity<Map<String, Object>> getMemoryStats(@PathVariable String conversationId) {
+        Map<String, Object> stats = conversationService.getMemoryStats(conversationId);
+        if (stats == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(Map.of("error", "Conversation not found"));
+        }
+        return ResponseEntity.ok(stats);
+    }
+
     /**
      * Clear/delete a conversation.
      *
@@ -131,6 +248,28 @@ public class ConversationController {
         }
     }
 
+    /**
+     * Get latency and prompt token usage per prompt format.
+     * Compare "avgLatencyMs" and "cachedTokenRatio" of the two formats to see
+     * what the stable message prefix gains.
+     *
+     * @return per-format metrics
+     */
+    @GetMapping("/stats")
+    public Map<String, Object> stats() {
+        return conversationService.getPromptStats();
+    }
+
+    /**
+     * Get conversation persistence metrics.
+     *
+     * @return conversations in memory and on disk, idle evictions and reloads from disk
+     */
+    @GetMapping("/store/stats")
+    public Map<String, Object> storeStats() {
+        return conversationService.getStoreStats();
+    }
+
     /**
      * Health check endpoint.
      *
@@ -0,0 +1,190 @@
+package com.example.langchain4j.app;
+
+import com.example.langchain4j.service.ConversationBusyException;
+import com.example.langchain4j.service.ConversationService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * WebSocket transport for conversations, at {@code /ws/conversation}.
+ * <p>
+ * A connection is bound to the conversation given as {@code ?conversationId=}
+ * or created with a {@code {"type":"start"}} frame. Messages are sent as
+ * {@code {"message":"..."}}; a {@code conversationId} field addresses another
+ * conversation, so one socket can carry several at once. The answer streams
+ * back as {@code token} frames followed by a {@code done} frame with the full
+ * answer. Closing the socket cancels its unfinished turns.
+ * <p>
+ * A connection runs at most {@code conversation.websocket.max-turns-per-connection}
+ * turns at once; a message beyond that gets an error frame, so one client
+ * cannot fill the turn executor shared by every connection.
+ * <p>
+ * Example exchange:
+ * <pre>
+ * → {"type":"start"}
+ * ← {"type":"started","conversationId":"uuid-here"}
+ * → {"message":"My name is John"}
+ * ← {"type":"token","conversationId":"uuid-here","text":"Nice to"}
+ * ← {"type":"token","conversationId":"uuid-here","text":" meet you, John!"}
+ * ← {"type":"done","conversationId":"uuid-here","answer":"Nice to meet you, John!"}
+ * </pre>
+ */
+@Component
+public class ConversationSocketHandler extends TextWebSocketHandler {
+
+    private static final Logger log = LoggerFactory.getLogger(ConversationSocketHandler.class);
+
+    private static final int MAX_MESSAGE_LENGTH = 10_000;
+
+    private final ConversationService conversationService;
+    private final ExecutorService turnExecutor;
+    private final ExecutorService sendExecutor;
+    private final int maxPendingChars;
+    private final int maxTurnsPerConnection;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, Connection> connections = new ConcurrentHashMap<>();
+
+    /**
+     * State of one socket: its default conversation, outbox and running turns.
+     */
+    private static final class Connection {
+        private final SocketOutbox outbox;
+        private final Set<Future<?>> turns = ConcurrentHashMap.newKeySet();
+        private volatile String conversationId;
+
+        private Connection(SocketOutbox outbox, String conversationId) {
+            this.outbox = outbox;
+            this.conversationId = conversationId;
+        }
+    }
+
+    public ConversationSocketHandler(
+            ConversationService conversationService,
+            @Qualifier("conversationTurnExecutor") ExecutorService turnExecutor,
+            @Qualifier("conversationSendExecutor") ExecutorService sendExecutor,
+            @Value("${conversation.websocket.max-pending-chars:65536}") int maxPendingChars,
+            @Value("${conversation.websocket.max-turns-per-connection:4}") int maxTurnsPerConnection) {
+        this.conversationService = conversationService;
+        this.turnExecutor = turnExecutor;
+        this.sendExecutor = sendExecutor;
+        this.maxPendingChars = maxPendingChars;
+        this.maxTurnsPerConnection = maxTurnsPerConnection;
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        String conversationId = session.getUri() == null ? null
+            : UriComponentsBuilder.fromUri(session.getUri()).build().getQueryParams().getFirst("conversationId");
+        SocketOutbox outbox = new SocketOutbox(session, objectMapper, sendExecutor, maxPendingChars);
+        connections.put(session.getId(), new Connection(outbox, conversationId));
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage frame) {
+        Connection connection = connections.get(session.getId());
+        if (connection == null) {
+            return;
+        }
+        JsonNode request;
+        try {
+            request = objectMapper.readTree(frame.getPayload());
+        } catch (IOException e) {
+            connection.outbox.send("error", Map.of("error", "Frames must be JSON objects"));
+            return;
+        }
+
+        if ("start".equals(request.path("type").asText())) {
+            String conversationId = conversationService.startConversation();
+            if (connection.conversationId == null) {
+                connection.conversationId = conversationId;
+            }
+            connection.outbox.send("started", Map.of("conversationId", conversationId));
+            return;
+        }
+
+        String conversationId = request.hasNonNull("conversationId")
+            ? request.get("conversationId").asText()
+            : connection.conversationId;
+        String message = request.path("message").asText("");
+        if (conversationId == null || conversationId.isBlank()) {
+            connection.outbox.send("error", Map.of("error", "conversationId is required"));
+            return;
+        }
+        if (message.isBlank() || message.length() > MAX_MESSAGE_LENGTH) {
+            connection.outbox.send("error", Map.of(
+                "conversationId", conversationId,
+                "error", String.format("message must be 1 to %d characters", MAX_MESSAGE_LENGTH)));
+            return;
+        }
+
+        // Frames of one connection are handled one at a time, so only finishing turns change the count here
+        if (connection.turns.size() >= maxTurnsPerConnection) {
+            connection.outbox.send("error", Map.of(
+                "conversationId", conversationId,
+                "error", String.format("At most %d messages may be in progress per connection", maxTurnsPerConnection)));
+            return;
+        }
+        FutureTask<Void> turn = new FutureTask<>(() -> answer(connection, conversationId, message), null);
+        connection.turns.add(turn);
+        try {
+            turnExecutor.execute(() -> {
+                try {
+                    turn.run();
+                } finally {
+                    connection.turns.remove(turn);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            connection.turns.remove(turn);
+            connection.outbox.send("error", Map.of(
+                "conversationId", conversationId,
+                "error", "Too many messages in progress"));
+        }
+    }
+
+    private void answer(Connection connection, String conversationId, String message) {
+        try {
+            String answer = conversationService.chatStreaming(
+                conversationId, message, token -> connection.outbox.token(conversationId, token));
+            connection.outbox.send("done", Map.of("conversationId", conversationId, "answer", answer));
+        } catch (ConversationBusyException e) {
+            connection.outbox.send("error", Map.of("conversationId", conversationId, "error", e.getMessage()));
+        } catch (Exception e) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            log.warn("Streamed turn of conversation {} failed: {}", conversationId, e.getMessage());
+            connection.outbox.send("error", Map.of(
+                "conversationId", conversationId,
+                "error", e.getMessage() != null ? e.getMessage() : "Unknown error"));
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        Connection connection = connections.remove(session.getId());
+        if (connection != null) {
+            connection.outbox.close();
+            connection.turns.forEach(turn -> turn.cancel(true));
+        }
+    }
+}
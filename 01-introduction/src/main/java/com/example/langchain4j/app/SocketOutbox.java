@@ -0,0 +1,164 @@
+package com.example.langchain4j.app;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Outgoing frames of one WebSocket connection.
+ * <p>
+ * Producers (model token callbacks) only enqueue, so a slow client never blocks
+ * a model stream. A single drain task per connection sends the queue in order;
+ * tokens queued for the same conversation while a send was in progress are
+ * merged into one frame, so a slow reader gets fewer, larger frames. If the
+ * backlog still grows past its limit, the connection is closed, which cancels
+ * its turns.
+ */
+final class SocketOutbox {
+
+    private static final Logger log = LoggerFactory.getLogger(SocketOutbox.class);
+
+    private record Frame(String type, String conversationId, String text, Map<String, Object> body) {
+    }
+
+    private final WebSocketSession session;
+    private final ObjectMapper objectMapper;
+    private final Executor sender;
+    private final int maxPendingChars;
+
+    private final Deque<Frame> queue = new ArrayDeque<>();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private int pendingChars;
+    private boolean closed;
+
+    SocketOutbox(WebSocketSession session, ObjectMapper objectMapper, Executor sender, int maxPendingChars) {
+        this.session = session;
+        this.objectMapper = objectMapper;
+        this.sender = sender;
+        this.maxPendingChars = maxPendingChars;
+    }
+
+    void token(String conversationId, String text) {
+        enqueue(new Frame("token", conversationId, text, null));
+    }
+
+    void send(String type, Map<String, Object> body) {
+        enqueue(new Frame(type, null, null, body));
+    }
+
+    void close() {
+        synchronized (this) {
+            closed = true;
+            queue.clear();
+        }
+    }
+
+    private void enqueue(Frame frame) {
+        boolean overflow;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            queue.addLast(frame);
+            pendingChars += frame.text() != null ? frame.text().length() : 0;
+            overflow = pendingChars > maxPendingChars;
+        }
+        if (overflow) {
+            log.warn("WebSocket client {} is too slow, closing the connection", session.getId());
+            close();
+            closeSession(CloseStatus.POLICY_VIOLATION.withReason("Client too slow"));
+            return;
+        }
+        if (draining.compareAndSet(false, true)) {
+            sender.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            List<Frame> batch;
+            synchronized (this) {
+                if (queue.isEmpty() || closed) {
+                    draining.set(false);
+                    return;
+                }
+                batch = new ArrayList<>(queue);
+                queue.clear();
+                pendingChars = 0;
+            }
+            try {
+                for (Map<String, Object> message : coalesce(batch)) {
+                    session.sendMessage(new TextMessage(objectMapper.writeValueAsString(message)));
+                }
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Send to WebSocket client {} failed: {}", session.getId(), e.getMessage());
+                close();
+                closeSession(CloseStatus.SESSION_NOT_RELIABLE);
+                draining.set(false);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Merge runs of tokens for the same conversation into single frames.
+     */
+    private static List<Map<String, Object>> coalesce(List<Frame> batch) {
+        List<Map<String, Object>> messages = new ArrayList<>();
+        StringBuilder tokens = null;
+        String tokensFor = null;
+        for (Frame frame : batch) {
+            if (frame.text() != null && frame.conversationId().equals(tokensFor)) {
+                tokens.append(frame.text());
+                continue;
+            }
+            if (tokens != null) {
+                messages.add(tokenMessage(tokensFor, tokens));
+                tokens = null;
+                tokensFor = null;
+            }
+            if (frame.text() != null) {
+                tokens = new StringBuilder(frame.text());
+                tokensFor = frame.conversationId();
+            } else {
+                Map<String, Object> message = new LinkedHashMap<>();
+                message.put("type", frame.type());
+                message.putAll(frame.body());
+                messages.add(message);
+            }
+        }
+        if (tokens != null) {
+            messages.add(tokenMessage(tokensFor, tokens));
+        }
+        return messages;
+    }
+
+    private static Map<String, Object> tokenMessage(String conversationId, CharSequence text) {
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("type", "token");
+        message.put("conversationId", conversationId);
+        message.put("text", text.toString());
+        return message;
+    }
+
+    private void closeSession(CloseStatus status) {
+        try {
+            session.close(status);
+        } catch (IOException e) {
+            log.debug("Closing WebSocket session {} failed: {}", session.getId(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.langchain4j.config;
+
+import com.azure.ai.openai.OpenAIAsyncClient;
+import com.azure.ai.openai.models.ChatChoice;
+import com.azure.ai.openai.models.ChatCompletionStreamOptions;
+import com.azure.ai.openai.models.ChatCompletionsOptions;
+import com.azure.ai.openai.models.ChatRequestAssistantMessage;
+import com.azure.ai.openai.models.ChatRequestMessage;
+import com.azure.ai.openai.models.ChatRequestSystemMessage;
+import com.azure.ai.openai.models.ChatRequestUserMessage;
+import com.azure.ai.openai.models.CompletionsFinishReason;
+import com.azure.ai.openai.models.CompletionsUsage;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.output.FinishReason;
+import dev.langchain4j.model.output.TokenUsage;
+import reactor.core.Disposable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Streaming chat model on Azure OpenAI whose streams can be stopped.
+ * <p>
+ * {@code AzureOpenAiStreamingChatModel} subscribes to the client's stream and
+ * keeps no handle on it, so a caller that stops waiting leaves the model
+ * generating the rest of the answer. This model returns the subscription from
+ * {@link #start}: disposing it closes the connection, which ends generation,
+ * and no further handler methods are called. It sends text messages only.
+ * The answer's usage is a {@link StreamedTokenUsage}, which reports the prompt
+ * tokens served from the prompt cache.
+ */
+public class CancellableStreamingChatModel implements StreamingChatModel {
+
+    /**
+     * Token usage of a streamed answer, with the part of the prompt served from the cache.
+     */
+    public static class StreamedTokenUsage extends TokenUsage {
+
+        private final int cachedTokens;
+
+        StreamedTokenUsage(int inputTokens, int outputTokens, int cachedTokens) {
+            super(inputTokens, outputTokens);
+            this.cachedTokens = cachedTokens;
+        }
+
+        /**
+         * @return cached prompt tokens, or -1 if the service did not report them
+         */
+        public int cachedTokens() {
+            return cachedTokens;
+        }
+    }
+
+    private final OpenAIAsyncClient client;
+    private final String deployment;
+    private final Integer maxCompletionTokens;
+
+    public CancellableStreamingChatModel(OpenAIAsyncClient client, String deployment, Integer maxCompletionTokens) {
+        this.client = client;
+        this.deployment = deployment;
+        this.maxCompletionTokens = maxCompletionTokens;
+    }
+
+    /**
+     * Start streaming the answer to a request.
+     *
+     * @param request the messages to answer
+     * @param handler receives the answer as it is generated
+     * @return the stream; dispose it to stop generation
+     */
+    public Disposable start(ChatRequest request, StreamingChatResponseHandler handler) {
+        if (!request.parameters().toolSpecifications().isEmpty()) {
+            throw new IllegalArgumentException("Tools are not supported by this streaming model");
+        }
+        ChatCompletionsOptions options = new ChatCompletionsOptions(toAzure(request.messages()))
+            .setMaxCompletionTokens(maxCompletionTokens);
+        ChatCompletionStreamOptions streamOptions = new ChatCompletionStreamOptions().setIncludeUsage(true);
+
+        StringBuilder answer = new StringBuilder();
+        AtomicReference<CompletionsUsage> usage = new AtomicReference<>();
+        AtomicReference<CompletionsFinishReason> finishReason = new AtomicReference<>();
+        return client.getChatCompletionsStream(deployment, options, streamOptions).subscribe(
+            chunk -> {
+                if (chunk.getUsage() != null) {
+                    usage.set(chunk.getUsage());
+                }
+                if (chunk.getChoices() == null) {
+                    return;
+                }
+                for (ChatChoice choice : chunk.getChoices()) {
+                    if (choice.getFinishReason() != null) {
+                        finishReason.set(choice.getFinishReason());
+                    }
+                    String text = choice.getDelta() != null ? choice.getDelta().getContent() : null;
+                    if (text != null && !text.isEmpty()) {
+                        answer.append(text);
+                        handler.onPartialResponse(text);
+                    }
+                }
+            },
+            handler::onError,
+            () -> handler.onCompleteResponse(ChatResponse.builder()
+                .aiMessage(AiMessage.from(answer.toString()))
+                .tokenUsage(tokenUsageOf(usage.get()))
+                .finishReason(finishReasonOf(finishReason.get()))
+                .build()));
+    }
+
+    @Override
+    public void doChat(ChatRequest request, StreamingChatResponseHandler handler) {
+        start(request, handler);
+    }
+
+    private static List<ChatRequestMessage> toAzure(List<ChatMessage> messages) {
+        List<ChatRequestMessage> azureMessages = new ArrayList<>(messages.size());
+        for (ChatMessage message : messages) {
+            if (message instanceof SystemMessage systemMessage) {
+                azureMessages.add(new ChatRequestSystemMessage(systemMessage.text()));
+            } else if (message instanceof UserMessage userMessage) {
+                azureMessages.add(new ChatRequestUserMessage(userMessage.singleText()));
+            } else if (message instanceof AiMessage aiMessage) {
+                azureMessages.add(new ChatRequestAssistantMessage(aiMessage.text()));
+            } else {
+                throw new IllegalArgumentException("Unsupported message type " + message.type());
+            }
+        }
+        return azureMessages;
+    }
+
+    private static TokenUsage tokenUsageOf(CompletionsUsage usage) {
+        if (usage == null) {
+            return null;
+        }
+        Integer cachedTokens = usage.getPromptTokensDetails() != null
+            ? usage.getPromptTokensDetails().getCachedTokens() : null;
+        return new StreamedTokenUsage(usage.getPromptTokens(), usage.getCompletionTokens(),
+            cachedTokens != null ? cachedTokens : -1);
+    }
+
+    private static FinishReason finishReasonOf(CompletionsFinishReason reason) {
+        if (reason == null) {
+            return null;
+        }
+        if (reason.equals(CompletionsFinishReason.STOPPED)) {
+            return FinishReason.STOP;
+        }
+        if (reason.equals(CompletionsFinishReason.TOKEN_LIMIT_REACHED)) {
+            return FinishReason.LENGTH;
+        }
+        if (reason.equals(CompletionsFinishReason.CONTENT_FILTERED)) {
+            return FinishReason.CONTENT_FILTER;
+        }
+        return FinishReason.OTHER;
+    }
+}
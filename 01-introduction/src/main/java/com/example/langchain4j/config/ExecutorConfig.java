@@ -0,0 +1,77 @@
+package com.example.langchain4j.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Configuration for the executors used by the WebSocket conversation endpoint.
+ */
+@Configuration
+public class ExecutorConfig {
+
+    private final boolean virtualThreads;
+
+    public ExecutorConfig(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    /**
+     * Executor for streamed turns. A turn holds its thread while the answer
+     * streams; turns beyond the queue capacity are rejected.
+     *
+     * @return executor for WebSocket conversation turns
+     */
+    @Bean(name = "conversationTurnExecutor", destroyMethod = "shutdownNow")
+    public ExecutorService conversationTurnExecutor(
+            @Value("${conversation.websocket.max-concurrent-turns:32}") int maxConcurrentTurns,
+            @Value("${conversation.websocket.queue-capacity:100}") int queueCapacity) {
+        return new ThreadPoolExecutor(
+            maxConcurrentTurns,
+            maxConcurrentTurns,
+            60L, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            namedThreads("conversation-turn-"),
+            new ThreadPoolExecutor.AbortPolicy()
+        );
+    }
+
+    /**
+     * Executor that writes frames to WebSocket clients, so that a slow client
+     * only ever blocks one of these threads and never a model stream.
+     *
+     * @return executor for WebSocket sends
+     */
+    @Bean(name = "conversationSendExecutor", destroyMethod = "shutdownNow")
+    public ExecutorService conversationSendExecutor() {
+        if (virtualThreads) {
+            return Executors.newThreadPerTaskExecutor(namedThreads("conversation-send-"));
+        }
+        return Executors.newCachedThreadPool(namedThreads("conversation-send-"));
+    }
+
+    /**
+     * Daemon platform threads, or virtual threads when the application runs on them.
+     * Bounded executors keep their bounds either way: with virtual threads the
+     * bound limits concurrent work instead of the number of threads.
+     */
+    private ThreadFactory namedThreads(String prefix) {
+        if (virtualThreads) {
+            return Thread.ofVirtual().name(prefix, 1).factory();
+        }
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
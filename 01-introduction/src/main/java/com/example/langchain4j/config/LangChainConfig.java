@@ -1,9 +1,27 @@
 package com.example.langchain4j.config;
 
+import com.azure.ai.openai.OpenAIAsyncClient;
+import com.azure.ai.openai.OpenAIClient;
+import com.azure.ai.openai.OpenAIClientBuilder;
+import com.azure.core.credential.AzureKeyCredential;
+import com.azure.core.http.policy.ExponentialBackoffOptions;
+import com.azure.core.http.policy.RetryOptions;
+import com.example.langchain4j.service.PromptUsageRecorder;
+import dev.langchain4j.model.TokenCountEstimator;
 import dev.langchain4j.model.azure.AzureOpenAiChatModel;
+import dev.langchain4j.model.azure.AzureOpenAiTokenCountEstimator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Configuration class for LangChain4j components.
@@ -12,6 +30,8 @@ import org.springframework.context.annotation.Configuration;
 @Configuration
 public class LangChainConfig {
 
+    private static final Logger log = LoggerFactory.getLogger(LangChainConfig.class);
+
     @Value("${azure.openai.endpoint:${AZURE_OPENAI_ENDPOINT:}}")
     private String endpoint;
 
@@ -27,28 +47,136 @@ public class LangChainConfig {
     @Value("${azure.openai.max-completion-tokens:1000}")
     private Integer maxCompletionTokens;
 
+    @Value("${azure.openai.routing.explore-ratio:0.05}")
+    private double exploreRatio;
+
+    @Value("${azure.openai.routing.eject-duration:30s}")
+    private Duration ejectDuration;
+
+    @Value("${azure.openai.routing.failure-threshold:3}")
+    private int failureThreshold;
+
+    @Value("${azure.openai.routing.ewma-alpha:0.3}")
+    private double ewmaAlpha;
+
+    /**
+     * An additional deployment, from {@code azure.openai.backends[n]}.
+     */
+    record BackendSettings(String name, String endpoint, String apiKey, String deployment) {
+    }
+
     /**
      * Creates and configures the Azure OpenAI Chat Model bean.
      * This model is used for standard chat completion requests.
      * GPT-5 uses max_completion_tokens instead of max_tokens.
      * LangChain4j 1.7.1 added support for maxCompletionTokens() for Azure OpenAI.
+     * The client is built here so that it can report cached prompt tokens,
+     * which the LangChain4j adapter does not pass on.
+     * <p>
+     * When further deployments are listed under {@code azure.openai.backends},
+     * the bean is a {@link RoutingChatModel} that spreads calls over all of
+     * them. Their clients do not retry, so a failing call moves on to the next
+     * deployment at once.
      *
+     * @param usageRecorder receives prompt and cached token counts of each call
+     * @param environment source of the additional deployments
      * @return configured AzureOpenAiChatModel instance
      */
     @Bean
-    public AzureOpenAiChatModel chatModel() {
+    public AzureOpenAiChatModel chatModel(PromptUsageRecorder usageRecorder, Environment environment) {
         System.out.println("Creating AzureOpenAiChatModel with endpoint: " + endpoint);
         System.out.println("API Key present: " + (apiKey != null && !apiKey.isEmpty()));
         System.out.println("Deployment: " + deployment);
         System.out.println("Max Completion Tokens: " + maxCompletionTokens);
-        
-        return AzureOpenAiChatModel.builder()
+
+        List<BackendSettings> extra = Binder.get(environment)
+            .bind("azure.openai.backends", Bindable.listOf(BackendSettings.class))
+            .orElse(List.of());
+        if (extra.isEmpty()) {
+            return modelBuilder(client(endpoint, apiKey, 3, usageRecorder, null), deployment).build();
+        }
+
+        List<RoutingChatModel.Backend> backends = new ArrayList<>();
+        List<BackendSettings> all = new ArrayList<>();
+        all.add(new BackendSettings("primary", endpoint, apiKey, deployment));
+        all.addAll(extra);
+        AzureOpenAiChatModel.Builder primary = null;
+        for (int i = 0; i < all.size(); i++) {
+            BackendSettings settings = all.get(i);
+            String name = hasText(settings.name()) ? settings.name() : settings.endpoint();
+            if (i > 0 && !hasText(settings.endpoint())) {
+                throw new IllegalStateException("azure.openai.backends[" + (i - 1) + "] has no endpoint");
+            }
+            // Deployments in the same resource share its key, so the primary key is the default
+            String backendKey = hasText(settings.apiKey()) ? settings.apiKey() : apiKey;
+            if (!hasText(backendKey)) {
+                throw new IllegalStateException("No API key for routing backend " + name
+                    + ": set its api-key or azure.openai.api-key");
+            }
+            String backendDeployment = hasText(settings.deployment()) ? settings.deployment() : deployment;
+            RateLimitPolicy rateLimits = new RateLimitPolicy();
+            AzureOpenAiChatModel.Builder builder = modelBuilder(
+                client(settings.endpoint(), backendKey, 0, usageRecorder, rateLimits), backendDeployment);
+            if (primary == null) {
+                primary = builder;
+            }
+            log.info("Routing backend: {} ({})", name, backendDeployment);
+            backends.add(new RoutingChatModel.Backend(name, backendDeployment, builder.build(), rateLimits));
+        }
+        return new RoutingChatModel(primary, backends, exploreRatio, ejectDuration, failureThreshold, ewmaAlpha);
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isBlank();
+    }
+
+    private static OpenAIClient client(String endpoint, String apiKey, int maxRetries,
+                                       PromptUsageRecorder usageRecorder, RateLimitPolicy rateLimits) {
+        OpenAIClientBuilder builder = new OpenAIClientBuilder()
             .endpoint(endpoint)
-            .apiKey(apiKey)
-            .deploymentName(deployment)
+            .credential(new AzureKeyCredential(apiKey))
+            .retryOptions(new RetryOptions(new ExponentialBackoffOptions().setMaxRetries(maxRetries)))
+            .addPolicy(new PromptUsagePolicy(usageRecorder));
+        if (rateLimits != null) {
+            builder.addPolicy(rateLimits);
+        }
+        return builder.buildClient();
+    }
+
+    private AzureOpenAiChatModel.Builder modelBuilder(OpenAIClient client, String deploymentName) {
+        return AzureOpenAiChatModel.builder()
+            .openAIClient(client)
+            .deploymentName(deploymentName)
             .maxCompletionTokens(maxCompletionTokens)
-            .maxRetries(3)
-            .logRequestsAndResponses(false)
-            .build();
+            .logRequestsAndResponses(false);
+    }
+
+    /**
+     * Creates the streaming Azure OpenAI Chat Model bean.
+     * Used by the WebSocket conversation endpoint to forward tokens as they are
+     * generated, and to stop generating when the client goes away.
+     *
+     * @return configured CancellableStreamingChatModel instance
+     */
+    @Bean
+    public CancellableStreamingChatModel streamingChatModel() {
+        OpenAIAsyncClient client = new OpenAIClientBuilder()
+            .endpoint(endpoint)
+            .credential(new AzureKeyCredential(apiKey))
+            .retryOptions(new RetryOptions(new ExponentialBackoffOptions().setMaxRetries(3)))
+            .buildAsyncClient();
+        return new CancellableStreamingChatModel(client, deployment, maxCompletionTokens);
+    }
+
+    /**
+     * Token counter used to keep conversation history within its token budget.
+     *
+     * @param tokenizerModel model whose tokenizer to use
+     * @return token count estimator
+     */
+    @Bean
+    public TokenCountEstimator tokenCountEstimator(
+            @Value("${conversation.memory.tokenizer-model:gpt-4o}") String tokenizerModel) {
+        return new AzureOpenAiTokenCountEstimator(tokenizerModel);
     }
 }
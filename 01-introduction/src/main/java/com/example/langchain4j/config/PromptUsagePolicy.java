@@ -0,0 +1,55 @@
+package com.example.langchain4j.config;
+
+import com.azure.core.http.HttpPipelineCallContext;
+import com.azure.core.http.HttpPipelineNextPolicy;
+import com.azure.core.http.HttpPipelineNextSyncPolicy;
+import com.azure.core.http.HttpResponse;
+import com.azure.core.http.policy.HttpPipelinePolicy;
+import com.example.langchain4j.service.PromptUsageRecorder;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+
+/**
+ * Reads prompt and cached token counts from chat completion responses and
+ * hands them to the {@link PromptUsageRecorder}. Only the synchronous client
+ * path is inspected; asynchronous responses pass through untouched.
+ */
+class PromptUsagePolicy implements HttpPipelinePolicy {
+
+    private final PromptUsageRecorder recorder;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    PromptUsagePolicy(PromptUsageRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    @Override
+    public Mono<HttpResponse> process(HttpPipelineCallContext context, HttpPipelineNextPolicy next) {
+        return next.process();
+    }
+
+    @Override
+    public HttpResponse processSync(HttpPipelineCallContext context, HttpPipelineNextSyncPolicy next) {
+        HttpResponse response = next.processSync();
+        if (response.getStatusCode() != 200
+                || !response.getRequest().getUrl().getPath().endsWith("/chat/completions")) {
+            return response;
+        }
+        // Buffer so the client can still read the body after us
+        HttpResponse buffered = response.buffer();
+        try {
+            JsonNode usage = objectMapper.readTree(buffered.getBodyAsBinaryData().toBytes()).path("usage");
+            if (!usage.isMissingNode()) {
+                recorder.onUsage(
+                    usage.path("prompt_tokens").asInt(),
+                    usage.path("prompt_tokens_details").path("cached_tokens").asInt(0));
+            }
+        } catch (IOException e) {
+            // Usage is only reported, never needed to answer
+        }
+        return buffered;
+    }
+}
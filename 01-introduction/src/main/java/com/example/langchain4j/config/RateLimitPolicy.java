@@ -0,0 +1,110 @@
+package com.example.langchain4j.config;
+
+import com.azure.core.http.HttpHeaderName;
+import com.azure.core.http.HttpHeaders;
+import com.azure.core.http.HttpPipelineCallContext;
+import com.azure.core.http.HttpPipelineNextPolicy;
+import com.azure.core.http.HttpPipelineNextSyncPolicy;
+import com.azure.core.http.HttpResponse;
+import com.azure.core.http.policy.HttpPipelinePolicy;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reads the remaining request and token quota that Azure OpenAI reports in
+ * the {@code x-ratelimit-remaining-*} headers of each response, and the
+ * {@code retry-after} delay of a throttled one. The largest remaining value
+ * seen stands in for the limit, which the service does not report. Only the
+ * synchronous client path is inspected, as in {@link PromptUsagePolicy}.
+ */
+class RateLimitPolicy implements HttpPipelinePolicy {
+
+    private static final HttpHeaderName REMAINING_REQUESTS = HttpHeaderName.fromString("x-ratelimit-remaining-requests");
+    private static final HttpHeaderName REMAINING_TOKENS = HttpHeaderName.fromString("x-ratelimit-remaining-tokens");
+    private static final HttpHeaderName RETRY_AFTER_MS = HttpHeaderName.fromString("retry-after-ms");
+
+    private volatile long remainingRequests = -1;
+    private volatile long remainingTokens = -1;
+    private final AtomicLong maxRequests = new AtomicLong();
+    private final AtomicLong maxTokens = new AtomicLong();
+    private final AtomicLong retryAfterMillis = new AtomicLong(-1);
+
+    @Override
+    public Mono<HttpResponse> process(HttpPipelineCallContext context, HttpPipelineNextPolicy next) {
+        return next.process();
+    }
+
+    @Override
+    public HttpResponse processSync(HttpPipelineCallContext context, HttpPipelineNextSyncPolicy next) {
+        HttpResponse response = next.processSync();
+        HttpHeaders headers = response.getHeaders();
+        update(parse(headers.getValue(REMAINING_REQUESTS)), parse(headers.getValue(REMAINING_TOKENS)));
+        if (response.getStatusCode() == 429) {
+            long millis = parse(headers.getValue(RETRY_AFTER_MS));
+            if (millis < 0) {
+                long seconds = parse(headers.getValue(HttpHeaderName.RETRY_AFTER));
+                millis = seconds < 0 ? -1 : seconds * 1000;
+            }
+            retryAfterMillis.set(millis);
+        }
+        return response;
+    }
+
+    /**
+     * Record the quota left after a response; negative values are unknown.
+     */
+    void update(long requests, long tokens) {
+        if (requests >= 0) {
+            remainingRequests = requests;
+            maxRequests.accumulateAndGet(requests, Math::max);
+        }
+        if (tokens >= 0) {
+            remainingTokens = tokens;
+            maxTokens.accumulateAndGet(tokens, Math::max);
+        }
+    }
+
+    /**
+     * Share of the quota left, the lower of requests and tokens: 1 when the
+     * service reports no quota, 0 when either is used up.
+     */
+    double remainingShare() {
+        return Math.min(share(remainingRequests, maxRequests.get()), share(remainingTokens, maxTokens.get()));
+    }
+
+    long remainingRequests() {
+        return remainingRequests;
+    }
+
+    long remainingTokens() {
+        return remainingTokens;
+    }
+
+    /**
+     * Take the delay asked for by the last throttled response.
+     *
+     * @return the delay in milliseconds, or -1 if none was given
+     */
+    long takeRetryAfterMillis() {
+        return retryAfterMillis.getAndSet(-1);
+    }
+
+    private static double share(long remaining, long max) {
+        if (remaining < 0) {
+            return 1.0;
+        }
+        return remaining == 0 ? 0.0 : (double) remaining / max;
+    }
+
+    private static long parse(String value) {
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.example.langchain4j.config;
+
+import dev.langchain4j.exception.AuthenticationException;
+import dev.langchain4j.exception.InvalidRequestException;
+import dev.langchain4j.exception.ModelNotFoundException;
+import dev.langchain4j.exception.RateLimitException;
+import dev.langchain4j.model.azure.AzureOpenAiChatModel;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.random.RandomGenerator;
+
+/**
+ * Chat model that spreads calls over several Azure OpenAI deployments.
+ * <p>
+ * Each call goes to the healthy backend with the lowest score: its moving
+ * average (EWMA) latency, times the calls it has in flight, divided by the
+ * share of its rate limit quota that is left. Backends not yet measured are
+ * tried first, and a small share of calls goes to a random healthy backend
+ * so that a backend that got faster is noticed.
+ * <p>
+ * A call that fails on one backend is retried on the next. A throttled
+ * ({@code 429}) backend is ejected until its {@code retry-after} delay has
+ * passed, a backend that rejects the credentials or the deployment is ejected
+ * at once, and one that fails with server errors or timeouts is ejected after
+ * several failures in a row. Ejected backends are only used again when no
+ * healthy one is left. Invalid or filtered requests are not retried, since
+ * every backend would refuse them.
+ */
+public class RoutingChatModel extends AzureOpenAiChatModel {
+
+    /**
+     * One deployment calls can be routed to.
+     */
+    static final class Backend {
+        private final String name;
+        private final String deployment;
+        private final ChatModel model;
+        private final RateLimitPolicy rateLimits;
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong rateLimited = new AtomicLong();
+        private final AtomicLong ejections = new AtomicLong();
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        // Latency average in milliseconds, stored as double bits; negative until measured
+        private final AtomicLong ewmaBits = new AtomicLong(Double.doubleToLongBits(-1));
+        private volatile long ejectedUntilNanos;
+        private volatile boolean ejected;
+
+        Backend(String name, String deployment, ChatModel model, RateLimitPolicy rateLimits) {
+            this.name = name;
+            this.deployment = deployment;
+            this.model = model;
+            this.rateLimits = rateLimits;
+        }
+
+        private double ewmaMillis() {
+            return Double.longBitsToDouble(ewmaBits.get());
+        }
+
+        private boolean isHealthy(long now) {
+            return !ejected || now - ejectedUntilNanos >= 0;
+        }
+
+        private double score() {
+            double latency = Math.max(ewmaMillis(), 0);
+            double quota = Math.max(rateLimits.remainingShare(), 0.01);
+            return (latency + 1) * (1 + inFlight.get()) / quota;
+        }
+    }
+
+    private final List<Backend> backends;
+    private final double exploreRatio;
+    private final long ejectNanos;
+    private final int failureThreshold;
+    private final double ewmaAlpha;
+    private final Supplier<? extends RandomGenerator> random;
+    private final LongSupplier nanoClock;
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong failovers = new AtomicLong();
+    private final AtomicLong explored = new AtomicLong();
+
+    /**
+     * @param defaults     settings of the primary deployment, which also supply the default request parameters
+     * @param backends     deployments to route to, the primary first
+     * @param exploreRatio share of calls sent to a random healthy backend
+     * @param ejectFor     how long a failing backend is left out
+     * @param failureThreshold failures in a row that eject a backend
+     * @param ewmaAlpha    weight of the latest call in the latency average
+     */
+    RoutingChatModel(AzureOpenAiChatModel.Builder defaults, List<Backend> backends, double exploreRatio,
+                     Duration ejectFor, int failureThreshold, double ewmaAlpha) {
+        this(defaults, backends, exploreRatio, ejectFor, failureThreshold, ewmaAlpha,
+            ThreadLocalRandom::current, System::nanoTime);
+    }
+
+    RoutingChatModel(AzureOpenAiChatModel.Builder defaults, List<Backend> backends, double exploreRatio,
+                     Duration ejectFor, int failureThreshold, double ewmaAlpha,
+                     Supplier<? extends RandomGenerator> random, LongSupplier nanoClock) {
+        super(defaults);
+        if (backends.isEmpty()) {
+            throw new IllegalArgumentException("At least one backend is required");
+        }
+        this.backends = List.copyOf(backends);
+        this.exploreRatio = exploreRatio;
+        this.ejectNanos = ejectFor.toNanos();
+        this.failureThreshold = failureThreshold;
+        this.ewmaAlpha = ewmaAlpha;
+        this.random = random;
+        this.nanoClock = nanoClock;
+    }
+
+    @Override
+    public ChatResponse doChat(ChatRequest request) {
+        calls.incrementAndGet();
+        List<Backend> tried = new ArrayList<>();
+        RuntimeException lastFailure = null;
+        while (tried.size() < backends.size()) {
+            Backend backend = choose(tried);
+            if (!tried.isEmpty()) {
+                failovers.incrementAndGet();
+            }
+            tried.add(backend);
+            backend.requests.incrementAndGet();
+            backend.inFlight.incrementAndGet();
+            long start = nanoClock.getAsLong();
+            try {
+                ChatResponse response = backend.model.doChat(routedTo(backend, request));
+                succeeded(backend, nanoClock.getAsLong() - start);
+                return response;
+            } catch (InvalidRequestException e) {
+                // The request itself was refused (or filtered), another backend would refuse it too
+                throw e;
+            } catch (RuntimeException e) {
+                failed(backend, e);
+                lastFailure = e;
+            } finally {
+                backend.inFlight.decrementAndGet();
+            }
+        }
+        throw lastFailure;
+    }
+
+    /**
+     * Get routing metrics.
+     *
+     * @return calls and failovers, and for each backend its traffic share, latency, failures and quota left
+     */
+    public Map<String, Object> stats() {
+        long now = nanoClock.getAsLong();
+        long total = backends.stream().mapToLong(backend -> backend.requests.get()).sum();
+        List<Map<String, Object>> perBackend = new ArrayList<>();
+        for (Backend backend : backends) {
+            long requests = backend.requests.get();
+            double ewma = backend.ewmaMillis();
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("name", backend.name);
+            stats.put("deployment", backend.deployment);
+            stats.put("healthy", backend.isHealthy(now));
+            stats.put("ejectedForMs", backend.isHealthy(now) ? 0L
+                : TimeUnit.NANOSECONDS.toMillis(backend.ejectedUntilNanos - now));
+            stats.put("requests", requests);
+            stats.put("trafficShare", total == 0 ? 0.0 : (double) requests / total);
+            stats.put("ewmaLatencyMs", ewma < 0 ? null : Math.round(ewma));
+            stats.put("inFlight", backend.inFlight.get());
+            stats.put("failures", backend.failures.get());
+            stats.put("rateLimited", backend.rateLimited.get());
+            stats.put("ejections", backend.ejections.get());
+            stats.put("remainingRequests", backend.rateLimits.remainingRequests() < 0 ? null
+                : backend.rateLimits.remainingRequests());
+            stats.put("remainingTokens", backend.rateLimits.remainingTokens() < 0 ? null
+                : backend.rateLimits.remainingTokens());
+            perBackend.add(stats);
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("calls", calls.get());
+        stats.put("failovers", failovers.get());
+        stats.put("explored", explored.get());
+        stats.put("backends", perBackend);
+        return stats;
+    }
+
+    private Backend choose(List<Backend> tried) {
+        long now = nanoClock.getAsLong();
+        List<Backend> healthy = new ArrayList<>();
+        Backend soonestBack = null;
+        for (Backend backend : backends) {
+            if (tried.contains(backend)) {
+                continue;
+            }
+            if (backend.isHealthy(now)) {
+                healthy.add(backend);
+            } else if (soonestBack == null || backend.ejectedUntilNanos - soonestBack.ejectedUntilNanos < 0) {
+                soonestBack = backend;
+            }
+        }
+        if (healthy.isEmpty()) {
+            return soonestBack;
+        }
+        // Looked up per call: a ThreadLocalRandom must only be used by the thread that got it
+        RandomGenerator random = this.random.get();
+        if (healthy.size() > 1 && random.nextDouble() < exploreRatio) {
+            explored.incrementAndGet();
+            return healthy.get(random.nextInt(healthy.size()));
+        }
+        Backend best = healthy.get(0);
+        for (Backend backend : healthy) {
+            if (backend.score() < best.score()) {
+                best = backend;
+            }
+        }
+        return best;
+    }
+
+    private void succeeded(Backend backend, long elapsedNanos) {
+        backend.consecutiveFailures.set(0);
+        backend.ejected = false;
+        double millis = elapsedNanos / 1_000_000.0;
+        backend.ewmaBits.getAndUpdate(bits -> {
+            double previous = Double.longBitsToDouble(bits);
+            double next = previous < 0 ? millis : ewmaAlpha * millis + (1 - ewmaAlpha) * previous;
+            return Double.doubleToLongBits(next);
+        });
+    }
+
+    private void failed(Backend backend, RuntimeException e) {
+        backend.failures.incrementAndGet();
+        if (e instanceof RateLimitException) {
+            backend.rateLimited.incrementAndGet();
+            long retryAfterMillis = backend.rateLimits.takeRetryAfterMillis();
+            eject(backend, retryAfterMillis >= 0 ? TimeUnit.MILLISECONDS.toNanos(retryAfterMillis) : ejectNanos);
+        } else if (e instanceof AuthenticationException || e instanceof ModelNotFoundException) {
+            eject(backend, ejectNanos);
+        } else if (backend.consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            eject(backend, ejectNanos);
+        }
+    }
+
+    private void eject(Backend backend, long forNanos) {
+        backend.consecutiveFailures.set(0);
+        backend.ejectedUntilNanos = nanoClock.getAsLong() + forNanos;
+        backend.ejected = true;
+        backend.ejections.incrementAndGet();
+    }
+
+    /**
+     * The request as the backend's deployment should receive it. The
+     * parameters were merged with this model's defaults, which name the
+     * primary deployment.
+     */
+    private static ChatRequest routedTo(Backend backend, ChatRequest request) {
+        return ChatRequest.builder()
+            .messages(request.messages())
+            .parameters(request.parameters().overrideWith(
+                ChatRequestParameters.builder().modelName(backend.deployment).build()))
+            .build();
+    }
+}
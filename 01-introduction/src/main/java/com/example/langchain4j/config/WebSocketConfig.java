@@ -0,0 +1,26 @@
+package com.example.langchain4j.config;
+
+import com.example.langchain4j.app.ConversationSocketHandler;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+/**
+ * Configuration for the WebSocket conversation endpoint.
+ */
+@Configuration
+@EnableWebSocket
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    private final ConversationSocketHandler conversationSocketHandler;
+
+    public WebSocketConfig(ConversationSocketHandler conversationSocketHandler) {
+        this.conversationSocketHandler = conversationSocketHandler;
+    }
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(conversationSocketHandler, "/ws/conversation");
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.langchain4j.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.TokenUsage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Exact-match cache of answers to stateless chat prompts.
+ * <p>
+ * Entries are keyed on the prompt, normalized for Unicode form and whitespace,
+ * together with the model settings that shape the answer, so a change of
+ * deployment or token limit never serves an old answer. The cache is bounded
+ * by an approximate size in bytes and a time to live; Caffeine's W-TinyLFU
+ * policy only admits a new entry over an old one if its prompt is asked more
+ * often, so a burst of one-off prompts cannot flush the frequent ones.
+ * <p>
+ * Each entry keeps the tokens and latency of the call that produced it, and
+ * every hit adds them to the saved totals in {@link #stats()}.
+ */
+@Component
+public class ChatResponseCache {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    private record Entry(String answer, int tokens, long latencyMillis) {
+    }
+
+    private final boolean enabled;
+    private final String modelSettings;
+    private final long maxBytes;
+    private final Duration ttl;
+    private final Cache<String, Entry> cache;
+
+    private final AtomicLong bypassed = new AtomicLong();
+    private final AtomicLong tokensSaved = new AtomicLong();
+    private final AtomicLong latencySavedMillis = new AtomicLong();
+
+    @Autowired
+    public ChatResponseCache(
+            @Value("${chat.cache.enabled:true}") boolean enabled,
+            @Value("${chat.cache.max-size:64MB}") DataSize maxSize,
+            @Value("${chat.cache.ttl:1h}") Duration ttl,
+            @Value("${azure.openai.deployment:${AZURE_OPENAI_DEPLOYMENT:}}") String deployment,
+            @Value("${azure.openai.max-completion-tokens:1000}") int maxCompletionTokens,
+            @Value("${azure.openai.reasoning-effort:medium}") String reasoningEffort) {
+        this(enabled, maxSize.toBytes(), ttl,
+            deployment + "|" + maxCompletionTokens + "|" + reasoningEffort, Ticker.systemTicker());
+    }
+
+    ChatResponseCache(boolean enabled, long maxBytes, Duration ttl, String modelSettings, Ticker ticker) {
+        this.enabled = enabled;
+        this.modelSettings = modelSettings;
+        this.maxBytes = maxBytes;
+        this.ttl = ttl;
+        this.cache = Caffeine.newBuilder()
+            .maximumWeight(maxBytes)
+            .weigher((String key, Entry entry) -> weigh(key, entry))
+            .expireAfterWrite(ttl)
+            .ticker(ticker)
+            .recordStats()
+            .build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Look up the cached answer to a prompt.
+     *
+     * @return the answer, or empty on a miss
+     */
+    public Optional<String> lookup(String prompt) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        Entry entry = cache.getIfPresent(key(prompt));
+        if (entry == null) {
+            return Optional.empty();
+        }
+        tokensSaved.addAndGet(entry.tokens());
+        latencySavedMillis.addAndGet(entry.latencyMillis());
+        return Optional.of(entry.answer());
+    }
+
+    /**
+     * Cache the answer of a model call made for a prompt.
+     *
+     * @param latencyMillis how long the call took, saved again on every hit
+     */
+    public void store(String prompt, ChatResponse response, long latencyMillis) {
+        String answer = response.aiMessage() != null ? response.aiMessage().text() : null;
+        if (!enabled || answer == null) {
+            return;
+        }
+        cache.put(key(prompt), new Entry(answer, tokens(response.tokenUsage()), latencyMillis));
+    }
+
+    /**
+     * Count a request that asked not to be answered from the cache.
+     */
+    public void bypass() {
+        bypassed.incrementAndGet();
+    }
+
+    /**
+     * Get cache metrics.
+     *
+     * @return hits, misses, evictions, size, and the tokens and model latency saved by hits
+     */
+    public Map<String, Object> stats() {
+        // Apply pending writes and evictions, so size and eviction counts are current
+        cache.cleanUp();
+        CacheStats cacheStats = cache.stats();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("entries", cache.estimatedSize());
+        stats.put("sizeBytes", cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L));
+        stats.put("maxSizeBytes", maxBytes);
+        stats.put("ttlSeconds", ttl.toSeconds());
+        stats.put("hits", cacheStats.hitCount());
+        stats.put("misses", cacheStats.missCount());
+        stats.put("hitRate", cacheStats.hitRate());
+        stats.put("bypassed", bypassed.get());
+        stats.put("evictions", cacheStats.evictionCount());
+        stats.put("tokensSaved", tokensSaved.get());
+        stats.put("latencySavedMs", latencySavedMillis.get());
+        return stats;
+    }
+
+    /**
+     * Cache key of a prompt: the model settings and the normalized prompt.
+     */
+    String key(String prompt) {
+        String normalized = Normalizer.normalize(prompt, Normalizer.Form.NFC).strip();
+        return modelSettings + "\n" + WHITESPACE.matcher(normalized).replaceAll(" ");
+    }
+
+    private static int weigh(String key, Entry entry) {
+        // Strings hold at most two bytes per character
+        long bytes = ENTRY_OVERHEAD_BYTES + 2L * (key.length() + entry.answer().length());
+        return (int) Math.min(bytes, Integer.MAX_VALUE);
+    }
+
+    private static int tokens(TokenUsage usage) {
+        return usage != null && usage.totalTokenCount() != null ? usage.totalTokenCount() : 0;
+    }
+}
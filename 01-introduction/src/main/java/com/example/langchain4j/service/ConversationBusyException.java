@@ -0,0 +1,12 @@
+package com.example.langchain4j.service;
+
+/**
+ * Thrown when a message arrives for a conversation that is still answering
+ * an earlier message and the new message cannot wait for it.
+ */
+public class ConversationBusyException extends RuntimeException {
+
+    public ConversationBusyException(String conversationId) {
+        super("Conversation " + conversationId + " is busy with another message");
+    }
+}
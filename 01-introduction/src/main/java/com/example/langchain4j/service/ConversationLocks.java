@@ -0,0 +1,81 @@
+package com.example.langchain4j.service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One fair lock per conversation, so turns of the same conversation run one at a time
+ * in arrival order while different conversations never wait on each other.
+ * A conversation's lock only exists while a turn holds or waits for it.
+ */
+final class ConversationLocks {
+
+    private final Map<String, Entry> locks = new ConcurrentHashMap<>();
+
+    /**
+     * Held lock on a conversation; closing it releases the lock.
+     */
+    final class Lease implements AutoCloseable {
+        private final String conversationId;
+        private final Entry entry;
+
+        private Lease(String conversationId, Entry entry) {
+            this.conversationId = conversationId;
+            this.entry = entry;
+        }
+
+        @Override
+        public void close() {
+            entry.lock.unlock();
+            release(conversationId, entry);
+        }
+    }
+
+    /**
+     * Lock a conversation, waiting at most {@code maxWait} for an earlier turn to finish.
+     *
+     * @return the lease, or null if the conversation stayed busy for {@code maxWait}
+     */
+    Lease acquire(String conversationId, Duration maxWait) throws InterruptedException {
+        Entry entry = locks.compute(conversationId, (id, existing) -> {
+            Entry e = existing != null ? existing : new Entry();
+            e.users++;
+            return e;
+        });
+
+        boolean locked = false;
+        try {
+            locked = entry.lock.tryLock();
+            if (!locked && maxWait.isPositive()) {
+                locked = entry.lock.tryLock(maxWait.toNanos(), TimeUnit.NANOSECONDS);
+            }
+        } finally {
+            if (!locked) {
+                release(conversationId, entry);
+            }
+        }
+
+        return locked ? new Lease(conversationId, entry) : null;
+    }
+
+    /**
+     * Whether a turn of the conversation holds or waits for its lock.
+     */
+    boolean isBusy(String conversationId) {
+        return locks.containsKey(conversationId);
+    }
+
+    private void release(String conversationId, Entry entry) {
+        locks.computeIfPresent(conversationId, (id, existing) ->
+            existing == entry && --existing.users == 0 ? null : existing);
+    }
+
+    private static final class Entry {
+        private final ReentrantLock lock = new ReentrantLock(true);
+        // Turns holding or waiting for the lock; guarded by the map's compute
+        private int users;
+    }
+}
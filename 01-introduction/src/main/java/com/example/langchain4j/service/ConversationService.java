@@ -1,32 +1,120 @@
 package com.example.langchain4j.service;
 
+import com.example.langchain4j.config.CancellableStreamingChatModel;
 import dev.langchain4j.data.message.AiMessage;
 import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
 import dev.langchain4j.data.message.UserMessage;
-import dev.langchain4j.memory.ChatMemory;
-import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import dev.langchain4j.model.TokenCountEstimator;
 import dev.langchain4j.model.azure.AzureOpenAiChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Service for managing conversational interactions with memory.
  * Maintains separate conversation histories for different conversation IDs.
+ * <p>
+ * Each turn sends the history as a list of messages after a fixed system
+ * message, so the start of the prompt stays identical from turn to turn and
+ * the provider can serve it from its prompt cache. The older format, which
+ * flattens the history into one user message, remains available for comparison.
+ * <p>
+ * History is bounded by tokens: recent turns are sent verbatim and older ones
+ * are folded into a rolling summary in the background (see {@link TokenBudgetMemory}).
+ * <p>
+ * Conversations are persisted by {@link ConversationStore}: idle ones leave
+ * memory and are reloaded from disk on their next message. A message is only
+ * kept once it has been answered; a failed or cancelled turn leaves no trace.
  */
 @Service
 public class ConversationService {
 
+    /**
+     * How the conversation history is sent to the model.
+     */
+    public enum PromptFormat {
+        /** Fixed system message followed by the history as separate messages. */
+        MESSAGES,
+        /** The whole history flattened into a single "User: ... Assistant: ..." message. */
+        FLATTENED;
+
+        public static PromptFormat parse(String value) {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+
+        String label() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
     private final AzureOpenAiChatModel chatModel;
-    private final Map<String, ChatMemory> conversationMemories;
-    private static final int MAX_MESSAGES = 10;
+    private final CancellableStreamingChatModel streamingChatModel;
+    private final Duration streamTimeout;
+    private final ConversationStore store;
+
+    private final TokenCountEstimator tokenEstimator;
+    private final ConversationSummarizer summarizer;
+    private final int maxHistoryTokens;
+    private final int summarizeAboveTokens;
+    private final int keepRecentTokens;
+
+    private final PromptUsageRecorder usageRecorder;
+    private final SystemMessage systemMessage;
+    private final PromptFormat defaultFormat;
 
-    public ConversationService(AzureOpenAiChatModel chatModel) {
+    // Messages of one conversation are answered one at a time
+    private final ConversationLocks conversationLocks = new ConversationLocks();
+    private final boolean rejectConcurrentMessages;
+    private final Duration queueTimeout;
+
+    public ConversationService(
+            AzureOpenAiChatModel chatModel,
+            CancellableStreamingChatModel streamingChatModel,
+            PromptUsageRecorder usageRecorder,
+            TokenCountEstimator tokenEstimator,
+            ConversationSummarizer summarizer,
+            ConversationStore store,
+            @Value("${conversation.memory.max-tokens:4000}") int maxHistoryTokens,
+            @Value("${conversation.memory.summarize-above-tokens:3000}") int summarizeAboveTokens,
+            @Value("${conversation.memory.keep-recent-tokens:1500}") int keepRecentTokens,
+            @Value("${conversation.concurrent-messages:queue}") String concurrentMessages,
+            @Value("${conversation.queue-timeout:30s}") Duration queueTimeout,
+            @Value("${conversation.system-prompt:You are a helpful assistant. Answer using the conversation so far.}") String systemPrompt,
+            @Value("${conversation.prompt-format:messages}") String promptFormat,
+            @Value("${conversation.stream-timeout:2m}") Duration streamTimeout) {
         this.chatModel = chatModel;
-        this.conversationMemories = new ConcurrentHashMap<>();
+        this.streamingChatModel = streamingChatModel;
+        this.streamTimeout = streamTimeout;
+        this.store = store;
+        this.usageRecorder = usageRecorder;
+        this.tokenEstimator = tokenEstimator;
+        this.summarizer = summarizer;
+        this.maxHistoryTokens = maxHistoryTokens;
+        this.summarizeAboveTokens = summarizeAboveTokens;
+        this.keepRecentTokens = keepRecentTokens;
+        this.rejectConcurrentMessages = "reject".equalsIgnoreCase(concurrentMessages);
+        this.queueTimeout = queueTimeout;
+        this.systemMessage = SystemMessage.from(systemPrompt);
+        this.defaultFormat = PromptFormat.parse(promptFormat);
     }
 
     /**
@@ -35,50 +123,174 @@ public class ConversationService {
      * @return new conversation ID
      */
     public String startConversation() {
+        return startConversation(defaultFormat);
+    }
+
+    /**
+     * Start a new conversation that sends its history in the given format.
+     *
+     * @param format prompt format for every turn of this conversation
+     * @return new conversation ID
+     */
+    public String startConversation(PromptFormat format) {
         String conversationId = UUID.randomUUID().toString();
-        ChatMemory memory = MessageWindowChatMemory.withMaxMessages(MAX_MESSAGES);
-        conversationMemories.put(conversationId, memory);
+        store.create(conversationId, format, newMemory());
         return conversationId;
     }
 
     /**
      * Send a message within an existing conversation.
+     * Messages sent to the same conversation concurrently are answered in turn,
+     * so the history never interleaves two exchanges.
      *
      * @param conversationId the conversation ID
      * @param message the user message
      * @return AI response
+     * @throws ConversationBusyException if the conversation is still answering an
+     *         earlier message and concurrent messages are rejected or the wait timed out
      */
     public String chat(String conversationId, String message) {
-        ChatMemory memory = conversationMemories.computeIfAbsent(
-            conversationId,
-            id -> MessageWindowChatMemory.withMaxMessages(MAX_MESSAGES)
-        );
+        return turn(conversationId, message, "", chatModel::chat);
+    }
+
+    /**
+     * Send a message within an existing conversation and pass the answer on
+     * token by token as the model generates it. Blocks until the answer is
+     * complete; turns are serialized exactly as for {@link #chat}. Interrupting
+     * the calling thread stops generation. Streamed turns are recorded in the
+     * prompt stats under their own label, e.g. {@code messages-streamed}.
+     *
+     * @param conversationId the conversation ID
+     * @param message the user message
+     * @param onToken receives each piece of the answer as it arrives
+     * @return the complete AI response
+     * @throws ConversationBusyException if the conversation is still answering an
+     *         earlier message and concurrent messages are rejected or the wait timed out
+     */
+    public String chatStreaming(String conversationId, String message, Consumer<String> onToken) {
+        return turn(conversationId, message, "-streamed", prompt -> stream(prompt, onToken));
+    }
 
-        // Add user message to memory
+    private String turn(String conversationId, String message, String labelSuffix,
+                        Function<List<ChatMessage>, ChatResponse> model) {
+        ConversationLocks.Lease lease;
+        try {
+            lease = conversationLocks.acquire(conversationId, rejectConcurrentMessages ? Duration.ZERO : queueTimeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for conversation " + conversationId, e);
+        }
+        if (lease == null) {
+            throw new ConversationBusyException(conversationId);
+        }
+        try (lease) {
+            return answer(conversationId, message, labelSuffix, model);
+        }
+    }
+
+    private String answer(String conversationId, String message, String labelSuffix,
+                          Function<List<ChatMessage>, ChatResponse> model) {
+        ConversationStore.Conversation conversation = store.find(conversationId, this::newMemory);
+        if (conversation == null) {
+            conversation = store.create(conversationId, defaultFormat, newMemory());
+        }
+        TokenBudgetMemory memory = conversation.memory();
+
+        // Add user message to memory; it is taken back if the turn gets no answer
         UserMessage userMessage = UserMessage.from(message);
         memory.add(userMessage);
 
-        // Get all messages for context
-        List<ChatMessage> messages = memory.messages();
+        PromptFormat format = conversation.format();
+        ChatResponse response;
+        try {
+            List<ChatMessage> prompt = prompt(format, memory.promptMessages());
+            response = usageRecorder.measure(format.label() + labelSuffix, () -> model.apply(prompt));
+        } catch (RuntimeException e) {
+            memory.removeLast(userMessage);
+            throw e;
+        }
+        String answer = response.aiMessage().text();
+
+        // Add AI response to memory, and persist the whole turn
+        AiMessage aiMessage = AiMessage.from(answer);
+        memory.add(aiMessage);
+        store.append(conversation, userMessage);
+        store.append(conversation, aiMessage);
+
+        // Fold older turns into the summary after answering, so it never delays a reply
+        ConversationStore.Conversation folding = conversation;
+        summarizer.summarizeIfDue(conversationId, memory,
+            (foldedMessages, summary) -> store.summarized(folding, foldedMessages, summary));
+
+        return answer;
+    }
 
-        // Build context from conversation history
-        StringBuilder context = new StringBuilder();
-        for (ChatMessage msg : messages) {
-            if (msg instanceof UserMessage userMessage1) {
-                context.append("User: ").append(userMessage1.singleText()).append("\n");
-            } else if (msg instanceof AiMessage aiMessage) {
-                context.append("Assistant: ").append(aiMessage.text()).append("\n");
+    private ChatResponse stream(List<ChatMessage> prompt, Consumer<String> onToken) {
+        CompletableFuture<ChatResponse> result = new CompletableFuture<>();
+        StreamingChatResponseHandler handler = new StreamingChatResponseHandler() {
+            @Override
+            public void onPartialResponse(String token) {
+                // Tokens already in flight when the turn was given up are dropped
+                if (!result.isDone()) {
+                    onToken.accept(token);
+                }
             }
-        }
 
-        // Generate response using chat method
-        String response = chatModel.chat(context.toString());
+            @Override
+            public void onCompleteResponse(ChatResponse response) {
+                result.complete(response);
+            }
 
-        // Add AI response to memory
-        AiMessage aiMessage = AiMessage.from(response);
-        memory.add(aiMessage);
+            @Override
+            public void onError(Throwable error) {
+                result.completeExceptionally(error);
+            }
+        };
+        Disposable stream = streamingChatModel.start(ChatRequest.builder().messages(prompt).build(), handler);
+        try {
+            ChatResponse response = result.get(streamTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            if (response.tokenUsage() instanceof CancellableStreamingChatModel.StreamedTokenUsage usage) {
+                usageRecorder.onUsage(usage.inputTokenCount(), usage.cachedTokens());
+            }
+            return response;
+        } catch (InterruptedException e) {
+            // Stop generating; nobody is waiting for the rest of the answer
+            result.cancel(false);
+            stream.dispose();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while streaming the answer", e);
+        } catch (TimeoutException e) {
+            result.cancel(false);
+            stream.dispose();
+            throw new IllegalStateException("No complete answer within " + streamTimeout.toSeconds() + "s", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Streaming the answer failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
 
-        return response;
+    private TokenBudgetMemory newMemory() {
+        return new TokenBudgetMemory(tokenEstimator, maxHistoryTokens, summarizeAboveTokens, keepRecentTokens);
+    }
+
+    private List<ChatMessage> prompt(PromptFormat format, List<ChatMessage> history) {
+        if (format == PromptFormat.FLATTENED) {
+            // Build context from conversation history
+            StringBuilder context = new StringBuilder();
+            for (ChatMessage msg : history) {
+                if (msg instanceof SystemMessage summary) {
+                    context.append(summary.text()).append("\n");
+                } else if (msg instanceof UserMessage userMessage) {
+                    context.append("User: ").append(userMessage.singleText()).append("\n");
+                } else if (msg instanceof AiMessage aiMessage) {
+                    context.append("Assistant: ").append(aiMessage.text()).append("\n");
+                }
+            }
+            return List.of(UserMessage.from(context.toString()));
+        }
+        List<ChatMessage> messages = new ArrayList<>(history.size() + 1);
+        messages.add(systemMessage);
+        messages.addAll(history);
+        return messages;
     }
 
     /**
@@ -88,8 +300,25 @@ public class ConversationService {
      * @return list of chat messages
      */
     public List<ChatMessage> getHistory(String conversationId) {
-        ChatMemory memory = conversationMemories.get(conversationId);
-        return memory != null ? memory.messages() : List.of();
+        ConversationStore.Conversation conversation = store.find(conversationId, this::newMemory);
+        return conversation != null ? conversation.memory().messages() : List.of();
+    }
+
+    /**
+     * Read the stored history of a conversation page by page, including
+     * messages already folded into the summary. Entries are passed to the
+     * visitor as they are read from storage.
+     *
+     * @param conversationId the conversation ID
+     * @param cursor where to continue, or null to start at the first message
+     * @param limit maximum number of entries to read
+     * @param visitor receives each entry
+     * @return the cursor for the next page, or null after the last entry
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public String readHistory(String conversationId, String cursor, long limit,
+                              ConversationStore.HistoryVisitor visitor) throws IOException {
+        return store.readHistory(conversationId, cursor, limit, visitor);
     }
 
     /**
@@ -98,7 +327,7 @@ public class ConversationService {
      * @param conversationId the conversation ID
      */
     public void clearConversation(String conversationId) {
-        conversationMemories.remove(conversationId);
+        store.delete(conversationId);
     }
 
     /**
@@ -108,6 +337,45 @@ public class ConversationService {
      * @return true if conversation exists
      */
     public boolean conversationExists(String conversationId) {
-        return conversationMemories.containsKey(conversationId);
+        return store.exists(conversationId);
+    }
+
+    /**
+     * Get prompt size and summarization cost of a conversation.
+     *
+     * @param conversationId the conversation ID
+     * @return memory metrics, or null if the conversation does not exist
+     */
+    public Map<String, Object> getMemoryStats(String conversationId) {
+        ConversationStore.Conversation conversation = store.find(conversationId, this::newMemory);
+        return conversation != null ? conversation.memory().stats() : null;
+    }
+
+    /**
+     * Get persistence metrics: conversations in memory and on disk, evictions and reloads.
+     *
+     * @return store metrics
+     */
+    public Map<String, Object> getStoreStats() {
+        return store.stats();
+    }
+
+    /**
+     * Drop idle conversations from memory; they are reloaded on their next message.
+     * Logs past the retention period are deleted.
+     */
+    @Scheduled(fixedDelayString = "${conversation.store.sweep-interval-ms:60000}")
+    public void evictIdleConversations() {
+        store.evictIdle(conversationLocks::isBusy);
+        store.deleteExpired();
+    }
+
+    /**
+     * Get latency and prompt token usage per prompt format.
+     *
+     * @return calls, average latency, prompt and cached tokens for each format
+     */
+    public Map<String, Object> getPromptStats() {
+        return usageRecorder.stats();
     }
 }
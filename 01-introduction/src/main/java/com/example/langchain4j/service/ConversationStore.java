@@ -0,0 +1,590 @@
+package com.example.langchain4j.service;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Conversations kept in one append-only log file each, with only the active
+ * ones in memory.
+ * <p>
+ * Every message, and every summary that replaces older messages, is appended
+ * to the conversation's log as it happens. A conversation left idle for longer
+ * than the idle TTL is dropped from memory; its next message reads the log
+ * back through a memory-mapped buffer and replays it. Heap use therefore
+ * follows the number of active conversations, not the number ever started,
+ * and conversations survive a restart.
+ * <p>
+ * Records are framed with a length and a CRC, so a torn write at the end of a
+ * log is dropped when it is read. Logs not written to for longer than the
+ * retention period are deleted. With persistence disabled nothing is written
+ * and evicted conversations are gone.
+ */
+@Component
+public class ConversationStore implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ConversationStore.class);
+
+    private static final String SUFFIX = ".log";
+    private static final int MAX_RAW_ID_BYTES = 128;
+
+    private static final byte FORMAT = 1;
+    private static final byte USER = 2;
+    private static final byte AI = 3;
+    private static final byte SUMMARY = 4;
+
+    /**
+     * A conversation in memory.
+     */
+    static final class Conversation {
+        private final String id;
+        private final ConversationService.PromptFormat format;
+        private final TokenBudgetMemory memory;
+        // A lock rather than a monitor, so a virtual thread appending to the log releases its carrier
+        private final ReentrantLock writeLock = new ReentrantLock();
+        private FileChannel channel;
+        private boolean deleted;
+        private volatile long lastUsedNanos = System.nanoTime();
+
+        private Conversation(String id, ConversationService.PromptFormat format, TokenBudgetMemory memory) {
+            this.id = id;
+            this.format = format;
+            this.memory = memory;
+        }
+
+        ConversationService.PromptFormat format() {
+            return format;
+        }
+
+        TokenBudgetMemory memory() {
+            return memory;
+        }
+    }
+
+    private final boolean enabled;
+    private final Path directory;
+    private final long idleTtlNanos;
+    private final Duration retention;
+    private final Map<String, Conversation> active = new ConcurrentHashMap<>();
+
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong reloads = new AtomicLong();
+    private final AtomicLong reloadNanos = new AtomicLong();
+    private final AtomicLong writeFailures = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+
+    @Autowired
+    public ConversationStore(
+            @Value("${conversation.store.enabled:true}") boolean enabled,
+            @Value("${conversation.store.directory:${java.io.tmpdir}/conversations}") Path directory,
+            @Value("${conversation.store.idle-ttl:30m}") Duration idleTtl,
+            @Value("${conversation.store.retention:7d}") Duration retention) {
+        this.enabled = enabled;
+        this.directory = directory;
+        this.idleTtlNanos = idleTtl.toNanos();
+        this.retention = retention;
+        if (enabled) {
+            try {
+                Files.createDirectories(directory);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot create conversation directory " + directory, e);
+            }
+            log.info("Storing conversations in {}", directory);
+        }
+    }
+
+    ConversationStore(boolean enabled, Path directory, Duration idleTtl) {
+        this(enabled, directory, idleTtl, Duration.ZERO);
+    }
+
+    /**
+     * Create a conversation and record its prompt format.
+     */
+    Conversation create(String id, ConversationService.PromptFormat format, TokenBudgetMemory memory) {
+        Conversation conversation = new Conversation(id, format, memory);
+        active.put(id, conversation);
+        write(conversation, FORMAT, record -> writeText(record, format.name()));
+        return conversation;
+    }
+
+    /**
+     * The conversation with this id, reloaded from its log if it was evicted.
+     *
+     * @param newMemory creates the empty memory that a reloaded log is replayed into
+     * @return the conversation, or null if it does not exist
+     */
+    Conversation find(String id, Supplier<TokenBudgetMemory> newMemory) {
+        // Touched inside the map's compute, which evictIdle also uses, so a sweep either
+        // evicts the conversation before this lookup or sees it as just used
+        Conversation conversation = active.computeIfPresent(id, (key, existing) -> {
+            existing.lastUsedNanos = System.nanoTime();
+            return existing;
+        });
+        if (conversation != null) {
+            return conversation;
+        }
+        Conversation loaded = load(id, newMemory.get());
+        if (loaded == null) {
+            return null;
+        }
+        Conversation existing = active.putIfAbsent(id, loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    boolean exists(String id) {
+        return active.containsKey(id) || (enabled && Files.exists(fileFor(id)));
+    }
+
+    /**
+     * Record a message added to a conversation.
+     */
+    void append(Conversation conversation, ChatMessage message) {
+        if (message instanceof UserMessage userMessage) {
+            write(conversation, USER, record -> writeText(record, userMessage.singleText()));
+        } else if (message instanceof AiMessage aiMessage) {
+            write(conversation, AI, record -> writeText(record, aiMessage.text()));
+        }
+    }
+
+    /**
+     * Record that the oldest {@code foldedMessages} messages were replaced by a summary.
+     */
+    void summarized(Conversation conversation, int foldedMessages, String summary) {
+        write(conversation, SUMMARY, record -> {
+            record.writeInt(foldedMessages);
+            writeText(record, summary);
+        });
+    }
+
+    /**
+     * One message of a conversation's history, as stored.
+     *
+     * @param index position in the history, counting from 0
+     * @param type  USER, AI, or SUMMARY for a summary that replaced earlier messages
+     * @param text  the message text
+     */
+    public record HistoryEntry(long index, String type, String text) {
+    }
+
+    /**
+     * Receives history entries as they are read.
+     */
+    public interface HistoryVisitor {
+        void visit(HistoryEntry entry) throws IOException;
+    }
+
+    /**
+     * Read a conversation's history from its log, entry by entry, without
+     * loading the conversation or holding the history in memory. Messages
+     * already folded into a summary are included. With persistence disabled
+     * the in-memory history is read instead.
+     *
+     * @param cursor where to continue, as returned by an earlier call, or null to start at the beginning
+     * @param limit  maximum number of entries to read
+     * @return the cursor after the last entry read, or null if the history has no more entries
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    String readHistory(String id, String cursor, long limit, HistoryVisitor visitor) throws IOException {
+        long[] position = decodeCursor(cursor);
+        if (!enabled) {
+            Conversation conversation = active.get(id);
+            List<ChatMessage> messages = conversation != null ? conversation.memory.messages() : List.of();
+            long index = position[0];
+            for (; index < messages.size() && index < position[0] + limit; index++) {
+                visitor.visit(entryOf(index, messages.get((int) index)));
+            }
+            return index < messages.size() ? encodeCursor(index, index) : null;
+        }
+
+        long[] index = {position[0]};
+        long[] read = {0};
+        try (FileChannel channel = FileChannel.open(fileFor(id), StandardOpenOption.READ)) {
+            long offset = readRecords(channel, position[1], (type, record) -> {
+                String entryType = switch (type) {
+                    case USER -> "USER";
+                    case AI -> "AI";
+                    case SUMMARY -> {
+                        record.getInt();
+                        yield "SUMMARY";
+                    }
+                    default -> null;
+                };
+                if (entryType == null) {
+                    return true;
+                }
+                visitor.visit(new HistoryEntry(index[0]++, entryType, readText(record)));
+                return ++read[0] < limit;
+            });
+            // Stop at the end of the log, and at a record still being written or a cursor into the middle of one
+            boolean more = offset < channel.size() && read[0] > 0;
+            return more ? encodeCursor(index[0], offset) : null;
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Remove a conversation from memory and disk.
+     */
+    void delete(String id) {
+        Conversation conversation = active.remove(id);
+        if (conversation != null) {
+            close(conversation, true);
+        }
+        if (enabled) {
+            try {
+                Files.deleteIfExists(fileFor(id));
+            } catch (IOException e) {
+                log.warn("Failed to delete conversation {}: {}", id, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Drop conversations idle for longer than the TTL from memory. Conversations
+     * answering a message or folding a summary are kept.
+     *
+     * @param busy whether a conversation has a turn in progress or waiting
+     * @return the number of conversations evicted
+     */
+    int evictIdle(Predicate<String> busy) {
+        long now = System.nanoTime();
+        int count = 0;
+        for (String id : active.keySet()) {
+            Conversation[] evicted = new Conversation[1];
+            active.computeIfPresent(id, (key, conversation) -> {
+                if (now - conversation.lastUsedNanos <= idleTtlNanos
+                        || busy.test(key) || conversation.memory.isSummarizing()) {
+                    return conversation;
+                }
+                evicted[0] = conversation;
+                return null;
+            });
+            if (evicted[0] != null) {
+                close(evicted[0], false);
+                count++;
+            }
+        }
+        evictions.addAndGet(count);
+        return count;
+    }
+
+    /**
+     * Delete the logs of conversations not written to for longer than the
+     * retention period. Conversations in memory are kept.
+     *
+     * @return the number of logs deleted
+     */
+    int deleteExpired() {
+        if (!enabled || retention.isZero() || retention.isNegative()) {
+            return 0;
+        }
+        Instant cutoff = Instant.now().minus(retention);
+        Set<Path> inMemory = active.keySet().stream().map(this::fileFor).collect(Collectors.toSet());
+        int deleted = 0;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (file.toString().endsWith(SUFFIX) && !inMemory.contains(file)
+                        && Files.getLastModifiedTime(file).toInstant().isBefore(cutoff)) {
+                    Files.deleteIfExists(file);
+                    deleted++;
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to clean conversation directory: {}", e.getMessage());
+        }
+        expired.addAndGet(deleted);
+        return deleted;
+    }
+
+    /**
+     * Get store metrics.
+     *
+     * @return active and stored conversations, evictions, reloads, expired logs and log size
+     */
+    Map<String, Object> stats() {
+        long stored = 0;
+        long bytes = 0;
+        if (enabled) {
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    if (file.toString().endsWith(SUFFIX)) {
+                        stored++;
+                        bytes += Files.size(file);
+                    }
+                }
+            } catch (IOException e) {
+                stored = -1;
+            }
+        }
+        long reloaded = reloads.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("activeConversations", active.size());
+        stats.put("storedConversations", stored);
+        stats.put("logBytes", bytes);
+        stats.put("idleTtlSeconds", TimeUnit.NANOSECONDS.toSeconds(idleTtlNanos));
+        stats.put("evictions", evictions.get());
+        stats.put("retentionSeconds", retention.toSeconds());
+        stats.put("expiredLogs", expired.get());
+        stats.put("reloads", reloaded);
+        stats.put("avgReloadMs", reloaded > 0 ? TimeUnit.NANOSECONDS.toMillis(reloadNanos.get()) / (double) reloaded : 0.0);
+        stats.put("writeFailures", writeFailures.get());
+        return stats;
+    }
+
+    @Override
+    public void destroy() {
+        active.values().forEach(conversation -> close(conversation, false));
+    }
+
+    private interface RecordBody {
+        void write(DataOutputStream record) throws IOException;
+    }
+
+    private void write(Conversation conversation, byte type, RecordBody body) {
+        if (!enabled) {
+            return;
+        }
+        conversation.writeLock.lock();
+        try {
+            if (conversation.deleted) {
+                return;
+            }
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            DataOutputStream record = new DataOutputStream(buffer);
+            record.writeByte(type);
+            body.write(record);
+            byte[] bytes = buffer.toByteArray();
+
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+            ByteBuffer frame = ByteBuffer.allocate(Integer.BYTES + bytes.length + Long.BYTES)
+                .putInt(bytes.length).put(bytes).putLong(crc.getValue()).flip();
+            if (conversation.channel == null) {
+                conversation.channel = FileChannel.open(fileFor(conversation.id),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            }
+            while (frame.hasRemaining()) {
+                conversation.channel.write(frame);
+            }
+        } catch (IOException e) {
+            // The message is still in memory; it is only lost if the conversation is reloaded
+            writeFailures.incrementAndGet();
+            log.warn("Failed to write to the log of conversation {}: {}", conversation.id, e.getMessage());
+        } finally {
+            conversation.writeLock.unlock();
+        }
+    }
+
+    private static void writeText(DataOutputStream record, String text) throws IOException {
+        byte[] bytes = (text != null ? text : "").getBytes(StandardCharsets.UTF_8);
+        record.writeInt(bytes.length);
+        record.write(bytes);
+    }
+
+    private Conversation load(String id, TokenBudgetMemory memory) {
+        if (!enabled) {
+            return null;
+        }
+        long start = System.nanoTime();
+        Path file = fileFor(id);
+        ConversationService.PromptFormat[] format = new ConversationService.PromptFormat[1];
+        long validBytes;
+        long fileBytes;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            fileBytes = channel.size();
+            validBytes = readRecords(channel, 0, (type, record) -> {
+                switch (type) {
+                    case FORMAT -> format[0] = ConversationService.PromptFormat.parse(readText(record));
+                    case USER -> memory.add(UserMessage.from(readText(record)));
+                    case AI -> memory.add(AiMessage.from(readText(record)));
+                    case SUMMARY -> {
+                        int folded = record.getInt();
+                        memory.restoreSummary(folded, readText(record));
+                    }
+                    default -> throw new IOException("Unknown conversation record type " + type);
+                }
+                return true;
+            });
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to read the log of conversation {}: {}", id, e.getMessage());
+            return null;
+        }
+        if (validBytes < fileBytes) {
+            log.warn("Dropping torn record at the end of the log of conversation {}", id);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(validBytes);
+            } catch (IOException e) {
+                log.warn("Failed to truncate the log of conversation {}: {}", id, e.getMessage());
+            }
+        }
+        if (format[0] == null) {
+            return null;
+        }
+        reloads.incrementAndGet();
+        reloadNanos.addAndGet(System.nanoTime() - start);
+        return new Conversation(id, format[0], memory);
+    }
+
+    private interface RecordVisitor {
+        /**
+         * @return false to stop reading after this record
+         */
+        boolean visit(byte type, ByteBuffer record) throws IOException;
+    }
+
+    /**
+     * Read the records of a log through a memory-mapped buffer, from {@code offset}
+     * up to the end of the file or the first torn or corrupt record.
+     *
+     * @return the offset after the last record read
+     */
+    private static long readRecords(FileChannel channel, long offset, RecordVisitor visitor) throws IOException {
+        long size = channel.size();
+        if (offset >= size) {
+            return offset;
+        }
+        MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, offset, size - offset);
+        while (in.remaining() >= Integer.BYTES) {
+            int length = in.getInt();
+            if (length <= 0 || length > in.remaining() - Long.BYTES) {
+                break;
+            }
+            ByteBuffer record = in.slice(in.position(), length);
+            in.position(in.position() + length);
+            CRC32 crc = new CRC32();
+            crc.update(record.duplicate());
+            if (crc.getValue() != in.getLong()) {
+                break;
+            }
+            offset += Integer.BYTES + length + Long.BYTES;
+            if (!visitor.visit(record.get(), record)) {
+                break;
+            }
+        }
+        return offset;
+    }
+
+    private static HistoryEntry entryOf(long index, ChatMessage message) {
+        if (message instanceof UserMessage userMessage) {
+            return new HistoryEntry(index, "USER", userMessage.singleText());
+        }
+        if (message instanceof AiMessage aiMessage) {
+            return new HistoryEntry(index, "AI", aiMessage.text());
+        }
+        return new HistoryEntry(index, "SUMMARY", ((SystemMessage) message).text());
+    }
+
+    /**
+     * Whether a history cursor is well formed (null means the beginning).
+     */
+    public static boolean isValidCursor(String cursor) {
+        try {
+            decodeCursor(cursor);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static String encodeCursor(long index, long offset) {
+        return Base64.getUrlEncoder().withoutPadding()
+            .encodeToString((index + ":" + offset).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static long[] decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return new long[]{0, 0};
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII).split(":");
+            long index = Long.parseLong(parts[0]);
+            long offset = Long.parseLong(parts[1]);
+            if (parts.length != 2 || index < 0 || offset < 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new long[]{index, offset};
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    private static String readText(ByteBuffer record) {
+        byte[] bytes = new byte[record.getInt()];
+        record.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void close(Conversation conversation, boolean deleted) {
+        conversation.writeLock.lock();
+        try {
+            conversation.deleted |= deleted;
+            if (conversation.channel != null) {
+                conversation.channel.close();
+                conversation.channel = null;
+            }
+        } catch (IOException e) {
+            log.debug("Closing the log of conversation {} failed: {}", conversation.id, e.getMessage());
+        } finally {
+            conversation.writeLock.unlock();
+        }
+    }
+
+    private Path fileFor(String id) {
+        // Conversation IDs come from clients, so never use them as raw file names
+        byte[] raw = id.getBytes(StandardCharsets.UTF_8);
+        if (raw.length > MAX_RAW_ID_BYTES) {
+            raw = sha256(raw);
+        }
+        return directory.resolve(Base64.getUrlEncoder().withoutPadding().encodeToString(raw) + SUFFIX);
+    }
+
+    private static byte[] sha256(byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.langchain4j.service;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.azure.AzureOpenAiChatModel;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.TokenUsage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Folds old conversation turns into a rolling summary, off the request path.
+ * Summaries run on a small bounded pool; when it is full the fold is skipped
+ * and retried after the next turn, while the prompt stays within its ceiling.
+ */
+@Component
+public class ConversationSummarizer implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ConversationSummarizer.class);
+
+    private static final SystemMessage INSTRUCTIONS = SystemMessage.from("""
+        You maintain a running summary of a conversation between a user and an assistant.
+        Merge the earlier summary, if any, with the new turns into one concise summary.
+        Keep names, facts, numbers, decisions and open questions; drop pleasantries.
+        Reply with the summary only.""");
+
+    private final AzureOpenAiChatModel chatModel;
+    private final PromptUsageRecorder usageRecorder;
+    private final ExecutorService executor;
+
+    public ConversationSummarizer(
+            AzureOpenAiChatModel chatModel,
+            PromptUsageRecorder usageRecorder,
+            @Value("${conversation.memory.summary-threads:2}") int threads) {
+        this.chatModel = chatModel;
+        this.usageRecorder = usageRecorder;
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+            threads, threads,
+            60L, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(100),
+            runnable -> {
+                Thread thread = new Thread(runnable, "conversation-summary-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+
+    /**
+     * Start folding the oldest turns of a conversation into its summary, if due.
+     *
+     * @param persist called with the number of folded messages and the new
+     *                summary before the memory applies them
+     */
+    void summarizeIfDue(String conversationId, TokenBudgetMemory memory, BiConsumer<Integer, String> persist) {
+        TokenBudgetMemory.Fold fold = memory.startFold();
+        if (fold == null) {
+            return;
+        }
+        try {
+            executor.execute(() -> summarize(conversationId, memory, fold, persist));
+        } catch (RejectedExecutionException e) {
+            log.warn("Summary queue full, deferring summary of conversation {}", conversationId);
+            memory.abandonFold(0, 0);
+        }
+    }
+
+    private void summarize(String conversationId, TokenBudgetMemory memory, TokenBudgetMemory.Fold fold,
+                           BiConsumer<Integer, String> persist) {
+        long start = System.nanoTime();
+        try {
+            ChatResponse response = usageRecorder.measure("summary",
+                () -> chatModel.chat(INSTRUCTIONS, UserMessage.from(transcript(fold))));
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            String summary = response.aiMessage().text();
+            persist.accept(fold.messages().size(), summary);
+            memory.completeFold(fold, summary, tokens(response.tokenUsage()), millis);
+            log.debug("Folded {} messages of conversation {} into its summary in {} ms",
+                fold.messages().size(), conversationId, millis);
+        } catch (Exception e) {
+            log.warn("Summary of conversation {} failed: {}", conversationId, e.getMessage());
+            memory.abandonFold(0, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    private static String transcript(TokenBudgetMemory.Fold fold) {
+        StringBuilder text = new StringBuilder();
+        if (fold.previousSummary() != null) {
+            text.append("Earlier summary:\n").append(fold.previousSummary()).append("\n\n");
+        }
+        text.append("New turns:\n");
+        List<ChatMessage> messages = fold.messages();
+        for (ChatMessage message : messages) {
+            if (message instanceof UserMessage userMessage) {
+                text.append("User: ").append(userMessage.singleText()).append("\n");
+            } else if (message instanceof AiMessage aiMessage) {
+                text.append("Assistant: ").append(aiMessage.text()).append("\n");
+            }
+        }
+        return text.toString();
+    }
+
+    private static int tokens(TokenUsage usage) {
+        return usage != null && usage.totalTokenCount() != null ? usage.totalTokenCount() : 0;
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
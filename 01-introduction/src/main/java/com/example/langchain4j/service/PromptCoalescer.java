@@ -0,0 +1,151 @@
+package com.example.langchain4j.service;
+
+import dev.langchain4j.model.chat.response.ChatResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight coalescing of identical stateless prompts.
+ * <p>
+ * While a prompt is being answered, an identical request (same key as in
+ * {@link ChatResponseCache}) waits for that call instead of making its own,
+ * and all of them get the same answer or the same error. A request only
+ * attaches to a call that started within the coalescing window and has fewer
+ * than the maximum number of waiters; otherwise it calls the model itself.
+ * A joined request waits at most until the call's window ends, then stops
+ * waiting and calls the model itself, so a hung call does not hold its joiners.
+ */
+@Component
+public class PromptCoalescer {
+
+    private static final class Flight {
+        private final CompletableFuture<ChatResponse> result = new CompletableFuture<>();
+        private final AtomicInteger waiters = new AtomicInteger();
+        private final long startedAtNanos = System.nanoTime();
+    }
+
+    private final ChatResponseCache cache;
+    private final boolean enabled;
+    private final long windowNanos;
+    private final int maxWaiters;
+    private final Map<String, Flight> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong upstreamCalls = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong outsideWindow = new AtomicLong();
+    private final AtomicLong waitersFull = new AtomicLong();
+    private final AtomicLong joinTimeouts = new AtomicLong();
+
+    public PromptCoalescer(
+            ChatResponseCache cache,
+            @Value("${chat.coalescing.enabled:true}") boolean enabled,
+            @Value("${chat.coalescing.window:30s}") Duration window,
+            @Value("${chat.coalescing.max-waiters:100}") int maxWaiters) {
+        this.cache = cache;
+        this.enabled = enabled;
+        this.windowNanos = window.toNanos();
+        this.maxWaiters = maxWaiters;
+    }
+
+    /**
+     * Answer a prompt, sharing the model call with identical prompts in flight.
+     *
+     * @param call the model call, made only if no identical call can be joined
+     * @return the answer of this call or of the call it joined
+     */
+    public ChatResponse call(String prompt, Supplier<ChatResponse> call) {
+        if (!enabled) {
+            upstreamCalls.incrementAndGet();
+            return call.get();
+        }
+        String key = cache.key(prompt);
+        Flight flight = new Flight();
+        Flight existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            if (System.nanoTime() - existing.startedAtNanos > windowNanos) {
+                outsideWindow.incrementAndGet();
+            } else if (existing.waiters.incrementAndGet() > maxWaiters) {
+                existing.waiters.decrementAndGet();
+                waitersFull.incrementAndGet();
+            } else {
+                coalesced.incrementAndGet();
+                ChatResponse response = await(existing);
+                if (response != null) {
+                    return response;
+                }
+                // Not saved after all
+                coalesced.decrementAndGet();
+                joinTimeouts.incrementAndGet();
+            }
+            // Call alone, leaving the running call in place for others to join
+            upstreamCalls.incrementAndGet();
+            return call.get();
+        }
+
+        upstreamCalls.incrementAndGet();
+        try {
+            ChatResponse response = call.get();
+            flight.result.complete(response);
+            return response;
+        } catch (RuntimeException | Error e) {
+            flight.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * Get coalescing metrics.
+     *
+     * @return upstream calls made, calls saved by coalescing, and requests that could not join
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("inFlight", inFlight.size());
+        stats.put("upstreamCalls", upstreamCalls.get());
+        stats.put("callsSaved", coalesced.get());
+        stats.put("outsideWindow", outsideWindow.get());
+        stats.put("waitersFull", waitersFull.get());
+        stats.put("joinTimeouts", joinTimeouts.get());
+        stats.put("windowMs", Duration.ofNanos(windowNanos).toMillis());
+        stats.put("maxWaiters", maxWaiters);
+        return stats;
+    }
+
+    /**
+     * @return the joined call's answer, or null if it did not finish within its window
+     */
+    private ChatResponse await(Flight flight) {
+        long remaining = flight.startedAtNanos + windowNanos - System.nanoTime();
+        try {
+            return flight.result.get(Math.max(0, remaining), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for an identical prompt");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            flight.waiters.decrementAndGet();
+        }
+    }
+}
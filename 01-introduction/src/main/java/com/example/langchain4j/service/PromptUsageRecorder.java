@@ -0,0 +1,108 @@
+package com.example.langchain4j.service;
+
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.TokenUsage;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Latency and prompt token usage of model calls, grouped by prompt format.
+ * <p>
+ * The Azure OpenAI adapter only reports total input tokens, so the cached
+ * part of the prompt is captured from the raw response by an HTTP pipeline
+ * policy, which calls {@link #onUsage} on the thread making the call.
+ */
+@Component
+public class PromptUsageRecorder {
+
+    private static final ThreadLocal<Call> CURRENT = new ThreadLocal<>();
+
+    private final Map<String, FormatStats> byFormat = new ConcurrentHashMap<>();
+
+    /**
+     * Make a model call and record its latency and token usage under {@code format}.
+     */
+    public ChatResponse measure(String format, Supplier<ChatResponse> call) {
+        Call current = new Call();
+        CURRENT.set(current);
+        long start = System.nanoTime();
+        try {
+            ChatResponse response = call.get();
+            long latencyNanos = System.nanoTime() - start;
+            TokenUsage usage = response.tokenUsage();
+            if (current.promptTokens < 0 && usage != null && usage.inputTokenCount() != null) {
+                current.promptTokens = usage.inputTokenCount();
+            }
+            byFormat.computeIfAbsent(format, f -> new FormatStats()).record(latencyNanos, current);
+            return response;
+        } finally {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * Usage reported by the service for the call in progress on this thread.
+     */
+    public void onUsage(int promptTokens, int cachedTokens) {
+        Call current = CURRENT.get();
+        if (current != null) {
+            current.promptTokens = promptTokens;
+            current.cachedTokens = cachedTokens;
+        }
+    }
+
+    /**
+     * Get per-format metrics.
+     *
+     * @return calls, average latency, prompt and cached tokens for each prompt format
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        byFormat.forEach((format, formatStats) -> stats.put(format, formatStats.snapshot()));
+        return stats;
+    }
+
+    private static final class Call {
+        private int promptTokens = -1;
+        private int cachedTokens = -1;
+    }
+
+    private static final class FormatStats {
+        private final AtomicLong calls = new AtomicLong();
+        private final AtomicLong latencyNanos = new AtomicLong();
+        private final AtomicLong promptTokens = new AtomicLong();
+        private final AtomicLong cachedTokens = new AtomicLong();
+        private final AtomicLong callsWithCacheData = new AtomicLong();
+
+        void record(long nanos, Call call) {
+            calls.incrementAndGet();
+            latencyNanos.addAndGet(nanos);
+            if (call.promptTokens > 0) {
+                promptTokens.addAndGet(call.promptTokens);
+            }
+            if (call.cachedTokens >= 0) {
+                cachedTokens.addAndGet(call.cachedTokens);
+                callsWithCacheData.incrementAndGet();
+            }
+        }
+
+        Map<String, Object> snapshot() {
+            long count = calls.get();
+            long prompt = promptTokens.get();
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("calls", count);
+            snapshot.put("avgLatencyMs", count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(latencyNanos.get() / count));
+            snapshot.put("avgPromptTokens", count == 0 ? 0 : prompt / count);
+            snapshot.put("cachedTokens", cachedTokens.get());
+            snapshot.put("cachedTokenRatio", prompt == 0 ? 0.0 : (double) cachedTokens.get() / prompt);
+            snapshot.put("callsWithCacheData", callsWithCacheData.get());
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.langchain4j.service;
+
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.TokenCountEstimator;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Conversation memory bounded by tokens rather than by message count.
+ * <p>
+ * Recent turns are kept verbatim. Once they grow past a threshold, the oldest
+ * turns are handed to {@link ConversationSummarizer}, which folds them into a
+ * rolling summary in the background. Until the summary arrives, the prompt is
+ * still cut to the token ceiling by leaving out the oldest turns, so a slow or
+ * failed summary never makes a prompt larger.
+ */
+final class TokenBudgetMemory {
+
+    private record Entry(ChatMessage message, int tokens) {
+    }
+
+    /**
+     * Oldest turns to fold into the summary, with the summary they extend.
+     */
+    record Fold(String previousSummary, List<ChatMessage> messages) {
+    }
+
+    private final TokenCountEstimator estimator;
+    private final int maxTokens;
+    private final int summarizeAboveTokens;
+    private final int keepRecentTokens;
+
+    private final Deque<Entry> recent = new ArrayDeque<>();
+    private int recentTokens;
+    private String summary;
+    private int summaryTokens;
+    private boolean summarizing;
+
+    // Size of the last prompt, and how many recent messages it left out
+    private int lastPromptTokens;
+    private int lastMessagesLeftOut;
+    private long summarizations;
+    private long summarizationTokens;
+    private long summarizationMillis;
+
+    TokenBudgetMemory(TokenCountEstimator estimator, int maxTokens, int summarizeAboveTokens, int keepRecentTokens) {
+        this.estimator = estimator;
+        this.maxTokens = maxTokens;
+        this.summarizeAboveTokens = summarizeAboveTokens;
+        this.keepRecentTokens = keepRecentTokens;
+    }
+
+    synchronized void add(ChatMessage message) {
+        int tokens = estimator.estimateTokenCountInMessage(message);
+        recent.addLast(new Entry(message, tokens));
+        recentTokens += tokens;
+    }
+
+    /**
+     * Take back a message that was never answered, if it is still the latest one.
+     */
+    synchronized void removeLast(ChatMessage message) {
+        if (!recent.isEmpty() && recent.peekLast().message() == message) {
+            recentTokens -= recent.removeLast().tokens();
+        }
+    }
+
+    /**
+     * The history to send with the next model call: the summary, then as many
+     * of the most recent messages as fit the token ceiling. The latest message
+     * is always included.
+     */
+    synchronized List<ChatMessage> promptMessages() {
+        int budget = maxTokens - summaryTokens;
+        List<ChatMessage> included = new ArrayList<>();
+        int used = 0;
+        Iterator<Entry> newestFirst = recent.descendingIterator();
+        while (newestFirst.hasNext()) {
+            Entry entry = newestFirst.next();
+            if (!included.isEmpty() && used + entry.tokens() > budget) {
+                break;
+            }
+            included.add(0, entry.message());
+            used += entry.tokens();
+        }
+        // Start at a user turn so the model never sees an answer without its question
+        while (included.size() > 1 && !(included.get(0) instanceof UserMessage)) {
+            used -= estimator.estimateTokenCountInMessage(included.remove(0));
+        }
+        lastMessagesLeftOut = recent.size() - included.size();
+
+        List<ChatMessage> messages = new ArrayList<>(included.size() + 1);
+        if (summary != null) {
+            messages.add(summaryMessage());
+        }
+        messages.addAll(included);
+        lastPromptTokens = summaryTokens + used;
+        return messages;
+    }
+
+    /**
+     * The whole retained history: the summary and every recent message.
+     */
+    synchronized List<ChatMessage> messages() {
+        List<ChatMessage> messages = new ArrayList<>(recent.size() + 1);
+        if (summary != null) {
+            messages.add(summaryMessage());
+        }
+        recent.forEach(entry -> messages.add(entry.message()));
+        return messages;
+    }
+
+    /**
+     * Claim the oldest turns for summarization once recent turns exceed the
+     * threshold. Whole turns are taken, oldest first, until the rest fits
+     * {@code keepRecentTokens}; the latest turn is never taken.
+     *
+     * @return the turns to fold, or null if none are due or a summary is already in progress
+     */
+    synchronized Fold startFold() {
+        if (summarizing || recentTokens <= summarizeAboveTokens) {
+            return null;
+        }
+        List<ChatMessage> folded = new ArrayList<>();
+        int remaining = recentTokens;
+        List<Entry> entries = new ArrayList<>(recent);
+        int lastUserTurn = lastUserIndex(entries);
+        int i = 0;
+        while (i < lastUserTurn && remaining > keepRecentTokens) {
+            // Take one whole turn: the user message and everything up to the next one
+            do {
+                folded.add(entries.get(i).message());
+                remaining -= entries.get(i).tokens();
+                i++;
+            } while (i < lastUserTurn && !(entries.get(i).message() instanceof UserMessage));
+        }
+        if (folded.isEmpty()) {
+            return null;
+        }
+        summarizing = true;
+        return new Fold(summary, folded);
+    }
+
+    /**
+     * Replace the folded turns with the new summary.
+     */
+    synchronized void completeFold(Fold fold, String newSummary, int tokensSpent, long millis) {
+        restoreSummary(fold.messages().size(), newSummary);
+        summarizing = false;
+        summarizations++;
+        summarizationTokens += tokensSpent;
+        summarizationMillis += millis;
+    }
+
+    /**
+     * Replace the oldest messages with a summary, as a completed fold did.
+     * Used when a conversation is reloaded from its log.
+     */
+    synchronized void restoreSummary(int foldedMessages, String newSummary) {
+        for (int i = 0; i < foldedMessages && !recent.isEmpty(); i++) {
+            recentTokens -= recent.removeFirst().tokens();
+        }
+        summary = newSummary;
+        summaryTokens = estimator.estimateTokenCountInMessage(summaryMessage());
+    }
+
+    synchronized boolean isSummarizing() {
+        return summarizing;
+    }
+
+    /**
+     * Give the turns back after a failed summary; they are claimed again on the next turn.
+     */
+    synchronized void abandonFold(int tokensSpent, long millis) {
+        summarizing = false;
+        summarizationTokens += tokensSpent;
+        summarizationMillis += millis;
+    }
+
+    synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maxTokens", maxTokens);
+        stats.put("lastPromptTokens", lastPromptTokens);
+        stats.put("recentMessages", recent.size());
+        stats.put("recentTokens", recentTokens);
+        stats.put("summaryTokens", summaryTokens);
+        stats.put("summarizing", summarizing);
+        stats.put("summarizations", summarizations);
+        stats.put("summarizationTokens", summarizationTokens);
+        stats.put("summarizationMs", summarizationMillis);
+        stats.put("lastMessagesLeftOut", lastMessagesLeftOut);
+        return stats;
+    }
+
+    private SystemMessage summaryMessage() {
+        return SystemMessage.from("Summary of the earlier conversation: " + summary);
+    }
+
+    private static int lastUserIndex(List<Entry> entries) {
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            if (entries.get(i).message() instanceof UserMessage) {
+                return i;
+            }
+        }
+        return 0;
+    }
+}
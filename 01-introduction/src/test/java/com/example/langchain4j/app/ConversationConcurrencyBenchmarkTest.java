@@ -0,0 +1,199 @@
+package com.example.langchain4j.app;
+
+import com.example.langchain4j.config.CancellableStreamingChatModel;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.azure.AzureOpenAiChatModel;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+
+/**
+ * Benchmark of how many conversations one node keeps in flight, with requests
+ * served on platform threads and on virtual threads.
+ * <p>
+ * Every conversation sends one message at the same time to a model that takes
+ * a fixed time to answer. On platform threads a waiting request holds a Tomcat
+ * thread, so in-flight conversations stop at the thread pool size; on virtual
+ * threads all of them wait at once. The virtual-thread run also records
+ * {@code jdk.VirtualThreadPinned} events, which would show a request blocking
+ * its carrier thread.
+ * <p>
+ * Tagged {@code benchmark}, so it only runs with {@code -Pbenchmark}. Sizes can be
+ * raised for a real measurement, e.g.
+ * {@code -Dbenchmark.conversations=2000 -Dbenchmark.tomcat-threads=200}.
+ */
+@Tag("benchmark")
+class ConversationConcurrencyBenchmarkTest {
+
+    private static final int CONVERSATIONS = Integer.getInteger("benchmark.conversations", 200);
+    private static final int TOMCAT_THREADS = Integer.getInteger("benchmark.tomcat-threads", 50);
+    private static final long MODEL_MILLIS = Long.getLong("benchmark.model-latency-ms", 1000);
+
+    private static final Map<String, String> RESULTS = new ConcurrentHashMap<>();
+
+    @AfterAll
+    static void report() {
+        System.out.printf("%d conversations, %d Tomcat threads, %d ms per model call%n",
+            CONVERSATIONS, TOMCAT_THREADS, MODEL_MILLIS);
+        RESULTS.forEach((mode, result) -> System.out.printf("  %-16s %s%n", mode, result));
+    }
+
+    @Nested
+    @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.threads.virtual.enabled=false",
+        "server.tomcat.threads.max=${benchmark.tomcat-threads:50}",
+        "conversation.store.enabled=false"
+    })
+    class PlatformThreads extends Benchmark {
+
+        @Test
+        void testInFlightConversationsAreCappedByThreadPool() throws Exception {
+            // When
+            Run run = runConversations();
+
+            // Then
+            RESULTS.put("platform threads", run.toString());
+            assertFalse(run.onVirtualThreads());
+            assertTrue(run.peakInFlight() <= TOMCAT_THREADS,
+                run.peakInFlight() + " in flight with " + TOMCAT_THREADS + " Tomcat threads");
+        }
+    }
+
+    @Nested
+    @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.threads.virtual.enabled=true",
+        "server.tomcat.threads.max=${benchmark.tomcat-threads:50}",
+        "conversation.store.enabled=false"
+    })
+    class VirtualThreads extends Benchmark {
+
+        @Test
+        void testAllConversationsAreInFlightWithoutPinning() throws Exception {
+            // Given
+            List<String> pinned = new ArrayList<>();
+            Run run;
+            try (RecordingStream events = new RecordingStream()) {
+                events.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ofMillis(20)).withStackTrace();
+                events.onEvent("jdk.VirtualThreadPinned", event -> {
+                    synchronized (pinned) {
+                        pinned.add(String.valueOf(event.getStackTrace()));
+                    }
+                });
+                events.startAsync();
+
+                // When
+                run = runConversations();
+                events.stop();
+            }
+
+            // Then
+            RESULTS.put("virtual threads", run + ", " + pinned.size() + " pinned");
+            assertTrue(run.onVirtualThreads());
+            assertEquals(CONVERSATIONS, run.peakInFlight());
+            assertTrue(pinned.isEmpty(), "Carrier pinned while blocking: " + pinned);
+        }
+    }
+
+    /**
+     * Result of one run.
+     */
+    record Run(int peakInFlight, long millis, boolean onVirtualThreads) {
+        @Override
+        public String toString() {
+            return String.format("peak %d in flight, all answered in %d ms", peakInFlight, millis);
+        }
+    }
+
+    abstract static class Benchmark {
+
+        @LocalServerPort
+        private int port;
+
+        @MockBean
+        private AzureOpenAiChatModel chatModel;
+
+        @MockBean
+        private CancellableStreamingChatModel streamingChatModel;
+
+        private final ObjectMapper objectMapper = new ObjectMapper();
+        private final HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger peakInFlight = new AtomicInteger();
+        private final AtomicBoolean onVirtualThreads = new AtomicBoolean(true);
+
+        @BeforeEach
+        void scriptModel() {
+            // A model call blocks its thread for the whole answer, like the Azure client does
+            when(chatModel.chat(anyList())).thenAnswer(invocation -> {
+                peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                if (!Thread.currentThread().isVirtual()) {
+                    onVirtualThreads.set(false);
+                }
+                try {
+                    Thread.sleep(MODEL_MILLIS);
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+                return ChatResponse.builder().aiMessage(AiMessage.from("Noted.")).build();
+            });
+        }
+
+        Run runConversations() throws Exception {
+            List<String> conversationIds = new ArrayList<>();
+            for (int i = 0; i < CONVERSATIONS; i++) {
+                HttpResponse<String> started = http.send(post("/api/conversation/start", null),
+                    HttpResponse.BodyHandlers.ofString());
+                conversationIds.add(objectMapper.readTree(started.body()).path("conversationId").asText());
+            }
+
+            long start = System.nanoTime();
+            List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+            for (String conversationId : conversationIds) {
+                responses.add(http.sendAsync(
+                    post("/api/conversation/chat", Map.of("conversationId", conversationId, "message", "Hello")),
+                    HttpResponse.BodyHandlers.ofString()));
+            }
+            for (CompletableFuture<HttpResponse<String>> response : responses) {
+                HttpResponse<String> answered = response.get(2, TimeUnit.MINUTES);
+                assertEquals(200, answered.statusCode(), answered.body());
+            }
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            return new Run(peakInFlight.get(), millis, onVirtualThreads.get());
+        }
+
+        private HttpRequest post(String path, Map<String, String> body) throws Exception {
+            return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Content-Type", "application/json")
+                .POST(body == null
+                    ? HttpRequest.BodyPublishers.noBody()
+                    : HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)))
+                .build();
+        }
+    }
+}
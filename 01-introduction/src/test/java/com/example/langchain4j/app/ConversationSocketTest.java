@@ -0,0 +1,273 @@
+package com.example.langchain4j.app;
+
+import com.example.langchain4j.config.CancellableStreamingChatModel;
+import com.example.langchain4j.service.ConversationService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.azure.AzureOpenAiChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+import reactor.core.Disposable;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for the WebSocket conversation transport, against a model that
+ * generates its answer at a fixed rate.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = {"conversation.store.enabled=false", "conversation.websocket.max-turns-per-connection=2"})
+class ConversationSocketTest {
+
+    private static final List<String> TOKENS = List.of(
+        "Nice", " to", " meet", " you", ",", " John", ".", " How", " can", " I",
+        " help", " you", " with", " your", " plans", " for", " today", "?", " Ask", " away");
+    private static final long MILLIS_PER_TOKEN = 25;
+    private static final String ANSWER = String.join("", TOKENS);
+
+    @LocalServerPort
+    private int port;
+
+    @MockBean
+    private AzureOpenAiChatModel chatModel;
+
+    @MockBean
+    private CancellableStreamingChatModel streamingChatModel;
+
+    @Autowired
+    private ConversationService conversationService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicInteger tokensGenerated = new AtomicInteger();
+    private final CountDownLatch streamDisposed = new CountDownLatch(1);
+
+    @BeforeEach
+    void scriptModel() {
+        // The blocking call returns once the whole answer is generated
+        when(chatModel.chat(anyList())).thenAnswer(invocation -> {
+            Thread.sleep(MILLIS_PER_TOKEN * TOKENS.size());
+            return ChatResponse.builder().aiMessage(AiMessage.from(ANSWER)).build();
+        });
+        // The streaming call hands over each token as it is generated, until the stream is disposed
+        doAnswer(invocation -> {
+            StreamingChatResponseHandler handler = invocation.getArgument(1);
+            Thread generator = Thread.ofPlatform().daemon().start(() -> {
+                try {
+                    for (String token : TOKENS) {
+                        Thread.sleep(MILLIS_PER_TOKEN);
+                        tokensGenerated.incrementAndGet();
+                        handler.onPartialResponse(token);
+                    }
+                    handler.onCompleteResponse(ChatResponse.builder().aiMessage(AiMessage.from(ANSWER)).build());
+                } catch (InterruptedException e) {
+                    // Disposed: a cancelled stream calls no handler method
+                }
+            });
+            return (Disposable) () -> {
+                generator.interrupt();
+                streamDisposed.countDown();
+            };
+        }).when(streamingChatModel).start(any(ChatRequest.class), any(StreamingChatResponseHandler.class));
+    }
+
+    @Test
+    void testFirstTokenArrivesBeforeRestAnswer() throws Exception {
+        // Given
+        long restMillis = restTurnMillis();
+        FrameCollector frames = new FrameCollector();
+        WebSocketSession socket = connect(frames);
+        socket.sendMessage(json(Map.of("type", "start")));
+        assertEquals("started", frames.next().path("type").asText());
+
+        // When
+        long start = System.nanoTime();
+        socket.sendMessage(json(Map.of("message", "My name is John")));
+        JsonNode first = frames.next();
+        long firstTokenMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        StringBuilder streamed = new StringBuilder(first.path("text").asText());
+        JsonNode frame;
+        while (!"done".equals((frame = frames.next()).path("type").asText())) {
+            streamed.append(frame.path("text").asText());
+        }
+        socket.close();
+
+        // Then
+        System.out.printf("Time to first token: WebSocket %d ms, REST (complete answer) %d ms%n",
+            firstTokenMillis, restMillis);
+        assertEquals("token", first.path("type").asText());
+        assertEquals(ANSWER, streamed.toString());
+        assertEquals(ANSWER, frame.path("answer").asText());
+        assertTrue(firstTokenMillis * 3 < restMillis,
+            "First streamed token after " + firstTokenMillis + " ms, REST answer after " + restMillis + " ms");
+        assertTrue(conversationService.getPromptStats().containsKey("messages-streamed"));
+        assertTrue(conversationService.getPromptStats().containsKey("messages"));
+    }
+
+    @Test
+    void testClosingSocketStopsGenerationAndDropsUnansweredMessage() throws Exception {
+        // Given
+        FrameCollector frames = new FrameCollector();
+        WebSocketSession socket = connect(frames);
+        socket.sendMessage(json(Map.of("type", "start")));
+        String conversationId = frames.next().path("conversationId").asText();
+        socket.sendMessage(json(Map.of("message", "My name is John")));
+        assertEquals("token", frames.next().path("type").asText());
+
+        // When
+        socket.close();
+
+        // Then
+        assertTrue(streamDisposed.await(5, TimeUnit.SECONDS), "Stream not disposed after the socket closed");
+        int generated = tokensGenerated.get();
+        Thread.sleep(MILLIS_PER_TOKEN * 4);
+        assertEquals(generated, tokensGenerated.get(), "Model kept generating after the socket closed");
+        assertTrue(generated < TOKENS.size());
+        assertEquals(List.of(), conversationService.getHistory(conversationId));
+    }
+
+    @Test
+    void testConversationsAreMultiplexedOnOneSocket() throws Exception {
+        // Given
+        FrameCollector frames = new FrameCollector();
+        WebSocketSession socket = connect(frames);
+        socket.sendMessage(json(Map.of("type", "start")));
+        socket.sendMessage(json(Map.of("type", "start")));
+        String first = frames.next().path("conversationId").asText();
+        String second = frames.next().path("conversationId").asText();
+
+        // When - both turns stream at the same time
+        socket.sendMessage(json(Map.of("conversationId", first, "message", "Hello")));
+        socket.sendMessage(json(Map.of("conversationId", second, "message", "Hi")));
+        StringBuilder firstAnswer = new StringBuilder();
+        StringBuilder secondAnswer = new StringBuilder();
+        int done = 0;
+        while (done < 2) {
+            JsonNode frame = frames.next();
+            StringBuilder answer = first.equals(frame.path("conversationId").asText()) ? firstAnswer : secondAnswer;
+            if ("token".equals(frame.path("type").asText())) {
+                answer.append(frame.path("text").asText());
+            } else {
+                assertEquals("done", frame.path("type").asText(), frame.toString());
+                done++;
+            }
+        }
+        socket.close();
+
+        // Then
+        assertNotEquals(first, second);
+        assertEquals(ANSWER, firstAnswer.toString());
+        assertEquals(ANSWER, secondAnswer.toString());
+    }
+
+    @Test
+    void testTurnsBeyondTheConnectionLimitAreRejected() throws Exception {
+        // Given - a connection already running its two allowed turns
+        FrameCollector frames = new FrameCollector();
+        WebSocketSession socket = connect(frames);
+        for (int i = 0; i < 3; i++) {
+            socket.sendMessage(json(Map.of("type", "start")));
+        }
+        List<String> conversations = List.of(frames.next().path("conversationId").asText(),
+            frames.next().path("conversationId").asText(), frames.next().path("conversationId").asText());
+        socket.sendMessage(json(Map.of("conversationId", conversations.get(0), "message", "Hello")));
+        socket.sendMessage(json(Map.of("conversationId", conversations.get(1), "message", "Hi")));
+
+        // When
+        socket.sendMessage(json(Map.of("conversationId", conversations.get(2), "message", "Hey")));
+
+        // Then - only the third turn is refused, and the other two still finish
+        int done = 0;
+        JsonNode rejected = null;
+        while (done < 2) {
+            JsonNode frame = frames.next();
+            String type = frame.path("type").asText();
+            if ("error".equals(type)) {
+                assertNull(rejected, frame.toString());
+                rejected = frame;
+            } else if ("done".equals(type)) {
+                done++;
+            }
+        }
+        socket.close();
+        assertNotNull(rejected, "The third turn should be rejected");
+        assertEquals(conversations.get(2), rejected.path("conversationId").asText());
+        assertEquals(List.of(), conversationService.getHistory(conversations.get(2)));
+    }
+
+    private long restTurnMillis() throws Exception {
+        HttpClient http = HttpClient.newHttpClient();
+        HttpResponse<String> started = http.send(HttpRequest.newBuilder(uri("http", "/api/conversation/start"))
+            .POST(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.ofString());
+        String conversationId = objectMapper.readTree(started.body()).path("conversationId").asText();
+
+        long start = System.nanoTime();
+        HttpResponse<String> response = http.send(HttpRequest.newBuilder(uri("http", "/api/conversation/chat"))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(
+                Map.of("conversationId", conversationId, "message", "My name is John"))))
+            .build(), HttpResponse.BodyHandlers.ofString());
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertEquals(200, response.statusCode(), response.body());
+        return millis;
+    }
+
+    private WebSocketSession connect(FrameCollector frames) throws Exception {
+        return new StandardWebSocketClient()
+            .execute(frames, uri("ws", "/ws/conversation").toString())
+            .get(5, TimeUnit.SECONDS);
+    }
+
+    private URI uri(String scheme, String path) {
+        return URI.create(scheme + "://localhost:" + port + path);
+    }
+
+    private TextMessage json(Map<String, ?> body) throws Exception {
+        return new TextMessage(objectMapper.writeValueAsString(body));
+    }
+
+    /**
+     * Collects received frames for the test thread to read in order.
+     */
+    private final class FrameCollector extends TextWebSocketHandler {
+        private final BlockingQueue<JsonNode> frames = new LinkedBlockingQueue<>();
+
+        @Override
+        protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
+            frames.add(objectMapper.readTree(message.getPayload()));
+        }
+
+        JsonNode next() throws InterruptedException {
+            JsonNode frame = frames.poll(5, TimeUnit.SECONDS);
+            assertNotNull(frame, "No frame within 5 s");
+            return frame;
+        }
+    }
+}
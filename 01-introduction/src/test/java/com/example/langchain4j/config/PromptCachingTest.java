@@ -0,0 +1,255 @@
+package com.example.langchain4j.config;
+
+import com.azure.ai.openai.OpenAIClientBuilder;
+import com.azure.core.credential.AzureKeyCredential;
+import com.azure.core.http.HttpClient;
+import com.azure.core.http.HttpHeaderName;
+import com.azure.core.http.HttpHeaders;
+import com.azure.core.http.HttpRequest;
+import com.azure.core.http.HttpResponse;
+import com.example.langchain4j.service.ConversationService;
+import com.example.langchain4j.service.ConversationService.PromptFormat;
+import com.example.langchain4j.service.ConversationStore;
+import com.example.langchain4j.service.ConversationSummarizer;
+import com.example.langchain4j.service.PromptUsageRecorder;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.TokenCountEstimator;
+import dev.langchain4j.model.azure.AzureOpenAiChatModel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Measures the two prompt formats side by side through the real Azure client
+ * and {@link PromptUsagePolicy}, against a transport that caches prompt
+ * prefixes the way Azure OpenAI does: only a byte-identical prefix of at
+ * least 1024 tokens counts, in steps of 128 tokens.
+ */
+class PromptCachingTest {
+
+    private static final int TURNS = 12;
+    private static final String ANSWER = "Noted. ".repeat(150).trim();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CachingTransport transport = new CachingTransport();
+    private final PromptUsageRecorder recorder = new PromptUsageRecorder();
+    private final AzureOpenAiChatModel chatModel = AzureOpenAiChatModel.builder()
+        .openAIClient(new OpenAIClientBuilder()
+            .endpoint("https://prompt-cache.openai.azure.com")
+            .credential(new AzureKeyCredential("test-key"))
+            .httpClient(transport)
+            .addPolicy(new PromptUsagePolicy(recorder))
+            .buildClient())
+        .deploymentName("gpt-5-mini")
+        .build();
+    private final ConversationSummarizer summarizer = new ConversationSummarizer(chatModel, recorder, 1);
+    private final ConversationService service = new ConversationService(
+        chatModel, null, recorder, new CharsPerToken(), summarizer,
+        new ConversationStore(false, Path.of("unused"), Duration.ofHours(1), Duration.ZERO),
+        100_000, 100_000, 50_000, "queue", Duration.ofSeconds(30),
+        "You are a helpful assistant. Answer using the conversation so far.", "messages", Duration.ofMinutes(2));
+
+    @AfterEach
+    void stopSummarizer() {
+        summarizer.destroy();
+    }
+
+    @Test
+    void testMessagesPromptKeepsByteIdenticalPrefixAcrossTurns() throws Exception {
+        // Given
+        String conversationId = service.startConversation(PromptFormat.MESSAGES);
+
+        // When
+        for (int turn = 1; turn <= TURNS; turn++) {
+            service.chat(conversationId, question(turn));
+        }
+
+        // Then - each request repeats the previous one byte for byte, up to its last message
+        List<String> bodies = transport.bodies;
+        assertEquals(TURNS, bodies.size());
+        for (int turn = 1; turn < TURNS; turn++) {
+            String previous = bodies.get(turn - 1);
+            int end = previous.indexOf(question(turn)) + question(turn).length();
+            assertTrue(bodies.get(turn).startsWith(previous.substring(0, end)),
+                "Turn " + (turn + 1) + " does not start with the prompt of turn " + turn);
+        }
+    }
+
+    @Test
+    void testPolicyRecordsCachedTokensForBothFormats() {
+        // Given
+        String messages = service.startConversation(PromptFormat.MESSAGES);
+        String flattened = service.startConversation(PromptFormat.FLATTENED);
+
+        // When - the same turns in both formats, alternating so neither warms the cache for the other
+        for (int turn = 1; turn <= TURNS; turn++) {
+            service.chat(messages, question(turn));
+            service.chat(flattened, question(turn));
+        }
+
+        // Then
+        Map<String, Object> stats = service.getPromptStats();
+        System.out.println("Prompt cache by format: " + stats);
+        for (String format : List.of("messages", "flattened")) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> formatStats = (Map<String, Object>) stats.get(format);
+            assertEquals((long) TURNS, formatStats.get("calls"));
+            assertEquals((long) TURNS, formatStats.get("callsWithCacheData"));
+            assertTrue((long) formatStats.get("avgPromptTokens") > 0);
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, Object> messagesStats = (Map<String, Object>) stats.get("messages");
+        assertEquals(transport.cachedTokens.get("messages"), messagesStats.get("cachedTokens"));
+        assertTrue((double) messagesStats.get("cachedTokenRatio") > 0.5,
+            "Cached ratio " + messagesStats.get("cachedTokenRatio"));
+    }
+
+    private static String question(int turn) {
+        return "Question " + turn + ": what should I pack for day " + turn + " of the trip?";
+    }
+
+    /**
+     * Four characters per token, close enough for prompt sizes.
+     */
+    private static final class CharsPerToken implements TokenCountEstimator {
+        @Override
+        public int estimateTokenCountInText(String text) {
+            return text.length() / 4;
+        }
+
+        @Override
+        public int estimateTokenCountInMessage(ChatMessage message) {
+            return message.toString().length() / 4;
+        }
+
+        @Override
+        public int estimateTokenCountInMessages(Iterable<ChatMessage> messages) {
+            int tokens = 0;
+            for (ChatMessage message : messages) {
+                tokens += estimateTokenCountInMessage(message);
+            }
+            return tokens;
+        }
+    }
+
+    /**
+     * Answers chat completions and reports as cached the longest prefix shared
+     * with any earlier request.
+     */
+    private final class CachingTransport implements HttpClient {
+        private final List<String> bodies = new ArrayList<>();
+        private final List<String> seen = new ArrayList<>();
+        private final Map<String, Long> cachedTokens = new HashMap<>();
+
+        @Override
+        public synchronized Mono<HttpResponse> send(HttpRequest request) {
+            String body = request.getBodyAsBinaryData().toString();
+            bodies.add(body);
+            int promptTokens = body.length() / 4;
+            int sharedChars = 0;
+            for (String earlier : seen) {
+                sharedChars = Math.max(sharedChars, commonPrefix(earlier, body));
+            }
+            seen.add(body);
+            int cached = sharedChars / 4 >= 1024 ? (sharedChars / 4) / 128 * 128 : 0;
+            cachedTokens.merge(formatOf(body), (long) cached, Long::sum);
+
+            ObjectNode completion = objectMapper.createObjectNode();
+            completion.put("id", "chatcmpl-" + seen.size());
+            completion.put("object", "chat.completion");
+            completion.put("created", 1_700_000_000L);
+            completion.put("model", "gpt-5-mini");
+            ObjectNode choice = completion.putArray("choices").addObject();
+            choice.put("index", 0);
+            choice.put("finish_reason", "stop");
+            choice.putObject("message").put("role", "assistant").put("content", ANSWER);
+            ObjectNode usage = completion.putObject("usage");
+            usage.put("prompt_tokens", promptTokens);
+            usage.put("completion_tokens", 300);
+            usage.put("total_tokens", promptTokens + 300);
+            usage.putObject("prompt_tokens_details").put("cached_tokens", cached);
+            byte[] json = completion.toString().getBytes(StandardCharsets.UTF_8);
+            return Mono.just(new JsonResponse(request, json));
+        }
+
+        private String formatOf(String body) {
+            try {
+                JsonNode first = objectMapper.readTree(body).path("messages").path(0);
+                return "system".equals(first.path("role").asText()) ? "messages" : "flattened";
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private static int commonPrefix(String a, String b) {
+            int n = Math.min(a.length(), b.length());
+            int i = 0;
+            while (i < n && a.charAt(i) == b.charAt(i)) {
+                i++;
+            }
+            return i;
+        }
+    }
+
+    private static final class JsonResponse extends HttpResponse {
+        private final byte[] body;
+        private final HttpHeaders headers = new HttpHeaders().set(HttpHeaderName.CONTENT_TYPE, "application/json");
+
+        JsonResponse(HttpRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public int getStatusCode() {
+            return 200;
+        }
+
+        @Override
+        @Deprecated
+        public String getHeaderValue(String name) {
+            return headers.getValue(name);
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public Flux<ByteBuffer> getBody() {
+            return Flux.just(ByteBuffer.wrap(body));
+        }
+
+        @Override
+        public Mono<byte[]> getBodyAsByteArray() {
+            return Mono.just(body);
+        }
+
+        @Override
+        public Mono<String> getBodyAsString() {
+            return Mono.just(new String(body, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public Mono<String> getBodyAsString(Charset charset) {
+            return Mono.just(new String(body, charset));
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.langchain4j.config;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.exception.InternalServerException;
+import dev.langchain4j.exception.InvalidRequestException;
+import dev.langchain4j.exception.RateLimitException;
+import dev.langchain4j.model.azure.AzureOpenAiChatModel;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.random.RandomGenerator;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for latency-aware routing over several deployments.
+ */
+class RoutingChatModelTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final ChatModel east = mock(ChatModel.class);
+    private final ChatModel west = mock(ChatModel.class);
+    private final RateLimitPolicy eastLimits = new RateLimitPolicy();
+    private final RateLimitPolicy westLimits = new RateLimitPolicy();
+
+    @Test
+    void testThrottledBackendFailsOverAndIsEjected() {
+        // Given
+        when(east.doChat(any())).thenThrow(new RateLimitException("Too many requests"));
+        answers(west, "Hi from west!", 100);
+        RoutingChatModel routing = routing(3);
+
+        // When
+        ChatResponse first = routing.chat(UserMessage.from("Hello"));
+        ChatResponse second = routing.chat(UserMessage.from("Hello"));
+
+        // Then
+        assertEquals("Hi from west!", first.aiMessage().text());
+        assertEquals("Hi from west!", second.aiMessage().text());
+        verify(east, times(1)).doChat(any());
+        assertEquals(1L, routing.stats().get("failovers"));
+        Map<String, Object> eastStats = backend(routing, 0);
+        assertEquals(false, eastStats.get("healthy"));
+        assertEquals(1L, eastStats.get("rateLimited"));
+    }
+
+    @Test
+    void testFasterBackendGetsTheTraffic() {
+        // Given
+        answers(east, "Hi from east!", 500);
+        answers(west, "Hi from west!", 100);
+        RoutingChatModel routing = routing(3);
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            routing.chat(UserMessage.from("Hello"));
+        }
+
+        // Then - each is measured once, then the faster one answers
+        assertEquals(1L, backend(routing, 0).get("requests"));
+        assertEquals(9L, backend(routing, 1).get("requests"));
+        assertEquals(0.9, (Double) backend(routing, 1).get("trafficShare"), 1e-9);
+        assertEquals(500L, backend(routing, 0).get("ewmaLatencyMs"));
+        assertEquals(100L, backend(routing, 1).get("ewmaLatencyMs"));
+    }
+
+    @Test
+    void testBackendWithLittleQuotaLeftIsAvoided() {
+        // Given
+        answers(east, "Hi from east!", 100);
+        answers(west, "Hi from west!", 100);
+        RoutingChatModel routing = routing(3);
+        routing.chat(UserMessage.from("Hello"));
+        routing.chat(UserMessage.from("Hello"));
+        eastLimits.update(100, 100_000);
+        eastLimits.update(2, 90_000);
+        westLimits.update(100, 100_000);
+
+        // When
+        ChatResponse response = routing.chat(UserMessage.from("Hello"));
+
+        // Then
+        assertEquals("Hi from west!", response.aiMessage().text());
+        assertEquals(2L, backend(routing, 0).get("remainingRequests"));
+    }
+
+    @Test
+    void testFailingBackendIsEjectedUntilTheEjectDurationPasses() {
+        // Given
+        when(east.doChat(any())).thenThrow(new InternalServerException("Service unavailable"));
+        answers(west, "Hi from west!", 100);
+        RoutingChatModel routing = routing(2);
+
+        // When - unmeasured, east is tried first until it has failed twice in a row
+        for (int i = 0; i < 3; i++) {
+            assertEquals("Hi from west!", routing.chat(UserMessage.from("Hello")).aiMessage().text());
+        }
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(31));
+        routing.chat(UserMessage.from("Hello"));
+
+        // Then
+        verify(east, times(3)).doChat(any());
+        assertEquals(1L, backend(routing, 0).get("ejections"));
+        assertEquals(3L, backend(routing, 0).get("failures"));
+    }
+
+    @Test
+    void testInvalidRequestIsNotRetriedAndCallsGoToTheirOwnDeployment() {
+        // Given
+        when(east.doChat(any())).thenThrow(new InvalidRequestException("Bad request"));
+        answers(west, "Hi from west!", 100);
+        RoutingChatModel routing = routing(3);
+
+        // When
+        assertThrows(InvalidRequestException.class, () -> routing.chat(UserMessage.from("Hello")));
+        verify(west, never()).doChat(any());
+        reset(east);
+        answers(east, "Hi from east!", 100);
+        routing.chat(UserMessage.from("Hello"));
+
+        // Then
+        ArgumentCaptor<ChatRequest> sent = ArgumentCaptor.forClass(ChatRequest.class);
+        verify(east).doChat(sent.capture());
+        assertEquals("east-deployment", sent.getValue().parameters().modelName());
+        assertEquals(true, backend(routing, 0).get("healthy"));
+    }
+
+    private RoutingChatModel routing(int failureThreshold) {
+        AzureOpenAiChatModel.Builder defaults = AzureOpenAiChatModel.builder()
+            .endpoint("http://localhost:1")
+            .apiKey("test")
+            .deploymentName("primary-deployment");
+        List<RoutingChatModel.Backend> backends = List.of(
+            new RoutingChatModel.Backend("east", "east-deployment", east, eastLimits),
+            new RoutingChatModel.Backend("west", "west-deployment", west, westLimits));
+        // Never explore, so the choice is deterministic
+        RandomGenerator random = mock(RandomGenerator.class);
+        when(random.nextDouble()).thenReturn(0.99);
+        return new RoutingChatModel(defaults, backends, 0.05, Duration.ofSeconds(30), failureThreshold, 0.3,
+            () -> random, clock::get);
+    }
+
+    private void answers(ChatModel backend, String answer, long latencyMillis) {
+        when(backend.doChat(any())).thenAnswer(invocation -> {
+            clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(latencyMillis));
+            return ChatResponse.builder().aiMessage(AiMessage.from(answer)).build();
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> backend(RoutingChatModel routing, int index) {
+        return ((List<Map<String, Object>>) routing.stats().get("backends")).get(index);
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.langchain4j.service;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.TokenUsage;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the exact-match response cache of stateless prompts.
+ */
+class ChatResponseCacheTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    @Test
+    void testNormalizedPromptIsServedFromCache() {
+        // Given
+        ChatResponseCache cache = newCache(true);
+        cache.store("Classify: great  product!", answer("positive", 40), 1200);
+
+        // When
+        Optional<String> hit = cache.lookup("  Classify:\tgreat product! \n");
+        Optional<String> miss = cache.lookup("Classify: bad product!");
+
+        // Then
+        assertEquals(Optional.of("positive"), hit);
+        assertTrue(miss.isEmpty());
+        Map<String, Object> stats = cache.stats();
+        assertEquals(1L, stats.get("hits"));
+        assertEquals(1L, stats.get("misses"));
+        assertEquals(40L, stats.get("tokensSaved"));
+        assertEquals(1200L, stats.get("latencySavedMs"));
+        assertTrue((Long) stats.get("sizeBytes") > 0);
+    }
+
+    @Test
+    void testEntriesExpireAfterTtl() {
+        // Given
+        ChatResponseCache cache = newCache(true);
+        cache.store("Hello", answer("Hi there!", 12), 800);
+
+        // When
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(61));
+
+        // Then
+        assertTrue(cache.lookup("Hello").isEmpty());
+    }
+
+    @Test
+    void testDisabledCacheStoresNothing() {
+        // Given
+        ChatResponseCache cache = newCache(false);
+
+        // When
+        cache.store("Hello", answer("Hi there!", 12), 800);
+        cache.bypass();
+
+        // Then
+        assertTrue(cache.lookup("Hello").isEmpty());
+        assertEquals(0L, cache.stats().get("entries"));
+        assertEquals(1L, cache.stats().get("bypassed"));
+    }
+
+    private ChatResponseCache newCache(boolean enabled) {
+        return new ChatResponseCache(enabled, 1024 * 1024, Duration.ofHours(1), "gpt-5-mini|1000|medium", nanos::get);
+    }
+
+    private static ChatResponse answer(String text, int tokens) {
+        return ChatResponse.builder()
+            .aiMessage(AiMessage.from(text))
+            .tokenUsage(new TokenUsage(tokens - 5, 5))
+            .build();
+    }
+}
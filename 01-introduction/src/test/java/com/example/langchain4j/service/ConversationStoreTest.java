@@ -0,0 +1,184 @@
+package com.example.langchain4j.service;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.TokenCountEstimator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for the disk-backed conversation store.
+ */
+class ConversationStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private final TokenCountEstimator estimator = mock(TokenCountEstimator.class);
+
+    @Test
+    void testConversationSurvivesRestart() {
+        // Given
+        ConversationStore store = new ConversationStore(true, directory, Duration.ofMinutes(30));
+        ConversationStore.Conversation conversation =
+            store.create("c1", ConversationService.PromptFormat.FLATTENED, newMemory());
+        addTurn(store, conversation, "My name is John", "Nice to meet you, John!");
+        addTurn(store, conversation, "I live in Paris", "Paris is lovely.");
+        store.summarized(conversation, 2, "The user is John.");
+        conversation.memory().restoreSummary(2, "The user is John.");
+        store.destroy();
+
+        // When
+        ConversationStore restarted = new ConversationStore(true, directory, Duration.ofMinutes(30));
+        ConversationStore.Conversation reloaded = restarted.find("c1", this::newMemory);
+
+        // Then
+        assertNotNull(reloaded);
+        assertEquals(ConversationService.PromptFormat.FLATTENED, reloaded.format());
+        List<ChatMessage> messages = reloaded.memory().messages();
+        assertEquals(3, messages.size());
+        assertTrue(((SystemMessage) messages.get(0)).text().endsWith("The user is John."));
+        assertEquals("I live in Paris", ((UserMessage) messages.get(1)).singleText());
+        assertEquals("Paris is lovely.", ((AiMessage) messages.get(2)).text());
+        assertEquals(1L, restarted.stats().get("reloads"));
+    }
+
+    @Test
+    void testIdleConversationIsEvictedAndReloaded() {
+        // Given
+        ConversationStore store = new ConversationStore(true, directory, Duration.ZERO);
+        ConversationStore.Conversation idle = store.create("idle", ConversationService.PromptFormat.MESSAGES, newMemory());
+        ConversationStore.Conversation busy = store.create("busy", ConversationService.PromptFormat.MESSAGES, newMemory());
+        addTurn(store, idle, "Hello", "Hi!");
+        addTurn(store, busy, "Hello", "Hi!");
+
+        // When
+        int evicted = store.evictIdle("busy"::equals);
+
+        // Then
+        assertEquals(1, evicted);
+        assertEquals(1, store.stats().get("activeConversations"));
+        assertEquals(2L, store.stats().get("storedConversations"));
+        assertSame(busy, store.find("busy", this::newMemory));
+        ConversationStore.Conversation reloaded = store.find("idle", this::newMemory);
+        assertNotSame(idle, reloaded);
+        assertEquals(idle.memory().messages(), reloaded.memory().messages());
+    }
+
+    @Test
+    void testTornRecordIsDropped() throws Exception {
+        // Given
+        ConversationStore store = new ConversationStore(true, directory, Duration.ofMinutes(30));
+        ConversationStore.Conversation conversation =
+            store.create("c1", ConversationService.PromptFormat.MESSAGES, newMemory());
+        addTurn(store, conversation, "Hello", "Hi!");
+        store.destroy();
+        try (var files = Files.list(directory)) {
+            Path log = files.findFirst().orElseThrow();
+            Files.write(log, new byte[]{0, 0, 0, 42, 2, 0}, StandardOpenOption.APPEND);
+        }
+
+        // When
+        ConversationStore restarted = new ConversationStore(true, directory, Duration.ofMinutes(30));
+        ConversationStore.Conversation reloaded = restarted.find("c1", this::newMemory);
+        addTurn(restarted, reloaded, "Still there?", "Yes.");
+        ConversationStore again = new ConversationStore(true, directory, Duration.ofMinutes(30));
+
+        // Then
+        assertEquals(4, again.find("c1", this::newMemory).memory().messages().size());
+    }
+
+    @Test
+    void testHistoryIsPagedFromTheLog() throws Exception {
+        // Given
+        ConversationStore store = new ConversationStore(true, directory, Duration.ofMinutes(30));
+        ConversationStore.Conversation conversation =
+            store.create("c1", ConversationService.PromptFormat.MESSAGES, newMemory());
+        addTurn(store, conversation, "My name is John", "Nice to meet you, John!");
+        store.summarized(conversation, 2, "The user is John.");
+        addTurn(store, conversation, "I live in Paris", "Paris is lovely.");
+
+        // When
+        List<ConversationStore.HistoryEntry> entries = new ArrayList<>();
+        List<String> cursors = new ArrayList<>();
+        String cursor = null;
+        do {
+            cursor = store.readHistory("c1", cursor, 2, entries::add);
+            cursors.add(cursor);
+        } while (cursor != null);
+
+        // Then - folded messages are still in the stored history
+        assertEquals(List.of("USER", "AI", "SUMMARY", "USER", "AI"),
+            entries.stream().map(ConversationStore.HistoryEntry::type).toList());
+        assertEquals(List.of(0L, 1L, 2L, 3L, 4L),
+            entries.stream().map(ConversationStore.HistoryEntry::index).toList());
+        assertEquals("The user is John.", entries.get(2).text());
+        assertEquals(3, cursors.size());
+        assertThrows(IllegalArgumentException.class, () -> store.readHistory("c1", "not-a-cursor", 2, entries::add));
+    }
+
+    @Test
+    void testLogsPastRetentionAreDeletedUnlessInMemory() throws Exception {
+        // Given
+        ConversationStore store = new ConversationStore(true, directory, Duration.ofMinutes(30), Duration.ofDays(7));
+        addTurn(store, store.create("old", ConversationService.PromptFormat.MESSAGES, newMemory()), "Hello", "Hi!");
+        addTurn(store, store.create("open", ConversationService.PromptFormat.MESSAGES, newMemory()), "Hello", "Hi!");
+        addTurn(store, store.create("recent", ConversationService.PromptFormat.MESSAGES, newMemory()), "Hello", "Hi!");
+        store.destroy();
+        ConversationStore restarted = new ConversationStore(true, directory, Duration.ofMinutes(30), Duration.ofDays(7));
+        restarted.find("open", this::newMemory);
+        FileTime eightDaysAgo = FileTime.from(Instant.now().minus(Duration.ofDays(8)));
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(file -> !file.equals(logOf(directory, "recent"))).toList()) {
+                Files.setLastModifiedTime(file, eightDaysAgo);
+            }
+        }
+
+        // When
+        int deleted = restarted.deleteExpired();
+
+        // Then
+        assertEquals(1, deleted);
+        assertFalse(restarted.exists("old"));
+        assertTrue(restarted.exists("open"));
+        assertTrue(restarted.exists("recent"));
+        assertEquals(1L, restarted.stats().get("expiredLogs"));
+    }
+
+    private static Path logOf(Path directory, String id) {
+        return directory.resolve(Base64.getUrlEncoder().withoutPadding()
+            .encodeToString(id.getBytes(StandardCharsets.UTF_8)) + ".log");
+    }
+
+    private void addTurn(ConversationStore store, ConversationStore.Conversation conversation,
+                         String question, String answer) {
+        for (ChatMessage message : List.of(UserMessage.from(question), AiMessage.from(answer))) {
+            conversation.memory().add(message);
+            store.append(conversation, message);
+        }
+    }
+
+    private TokenBudgetMemory newMemory() {
+        when(estimator.estimateTokenCountInMessage(any())).thenReturn(10);
+        return new TokenBudgetMemory(estimator, 4000, 3000, 1500);
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.langchain4j.service;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.azure.AzureOpenAiChatModel;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.TokenUsage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for background summarization of old conversation turns.
+ */
+class ConversationSummarizerTest {
+
+    private final AzureOpenAiChatModel chatModel = mock(AzureOpenAiChatModel.class);
+    private final ConversationSummarizer summarizer = new ConversationSummarizer(chatModel, new PromptUsageRecorder(), 1);
+    private final List<String> persisted = new ArrayList<>();
+
+    @AfterEach
+    void stopSummarizer() {
+        summarizer.destroy();
+    }
+
+    @Test
+    void testSummaryIsPersistedThenReplacesFoldedTurns() throws Exception {
+        // Given
+        when(chatModel.chat(any(ChatMessage.class), any(ChatMessage.class))).thenReturn(ChatResponse.builder()
+            .aiMessage(AiMessage.from("John plans a trip"))
+            .tokenUsage(new TokenUsage(30, 5))
+            .build());
+        TokenBudgetMemory memory = memoryWithTurns(3);
+
+        // When
+        summarizer.summarizeIfDue("c1", memory, (folded, summary) -> persisted.add(folded + ":" + summary));
+        awaitIdle(memory);
+
+        // Then
+        assertEquals(List.of("4:John plans a trip"), persisted);
+        List<ChatMessage> messages = memory.messages();
+        assertEquals(3, messages.size());
+        assertTrue(((SystemMessage) messages.get(0)).text().endsWith("John plans a trip"));
+        Map<String, Object> stats = memory.stats();
+        assertEquals(1L, stats.get("summarizations"));
+        assertEquals(35L, stats.get("summarizationTokens"));
+    }
+
+    @Test
+    void testFailedSummaryGivesTurnsBackForRetry() throws Exception {
+        // Given
+        when(chatModel.chat(any(ChatMessage.class), any(ChatMessage.class)))
+            .thenThrow(new RuntimeException("429 Too Many Requests"));
+        TokenBudgetMemory memory = memoryWithTurns(3);
+
+        // When
+        summarizer.summarizeIfDue("c1", memory, (folded, summary) -> persisted.add(folded + ":" + summary));
+        awaitIdle(memory);
+
+        // Then - nothing persisted, history intact, and the next turn claims the same turns
+        assertEquals(List.of(), persisted);
+        assertEquals(6, memory.messages().size());
+        assertEquals(0L, memory.stats().get("summarizations"));
+        assertNotNull(memory.startFold());
+    }
+
+    @Test
+    void testNoModelCallWhenNoFoldIsDue() {
+        // Given
+        TokenBudgetMemory memory = memoryWithTurns(1);
+
+        // When
+        summarizer.summarizeIfDue("c1", memory, (folded, summary) -> persisted.add(folded + ":" + summary));
+
+        // Then
+        assertFalse(memory.isSummarizing());
+        verifyNoInteractions(chatModel);
+    }
+
+    private static TokenBudgetMemory memoryWithTurns(int turns) {
+        TokenBudgetMemory memory = new TokenBudgetMemory(TokenBudgetMemoryTest.WORDS, 1000, 10, 0);
+        for (int turn = 1; turn <= turns; turn++) {
+            memory.add(UserMessage.from("question number " + turn));
+            memory.add(AiMessage.from("answer number " + turn));
+        }
+        return memory;
+    }
+
+    private static void awaitIdle(TokenBudgetMemory memory) throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (memory.isSummarizing()) {
+            assertTrue(System.nanoTime() < deadline, "Summary still running after 5 s");
+            Thread.sleep(10);
+        }
+    }
+}
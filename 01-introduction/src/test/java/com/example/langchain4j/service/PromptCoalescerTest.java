@@ -0,0 +1,161 @@
+package com.example.langchain4j.service;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for single-flight coalescing of identical prompts.
+ */
+class PromptCoalescerTest {
+
+    private final ExecutorService clients = Executors.newCachedThreadPool();
+    private final ChatResponseCache cache = new ChatResponseCache(
+        true, 1024 * 1024, Duration.ofHours(1), "gpt-5-mini|1000|medium", Ticker.systemTicker());
+    private final CountDownLatch callStarted = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger modelCalls = new AtomicInteger();
+
+    @AfterEach
+    void stopClients() {
+        clients.shutdownNow();
+    }
+
+    @Test
+    void testIdenticalPromptsShareOneModelCall() throws Exception {
+        // Given
+        PromptCoalescer coalescer = new PromptCoalescer(cache, true, Duration.ofSeconds(30), 100);
+        Future<ChatResponse> leader = clients.submit(() -> coalescer.call("Hello", slowModel("Hi!")));
+        assertTrue(callStarted.await(5, TimeUnit.SECONDS));
+
+        // When - duplicates arrive while the first call is in flight
+        List<Future<ChatResponse>> duplicates = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            duplicates.add(clients.submit(() -> coalescer.call(" Hello ", slowModel("Hi!"))));
+        }
+        awaitCallsSaved(coalescer, 4);
+        release.countDown();
+
+        // Then
+        assertEquals("Hi!", leader.get(5, TimeUnit.SECONDS).aiMessage().text());
+        for (Future<ChatResponse> duplicate : duplicates) {
+            assertEquals("Hi!", duplicate.get(5, TimeUnit.SECONDS).aiMessage().text());
+        }
+        assertEquals(1, modelCalls.get());
+        assertEquals(1L, coalescer.stats().get("upstreamCalls"));
+        assertEquals(0, coalescer.stats().get("inFlight"));
+    }
+
+    @Test
+    void testRequestsBeyondMaxWaitersCallTheModel() throws Exception {
+        // Given
+        PromptCoalescer coalescer = new PromptCoalescer(cache, true, Duration.ofSeconds(30), 1);
+        Future<ChatResponse> leader = clients.submit(() -> coalescer.call("Hello", slowModel("Hi!")));
+        assertTrue(callStarted.await(5, TimeUnit.SECONDS));
+        Future<ChatResponse> waiter = clients.submit(() -> coalescer.call("Hello", slowModel("Hi!")));
+        awaitCallsSaved(coalescer, 1);
+
+        // When
+        ChatResponse alone = coalescer.call("Hello", () -> {
+            modelCalls.incrementAndGet();
+            return ChatResponse.builder().aiMessage(AiMessage.from("Hello!")).build();
+        });
+        release.countDown();
+
+        // Then
+        assertEquals("Hello!", alone.aiMessage().text());
+        assertEquals("Hi!", waiter.get(5, TimeUnit.SECONDS).aiMessage().text());
+        assertEquals("Hi!", leader.get(5, TimeUnit.SECONDS).aiMessage().text());
+        assertEquals(2, modelCalls.get());
+        assertEquals(1L, coalescer.stats().get("waitersFull"));
+    }
+
+    @Test
+    void testFailureIsSharedWithWaiters() throws Exception {
+        // Given
+        PromptCoalescer coalescer = new PromptCoalescer(cache, true, Duration.ofSeconds(30), 100);
+        Future<ChatResponse> leader = clients.submit(() -> coalescer.call("Hello", () -> {
+            callStarted.countDown();
+            await(release);
+            throw new IllegalStateException("Rate limit exceeded");
+        }));
+        assertTrue(callStarted.await(5, TimeUnit.SECONDS));
+        Future<ChatResponse> waiter = clients.submit(() -> coalescer.call("Hello", slowModel("Hi!")));
+        awaitCallsSaved(coalescer, 1);
+
+        // When
+        release.countDown();
+
+        // Then
+        ExecutionException leaderError = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+        ExecutionException waiterError = assertThrows(ExecutionException.class, () -> waiter.get(5, TimeUnit.SECONDS));
+        assertEquals("Rate limit exceeded", leaderError.getCause().getMessage());
+        assertEquals("Rate limit exceeded", waiterError.getCause().getMessage());
+    }
+
+    @Test
+    void testWaiterCallsTheModelWhenTheJoinedCallOutlastsTheWindow() throws Exception {
+        // Given - a call that hangs past the 200 ms window
+        PromptCoalescer coalescer = new PromptCoalescer(cache, true, Duration.ofMillis(200), 100);
+        Future<ChatResponse> leader = clients.submit(() -> coalescer.call("Hello", slowModel("Hi!")));
+        assertTrue(callStarted.await(5, TimeUnit.SECONDS));
+
+        // When
+        long start = System.nanoTime();
+        ChatResponse own = coalescer.call("Hello", () -> {
+            modelCalls.incrementAndGet();
+            return ChatResponse.builder().aiMessage(AiMessage.from("Hello!")).build();
+        });
+        long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        release.countDown();
+
+        // Then - it stopped waiting at the end of the window and got its own answer
+        assertEquals("Hello!", own.aiMessage().text());
+        assertTrue(waitedMillis < 2_000, "Waited " + waitedMillis + " ms for a hung call");
+        assertEquals("Hi!", leader.get(5, TimeUnit.SECONDS).aiMessage().text());
+        assertEquals(2, modelCalls.get());
+        assertEquals(1L, coalescer.stats().get("joinTimeouts"));
+        assertEquals(0L, coalescer.stats().get("callsSaved"));
+    }
+
+    private Supplier<ChatResponse> slowModel(String answer) {
+        return () -> {
+            modelCalls.incrementAndGet();
+            callStarted.countDown();
+            await(release);
+            return ChatResponse.builder().aiMessage(AiMessage.from(answer)).build();
+        };
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void awaitCallsSaved(PromptCoalescer coalescer, long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while ((Long) coalescer.stats().get("callsSaved") < expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, coalescer.stats().get("callsSaved"));
+    }
+}
@@ -0,0 +1,226 @@
+package com.example.langchain4j.service;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.TokenCountEstimator;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the token-bounded conversation memory, with one token per word.
+ */
+class TokenBudgetMemoryTest {
+
+    static final TokenCountEstimator WORDS = new TokenCountEstimator() {
+        @Override
+        public int estimateTokenCountInText(String text) {
+            return text.isBlank() ? 0 : text.trim().split("\\s+").length;
+        }
+
+        @Override
+        public int estimateTokenCountInMessage(ChatMessage message) {
+            if (message instanceof UserMessage userMessage) {
+                return estimateTokenCountInText(userMessage.singleText());
+            }
+            if (message instanceof AiMessage aiMessage) {
+                return estimateTokenCountInText(aiMessage.text());
+            }
+            return estimateTokenCountInText(((SystemMessage) message).text());
+        }
+
+        @Override
+        public int estimateTokenCountInMessages(Iterable<ChatMessage> messages) {
+            int tokens = 0;
+            for (ChatMessage message : messages) {
+                tokens += estimateTokenCountInMessage(message);
+            }
+            return tokens;
+        }
+    };
+
+    @Test
+    void testPromptIsCutToMaxTokensAtTurnBoundary() {
+        // Given - three turns of 6 tokens, room for 10
+        TokenBudgetMemory memory = new TokenBudgetMemory(WORDS, 10, 1000, 1000);
+        addTurns(memory, 3);
+
+        // When
+        List<ChatMessage> prompt = memory.promptMessages();
+
+        // Then - the answer of turn 2 fits, but not without its question
+        assertEquals(List.of(user(3), ai(3)), prompt);
+        assertEquals(6, memory.stats().get("lastPromptTokens"));
+        assertEquals(4, memory.stats().get("lastMessagesLeftOut"));
+    }
+
+    @Test
+    void testMessagesLeftOutDescribesLastPromptOnly() {
+        // Given
+        TokenBudgetMemory memory = new TokenBudgetMemory(WORDS, 10, 1000, 1000);
+        addTurns(memory, 3);
+
+        // When
+        memory.promptMessages();
+        memory.promptMessages();
+
+        // Then
+        assertEquals(4, memory.stats().get("lastMessagesLeftOut"));
+    }
+
+    @Test
+    void testLatestMessageIsSentEvenAboveMaxTokens() {
+        // Given
+        TokenBudgetMemory memory = new TokenBudgetMemory(WORDS, 2, 1000, 1000);
+        UserMessage longMessage = UserMessage.from("one two three four five");
+        memory.add(longMessage);
+
+        // When
+        List<ChatMessage> prompt = memory.promptMessages();
+
+        // Then
+        assertEquals(List.of(longMessage), prompt);
+    }
+
+    @Test
+    void testFoldTakesWholeTurnsOldestFirst() {
+        // Given - 15 tokens, above the 10 threshold; 10 may stay
+        TokenBudgetMemory memory = new TokenBudgetMemory(WORDS, 1000, 10, 10);
+        addTurns(memory, 2);
+        memory.add(user(3));
+
+        // When
+        TokenBudgetMemory.Fold fold = memory.startFold();
+
+        // Then - one whole turn, question and answer
+        assertNotNull(fold);
+        assertNull(fold.previousSummary());
+        assertEquals(List.of(user(1), ai(1)), fold.messages());
+        assertTrue(memory.isSummarizing());
+    }
+
+    @Test
+    void testFoldNeverTakesLatestTurn() {
+        // Given - nothing may stay, so only the latest turn holds the fold back
+        TokenBudgetMemory memory = new TokenBudgetMemory(WORDS, 1000, 10, 0);
+        addTurns(memory, 3);
+
+        // When
+        TokenBudgetMemory.Fold fold = memory.startFold();
+
+        // Then
+        assertEquals(List.of(user(1), ai(1), user(2), ai(2)), fold.messages());
+    }
+
+    @Test
+    void testNoFoldBelowThresholdOrWhileSummarizing() {
+        // Given
+        TokenBudgetMemory memory = new TokenBudgetMemory(WORDS, 1000, 12, 0);
+        addTurns(memory, 2);
+
+        // When / Then - 12 tokens is not above the threshold
+        assertNull(memory.startFold());
+        memory.add(user(3));
+        assertNotNull(memory.startFold());
+        assertNull(memory.startFold());
+    }
+
+    @Test
+    void testCompletedFoldReplacesTurnsWithSummary() {
+        // Given
+        TokenBudgetMemory memory = new TokenBudgetMemory(WORDS, 1000, 10, 0);
+        addTurns(memory, 3);
+        TokenBudgetMemory.Fold fold = memory.startFold();
+
+        // When
+        memory.completeFold(fold, "John plans a trip", 40, 120);
+
+        // Then
+        List<ChatMessage> messages = memory.messages();
+        assertEquals(3, messages.size());
+        assertEquals("Summary of the earlier conversation: John plans a trip",
+            ((SystemMessage) messages.get(0)).text());
+        assertEquals(List.of(user(3), ai(3)), messages.subList(1, 3));
+        assertEquals(memory.messages(), memory.promptMessages());
+
+        Map<String, Object> stats = memory.stats();
+        assertEquals(false, stats.get("summarizing"));
+        assertEquals(1L, stats.get("summarizations"));
+        assertEquals(40L, stats.get("summarizationTokens"));
+        assertEquals(6, stats.get("recentTokens"));
+        assertEquals(9, stats.get("summaryTokens"));
+    }
+
+    @Test
+    void testRestoredSummaryMatchesCompletedFold() {
+        // Given
+        TokenBudgetMemory folded = new TokenBudgetMemory(WORDS, 1000, 10, 0);
+        addTurns(folded, 3);
+        folded.completeFold(folded.startFold(), "John plans a trip", 40, 120);
+        TokenBudgetMemory reloaded = new TokenBudgetMemory(WORDS, 1000, 10, 0);
+        addTurns(reloaded, 3);
+
+        // When
+        reloaded.restoreSummary(4, "John plans a trip");
+
+        // Then
+        assertEquals(folded.messages(), reloaded.messages());
+        assertEquals(folded.stats().get("recentTokens"), reloaded.stats().get("recentTokens"));
+        assertEquals(folded.stats().get("summaryTokens"), reloaded.stats().get("summaryTokens"));
+    }
+
+    @Test
+    void testAbandonedFoldIsClaimedAgain() {
+        // Given
+        TokenBudgetMemory memory = new TokenBudgetMemory(WORDS, 1000, 10, 0);
+        addTurns(memory, 3);
+        TokenBudgetMemory.Fold first = memory.startFold();
+
+        // When
+        memory.abandonFold(0, 250);
+
+        // Then
+        assertFalse(memory.isSummarizing());
+        assertEquals(6, memory.messages().size());
+        assertEquals(first, memory.startFold());
+        assertEquals(0L, memory.stats().get("summarizations"));
+        assertEquals(250L, memory.stats().get("summarizationMs"));
+    }
+
+    @Test
+    void testRemoveLastOnlyTakesBackLatestMessage() {
+        // Given
+        TokenBudgetMemory memory = new TokenBudgetMemory(WORDS, 1000, 1000, 1000);
+        addTurns(memory, 1);
+        UserMessage unanswered = user(2);
+        memory.add(unanswered);
+
+        // When
+        memory.removeLast(user(1));
+        memory.removeLast(unanswered);
+
+        // Then
+        assertEquals(List.of(user(1), ai(1)), memory.messages());
+        assertEquals(6, memory.stats().get("recentTokens"));
+    }
+
+    private static void addTurns(TokenBudgetMemory memory, int turns) {
+        for (int turn = 1; turn <= turns; turn++) {
+            memory.add(user(turn));
+            memory.add(ai(turn));
+        }
+    }
+
+    private static UserMessage user(int turn) {
+        return UserMessage.from("question number " + turn);
+    }
+
+    private static AiMessage ai(int turn) {
+        return AiMessage.from("answer number " + turn);
+    }
+}
@@ -4,8 +4,10 @@ import com.example.langchain4j.rag.model.dto.DocumentResponse;
 import com.example.langchain4j.rag.model.dto.ErrorResponse;
 import com.example.langchain4j.rag.service.DocumentService;
 import com.example.langchain4j.rag.service.EmbeddingService;
+import com.example.langchain4j.rag.service.ModelCapacityException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -77,6 +79,10 @@ public class DocumentController {
                 ));
             }
 
+        } catch (ModelCapacityException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfter().toSeconds()))
+                .body(new ErrorResponse("Too many requests", e.getMessage()));
         } catch (Exception e) {
             log.error("Failed to process document", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -3,13 +3,18 @@ package com.example.langchain4j.rag.app;
 import com.example.langchain4j.rag.model.dto.ErrorResponse;
 import com.example.langchain4j.rag.model.dto.RagRequest;
 import com.example.langchain4j.rag.model.dto.RagResponse;
+import com.example.langchain4j.rag.service.ModelCallScheduler;
+import com.example.langchain4j.rag.service.ModelCapacityException;
 import com.example.langchain4j.rag.service.RagService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Map;
+
 /**
  * REST controller for RAG (Retrieval-Augmented Generation) queries.
  */
@@ -20,9 +25,11 @@ public class RagController {
     private static final Logger log = LoggerFactory.getLogger(RagController.class);
 
     private final RagService ragService;
+    private final ModelCallScheduler scheduler;
 
-    public RagController(RagService ragService) {
+    public RagController(RagService ragService, ModelCallScheduler scheduler) {
         this.ragService = ragService;
+        this.scheduler = scheduler;
     }
 
     /**
@@ -47,6 +54,10 @@ public class RagController {
 
             return ResponseEntity.ok(response);
 
+        } catch (ModelCapacityException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfter().toSeconds()))
+                .body(new ErrorResponse("Too many requests", e.getMessage()));
         } catch (Exception e) {
             log.error("RAG request failed", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -54,6 +65,16 @@ public class RagController {
         }
     }
 
+    /**
+     * Get model call scheduler metrics: remaining quota, queue depth, shed calls and queue wait times.
+     *
+     * @return scheduler metrics
+     */
+    @GetMapping("/scheduler/stats")
+    public ResponseEntity<Map<String, Object>> getSchedulerStats() {
+        return ResponseEntity.ok(scheduler.stats());
+    }
+
     /**
      * Health check endpoint.
      *
@@ -38,6 +38,8 @@ public class LangChainRagConfig {
     /**
      * Creates the Azure OpenAI Chat Model for answer generation.
      * GPT-5 uses reasoning effort levels instead of temperature.
+     * Calls go through the ModelCallScheduler, which backs off on rate limits
+     * and retries within the quota, so the client does not retry them itself.
      *
      * @return configured AzureOpenAiChatModel
      */
@@ -48,13 +50,14 @@ public class LangChainRagConfig {
             .apiKey(apiKey)
             .deploymentName(deployment)
             .maxCompletionTokens(maxCompletionTokens)
-            .maxRetries(3)
+            .maxRetries(0)
             .logRequestsAndResponses(false)
             .build();
     }
 
     /**
      * Creates the Azure OpenAI Embedding Model for document vectorization.
+     * Like the chat model, it leaves retries to the ModelCallScheduler.
      *
      * @return configured AzureOpenAiEmbeddingModel
      */
@@ -64,7 +67,7 @@ public class LangChainRagConfig {
             .endpoint(endpoint)
             .apiKey(apiKey)
             .deploymentName(embeddingDeployment)
-            .maxRetries(3)
+            .maxRetries(0)
             .logRequestsAndResponses(false)
             .build();
     }
@@ -7,8 +7,10 @@ import dev.langchain4j.model.output.Response;
 import dev.langchain4j.store.embedding.EmbeddingStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -21,12 +23,18 @@ public class EmbeddingService {
 
     private final AzureOpenAiEmbeddingModel embeddingModel;
     private final EmbeddingStore<TextSegment> embeddingStore;
+    private final ModelCallScheduler scheduler;
+    private final int batchSize;
 
     public EmbeddingService(
             AzureOpenAiEmbeddingModel embeddingModel,
-            EmbeddingStore<TextSegment> embeddingStore) {
+            EmbeddingStore<TextSegment> embeddingStore,
+            ModelCallScheduler scheduler,
+            @Value("${rag.scheduler.batch.embedding-batch-size:16}") int batchSize) {
         this.embeddingModel = embeddingModel;
         this.embeddingStore = embeddingStore;
+        this.scheduler = scheduler;
+        this.batchSize = batchSize;
     }
 
     /**
@@ -39,9 +47,29 @@ public class EmbeddingService {
         log.info("Generating embeddings for {} segments", segments.size());
         
         try {
-            // Generate embeddings for all segments
-            Response<List<Embedding>> response = embeddingModel.embedAll(segments);
-            List<Embedding> embeddings = response.content();
+            // Refuse a document the quota cannot embed in time before spending any of it
+            int batches = (segments.size() + batchSize - 1) / batchSize;
+            long totalTokens = segments.stream()
+                .mapToLong(segment -> ModelCallScheduler.estimateTokens(segment.text()))
+                .sum();
+            long deadline = scheduler.admitWork(ModelCallScheduler.Deployment.EMBEDDING,
+                ModelCallScheduler.Priority.BATCH, batches, totalTokens);
+
+            // Generate embeddings in batches, each admitted by the scheduler as bulk work
+            List<Embedding> embeddings = new ArrayList<>(segments.size());
+            for (int from = 0; from < segments.size(); from += batchSize) {
+                List<TextSegment> batch = segments.subList(from, Math.min(from + batchSize, segments.size()));
+                int estimatedTokens = batch.stream()
+                    .mapToInt(segment -> ModelCallScheduler.estimateTokens(segment.text()))
+                    .sum();
+                Response<List<Embedding>> response = scheduler.call(
+                    ModelCallScheduler.Deployment.EMBEDDING, ModelCallScheduler.Priority.BATCH,
+                    estimatedTokens, deadline,
+                    () -> embeddingModel.embedAll(batch),
+                    result -> result.tokenUsage() != null && result.tokenUsage().totalTokenCount() != null
+                        ? result.tokenUsage().totalTokenCount() : 0);
+                embeddings.addAll(response.content());
+            }
             
             // Store embeddings with their segments
             embeddingStore.addAll(embeddings, segments);
@@ -49,6 +77,9 @@ public class EmbeddingService {
             log.info("Successfully stored {} embeddings", embeddings.size());
             return embeddings.size();
             
+        } catch (ModelCapacityException e) {
+            log.warn("Embedding batch shed: {}", e.getMessage());
+            throw e;
         } catch (Exception e) {
             log.error("Failed to store embeddings", e);
             throw new RuntimeException("Embedding storage failed: " + e.getMessage(), e);
@@ -0,0 +1,386 @@
+package com.example.langchain4j.rag.service;
+
+import dev.langchain4j.exception.RateLimitException;
+import dev.langchain4j.exception.RetriableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Admission control for Azure OpenAI chat and embedding calls.
+ * <p>
+ * Every call takes one request from a requests-per-minute bucket and its
+ * estimated tokens from a tokens-per-minute bucket before it is sent, so the
+ * deployment's quota is spent here rather than discovered through 429 retries.
+ * The chat and embedding deployments have separate quotas in Azure OpenAI, so
+ * each has its own buckets and queues. Waiting calls queue per priority:
+ * interactive calls always go before batch calls to the same deployment. A
+ * call is shed with {@link ModelCapacityException} when its queue is full or
+ * it waited longer than its queue timeout.
+ * <p>
+ * Token estimates are corrected with the actual usage once the call returns,
+ * and a rate-limit answer from the service drains the deployment's buckets so
+ * queued calls back off together instead of retrying into the limit. Retriable
+ * failures (rate limits, server errors, timeouts) are retried here, through the
+ * buckets again and within the call's deadline, up to {@code rag.scheduler.max-attempts}
+ * attempts; a rate limit that outlasts them is shed like a call that found no quota.
+ * The model clients should not retry by themselves, or their retries bypass the buckets.
+ */
+@Component
+public class ModelCallScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(ModelCallScheduler.class);
+
+    /**
+     * Deployment a model call goes to, each with its own quota.
+     */
+    public enum Deployment {
+        CHAT,
+        EMBEDDING
+    }
+
+    /**
+     * Priority class of a model call.
+     */
+    public enum Priority {
+        /** A user is waiting for the answer. */
+        INTERACTIVE,
+        /** Bulk work such as document ingestion. */
+        BATCH
+    }
+
+    // Pause before retrying a failure that is not a rate limit, times the attempt number
+    private static final long RETRY_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private final Map<Deployment, Quota> quotas = new EnumMap<>(Deployment.class);
+    private final Map<Priority, Integer> queueCapacity = new EnumMap<>(Priority.class);
+    private final Map<Priority, Long> queueTimeoutNanos = new EnumMap<>(Priority.class);
+    private final int maxAttempts;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+
+    @Autowired
+    public ModelCallScheduler(
+            @Value("${rag.scheduler.chat.requests-per-minute:60}") int chatRequestsPerMinute,
+            @Value("${rag.scheduler.chat.tokens-per-minute:60000}") int chatTokensPerMinute,
+            @Value("${rag.scheduler.embedding.requests-per-minute:120}") int embeddingRequestsPerMinute,
+            @Value("${rag.scheduler.embedding.tokens-per-minute:120000}") int embeddingTokensPerMinute,
+            @Value("${rag.scheduler.interactive.queue-capacity:50}") int interactiveCapacity,
+            @Value("${rag.scheduler.interactive.queue-timeout:10s}") Duration interactiveTimeout,
+            @Value("${rag.scheduler.batch.queue-capacity:500}") int batchCapacity,
+            @Value("${rag.scheduler.batch.queue-timeout:2m}") Duration batchTimeout,
+            @Value("${rag.scheduler.max-attempts:3}") int maxAttempts) {
+        this(chatRequestsPerMinute, chatTokensPerMinute, embeddingRequestsPerMinute, embeddingTokensPerMinute,
+            Duration.ofMinutes(1), interactiveCapacity, interactiveTimeout, batchCapacity, batchTimeout, maxAttempts);
+    }
+
+    ModelCallScheduler(int chatRequestsPerPeriod, int chatTokensPerPeriod,
+                       int embeddingRequestsPerPeriod, int embeddingTokensPerPeriod, Duration period,
+                       int interactiveCapacity, Duration interactiveTimeout,
+                       int batchCapacity, Duration batchTimeout, int maxAttempts) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        quotas.put(Deployment.CHAT, new Quota(chatRequestsPerPeriod, chatTokensPerPeriod, period));
+        quotas.put(Deployment.EMBEDDING, new Quota(embeddingRequestsPerPeriod, embeddingTokensPerPeriod, period));
+        queueCapacity.put(Priority.INTERACTIVE, interactiveCapacity);
+        queueCapacity.put(Priority.BATCH, batchCapacity);
+        queueTimeoutNanos.put(Priority.INTERACTIVE, interactiveTimeout.toNanos());
+        queueTimeoutNanos.put(Priority.BATCH, batchTimeout.toNanos());
+        log.info("Model call scheduler: chat {} requests / {} tokens, embedding {} requests / {} tokens per {}",
+            chatRequestsPerPeriod, chatTokensPerPeriod, embeddingRequestsPerPeriod, embeddingTokensPerPeriod, period);
+    }
+
+    /**
+     * Run a model call once the quota allows it.
+     *
+     * @param deployment      deployment the call goes to
+     * @param priority        priority class of the call
+     * @param estimatedTokens tokens the call is expected to use, prompt and completion
+     * @param call            the model call
+     * @param usedTokens      actual tokens used according to the result, or 0 if unknown
+     * @return the call's result
+     * @throws ModelCapacityException if the call was shed, or still rate limited after its last attempt
+     */
+    public <T> T call(Deployment deployment, Priority priority, int estimatedTokens,
+                      Supplier<T> call, ToIntFunction<T> usedTokens) {
+        return call(deployment, priority, estimatedTokens, System.nanoTime() + queueTimeoutNanos.get(priority),
+            call, usedTokens);
+    }
+
+    /**
+     * Run a model call that is part of larger work, once the quota allows it.
+     *
+     * @param deadlineNanos {@link System#nanoTime()} by which the call must be admitted,
+     *                      as returned by {@link #admitWork}
+     * @see #call(Deployment, Priority, int, Supplier, ToIntFunction)
+     */
+    public <T> T call(Deployment deployment, Priority priority, int estimatedTokens, long deadlineNanos,
+                      Supplier<T> call, ToIntFunction<T> usedTokens) {
+        Quota quota = quotas.get(deployment);
+        T result;
+        for (int attempt = 1; ; attempt++) {
+            acquire(quota, priority, estimatedTokens, deadlineNanos);
+            try {
+                result = call.get();
+                break;
+            } catch (RetriableException e) {
+                boolean rateLimited = e instanceof RateLimitException;
+                if (rateLimited) {
+                    // The next attempt waits in acquire until the drained buckets refill
+                    backOff(deployment, quota);
+                }
+                long now = System.nanoTime();
+                if (attempt >= maxAttempts || now >= deadlineNanos) {
+                    if (rateLimited) {
+                        quota.stats.get(priority).shed.incrementAndGet();
+                        throw new ModelCapacityException(String.format(
+                            "Model service still rate limited after %d attempts", attempt),
+                            retryAfter(quota, estimatedTokens, now));
+                    }
+                    throw e;
+                }
+                quota.retried.incrementAndGet();
+                log.info("Retrying {} call after attempt {} failed: {}",
+                    deployment.name().toLowerCase(Locale.ROOT), attempt, e.getMessage());
+                if (!rateLimited) {
+                    pause(Math.min(RETRY_DELAY_NANOS * attempt, deadlineNanos - now));
+                }
+            }
+        }
+
+        int used = usedTokens.applyAsInt(result);
+        if (used > 0 && used != estimatedTokens) {
+            lock.lock();
+            try {
+                if (used < estimatedTokens) {
+                    quota.tokens.refund(estimatedTokens - used);
+                    changed.signalAll();
+                } else {
+                    quota.tokens.take(used - estimatedTokens);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Check up front that work made of several calls, such as embedding a
+     * whole document, can get its quota within the queue timeout, so it is
+     * refused before any of it runs rather than shed halfway. Its calls then
+     * share one deadline.
+     *
+     * @param calls           number of calls the work makes
+     * @param estimatedTokens tokens of all its calls together
+     * @return the deadline to pass to each of its calls
+     * @throws ModelCapacityException if the quota cannot cover the work within the queue timeout
+     */
+    public long admitWork(Deployment deployment, Priority priority, int calls, long estimatedTokens) {
+        Quota quota = quotas.get(deployment);
+        long timeout = queueTimeoutNanos.get(priority);
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            long needed = Math.max(quota.requests.nanosToSupply(calls, now),
+                quota.tokens.nanosToSupply(estimatedTokens, now));
+            if (needed > timeout) {
+                quota.stats.get(priority).shed.incrementAndGet();
+                throw new ModelCapacityException(String.format(
+                    "%d %s calls need about %d s of model quota, more than the %d s queue timeout",
+                    calls, deployment.name().toLowerCase(Locale.ROOT), TimeUnit.NANOSECONDS.toSeconds(needed),
+                    TimeUnit.NANOSECONDS.toSeconds(timeout)),
+                    Duration.ofSeconds(TimeUnit.NANOSECONDS.toSeconds(needed - timeout) + 1));
+            }
+            return now + timeout;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Rough token estimate for text sent to the model, about four characters per token.
+     */
+    public static int estimateTokens(String text) {
+        return text == null ? 0 : text.length() / 4 + 1;
+    }
+
+    /**
+     * Get scheduler metrics.
+     *
+     * @return per deployment the remaining quota, rate limits hit and calls retried, and per priority
+     *         the queue depth, shed calls and queue wait times
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            for (Deployment deployment : Deployment.values()) {
+                Quota quota = quotas.get(deployment);
+                Map<String, Object> deploymentStats = new LinkedHashMap<>();
+                deploymentStats.put("availableRequests", quota.requests.available(now));
+                deploymentStats.put("availableTokens", quota.tokens.available(now));
+                for (Priority priority : Priority.values()) {
+                    Map<String, Object> classStats = quota.stats.get(priority).toMap();
+                    classStats.put("queued", quota.queues.get(priority).size());
+                    deploymentStats.put(priority.name().toLowerCase(Locale.ROOT), classStats);
+                }
+                deploymentStats.put("rateLimited", quota.rateLimited.get());
+                deploymentStats.put("retried", quota.retried.get());
+                result.put(deployment.name().toLowerCase(Locale.ROOT), deploymentStats);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return result;
+    }
+
+    private void acquire(Quota quota, Priority priority, int estimatedTokens, long deadline) {
+        ArrayDeque<Object> queue = quota.queues.get(priority);
+        ClassStats classStats = quota.stats.get(priority);
+        Object ticket = new Object();
+        long start = System.nanoTime();
+
+        lock.lock();
+        try {
+            if (queue.size() >= queueCapacity.get(priority)) {
+                classStats.shed.incrementAndGet();
+                throw new ModelCapacityException(
+                    "Too many queued " + priority.name().toLowerCase() + " model calls",
+                    quota.retryAfter(estimatedTokens, start));
+            }
+            queue.addLast(ticket);
+            try {
+                while (true) {
+                    long now = System.nanoTime();
+                    long wait = quota.next() == ticket
+                        ? Math.max(quota.requests.nanosUntil(1, now), quota.tokens.nanosUntil(estimatedTokens, now))
+                        : Long.MAX_VALUE;
+                    if (wait == 0) {
+                        quota.requests.take(1);
+                        quota.tokens.take(estimatedTokens);
+                        classStats.recordWait(now - start);
+                        return;
+                    }
+                    if (now >= deadline) {
+                        classStats.shed.incrementAndGet();
+                        throw new ModelCapacityException(
+                            "Model quota exhausted, " + priority.name().toLowerCase() + " call timed out in queue",
+                            quota.retryAfter(estimatedTokens, now));
+                    }
+                    changed.awaitNanos(Math.min(wait, deadline - now));
+                }
+            } finally {
+                queue.remove(ticket);
+                changed.signalAll();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ModelCapacityException("Interrupted while waiting for model quota", Duration.ZERO);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Duration retryAfter(Quota quota, int estimatedTokens, long now) {
+        lock.lock();
+        try {
+            return quota.retryAfter(estimatedTokens, now);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void pause(long nanos) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ModelCapacityException("Interrupted while waiting to retry a model call", Duration.ZERO);
+        }
+    }
+
+    private void backOff(Deployment deployment, Quota quota) {
+        quota.rateLimited.incrementAndGet();
+        lock.lock();
+        try {
+            quota.requests.drain();
+            quota.tokens.drain();
+        } finally {
+            lock.unlock();
+        }
+        log.warn("Model service answered {} call with a rate limit, draining its local quota",
+            deployment.name().toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Buckets, queues and metrics of one deployment; guarded by the scheduler's lock.
+     */
+    private static final class Quota {
+        private final TokenBucket requests;
+        private final TokenBucket tokens;
+        private final Map<Priority, ArrayDeque<Object>> queues = new EnumMap<>(Priority.class);
+        private final Map<Priority, ClassStats> stats = new EnumMap<>(Priority.class);
+        private final AtomicLong rateLimited = new AtomicLong();
+        private final AtomicLong retried = new AtomicLong();
+
+        private Quota(int requestsPerPeriod, int tokensPerPeriod, Duration period) {
+            this.requests = new TokenBucket(requestsPerPeriod, period);
+            this.tokens = new TokenBucket(tokensPerPeriod, period);
+            for (Priority priority : Priority.values()) {
+                queues.put(priority, new ArrayDeque<>());
+                stats.put(priority, new ClassStats());
+            }
+        }
+
+        // Interactive calls go first; batch calls only run when no interactive call is waiting
+        private Object next() {
+            Object interactive = queues.get(Priority.INTERACTIVE).peekFirst();
+            return interactive != null ? interactive : queues.get(Priority.BATCH).peekFirst();
+        }
+
+        private Duration retryAfter(int estimatedTokens, long now) {
+            long nanos = Math.max(requests.nanosUntil(1, now), tokens.nanosUntil(estimatedTokens, now));
+            return Duration.ofSeconds(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(nanos) + 1));
+        }
+    }
+
+    private static final class ClassStats {
+        private final AtomicLong admitted = new AtomicLong();
+        private final AtomicLong shed = new AtomicLong();
+        private final AtomicLong totalWaitNanos = new AtomicLong();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+
+        private void recordWait(long nanos) {
+            admitted.incrementAndGet();
+            totalWaitNanos.addAndGet(nanos);
+            maxWaitNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        private Map<String, Object> toMap() {
+            long count = admitted.get();
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("admitted", count);
+            map.put("shed", shed.get());
+            map.put("avgQueueWaitMs", count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get() / count));
+            map.put("maxQueueWaitMs", TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()));
+            return map;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.langchain4j.rag.service;
+
+import java.time.Duration;
+
+/**
+ * Exception thrown when a model call is shed because the request or token
+ * quota is exhausted and its queue is full or its wait timed out.
+ */
+public class ModelCapacityException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public ModelCapacityException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * @return suggested delay before retrying
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
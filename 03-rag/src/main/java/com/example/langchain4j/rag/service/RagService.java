@@ -1,9 +1,13 @@
 package com.example.langchain4j.rag.service;
 
 import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.model.azure.AzureOpenAiChatModel;
 import dev.langchain4j.model.azure.AzureOpenAiEmbeddingModel;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.output.TokenUsage;
 import dev.langchain4j.store.embedding.EmbeddingMatch;
 import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
 import dev.langchain4j.store.embedding.EmbeddingSearchResult;
@@ -13,6 +17,7 @@ import com.example.langchain4j.rag.model.dto.RagResponse;
 import com.example.langchain4j.rag.model.dto.SourceReference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
@@ -34,14 +39,20 @@ public class RagService {
     private final AzureOpenAiChatModel chatModel;
     private final AzureOpenAiEmbeddingModel embeddingModel;
     private final EmbeddingStore<TextSegment> embeddingStore;
+    private final ModelCallScheduler scheduler;
+    private final int maxCompletionTokens;
 
     public RagService(
             AzureOpenAiChatModel chatModel,
             AzureOpenAiEmbeddingModel embeddingModel,
-            EmbeddingStore<TextSegment> embeddingStore) {
+            EmbeddingStore<TextSegment> embeddingStore,
+            ModelCallScheduler scheduler,
+            @Value("${azure.openai.max-completion-tokens:2000}") int maxCompletionTokens) {
         this.chatModel = chatModel;
         this.embeddingModel = embeddingModel;
         this.embeddingStore = embeddingStore;
+        this.scheduler = scheduler;
+        this.maxCompletionTokens = maxCompletionTokens;
     }
 
     /**
@@ -55,7 +66,12 @@ public class RagService {
 
         try {
             // 1. Embed the question
-            Embedding questionEmbedding = embeddingModel.embed(request.question()).content();
+            Response<Embedding> embedded = scheduler.call(
+                ModelCallScheduler.Deployment.EMBEDDING, ModelCallScheduler.Priority.INTERACTIVE,
+                ModelCallScheduler.estimateTokens(request.question()),
+                () -> embeddingModel.embed(request.question()),
+                response -> totalTokens(response.tokenUsage()));
+            Embedding questionEmbedding = embedded.content();
             
             // 2. Find relevant document segments using search (no minScore to see all results)
             EmbeddingSearchRequest searchRequest = EmbeddingSearchRequest.builder()
@@ -104,8 +120,13 @@ public class RagService {
                 
                 Answer:""", context, request.question());
             
-            // 5. Generate answer
-            String answer = chatModel.chat(prompt);
+            // 5. Generate answer (the completion budget counts against the token quota too)
+            ChatResponse chatResponse = scheduler.call(
+                ModelCallScheduler.Deployment.CHAT, ModelCallScheduler.Priority.INTERACTIVE,
+                ModelCallScheduler.estimateTokens(prompt) + maxCompletionTokens,
+                () -> chatModel.chat(UserMessage.from(prompt)),
+                response -> totalTokens(response.tokenUsage()));
+            String answer = chatResponse.aiMessage().text();
             
             // 6. Build source references
             List<SourceReference> sources = filteredMatches.stream()
@@ -124,9 +145,16 @@ public class RagService {
             
             return new RagResponse(answer, request.conversationId(), sources);
 
+        } catch (ModelCapacityException e) {
+            log.warn("RAG request shed: {}", e.getMessage());
+            throw e;
         } catch (Exception e) {
             log.error("RAG processing failed", e);
             throw new RuntimeException("Failed to process question: " + e.getMessage(), e);
         }
     }
+
+    private static int totalTokens(TokenUsage usage) {
+        return usage != null && usage.totalTokenCount() != null ? usage.totalTokenCount() : 0;
+    }
 }
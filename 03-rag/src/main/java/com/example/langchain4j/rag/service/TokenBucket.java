@@ -0,0 +1,64 @@
+package com.example.langchain4j.rag.service;
+
+import java.time.Duration;
+
+/**
+ * Token bucket refilled continuously at {@code capacity} per period.
+ * Not thread-safe; {@link ModelCallScheduler} guards it with its lock.
+ */
+final class TokenBucket {
+
+    private final double capacity;
+    private final double refillPerNano;
+    private double available;
+    private long refilledAt;
+
+    TokenBucket(long capacity, Duration period) {
+        this.capacity = capacity;
+        this.refillPerNano = (double) capacity / period.toNanos();
+        this.available = capacity;
+        this.refilledAt = System.nanoTime();
+    }
+
+    /**
+     * Time until {@code amount} tokens are available, or 0 if they already are.
+     * Amounts above the capacity only wait for a full bucket.
+     */
+    long nanosUntil(long amount, long now) {
+        refill(now);
+        double missing = Math.min(amount, capacity) - available;
+        return missing <= 0 ? 0 : (long) Math.ceil(missing / refillPerNano);
+    }
+
+    /**
+     * Time until {@code amount} tokens have been supplied, counting those
+     * available now and the refill after that; amounts may exceed the capacity.
+     */
+    long nanosToSupply(long amount, long now) {
+        refill(now);
+        double missing = amount - available;
+        return missing <= 0 ? 0 : (long) Math.ceil(missing / refillPerNano);
+    }
+
+    void take(long amount) {
+        available -= amount;
+    }
+
+    void refund(long amount) {
+        available = Math.min(capacity, available + amount);
+    }
+
+    void drain() {
+        available = Math.min(available, 0);
+    }
+
+    long available(long now) {
+        refill(now);
+        return (long) available;
+    }
+
+    private void refill(long now) {
+        available = Math.min(capacity, available + (now - refilledAt) * refillPerNano);
+        refilledAt = now;
+    }
+}
@@ -4,6 +4,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.example.langchain4j.rag.model.dto.RagRequest;
 import com.example.langchain4j.rag.model.dto.RagResponse;
 import com.example.langchain4j.rag.model.dto.SourceReference;
+import com.example.langchain4j.rag.service.ModelCallScheduler;
+import com.example.langchain4j.rag.service.ModelCapacityException;
 import com.example.langchain4j.rag.service.RagService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,6 +14,7 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -36,6 +39,9 @@ class RagControllerTest {
     @MockBean
     private RagService ragService;
 
+    @MockBean
+    private ModelCallScheduler scheduler;
+
     @Test
     void testAskWithValidQuestion() throws Exception {
         // Given
@@ -103,6 +109,22 @@ class RagControllerTest {
                 .andExpect(jsonPath("$.message").exists());
     }
 
+    @Test
+    void testAskWhenQuotaExhausted() throws Exception {
+        // Given
+        RagRequest request = new RagRequest("What is Azure OpenAI?", "conv-123", 5);
+        when(ragService.ask(any(RagRequest.class)))
+            .thenThrow(new ModelCapacityException("Model quota exhausted", Duration.ofSeconds(12)));
+
+        // When & Then
+        mockMvc.perform(post("/api/rag/ask")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "12"))
+                .andExpect(jsonPath("$.error").value("Too many requests"));
+    }
+
     @Test
     void testHealthEndpoint() throws Exception {
         // When & Then
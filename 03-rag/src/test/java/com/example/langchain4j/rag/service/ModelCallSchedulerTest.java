@@ -0,0 +1,189 @@
+package com.example.langchain4j.rag.service;
+
+import dev.langchain4j.exception.InternalServerException;
+import dev.langchain4j.exception.RateLimitException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ModelCallScheduler.
+ */
+class ModelCallSchedulerTest {
+
+    private static final Duration PERIOD = Duration.ofMillis(300);
+
+    @Test
+    void testInteractiveCallsGoBeforeBatchCalls() throws Exception {
+        // Given - one request per period, already spent
+        ModelCallScheduler scheduler = new ModelCallScheduler(1, 100_000, 1, 100_000, PERIOD,
+            10, Duration.ofSeconds(5), 10, Duration.ofSeconds(5), 3);
+        scheduler.call(ModelCallScheduler.Deployment.CHAT, ModelCallScheduler.Priority.INTERACTIVE, 10, () -> "first", result -> 0);
+        List<String> order = new CopyOnWriteArrayList<>();
+
+        // When - a batch call queues before an interactive one
+        CompletableFuture<Void> batch = CompletableFuture.runAsync(() ->
+            scheduler.call(ModelCallScheduler.Deployment.CHAT, ModelCallScheduler.Priority.BATCH, 10, () -> order.add("batch"), result -> 0));
+        Thread.sleep(50);
+        CompletableFuture<Void> interactive = CompletableFuture.runAsync(() ->
+            scheduler.call(ModelCallScheduler.Deployment.CHAT, ModelCallScheduler.Priority.INTERACTIVE, 10, () -> order.add("interactive"), result -> 0));
+        CompletableFuture.allOf(batch, interactive).get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertEquals(List.of("interactive", "batch"), order);
+    }
+
+    @Test
+    void testFullQueueShedsCalls() throws Exception {
+        // Given - quota spent and the single interactive queue slot taken
+        ModelCallScheduler scheduler = new ModelCallScheduler(1, 100_000, 1, 100_000, Duration.ofMinutes(1),
+            1, Duration.ofSeconds(5), 1, Duration.ofSeconds(5), 3);
+        scheduler.call(ModelCallScheduler.Deployment.CHAT, ModelCallScheduler.Priority.INTERACTIVE, 10, () -> "first", result -> 0);
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() ->
+            scheduler.call(ModelCallScheduler.Deployment.CHAT, ModelCallScheduler.Priority.INTERACTIVE, 10, () -> "queued", result -> 0));
+        Thread.sleep(50);
+
+        // When
+        ModelCapacityException e = assertThrows(ModelCapacityException.class, () ->
+            scheduler.call(ModelCallScheduler.Deployment.CHAT, ModelCallScheduler.Priority.INTERACTIVE, 10, () -> "shed", result -> 0));
+
+        // Then
+        assertTrue(e.getRetryAfter().toSeconds() > 0);
+        assertEquals(1L, interactive(scheduler, "chat").get("shed"));
+        queued.cancel(true);
+    }
+
+    @Test
+    void testQueueTimeoutShedsCalls() {
+        // Given - token quota too small for the estimate until the next period
+        ModelCallScheduler scheduler = new ModelCallScheduler(100, 1_000, 100, 1_000, Duration.ofMinutes(1),
+            10, Duration.ofMillis(50), 10, Duration.ofMillis(50), 3);
+        scheduler.call(ModelCallScheduler.Deployment.CHAT, ModelCallScheduler.Priority.BATCH, 1_000, () -> "first", result -> 0);
+
+        // When & Then
+        assertThrows(ModelCapacityException.class, () ->
+            scheduler.call(ModelCallScheduler.Deployment.CHAT, ModelCallScheduler.Priority.BATCH, 500, () -> "second", result -> 0));
+    }
+
+    @Test
+    void testActualUsageRefundsOverestimate() {
+        // Given - an estimate of the whole token quota that turns out to use little
+        ModelCallScheduler scheduler = new ModelCallScheduler(100, 1_000, 100, 1_000, Duration.ofMinutes(1),
+            10, Duration.ofMillis(50), 10, Duration.ofMillis(50), 3);
+        scheduler.call(ModelCallScheduler.Deployment.CHAT, ModelCallScheduler.Priority.INTERACTIVE, 1_000, () -> "first", result -> 100);
+
+        // When
+        String result = scheduler.call(ModelCallScheduler.Deployment.CHAT, ModelCallScheduler.Priority.INTERACTIVE, 800, () -> "second", r -> 0);
+
+        // Then
+        assertEquals("second", result);
+        assertEquals(2L, interactive(scheduler, "chat").get("admitted"));
+    }
+
+    @Test
+    void testChatAndEmbeddingHaveSeparateQuotas() {
+        // Given - the chat quota is spent
+        ModelCallScheduler scheduler = new ModelCallScheduler(1, 100_000, 10, 100_000, Duration.ofMinutes(1),
+            10, Duration.ofMillis(50), 10, Duration.ofMillis(50), 3);
+        scheduler.call(ModelCallScheduler.Deployment.CHAT, ModelCallScheduler.Priority.INTERACTIVE, 10,
+            () -> "answer", result -> 0);
+
+        // When
+        String embedded = scheduler.call(ModelCallScheduler.Deployment.EMBEDDING,
+            ModelCallScheduler.Priority.INTERACTIVE, 10, () -> "embedded", result -> 0);
+
+        // Then
+        assertEquals("embedded", embedded);
+        assertThrows(ModelCapacityException.class, () -> scheduler.call(ModelCallScheduler.Deployment.CHAT,
+            ModelCallScheduler.Priority.INTERACTIVE, 10, () -> "shed", result -> 0));
+    }
+
+    @Test
+    void testWorkBeyondTheQuotaIsRefusedBeforeItStarts() {
+        // Given - 1,000 embedding tokens per minute and a 2 minute batch timeout
+        ModelCallScheduler scheduler = new ModelCallScheduler(100, 100_000, 100, 1_000, Duration.ofMinutes(1),
+            10, Duration.ofSeconds(10), 10, Duration.ofMinutes(2), 3);
+
+        // When
+        long deadline = scheduler.admitWork(ModelCallScheduler.Deployment.EMBEDDING,
+            ModelCallScheduler.Priority.BATCH, 3, 2_500);
+        ModelCapacityException e = assertThrows(ModelCapacityException.class, () -> scheduler.admitWork(
+            ModelCallScheduler.Deployment.EMBEDDING, ModelCallScheduler.Priority.BATCH, 4, 4_000));
+
+        // Then - 2,500 tokens fit (1,000 now, 1,500 over 90 s), 4,000 need 3 minutes
+        assertTrue(deadline - System.nanoTime() > TimeUnit.SECONDS.toNanos(110));
+        assertTrue(e.getRetryAfter().toSeconds() >= 60);
+        assertEquals(1L, ((Map<?, ?>) ((Map<?, ?>) scheduler.stats().get("embedding")).get("batch")).get("shed"));
+    }
+
+    @Test
+    void testRateLimitedCallIsRetriedAfterBackOff() {
+        // Given - a service that answers 429 once
+        ModelCallScheduler scheduler = new ModelCallScheduler(10, 100_000, 10, 100_000, PERIOD,
+            10, Duration.ofSeconds(5), 10, Duration.ofSeconds(5), 3);
+        AtomicInteger attempts = new AtomicInteger();
+
+        // When
+        String answer = scheduler.call(ModelCallScheduler.Deployment.CHAT, ModelCallScheduler.Priority.INTERACTIVE, 10, () -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new RateLimitException("429 Too Many Requests");
+            }
+            return "answer";
+        }, result -> 0);
+
+        // Then
+        assertEquals("answer", answer);
+        assertEquals(2, attempts.get());
+        Map<?, ?> chat = (Map<?, ?>) scheduler.stats().get("chat");
+        assertEquals(1L, chat.get("rateLimited"));
+        assertEquals(1L, chat.get("retried"));
+    }
+
+    @Test
+    void testPersistentRateLimitIsShedWithRetryAfter() {
+        // Given - a service that always answers 429
+        ModelCallScheduler scheduler = new ModelCallScheduler(10, 100_000, 10, 100_000, PERIOD,
+            10, Duration.ofSeconds(5), 10, Duration.ofSeconds(5), 2);
+        AtomicInteger attempts = new AtomicInteger();
+
+        // When
+        ModelCapacityException e = assertThrows(ModelCapacityException.class, () ->
+            scheduler.call(ModelCallScheduler.Deployment.CHAT, ModelCallScheduler.Priority.INTERACTIVE, 10, () -> {
+                attempts.incrementAndGet();
+                throw new RateLimitException("429 Too Many Requests");
+            }, result -> 0));
+
+        // Then - the attempts are bounded and the caller is told when quota returns
+        assertEquals(2, attempts.get());
+        assertTrue(e.getRetryAfter().toMillis() > 0);
+        assertEquals(1L, interactive(scheduler, "chat").get("shed"));
+    }
+
+    @Test
+    void testServerErrorIsRetriedThenRethrown() {
+        // Given - a service that keeps failing with 500
+        ModelCallScheduler scheduler = new ModelCallScheduler(10, 100_000, 10, 100_000, PERIOD,
+            10, Duration.ofSeconds(5), 10, Duration.ofSeconds(5), 2);
+        AtomicInteger attempts = new AtomicInteger();
+
+        // When & Then - not a capacity problem, so the original error surfaces
+        assertThrows(InternalServerException.class, () ->
+            scheduler.call(ModelCallScheduler.Deployment.CHAT, ModelCallScheduler.Priority.INTERACTIVE, 10, () -> {
+                attempts.incrementAndGet();
+                throw new InternalServerException("500 Internal Server Error");
+            }, result -> 0));
+        assertEquals(2, attempts.get());
+    }
+
+    private static Map<?, ?> interactive(ModelCallScheduler scheduler, String deployment) {
+        return (Map<?, ?>) ((Map<?, ?>) scheduler.stats().get(deployment)).get("interactive");
+    }
+}
@@ -2,12 +2,14 @@ package com.example.langchain4j.agents;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Main Spring Boot application for Agents & Tools module.
  * This module demonstrates AI agents with tool-calling capabilities using LangChain4j.
  */
 @SpringBootApplication
+@EnableScheduling
 public class AgentsApplication {
 
     public static void main(String[] args) {
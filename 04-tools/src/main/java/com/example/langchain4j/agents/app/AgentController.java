@@ -1,18 +1,38 @@
 package com.example.langchain4j.agents.app;
 
 import com.example.langchain4j.agents.exception.AgentException;
+import com.example.langchain4j.agents.exception.SessionBusyException;
 import com.example.langchain4j.agents.model.dto.AgentRequest;
 import com.example.langchain4j.agents.model.dto.AgentResponse;
 import com.example.langchain4j.agents.model.dto.ErrorResponse;
 import com.example.langchain4j.agents.service.AgentService;
+import com.example.langchain4j.agents.service.HealthMonitor;
+import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * REST controller for AI agent interactions with tool calling.
@@ -24,11 +44,35 @@ public class AgentController {
 
     private static final Logger log = LoggerFactory.getLogger(AgentController.class);
     private static final int MAX_MESSAGE_LENGTH = 1000;
+    // Ids are written to the checkpoint log, which holds at most 64 KB per string
+    private static final int MAX_ID_LENGTH = 128;
 
     private final AgentService agentService;
+    private final HealthMonitor healthMonitor;
+    private final ExecutorService agentExecutor;
+    private final ScheduledExecutorService heartbeatScheduler;
+    private final ExecutorService streamWriteExecutor;
+    private final Duration streamTimeout;
+    private final Duration streamHeartbeat;
+    private final Duration requestTimeout;
 
-    public AgentController(AgentService agentService) {
+    public AgentController(
+            AgentService agentService,
+            HealthMonitor healthMonitor,
+            @Qualifier("agentExecutor") ExecutorService agentExecutor,
+            @Qualifier("streamHeartbeatScheduler") ScheduledExecutorService heartbeatScheduler,
+            @Qualifier("streamWriteExecutor") ExecutorService streamWriteExecutor,
+            @Value("${agent.stream.timeout:5m}") Duration streamTimeout,
+            @Value("${agent.stream.heartbeat:15s}") Duration streamHeartbeat,
+            @Value("${agent.execution.request-timeout:5m}") Duration requestTimeout) {
         this.agentService = agentService;
+        this.healthMonitor = healthMonitor;
+        this.agentExecutor = agentExecutor;
+        this.heartbeatScheduler = heartbeatScheduler;
+        this.streamWriteExecutor = streamWriteExecutor;
+        this.streamTimeout = streamTimeout;
+        this.streamHeartbeat = streamHeartbeat;
+        this.requestTimeout = requestTimeout;
     }
 
     /**
@@ -54,85 +98,199 @@ public class AgentController {
     /**
      * Execute an agent task.
      * Follows the Request/Response pattern from coding instructions.
+     * The task runs on the agent executor, so the servlet thread is released
+     * while it waits for the model. A task still running after the request
+     * timeout is cancelled, and so is a task whose client disconnects: see
+     * {@link #runCancellable} for the keep-alives that detect it.
      *
      * @param request task request with message and optional session ID
      * @return agent response with result and tool executions
      */
     @PostMapping("/execute")
-    public ResponseEntity<?> executeTask(@RequestBody AgentRequest request) {
+    public DeferredResult<ResponseEntity<?>> executeTask(@RequestBody AgentRequest request,
+                                                         HttpServletResponse servletResponse) {
         log.info("Received agent task: {}", request.message());
 
-        try {
-            // Validate request (as per error handling guidelines)
-            if (request.message() == null || request.message().trim().isEmpty()) {
-                return ResponseEntity.badRequest()
-                    .body(new ErrorResponse("Invalid request", "Message cannot be empty"));
-            }
+        // Validate request (as per error handling guidelines)
+        if (request.message() == null || request.message().trim().isEmpty()) {
+            return completed(ResponseEntity.badRequest()
+                .body(new ErrorResponse("Invalid request", "Message cannot be empty")));
+        }
+
+        // Limit prompt length (security consideration)
+        if (request.message().length() > MAX_MESSAGE_LENGTH) {
+            return completed(ResponseEntity.badRequest()
+                .body(new ErrorResponse("Invalid request", 
+                    String.format("Message too long (max %d characters)", MAX_MESSAGE_LENGTH))));
+        }
 
-            // Limit prompt length (security consideration)
-            if (request.message().length() > MAX_MESSAGE_LENGTH) {
-                return ResponseEntity.badRequest()
-                    .body(new ErrorResponse("Invalid request", 
-                        String.format("Message too long (max %d characters)", MAX_MESSAGE_LENGTH)));
+        if (idTooLong(request.sessionId()) || idTooLong(request.taskId())) {
+            return completed(ResponseEntity.badRequest()
+                .body(new ErrorResponse("Invalid request", idTooLongMessage())));
+        }
+
+        return runCancellable("task", servletResponse, () -> {
+            try {
+                // Execute agent task
+                AgentResponse response = agentService.executeTask(request);
+                log.info("Task completed with status: {}", response.status());
+
+                return ResponseEntity.ok(response);
+
+            } catch (SessionBusyException e) {
+                log.info("Rejected concurrent turn: {}", e.getMessage());
+                return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(new ErrorResponse("Session busy", e.getMessage()));
+            } catch (AgentException e) {
+                log.error("Agent task execution failed", e);
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new ErrorResponse("Agent error", e.getMessage()));
+            } catch (Exception e) {
+                log.error("Unexpected error during task execution", e);
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new ErrorResponse("Execution failed", "An unexpected error occurred"));
             }
+        });
+    }
+
+    /**
+     * Execute an agent task and stream its progress as Server-Sent Events.
+     * Emits "step" before each model call, "token" for model output,
+     * "tool_call" and "tool_result" around each tool execution, and a final
+     * "answer" event carrying the complete agent response. A heartbeat comment
+     * is written every {@code agent.stream.heartbeat} while the task runs, so a
+     * closed connection is noticed even during a long model or tool call; it
+     * cancels the task and any in-flight model call.
+     *
+     * @param request task request with message and optional session ID
+     * @return event stream
+     */
+    @PostMapping(value = "/execute/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter executeTaskStream(@RequestBody AgentRequest request) {
+        log.info("Received streamed agent task: {}", request.message());
 
-            // Execute agent task
-            AgentResponse response = agentService.executeTask(request);
-            log.info("Task completed with status: {}", response.status());
+        if (request.message() == null || request.message().trim().isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Message cannot be empty");
+        }
+        if (request.message().length() > MAX_MESSAGE_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                String.format("Message too long (max %d characters)", MAX_MESSAGE_LENGTH));
+        }
+        if (idTooLong(request.sessionId()) || idTooLong(request.taskId())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, idTooLongMessage());
+        }
 
-            return ResponseEntity.ok(response);
+        SseEmitter emitter = new SseEmitter(streamTimeout.toMillis());
+        CompletableFuture<Future<?>> task = new CompletableFuture<>();
+        CompletableFuture<Future<?>> heartbeat = new CompletableFuture<>();
+        Runnable cancel = () -> {
+            heartbeat.thenAccept(future -> future.cancel(false));
+            task.thenAccept(future -> future.cancel(true));
+        };
+        SseAgentEventListener listener = new SseAgentEventListener(emitter, cancel);
 
-        } catch (AgentException e) {
-            log.error("Agent task execution failed", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(new ErrorResponse("Agent error", e.getMessage()));
-        } catch (Exception e) {
-            log.error("Unexpected error during task execution", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(new ErrorResponse("Execution failed", "An unexpected error occurred"));
+        try {
+            task.complete(agentExecutor.submit(() -> {
+                try {
+                    AgentResponse response = agentService.executeTask(request, listener);
+                    log.info("Streamed task completed with status: {}", response.status());
+                    if (listener.send("answer", response)) {
+                        emitter.complete();
+                    }
+                } catch (SessionBusyException e) {
+                    log.info("Rejected concurrent turn: {}", e.getMessage());
+                    listener.send("error", new ErrorResponse("Session busy", e.getMessage()));
+                    emitter.complete();
+                } catch (Exception e) {
+                    log.error("Unexpected error during streamed task execution", e);
+                    listener.send("error", new ErrorResponse("Execution failed", "An unexpected error occurred"));
+                    emitter.complete();
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            log.warn("Agent executor saturated, rejecting streamed task");
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many concurrent agent tasks");
+        }
+        if (!streamHeartbeat.isZero()) {
+            heartbeat.complete(scheduleHeartbeat(listener::heartbeat));
         }
+
+        emitter.onTimeout(cancel);
+        emitter.onError(error -> cancel.run());
+        emitter.onCompletion(cancel);
+        return emitter;
     }
 
     /**
      * Chat with the agent (simplified conversational interface).
      * Provides input validation and security checks.
+     * Runs like {@link #executeTask}: off the servlet thread, cancelled after the
+     * request timeout or when the client disconnects.
      *
-     * @param request chat request with message and optional session ID
+     * @param request chat request with message, optional session ID, optional timeoutMs and
+     *                optional taskId (a retry with the same taskId resumes a failed attempt)
      * @return chat response with answer
      */
     @PostMapping("/chat")
-    public ResponseEntity<?> chat(@RequestBody Map<String, String> request) {
+    public DeferredResult<ResponseEntity<?>> chat(@RequestBody Map<String, String> request,
+                                                  HttpServletResponse servletResponse) {
         String sessionId = request.get("sessionId");
         String message = request.get("message");
+        String timeout = request.get("timeoutMs");
+        String taskId = request.get("taskId");
 
         // Input validation (as per security guidelines)
         if (message == null || message.trim().isEmpty()) {
-            return ResponseEntity.badRequest()
-                .body(Map.of("error", "Message cannot be empty"));
+            return completed(ResponseEntity.badRequest()
+                .body(Map.of("error", "Message cannot be empty")));
         }
 
         // Limit prompt length (security consideration)
         if (message.length() > MAX_MESSAGE_LENGTH) {
-            return ResponseEntity.badRequest()
-                .body(Map.of("error", String.format("Message too long (max %d characters)", MAX_MESSAGE_LENGTH)));
+            return completed(ResponseEntity.badRequest()
+                .body(Map.of("error", String.format("Message too long (max %d characters)", MAX_MESSAGE_LENGTH))));
         }
 
-        try {
-            AgentRequest agentRequest = new AgentRequest(message, sessionId, true);
-            AgentResponse response = agentService.executeTask(agentRequest);
+        if (idTooLong(sessionId) || idTooLong(taskId)) {
+            return completed(ResponseEntity.badRequest()
+                .body(Map.of("error", idTooLongMessage())));
+        }
+
+        Long timeoutMs = null;
+        if (timeout != null) {
+            try {
+                timeoutMs = Long.parseLong(timeout);
+            } catch (NumberFormatException e) {
+                timeoutMs = -1L;
+            }
+            if (timeoutMs <= 0) {
+                return completed(ResponseEntity.badRequest()
+                    .body(Map.of("error", "timeoutMs must be a positive number of milliseconds")));
+            }
+        }
+
+        AgentRequest agentRequest = new AgentRequest(message, sessionId, true, timeoutMs, taskId);
+        return runCancellable("chat", servletResponse, () -> {
+            try {
+                AgentResponse response = agentService.executeTask(agentRequest);
             
-            return ResponseEntity.ok(Map.of(
-                "sessionId", response.sessionId(),
-                "answer", response.answer(),
-                "toolsUsed", response.toolExecutions().size(),
-                "status", response.status()
-            ));
+                return ResponseEntity.ok(Map.of(
+                    "sessionId", response.sessionId(),
+                    "answer", response.answer(),
+                    "toolsUsed", response.toolExecutions().size(),
+                    "status", response.status()
+                ));
             
-        } catch (Exception e) {
-            log.error("Agent chat failed", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(Map.of("error", "Failed to process message"));
-        }
+            } catch (SessionBusyException e) {
+                log.info("Rejected concurrent turn: {}", e.getMessage());
+                return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", e.getMessage()));
+            } catch (Exception e) {
+                log.error("Agent chat failed", e);
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Failed to process message"));
+            }
+        });
     }
 
     /**
@@ -174,33 +332,210 @@ public class AgentController {
         }
     }
 
+    /**
+     * Get agent session metrics: live sessions, evictions and estimated memory footprint.
+     *
+     * @return session store metrics
+     */
+    @GetMapping("/sessions/stats")
+    public ResponseEntity<Map<String, Object>> getSessionStats() {
+        return ResponseEntity.ok(agentService.getSessionStats());
+    }
+
+    /**
+     * Get trajectory cache metrics: lookups, hits, fallbacks and model calls saved.
+     *
+     * @return trajectory cache metrics
+     */
+    @GetMapping("/trajectories/stats")
+    public ResponseEntity<Map<String, Object>> getTrajectoryStats() {
+        return ResponseEntity.ok(agentService.getTrajectoryStats());
+    }
+
+    /**
+     * Get step checkpoint metrics: unfinished tasks, steps recorded and replayed, and log size.
+     *
+     * @return checkpoint metrics
+     */
+    @GetMapping("/checkpoints/stats")
+    public ResponseEntity<Map<String, Object>> getCheckpointStats() {
+        return ResponseEntity.ok(agentService.getCheckpointStats());
+    }
+
+    /**
+     * Get conversion fast path metrics: messages checked, answered locally and hit rate.
+     *
+     * @return fast path metrics
+     */
+    @GetMapping("/fast-path/stats")
+    public ResponseEntity<Map<String, Object>> getFastPathStats() {
+        return ResponseEntity.ok(agentService.getFastPathStats());
+    }
+
     /**
      * Health check endpoint.
      * Required for all modules as per guidelines.
-     * Tests Azure connectivity and service availability.
+     * Served from the latest background probe of Azure OpenAI and the tool
+     * endpoints, so it never waits for a model call.
      *
-     * @return health status with Azure connectivity check
+     * @return health status with per-dependency latency and error rate; 503 when not ready
      */
     @GetMapping("/health")
     public ResponseEntity<Map<String, Object>> health() {
+        Map<String, HealthMonitor.DependencyHealth> dependencies = healthMonitor.dependencies();
+        HealthMonitor.DependencyHealth model = dependencies.get("model");
+        boolean ready = healthMonitor.isReady();
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("status", ready ? "healthy" : "unhealthy");
+        body.put("service", "agents");
+        body.put("azureConnected", model != null && model.status() != HealthMonitor.Status.DOWN
+            && model.status() != HealthMonitor.Status.UNKNOWN);
+        body.put("dependencies", dependencies);
+        body.put("timestamp", System.currentTimeMillis());
+        return ResponseEntity.status(ready ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE).body(body);
+    }
+
+    /**
+     * Liveness probe: fails only when this process has stopped making progress,
+     * never because a dependency is slow or down.
+     *
+     * @return 200 when live, 503 otherwise
+     */
+    @GetMapping("/health/liveness")
+    public ResponseEntity<Map<String, String>> liveness() {
+        boolean live = healthMonitor.isLive();
+        return ResponseEntity.status(live ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE)
+            .body(Map.of("status", live ? "UP" : "DOWN"));
+    }
+
+    /**
+     * Readiness probe: fails while the tool endpoints are down, so traffic is
+     * routed to other replicas. The shared model is only reported on {@code /health}.
+     *
+     * @return 200 when ready, 503 otherwise
+     */
+    @GetMapping("/health/readiness")
+    public ResponseEntity<Map<String, String>> readiness() {
+        boolean ready = healthMonitor.isReady();
+        return ResponseEntity.status(ready ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE)
+            .body(Map.of("status", ready ? "UP" : "DOWN"));
+    }
+
+    /**
+     * Run a request on the agent executor and cancel it when the request
+     * times out, the container fails the async request, or the client goes
+     * away, so no further model or tool calls are made for a response nobody
+     * will read.
+     * <p>
+     * A closed connection is only noticed when something is written to it, so
+     * once a task has run for {@code agent.stream.heartbeat} a space is written
+     * ahead of the JSON body at that interval; a failed write cancels the task.
+     * The first keep-alive commits a 200 status, so errors after it are reported
+     * in the body only.
+     */
+    private DeferredResult<ResponseEntity<?>> runCancellable(String kind, HttpServletResponse servletResponse,
+                                                             Callable<ResponseEntity<?>> work) {
+        DeferredResult<ResponseEntity<?>> result = new DeferredResult<>(requestTimeout.toMillis());
+        // Keeps keep-alives from writing once the result is set and the container writes the body
+        Object writeLock = new Object();
+        CompletableFuture<Future<?>> keepAlive = new CompletableFuture<>();
+        Future<?> task;
         try {
-            // Test Azure connectivity with a simple call
-            String testResponse = agentService.simpleChat("Say 'OK' if you're working");
-            boolean azureConnected = testResponse != null && !testResponse.contains("error");
-            
-            return ResponseEntity.ok(Map.of(
-                "status", "healthy",
-                "service", "agents",
-                "azureConnected", azureConnected,
-                "timestamp", System.currentTimeMillis()
-            ));
-        } catch (Exception e) {
-            log.error("Health check failed", e);
-            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
-                .body(Map.of(
-                    "status", "unhealthy",
-                    "error", e.getMessage()
-                ));
+            task = agentExecutor.submit(() -> {
+                ResponseEntity<?> response;
+                try {
+                    response = work.call();
+                } catch (Exception e) {
+                    synchronized (writeLock) {
+                        result.setErrorResult(e);
+                    }
+                    return;
+                }
+                synchronized (writeLock) {
+                    result.setResult(response);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("Agent executor saturated, rejecting {}", kind);
+            return completed(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(new ErrorResponse("Service busy", "Too many concurrent agent tasks")));
+        }
+
+        if (!streamHeartbeat.isZero()) {
+            keepAlive.complete(scheduleHeartbeat(() -> {
+                synchronized (writeLock) {
+                    if (result.isSetOrExpired()) {
+                        return;
+                    }
+                    try {
+                        if (!servletResponse.isCommitted()) {
+                            servletResponse.setContentType(MediaType.APPLICATION_JSON_VALUE);
+                        }
+                        servletResponse.getOutputStream().write(' ');
+                        servletResponse.flushBuffer();
+                    } catch (IOException | IllegalStateException e) {
+                        log.info("Client of agent {} disconnected, cancelling: {}", kind, e.getMessage());
+                        task.cancel(true);
+                        result.setErrorResult(e);
+                    }
+                }
+            }));
         }
+
+        result.onTimeout(() -> {
+            log.warn("Agent {} exceeded the {} ms request timeout, cancelling", kind, requestTimeout.toMillis());
+            task.cancel(true);
+        });
+        result.onError(error -> {
+            log.info("Agent {} request failed, cancelling: {}", kind, error.getMessage());
+            task.cancel(true);
+        });
+        result.onCompletion(() -> {
+            keepAlive.thenAccept(future -> future.cancel(false));
+            task.cancel(true);
+        });
+        return result;
+    }
+
+    /**
+     * Run {@code write} every {@code agent.stream.heartbeat} on the stream write executor.
+     * A tick is skipped while the previous write is still blocked on a slow client.
+     *
+     * @return the schedule; cancel it to stop the heartbeats
+     */
+    private Future<?> scheduleHeartbeat(Runnable write) {
+        AtomicBoolean writing = new AtomicBoolean();
+        long millis = streamHeartbeat.toMillis();
+        return heartbeatScheduler.scheduleWithFixedDelay(() -> {
+            if (!writing.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                streamWriteExecutor.execute(() -> {
+                    try {
+                        write.run();
+                    } finally {
+                        writing.set(false);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                writing.set(false);
+            }
+        }, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    private static DeferredResult<ResponseEntity<?>> completed(ResponseEntity<?> response) {
+        DeferredResult<ResponseEntity<?>> result = new DeferredResult<>();
+        result.setResult(response);
+        return result;
+    }
+
+    private static boolean idTooLong(String id) {
+        return id != null && id.length() > MAX_ID_LENGTH;
+    }
+
+    private static String idTooLongMessage() {
+        return String.format("sessionId and taskId must be at most %d characters", MAX_ID_LENGTH);
     }
 }
@@ -0,0 +1,85 @@
+package com.example.langchain4j.agents.app;
+
+import com.example.langchain4j.agents.diagnostics.FlightRecording;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * REST controller exposing the continuous flight recording for incident analysis.
+ * The recording holds tool names, timings and stack traces of the whole
+ * service, so the endpoint is only registered when
+ * {@code diagnostics.jfr.endpoint-enabled} is set; otherwise dump the
+ * recording with {@code jcmd <pid> JFR.dump name=agent-continuous}.
+ */
+@RestController
+@ConditionalOnProperty(name = "diagnostics.jfr.endpoint-enabled", havingValue = "true")
+@RequestMapping("/api/diagnostics")
+public class DiagnosticsController {
+
+    private static final Logger log = LoggerFactory.getLogger(DiagnosticsController.class);
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final FlightRecording flightRecording;
+
+    public DiagnosticsController(FlightRecording flightRecording) {
+        this.flightRecording = flightRecording;
+    }
+
+    /**
+     * Download the flight recording of the last few minutes.
+     * Open the file with JDK Mission Control or {@code jfr print}.
+     *
+     * @param minutes how many minutes to include, capped at the recording max age
+     * @return the .jfr recording
+     */
+    @GetMapping("/recording")
+    public ResponseEntity<StreamingResponseBody> recording(
+            @RequestParam(defaultValue = "5") int minutes) {
+        if (minutes < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!flightRecording.isRunning()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+
+        Path file;
+        try {
+            file = flightRecording.dump(Duration.ofMinutes(minutes));
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to dump flight recording", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+
+        String filename = "agent-" + LocalDateTime.now().format(FILE_TIMESTAMP) + ".jfr";
+        StreamingResponseBody body = out -> {
+            try {
+                Files.copy(file, out);
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        };
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_OCTET_STREAM)
+            .header(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(filename).build().toString())
+            .body(body);
+    }
+}
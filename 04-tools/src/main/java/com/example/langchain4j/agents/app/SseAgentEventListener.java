@@ -0,0 +1,86 @@
+package com.example.langchain4j.agents.app;
+
+import com.example.langchain4j.agents.model.dto.ToolExecutionInfo;
+import com.example.langchain4j.agents.service.AgentEventListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Forwards agent progress events to a Server-Sent Events stream.
+ * When a send fails the client is gone, so the supplied cancel action is run.
+ */
+class SseAgentEventListener implements AgentEventListener {
+
+    private static final Logger log = LoggerFactory.getLogger(SseAgentEventListener.class);
+
+    private final SseEmitter emitter;
+    private final Runnable onDisconnect;
+    private volatile boolean disconnected;
+
+    SseAgentEventListener(SseEmitter emitter, Runnable onDisconnect) {
+        this.emitter = emitter;
+        this.onDisconnect = onDisconnect;
+    }
+
+    @Override
+    public boolean streamsTokens() {
+        return true;
+    }
+
+    @Override
+    public void onStep(int iteration) {
+        send("step", Map.of("iteration", iteration));
+    }
+
+    @Override
+    public void onToken(int iteration, String token) {
+        send("token", Map.of("iteration", iteration, "text", token));
+    }
+
+    @Override
+    public void onToolCall(int iteration, String toolName, String arguments) {
+        send("tool_call", Map.of("iteration", iteration, "tool", toolName, "arguments", arguments));
+    }
+
+    @Override
+    public void onToolResult(int iteration, ToolExecutionInfo execution) {
+        send("tool_result", Map.of(
+            "iteration", iteration,
+            "tool", execution.toolName(),
+            "result", execution.status()
+        ));
+    }
+
+    /**
+     * Send a named event. Returns false if the client has disconnected.
+     */
+    boolean send(String name, Object data) {
+        return emit(SseEmitter.event().name(name).data(data));
+    }
+
+    /**
+     * Send a comment that clients ignore, to find out whether the connection is still open.
+     */
+    void heartbeat() {
+        emit(SseEmitter.event().comment("heartbeat"));
+    }
+
+    private boolean emit(SseEmitter.SseEventBuilder event) {
+        if (disconnected) {
+            return false;
+        }
+        try {
+            emitter.send(event);
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            log.info("Client disconnected from agent stream: {}", e.getMessage());
+            disconnected = true;
+            onDisconnect.run();
+            return false;
+        }
+    }
+}
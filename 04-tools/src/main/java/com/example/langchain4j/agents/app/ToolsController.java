@@ -1,13 +1,40 @@
 package com.example.langchain4j.agents.app;
 
+import com.example.langchain4j.agents.model.dto.ToolInvocation;
+import com.example.langchain4j.agents.model.dto.ToolInvocationResult;
+import com.example.langchain4j.agents.service.Deadline;
+import com.example.langchain4j.agents.tools.Lookup;
+import com.example.langchain4j.agents.tools.LookupTimeoutException;
 import com.example.langchain4j.agents.tools.TemperatureTool;
+import com.example.langchain4j.agents.tools.WeatherService;
 import com.example.langchain4j.agents.tools.WeatherTool;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * REST controller exposing tools as HTTP endpoints for Azure AI Agent Service.
@@ -18,30 +45,56 @@ import java.util.Map;
 public class ToolsController {
 
     private static final Logger log = LoggerFactory.getLogger(ToolsController.class);
+    private static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
 
     private final WeatherTool weatherTool;
+    private final WeatherService weatherService;
     private final TemperatureTool temperatureTool;
+    private final ExecutorService batchExecutor;
+    private final ObjectMapper objectMapper;
+    private final int maxBatchSize;
+    private final Duration batchTimeout;
 
-    public ToolsController(WeatherTool weatherTool, TemperatureTool temperatureTool) {
+    public ToolsController(
+            WeatherTool weatherTool,
+            WeatherService weatherService,
+            TemperatureTool temperatureTool,
+            @Qualifier("toolBatchExecutor") ExecutorService batchExecutor,
+            ObjectMapper objectMapper,
+            @Value("${tools.batch.max-size:500}") int maxBatchSize,
+            @Value("${tools.batch.timeout:30s}") Duration batchTimeout) {
         this.weatherTool = weatherTool;
+        this.weatherService = weatherService;
         this.temperatureTool = temperatureTool;
+        this.batchExecutor = batchExecutor;
+        this.objectMapper = objectMapper;
+        this.maxBatchSize = maxBatchSize;
+        this.batchTimeout = batchTimeout;
     }
 
     // ========== Weather Tool Endpoints ==========
 
     @PostMapping("/weather/current")
-    public ResponseEntity<Map<String, Object>> getCurrentWeather(@RequestBody Map<String, String> request) {
+    public ResponseEntity<Map<String, Object>> getCurrentWeather(
+            @RequestBody Map<String, String> request,
+            @RequestHeader(value = Deadline.HEADER, required = false) Long deadlineMs) {
         String location = request.get("location");
         log.info("Tool call: getCurrentWeather for location: {}", location);
 
         try {
-            String result = weatherTool.getCurrentWeather(location);
+            Lookup<String> result = deadlineMs != null
+                ? weatherTool.currentWeather(location, Duration.ofMillis(Math.max(0, deadlineMs)))
+                : weatherTool.currentWeather(location);
             
-            // Parse the mock result to return structured data
             return ResponseEntity.ok(Map.of(
                 "location", location,
-                "description", result
+                "description", result.value(),
+                "cached", result.cached()
             ));
+        } catch (LookupTimeoutException e) {
+            log.warn("Weather lookup timed out: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT)
+                .body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             log.error("Error getting weather", e);
             return ResponseEntity.internalServerError()
@@ -50,19 +103,28 @@ public class ToolsController {
     }
 
     @PostMapping("/weather/forecast")
-    public ResponseEntity<Map<String, Object>> getWeatherForecast(@RequestBody Map<String, Object> request) {
+    public ResponseEntity<Map<String, Object>> getWeatherForecast(
+            @RequestBody Map<String, Object> request,
+            @RequestHeader(value = Deadline.HEADER, required = false) Long deadlineMs) {
         String location = (String) request.get("location");
         int days = ((Number) request.get("days")).intValue();
         log.info("Tool call: getWeatherForecast for location: {}, days: {}", location, days);
 
         try {
-            String result = weatherTool.getWeatherForecast(location, days);
+            Lookup<String> result = deadlineMs != null
+                ? weatherTool.weatherForecast(location, days, Duration.ofMillis(Math.max(0, deadlineMs)))
+                : weatherTool.weatherForecast(location, days);
             
             return ResponseEntity.ok(Map.of(
                 "location", location,
                 "days", days,
-                "forecast", result
+                "forecast", result.value(),
+                "cached", result.cached()
             ));
+        } catch (LookupTimeoutException e) {
+            log.warn("Forecast lookup timed out: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT)
+                .body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             log.error("Error getting forecast", e);
             return ResponseEntity.internalServerError()
@@ -70,6 +132,16 @@ public class ToolsController {
         }
     }
 
+    /**
+     * Get weather lookup metrics: cache hits, coalesced lookups and upstream calls.
+     *
+     * @return weather lookup metrics
+     */
+    @GetMapping("/weather/stats")
+    public ResponseEntity<Map<String, Object>> getWeatherStats() {
+        return ResponseEntity.ok(weatherService.stats());
+    }
+
     // ========== Temperature Conversion Tool Endpoints ==========
 
     @PostMapping("/temperature/celsius-to-fahrenheit")
@@ -170,6 +242,244 @@ public class ToolsController {
         }
     }
 
+    // ========== Batch Invocation Endpoints ==========
+
+    /**
+     * Invoke several tools in one request.
+     * Invocations run concurrently and results are returned in request order.
+     * A failing invocation is reported in its slot without failing the batch,
+     * and so is one rejected because the batch executor's queue is full.
+     *
+     * Example request:
+     * [
+     *   {"tool": "celsiusToFahrenheit", "arguments": {"celsius": 21.5}},
+     *   {"tool": "getCurrentWeather", "arguments": {"location": "Paris"}}
+     * ]
+     *
+     * @param invocations named tool invocations
+     * @return results in the same order as the invocations
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<Map<String, Object>> invokeBatch(@RequestBody List<ToolInvocation> invocations) {
+        String validationError = validateBatch(invocations);
+        if (validationError != null) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("error", validationError));
+        }
+        log.info("Tool call: batch of {} invocations", invocations.size());
+
+        long deadline = System.nanoTime() + batchTimeout.toNanos();
+        List<Future<ToolInvocationResult>> futures = submitAll(invocations, deadline);
+
+        List<ToolInvocationResult> results = new ArrayList<>(futures.size());
+        for (int i = 0; i < futures.size(); i++) {
+            results.add(awaitResult(futures.get(i), i, invocations.get(i), deadline));
+        }
+
+        return ResponseEntity.ok(Map.of(
+            "count", results.size(),
+            "results", results
+        ));
+    }
+
+    /**
+     * Invoke several tools in one request and stream each result as a line of
+     * NDJSON as soon as it completes. Each line carries the index of its
+     * invocation, so results may arrive out of order.
+     *
+     * @param invocations named tool invocations
+     * @return NDJSON stream of results
+     */
+    @PostMapping(value = "/batch", produces = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> invokeBatchStream(@RequestBody List<ToolInvocation> invocations) {
+        String validationError = validateBatch(invocations);
+        if (validationError != null) {
+            return ResponseEntity.badRequest()
+                .contentType(MediaType.parseMediaType(APPLICATION_NDJSON_VALUE))
+                .body(out -> writeLine(out, Map.of("error", validationError)));
+        }
+        log.info("Tool call: streamed batch of {} invocations", invocations.size());
+
+        StreamingResponseBody body = out -> {
+            CompletionService<ToolInvocationResult> completionService =
+                new ExecutorCompletionService<>(batchExecutor);
+            Map<Future<ToolInvocationResult>, Integer> pending = new IdentityHashMap<>();
+            long deadline = System.nanoTime() + batchTimeout.toNanos();
+            for (int i = 0; i < invocations.size(); i++) {
+                int index = i;
+                ToolInvocation invocation = invocations.get(i);
+                try {
+                    pending.put(completionService.submit(() -> invoke(index, invocation, deadline)), index);
+                } catch (RejectedExecutionException e) {
+                    writeLine(out, rejected(index, invocation));
+                }
+            }
+
+            try {
+                while (!pending.isEmpty()) {
+                    long remaining = deadline - System.nanoTime();
+                    Future<ToolInvocationResult> done = completionService.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (done == null) {
+                        break;
+                    }
+                    int index = pending.remove(done);
+                    writeLine(out, awaitResult(done, index, invocations.get(index), deadline));
+                }
+                for (Map.Entry<Future<ToolInvocationResult>, Integer> timedOut : pending.entrySet()) {
+                    timedOut.getKey().cancel(true);
+                    int index = timedOut.getValue();
+                    writeLine(out, ToolInvocationResult.failure(
+                        index, invocations.get(index).tool(), "Timed out", batchTimeout.toMillis()));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                pending.keySet().forEach(future -> future.cancel(true));
+            } catch (IOException e) {
+                // Client went away: stop the remaining work
+                log.warn("Batch stream aborted: {}", e.getMessage());
+                pending.keySet().forEach(future -> future.cancel(true));
+                throw e;
+            }
+        };
+
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(APPLICATION_NDJSON_VALUE))
+            .body(body);
+    }
+
+    private String validateBatch(List<ToolInvocation> invocations) {
+        if (invocations == null || invocations.isEmpty()) {
+            return "Batch must contain at least one invocation";
+        }
+        if (invocations.size() > maxBatchSize) {
+            return String.format("Batch too large (max %d invocations)", maxBatchSize);
+        }
+        for (int i = 0; i < invocations.size(); i++) {
+            ToolInvocation invocation = invocations.get(i);
+            if (invocation == null || invocation.tool() == null || invocation.tool().isBlank()) {
+                return String.format("Invocation %d is missing a tool name", i);
+            }
+        }
+        return null;
+    }
+
+    private List<Future<ToolInvocationResult>> submitAll(List<ToolInvocation> invocations, long deadline) {
+        List<Future<ToolInvocationResult>> futures = new ArrayList<>(invocations.size());
+        for (int i = 0; i < invocations.size(); i++) {
+            int index = i;
+            ToolInvocation invocation = invocations.get(i);
+            try {
+                futures.add(batchExecutor.submit(() -> invoke(index, invocation, deadline)));
+            } catch (RejectedExecutionException e) {
+                futures.add(CompletableFuture.completedFuture(rejected(index, invocation)));
+            }
+        }
+        return futures;
+    }
+
+    /**
+     * Result for an invocation the batch executor had no room for.
+     */
+    private ToolInvocationResult rejected(int index, ToolInvocation invocation) {
+        log.warn("Batch invocation {} ({}) rejected: tool executor queue is full", index, invocation.tool());
+        return ToolInvocationResult.failure(index, invocation.tool(), "Rejected: too many tool invocations in progress", 0);
+    }
+
+    private ToolInvocationResult awaitResult(Future<ToolInvocationResult> future, int index,
+                                             ToolInvocation invocation, long deadline) {
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            return ToolInvocationResult.failure(index, invocation.tool(), "Timed out", batchTimeout.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            return ToolInvocationResult.failure(index, invocation.tool(), "Interrupted", 0);
+        } catch (ExecutionException e) {
+            return ToolInvocationResult.failure(index, invocation.tool(), String.valueOf(e.getCause()), 0);
+        }
+    }
+
+    private ToolInvocationResult invoke(int index, ToolInvocation invocation, long deadline) {
+        long start = System.nanoTime();
+        try {
+            Duration remaining = Duration.ofNanos(Math.max(0, deadline - start));
+            Map<String, Object> result = invokeTool(invocation.tool(), invocation.arguments(), remaining);
+            return ToolInvocationResult.success(index, invocation.tool(), result, elapsedMillis(start));
+        } catch (Exception e) {
+            log.warn("Batch invocation {} ({}) failed: {}", index, invocation.tool(), e.getMessage());
+            return ToolInvocationResult.failure(index, invocation.tool(), e.getMessage(), elapsedMillis(start));
+        }
+    }
+
+    /**
+     * Dispatch an invocation by tool name.
+     * Results have the same shape as the corresponding single-tool endpoint.
+     */
+    private Map<String, Object> invokeTool(String tool, Map<String, Object> args, Duration deadline) {
+        return switch (tool) {
+            case "getCurrentWeather" -> {
+                String location = requireString(args, "location");
+                Lookup<String> result = weatherTool.currentWeather(location, deadline);
+                yield Map.of("location", location, "description", result.value(), "cached", result.cached());
+            }
+            case "getWeatherForecast" -> {
+                String location = requireString(args, "location");
+                int days = requireNumber(args, "days").intValue();
+                Lookup<String> result = weatherTool.weatherForecast(location, days, deadline);
+                yield Map.of("location", location, "days", days,
+                    "forecast", result.value(), "cached", result.cached());
+            }
+            case "celsiusToFahrenheit" -> Map.of("result",
+                temperatureTool.celsiusToFahrenheit(requireNumber(args, "celsius").doubleValue()));
+            case "fahrenheitToCelsius" -> Map.of("result",
+                temperatureTool.fahrenheitToCelsius(requireNumber(args, "fahrenheit").doubleValue()));
+            case "celsiusToKelvin" -> Map.of("result",
+                temperatureTool.celsiusToKelvin(requireNumber(args, "celsius").doubleValue()));
+            case "kelvinToCelsius" -> Map.of("result",
+                temperatureTool.kelvinToCelsius(requireNumber(args, "kelvin").doubleValue()));
+            case "fahrenheitToKelvin" -> Map.of("result",
+                temperatureTool.fahrenheitToKelvin(requireNumber(args, "fahrenheit").doubleValue()));
+            case "kelvinToFahrenheit" -> Map.of("result",
+                temperatureTool.kelvinToFahrenheit(requireNumber(args, "kelvin").doubleValue()));
+            default -> throw new IllegalArgumentException("Unknown tool: " + tool);
+        };
+    }
+
+    private static String requireString(Map<String, Object> args, String name) {
+        Object value = args.get(name);
+        if (value == null || value.toString().isBlank()) {
+            throw new IllegalArgumentException("Missing argument '" + name + "'");
+        }
+        return value.toString();
+    }
+
+    private static Number requireNumber(Map<String, Object> args, String name) {
+        Object value = args.get(name);
+        if (value instanceof Number number) {
+            return number;
+        }
+        if (value instanceof String text) {
+            try {
+                return Double.parseDouble(text.trim());
+            } catch (NumberFormatException e) {
+                // fall through to the error below
+            }
+        }
+        throw new IllegalArgumentException("Missing or non-numeric argument '" + name + "'");
+    }
+
+    private void writeLine(OutputStream out, Object value) throws IOException {
+        out.write(objectMapper.writeValueAsBytes(value));
+        out.write('\n');
+        out.flush();
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
     @GetMapping("/health")
     public ResponseEntity<Map<String, Object>> health() {
         return ResponseEntity.ok(Map.of(
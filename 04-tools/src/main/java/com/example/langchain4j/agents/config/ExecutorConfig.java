@@ -0,0 +1,133 @@
+package com.example.langchain4j.agents.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Configuration for the executors used by the agent and tool endpoints.
+ */
+@Configuration
+public class ExecutorConfig {
+
+    private final boolean virtualThreads;
+
+    public ExecutorConfig(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    /**
+     * Bounded executor for batch tool invocations.
+     * When the queue is full further invocations are rejected and reported as
+     * errors in their batch slots; running them on the request thread instead
+     * would ignore the batch deadline and hold the servlet thread.
+     *
+     * @return executor for batch tool invocations
+     */
+    @Bean(name = "toolBatchExecutor", destroyMethod = "shutdownNow")
+    public ExecutorService toolBatchExecutor(
+            @Value("${tools.batch.max-concurrency:8}") int maxConcurrency,
+            @Value("${tools.batch.queue-capacity:1000}") int queueCapacity) {
+        return new ThreadPoolExecutor(
+            maxConcurrency,
+            maxConcurrency,
+            60L, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            namedThreads("tool-batch-"),
+            new ThreadPoolExecutor.AbortPolicy()
+        );
+    }
+
+    /**
+     * Executor that runs agent tasks off the servlet thread so they can be
+     * streamed to the client and cancelled on timeout or disconnect.
+     * Tasks beyond the queue capacity are rejected.
+     *
+     * @return executor for agent tasks
+     */
+    @Bean(name = "agentExecutor", destroyMethod = "shutdownNow")
+    public ExecutorService agentExecutor(
+            @Value("${agent.execution.max-concurrency:32}") int maxConcurrency,
+            @Value("${agent.execution.queue-capacity:100}") int queueCapacity) {
+        return new ThreadPoolExecutor(
+            maxConcurrency,
+            maxConcurrency,
+            60L, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            namedThreads("agent-"),
+            new ThreadPoolExecutor.AbortPolicy()
+        );
+    }
+
+    /**
+     * Executor for individual model and tool calls made by agent tasks.
+     * Running them here lets a task stop waiting when its deadline passes and
+     * cancel the call. Each task has at most one call in flight, so the pool
+     * grows with the number of running tasks and needs no queue.
+     *
+     * @return executor for agent model and tool calls
+     */
+    @Bean(name = "agentCallExecutor", destroyMethod = "shutdownNow")
+    public ExecutorService agentCallExecutor() {
+        if (virtualThreads) {
+            return Executors.newThreadPerTaskExecutor(namedThreads("agent-call-"));
+        }
+        return Executors.newCachedThreadPool(namedThreads("agent-call-"));
+    }
+
+    /**
+     * Scheduler for the heartbeats written to agent event streams and JSON responses.
+     * It only keeps time and hands each write to the stream write executor, so a
+     * single thread serves every stream even when some clients stop reading.
+     *
+     * @return scheduler for stream heartbeats
+     */
+    @Bean(name = "streamHeartbeatScheduler", destroyMethod = "shutdownNow")
+    public ScheduledExecutorService streamHeartbeatScheduler() {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, namedThreads("stream-heartbeat-"));
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+
+    /**
+     * Executor for heartbeat writes. A write to a client that stopped reading
+     * blocks until the connection times out, so each stream gets its own thread
+     * while it writes; a stream skips heartbeats while its last one is blocked.
+     *
+     * @return executor for heartbeat writes
+     */
+    @Bean(name = "streamWriteExecutor", destroyMethod = "shutdownNow")
+    public ExecutorService streamWriteExecutor() {
+        if (virtualThreads) {
+            return Executors.newThreadPerTaskExecutor(namedThreads("stream-write-"));
+        }
+        return Executors.newCachedThreadPool(namedThreads("stream-write-"));
+    }
+
+    /**
+     * Daemon platform threads, or virtual threads when the application runs on them.
+     * Bounded executors keep their bounds either way: with virtual threads the
+     * bound limits concurrent work instead of the number of threads.
+     */
+    ThreadFactory namedThreads(String prefix) {
+        if (virtualThreads) {
+            return Thread.ofVirtual().name(prefix, 1).factory();
+        }
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.langchain4j.agents.config;
+
+import com.azure.ai.openai.OpenAIAsyncClient;
+import com.azure.ai.openai.OpenAIClientBuilder;
+import com.azure.core.credential.AzureKeyCredential;
+import com.azure.core.http.policy.ExponentialBackoffOptions;
+import com.azure.core.http.policy.RetryOptions;
+import dev.langchain4j.model.azure.AzureOpenAiChatModel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration class for LangChain4j components.
+ * Provides the blocking and streaming Azure OpenAI chat models used by the agent.
+ */
+@Configuration
+public class LangChainConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(LangChainConfig.class);
+
+    @Value("${azure.openai.endpoint}")
+    private String endpoint;
+
+    @Value("${azure.openai.api-key}")
+    private String apiKey;
+
+    @Value("${azure.openai.deployment}")
+    private String deployment;
+
+    @Value("${azure.openai.max-completion-tokens:2000}")
+    private Integer maxCompletionTokens;
+
+    /**
+     * Creates the Azure OpenAI chat model used for agent reasoning.
+     * GPT-5 uses reasoning effort instead of temperature and maxCompletionTokens instead of maxTokens.
+     *
+     * @return configured AzureOpenAiChatModel
+     */
+    @Bean
+    public AzureOpenAiChatModel chatModel() {
+        log.info("Initializing Azure OpenAI chat model");
+        log.info("Endpoint: {}", endpoint);
+        log.info("Deployment: {}", deployment);
+
+        return AzureOpenAiChatModel.builder()
+            .endpoint(endpoint)
+            .apiKey(apiKey)
+            .deploymentName(deployment)
+            .maxCompletionTokens(maxCompletionTokens)
+            .maxRetries(3)
+            .logRequestsAndResponses(true)
+            .build();
+    }
+
+    /**
+     * Creates the streaming Azure OpenAI chat model used when agent
+     * execution is streamed to the client token by token. Its streams can be
+     * disposed, so a task that stops waiting also stops the generation.
+     *
+     * @return configured CancellableStreamingChatModel
+     */
+    @Bean
+    public CancellableStreamingChatModel streamingChatModel() {
+        OpenAIAsyncClient client = new OpenAIClientBuilder()
+            .endpoint(endpoint)
+            .credential(new AzureKeyCredential(apiKey))
+            .retryOptions(new RetryOptions(new ExponentialBackoffOptions().setMaxRetries(3)))
+            .buildAsyncClient();
+        return new CancellableStreamingChatModel(client, deployment, maxCompletionTokens);
+    }
+}
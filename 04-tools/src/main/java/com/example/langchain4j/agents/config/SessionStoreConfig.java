@@ -0,0 +1,52 @@
+package com.example.langchain4j.agents.config;
+
+import com.example.langchain4j.agents.session.FileSessionBackend;
+import com.example.langchain4j.agents.session.HttpSessionBackend;
+import com.example.langchain4j.agents.session.InMemorySessionBackend;
+import com.example.langchain4j.agents.session.SessionBackend;
+import com.example.langchain4j.agents.session.SharedChatMemoryStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Configuration for the shared session store used when several replicas serve
+ * the same agent sessions. Only active when {@code agent.session.store.type}
+ * is not {@code local}.
+ */
+@Configuration
+@ConditionalOnExpression("!'${agent.session.store.type:local}'.equals('local')")
+public class SessionStoreConfig {
+
+    /**
+     * Backend holding the serialized session messages.
+     *
+     * @return "memory" (single process, for testing), "file" (shared volume) or "http" (key-value service) backend
+     */
+    @Bean
+    public SessionBackend sessionBackend(
+            @Value("${agent.session.store.type}") String type,
+            @Value("${agent.session.store.file.directory:${java.io.tmpdir}/agent-shared-sessions}") Path directory,
+            @Value("${agent.session.store.http.base-url:http://localhost:8090}") String baseUrl,
+            @Value("${agent.session.store.http.timeout:2s}") Duration timeout) {
+        return switch (type) {
+            case "memory" -> new InMemorySessionBackend();
+            case "file" -> new FileSessionBackend(directory);
+            case "http" -> new HttpSessionBackend(baseUrl, timeout);
+            default -> throw new IllegalArgumentException("Unknown agent.session.store.type: " + type);
+        };
+    }
+
+    @Bean
+    public SharedChatMemoryStore sharedChatMemoryStore(
+            SessionBackend sessionBackend,
+            @Value("${agent.session.max-messages:20}") int maxMessages,
+            @Value("${agent.session.store.near-cache.max-entries:1000}") int nearCacheMaxEntries,
+            @Value("${agent.session.store.near-cache.ttl:250ms}") Duration nearCacheTtl) {
+        return new SharedChatMemoryStore(sessionBackend, maxMessages, nearCacheMaxEntries, nearCacheTtl);
+    }
+}
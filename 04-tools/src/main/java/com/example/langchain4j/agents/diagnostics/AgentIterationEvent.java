@@ -0,0 +1,27 @@
+package com.example.langchain4j.agents.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event spanning one iteration of the agent loop:
+ * the tool calls requested by the previous model response and the next model call.
+ */
+@Name("com.example.agents.AgentIteration")
+@Label("Agent Iteration")
+@Category({"LangChain4j", "Agent"})
+@Description("One reasoning step of an agent task")
+public class AgentIterationEvent extends Event {
+
+    @Label("Session ID")
+    public String sessionId;
+
+    @Label("Iteration")
+    public int iteration;
+
+    @Label("Tool Calls")
+    public int toolCalls;
+}
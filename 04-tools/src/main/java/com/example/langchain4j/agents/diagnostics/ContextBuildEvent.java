@@ -0,0 +1,23 @@
+package com.example.langchain4j.agents.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for flattening a session memory into a model prompt.
+ */
+@Name("com.example.agents.ContextBuild")
+@Label("Context Build")
+@Category({"LangChain4j", "Agent"})
+@Description("Prompt context built from session memory")
+public class ContextBuildEvent extends Event {
+
+    @Label("Messages")
+    public int messageCount;
+
+    @Label("Characters")
+    public long characters;
+}
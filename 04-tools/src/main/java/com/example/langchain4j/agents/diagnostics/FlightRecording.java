@@ -0,0 +1,138 @@
+package com.example.langchain4j.agents.diagnostics;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Continuous flight recording kept in a bounded on-disk ring buffer.
+ * The recording uses the low-overhead "default" JFR settings plus the agent
+ * events in this package, and can be dumped on demand for incident analysis.
+ * <p>
+ * Events that capture the process environment, system properties, JVM
+ * arguments or other processes' command lines would put the API key and other
+ * secrets in the file. They are disabled in this recording and also left out
+ * of every dump, since the dump draws on all recordings in the JVM.
+ */
+@Component
+public class FlightRecording implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(FlightRecording.class);
+
+    /**
+     * Event types that can carry secrets. Dumps also leave out any other
+     * {@code jdk.Initial*} snapshot of the process configuration.
+     */
+    static final Set<String> EXCLUDED_EVENTS = Set.of(
+        "jdk.InitialEnvironmentVariable",
+        "jdk.InitialSystemProperty",
+        "jdk.InitialSecurityProperty",
+        "jdk.JVMInformation",
+        "jdk.SystemProcess");
+
+    private final Duration maxAge;
+    private final Recording recording;
+
+    public FlightRecording(
+            @Value("${diagnostics.jfr.enabled:true}") boolean enabled,
+            @Value("${diagnostics.jfr.max-age:30m}") Duration maxAge,
+            @Value("${diagnostics.jfr.max-size:100MB}") DataSize maxSize) {
+        this.maxAge = maxAge;
+        this.recording = enabled && FlightRecorder.isAvailable() ? start(maxAge, maxSize) : null;
+    }
+
+    /**
+     * @return whether a continuous recording is running
+     */
+    public boolean isRunning() {
+        return recording != null;
+    }
+
+    /**
+     * @return how far back a dump can reach
+     */
+    public Duration maxAge() {
+        return maxAge;
+    }
+
+    /**
+     * Write the events recorded during the given window to a new temporary file.
+     * The caller owns the file and should delete it once it has been sent.
+     *
+     * @param window how far back to include events, capped at the recording max age
+     * @return path of the .jfr file
+     */
+    public Path dump(Duration window) throws IOException {
+        if (recording == null) {
+            throw new IllegalStateException("Flight recording is not running");
+        }
+        Instant cutoff = Instant.now().minus(window.compareTo(maxAge) > 0 ? maxAge : window);
+        Path snapshotFile = Files.createTempFile("agent-snapshot-", ".jfr");
+        Path dumpFile = Files.createTempFile("agent-recording-", ".jfr");
+        try (Recording snapshot = FlightRecorder.getFlightRecorder().takeSnapshot()) {
+            snapshot.dump(snapshotFile);
+            try (RecordingFile events = new RecordingFile(snapshotFile)) {
+                events.write(dumpFile, event -> !isExcluded(event.getEventType().getName())
+                    && !event.getEndTime().isBefore(cutoff));
+            }
+            return dumpFile;
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(dumpFile);
+            throw e;
+        } finally {
+            Files.deleteIfExists(snapshotFile);
+        }
+    }
+
+    static boolean isExcluded(String eventName) {
+        return EXCLUDED_EVENTS.contains(eventName) || eventName.startsWith("jdk.Initial");
+    }
+
+    @Override
+    public void destroy() {
+        if (recording != null) {
+            recording.close();
+        }
+    }
+
+    private static Recording start(Duration maxAge, DataSize maxSize) {
+        try {
+            Map<String, String> settings = new HashMap<>(Configuration.getConfiguration("default").getSettings());
+            for (String event : EXCLUDED_EVENTS) {
+                settings.put(event + "#enabled", "false");
+            }
+            Recording recording = new Recording(settings);
+            recording.setName("agent-continuous");
+            recording.setToDisk(true);
+            recording.setMaxAge(maxAge);
+            recording.setMaxSize(maxSize.toBytes());
+            recording.enable(AgentIterationEvent.class);
+            recording.enable(ModelCallEvent.class);
+            recording.enable(ToolInvocationEvent.class);
+            recording.enable(ContextBuildEvent.class);
+            recording.start();
+            log.info("Continuous flight recording started (max age {}, max size {})", maxAge, maxSize);
+            return recording;
+        } catch (IOException | ParseException e) {
+            log.warn("Could not start flight recording: {}", e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.langchain4j.agents.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for a single chat model call made by the agent.
+ * Token counts are -1 when the model did not report usage.
+ */
+@Name("com.example.agents.ModelCall")
+@Label("Model Call")
+@Category({"LangChain4j", "Agent"})
+@Description("Chat model call made by an agent task")
+public class ModelCallEvent extends Event {
+
+    @Label("Session ID")
+    public String sessionId;
+
+    @Label("Iteration")
+    public int iteration;
+
+    @Label("Streaming")
+    public boolean streaming;
+
+    @Label("Prompt Characters")
+    public long promptCharacters;
+
+    @Label("Input Tokens")
+    public int inputTokens = -1;
+
+    @Label("Output Tokens")
+    public int outputTokens = -1;
+
+    @Label("Succeeded")
+    public boolean succeeded;
+}
@@ -0,0 +1,31 @@
+package com.example.langchain4j.agents.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for a tool invoked by the agent.
+ */
+@Name("com.example.agents.ToolInvocation")
+@Label("Tool Invocation")
+@Category({"LangChain4j", "Agent"})
+@Description("Tool endpoint call made by an agent task")
+public class ToolInvocationEvent extends Event {
+
+    @Label("Tool")
+    public String toolName;
+
+    @Label("Arguments")
+    @Description("Names of the arguments passed; their values come from user input and are not recorded")
+    public String argumentNames;
+
+    @Label("Cache Hit")
+    @Description("Whether the tool answered from its cache")
+    public boolean cacheHit;
+
+    @Label("Succeeded")
+    public boolean succeeded;
+}
@@ -0,0 +1,16 @@
+package com.example.langchain4j.agents.exception;
+
+/**
+ * Exception thrown when an agent task is cancelled before it completes,
+ * for example because the client disconnected.
+ */
+public class AgentCancelledException extends AgentException {
+
+    public AgentCancelledException(String message) {
+        super(message);
+    }
+
+    public AgentCancelledException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
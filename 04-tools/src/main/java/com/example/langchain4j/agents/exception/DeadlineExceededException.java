@@ -0,0 +1,16 @@
+package com.example.langchain4j.agents.exception;
+
+/**
+ * Exception thrown when an agent task runs out of its time budget.
+ * The task returns the best partial answer it has instead of failing.
+ */
+public class DeadlineExceededException extends AgentException {
+
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+
+    public DeadlineExceededException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
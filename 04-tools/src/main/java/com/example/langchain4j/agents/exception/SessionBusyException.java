@@ -0,0 +1,19 @@
+package com.example.langchain4j.agents.exception;
+
+/**
+ * Exception thrown when a turn arrives for a session that is still
+ * processing an earlier turn and the turn cannot wait for it.
+ */
+public class SessionBusyException extends AgentException {
+
+    private final String sessionId;
+
+    public SessionBusyException(String sessionId) {
+        super(String.format("Session '%s' is busy with another request", sessionId));
+        this.sessionId = sessionId;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+}
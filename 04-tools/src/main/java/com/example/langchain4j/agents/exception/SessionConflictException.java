@@ -0,0 +1,12 @@
+package com.example.langchain4j.agents.exception;
+
+/**
+ * Exception thrown when a session could not be saved because other replicas
+ * kept updating it at the same time.
+ */
+public class SessionConflictException extends AgentException {
+
+    public SessionConflictException(String sessionId, int attempts) {
+        super(String.format("Session '%s' could not be saved after %d conflicting writes", sessionId, attempts));
+    }
+}
@@ -2,16 +2,33 @@ package com.example.langchain4j.agents.model.dto;
 
 /**
  * Request DTO for agent task execution.
+ * The optional timeout is the time budget for the whole task in milliseconds;
+ * when absent the server default applies.
+ * The optional task id identifies the task across retries: a retry with the
+ * same id resumes after the last step the failed attempt completed.
  */
 public record AgentRequest(
     String message,
     String sessionId,
-    boolean enableTools
+    boolean enableTools,
+    Long timeoutMs,
+    String taskId
 ) {
     public AgentRequest {
         if (message == null || message.isBlank()) {
             throw new IllegalArgumentException("Message cannot be null or blank");
         }
+        if (timeoutMs != null && timeoutMs <= 0) {
+            throw new IllegalArgumentException("Timeout must be positive");
+        }
+    }
+
+    public AgentRequest(String message, String sessionId, boolean enableTools, Long timeoutMs) {
+        this(message, sessionId, enableTools, timeoutMs, null);
+    }
+
+    public AgentRequest(String message, String sessionId, boolean enableTools) {
+        this(message, sessionId, enableTools, null);
     }
     
     public static AgentRequest of(String message) {
@@ -0,0 +1,15 @@
+package com.example.langchain4j.agents.model.dto;
+
+import java.util.Map;
+
+/**
+ * A single named tool invocation within a batch request.
+ */
+public record ToolInvocation(
+    String tool,
+    Map<String, Object> arguments
+) {
+    public ToolInvocation {
+        arguments = arguments != null ? arguments : Map.of();
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.langchain4j.agents.model.dto;
+
+import java.util.Map;
+
+/**
+ * Outcome of a single invocation within a batch request.
+ * The index refers to the position of the invocation in the request array.
+ */
+public record ToolInvocationResult(
+    int index,
+    String tool,
+    String status,
+    Map<String, Object> result,
+    String error,
+    long durationMs
+) {
+    public static ToolInvocationResult success(int index, String tool, Map<String, Object> result, long durationMs) {
+        return new ToolInvocationResult(index, tool, "success", result, null, durationMs);
+    }
+
+    public static ToolInvocationResult failure(int index, String tool, String error, long durationMs) {
+        return new ToolInvocationResult(index, tool, "error", null, error, durationMs);
+    }
+}
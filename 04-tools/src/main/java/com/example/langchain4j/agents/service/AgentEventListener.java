@@ -0,0 +1,47 @@
+package com.example.langchain4j.agents.service;
+
+import com.example.langchain4j.agents.model.dto.ToolExecutionInfo;
+
+/**
+ * Receives progress events while an agent task runs.
+ * All methods have no-op defaults so callers only override what they need.
+ */
+public interface AgentEventListener {
+
+    /**
+     * Listener that ignores all events. Model calls are made without streaming.
+     */
+    AgentEventListener NONE = new AgentEventListener() {
+    };
+
+    /**
+     * Whether model output should be streamed token by token to {@link #onToken}.
+     */
+    default boolean streamsTokens() {
+        return false;
+    }
+
+    /**
+     * A reasoning step (model call) is starting.
+     */
+    default void onStep(int iteration) {
+    }
+
+    /**
+     * A token of model output arrived. May be called from a model client thread.
+     */
+    default void onToken(int iteration, String token) {
+    }
+
+    /**
+     * A tool call is about to be executed.
+     */
+    default void onToolCall(int iteration, String toolName, String arguments) {
+    }
+
+    /**
+     * A tool call finished.
+     */
+    default void onToolResult(int iteration, ToolExecutionInfo execution) {
+    }
+}
@@ -4,19 +4,44 @@ import dev.langchain4j.data.message.AiMessage;
 import dev.langchain4j.data.message.ChatMessage;
 import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.memory.ChatMemory;
-import dev.langchain4j.memory.chat.MessageWindowChatMemory;
-import dev.langchain4j.model.azure.AzureOpenAiChatModel;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.output.TokenUsage;
+import com.example.langchain4j.agents.config.CancellableStreamingChatModel;
+import com.example.langchain4j.agents.diagnostics.AgentIterationEvent;
+import com.example.langchain4j.agents.diagnostics.ContextBuildEvent;
+import com.example.langchain4j.agents.diagnostics.ModelCallEvent;
+import com.example.langchain4j.agents.diagnostics.ToolInvocationEvent;
+import com.example.langchain4j.agents.exception.AgentCancelledException;
+import com.example.langchain4j.agents.exception.AgentException;
+import com.example.langchain4j.agents.exception.DeadlineExceededException;
+import com.example.langchain4j.agents.exception.SessionBusyException;
 import com.example.langchain4j.agents.model.dto.AgentRequest;
 import com.example.langchain4j.agents.model.dto.AgentResponse;
 import com.example.langchain4j.agents.model.dto.ToolExecutionInfo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
+import reactor.core.Disposable;
 
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -29,38 +54,71 @@ public class AgentService {
 
     private static final Logger log = LoggerFactory.getLogger(AgentService.class);
     
-    private final AzureOpenAiChatModel chatModel;
+    private static final Pattern TOOL_CALL_PATTERN = Pattern.compile("TOOL_CALL:\\s*(\\w+)\\(([^)]+)\\)");
+    private static final int MAX_ITERATIONS = 5; // Prevent infinite loops
+    
+    private final ChatModel chatModel;
+    private final CancellableStreamingChatModel streamingChatModel;
     private final String toolsBaseUrl;
     private final RestTemplate restTemplate;
+    private final ExecutorService callExecutor;
+    
+    // Deadlines
+    private final Duration defaultTimeout;
+    private final Duration maxTimeout;
+    private final Duration minStepTime;
+    
+    // Per-session turn ordering
+    private final SessionLocks sessionLocks;
+    private final boolean rejectConcurrentTurns;
+    private final Duration turnQueueTimeout;
     
     // Session management
-    private final ConcurrentHashMap<String, ChatMemory> sessionMemories = new ConcurrentHashMap<>();
+    private final AgentSessionStore sessionStore;
+    private final TrajectoryCache trajectoryCache;
+    private final ConversionFastPath fastPath;
+    private final StepCheckpointLog checkpoints;
 
     public AgentService(
-            @Value("${azure.openai.endpoint}") String endpoint,
-            @Value("${azure.openai.api-key}") String apiKey,
-            @Value("${azure.openai.deployment}") String deployment,
-            @Value("${azure.ai.agent.tools.base-url}") String toolsBaseUrl) {
+            ChatModel chatModel,
+            CancellableStreamingChatModel streamingChatModel,
+            AgentSessionStore sessionStore,
+            SessionLocks sessionLocks,
+            TrajectoryCache trajectoryCache,
+            ConversionFastPath fastPath,
+            StepCheckpointLog checkpoints,
+            @Qualifier("agentCallExecutor") ExecutorService callExecutor,
+            @Value("${azure.ai.agent.tools.base-url}") String toolsBaseUrl,
+            @Value("${agent.deadline.default-timeout:60s}") Duration defaultTimeout,
+            @Value("${agent.deadline.max-timeout:5m}") Duration maxTimeout,
+            @Value("${agent.deadline.min-step-time:2s}") Duration minStepTime,
+            @Value("${agent.session.concurrent-turns:queue}") String concurrentTurns,
+            @Value("${agent.session.queue-timeout:30s}") Duration turnQueueTimeout) {
         
+        this.chatModel = chatModel;
+        this.streamingChatModel = streamingChatModel;
+        this.sessionStore = sessionStore;
+        this.sessionLocks = sessionLocks;
+        this.trajectoryCache = trajectoryCache;
+        this.fastPath = fastPath;
+        this.checkpoints = checkpoints;
+        this.callExecutor = callExecutor;
         this.toolsBaseUrl = toolsBaseUrl;
-        this.restTemplate = new RestTemplate();
+        this.defaultTimeout = defaultTimeout;
+        this.maxTimeout = maxTimeout;
+        this.minStepTime = minStepTime;
+        this.rejectConcurrentTurns = "reject".equalsIgnoreCase(concurrentTurns);
+        this.turnQueueTimeout = turnQueueTimeout;
+        // The JDK client aborts the request when the calling thread is interrupted,
+        // so cancelled agent tasks do not leave tool calls running
+        this.restTemplate = new RestTemplate(new JdkClientHttpRequestFactory(
+            HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build()));
         
-        log.info("Initializing Agent Service with Azure OpenAI");
-        log.info("Endpoint: {}", endpoint);
-        log.info("Deployment: {}", deployment);
+        log.info("Initializing Agent Service");
         log.info("Tools Base URL: {}", toolsBaseUrl);
-        
-        // Initialize Azure OpenAI chat model
-        // GPT-5 uses reasoning effort instead of temperature and maxCompletionTokens instead of maxTokens
-        this.chatModel = AzureOpenAiChatModel.builder()
-            .endpoint(endpoint)
-            .apiKey(apiKey)
-            .deploymentName(deployment)
-            .maxCompletionTokens(2000)
-            .maxRetries(3)
-            .logRequestsAndResponses(true)
-            .build();
-        
         log.info("Agent service initialized successfully");
     }
 
@@ -68,9 +126,7 @@ public class AgentService {
      * Create a new agent session.
      */
     public String createAgentSession() {
-        String sessionId = UUID.randomUUID().toString();
-        ChatMemory memory = MessageWindowChatMemory.withMaxMessages(20);
-        sessionMemories.put(sessionId, memory);
+        String sessionId = sessionStore.create();
         log.info("Created new agent session: {}", sessionId);
         return sessionId;
     }
@@ -79,21 +135,83 @@ public class AgentService {
      * Execute an agent task using ReAct pattern with tool calling.
      */
     public AgentResponse executeTask(AgentRequest request) {
+        return executeTask(request, AgentEventListener.NONE);
+    }
+
+    /**
+     * Execute an agent task, reporting each reasoning step and tool call to the listener.
+     * The task stops at the next step boundary when the executing thread is interrupted,
+     * and returns its best partial answer when its deadline is reached.
+     *
+     * @throws SessionBusyException if the session is still busy with an earlier turn
+     *         and concurrent turns are rejected, or the queue wait ran out
+     */
+    public AgentResponse executeTask(AgentRequest request, AgentEventListener listener) {
         log.info("Executing agent task: {}", request.message());
         
         String sessionId = request.sessionId();
+        if (sessionId == null && request.taskId() != null && checkpoints.isEnabled()) {
+            // A retried task continues in the session of its earlier attempt
+            sessionId = checkpoints.sessionOf(request.taskId());
+        }
         if (sessionId == null) {
             sessionId = createAgentSession();
         }
         
-        ChatMemory memory = sessionMemories.computeIfAbsent(
-            sessionId,
-            id -> MessageWindowChatMemory.withMaxMessages(20)
-        );
+        Deadline deadline = Deadline.after(resolveTimeout(request.timeoutMs()));
+        
+        // Turns of one session run one at a time; other sessions are unaffected
+        SessionLocks.Lease lease;
+        try {
+            Duration maxWait = rejectConcurrentTurns ? Duration.ZERO : min(turnQueueTimeout, deadline.remaining());
+            lease = sessionLocks.acquire(sessionId, maxWait);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new AgentResponse("The task was cancelled.", sessionId, new ArrayList<>(), "cancelled");
+        }
+        if (lease == null) {
+            throw new SessionBusyException(sessionId);
+        }
+        try (lease) {
+            return runTask(request, sessionId, deadline, listener);
+        }
+    }
+
+    private AgentResponse runTask(AgentRequest request, String sessionId, Deadline deadline, AgentEventListener listener) {
+        ChatMemory memory = sessionStore.getOrCreate(sessionId);
+        // Earlier turns may change the answer, so only fresh sessions use the trajectory cache
+        boolean freshSession = memory.messages().isEmpty();
+        AgentTask task = new AgentTask(sessionId, memory, listener, deadline);
+        List<ChatMessage> memoryBefore = null;
+        if (request.taskId() != null && checkpoints.isEnabled()) {
+            task.checkpoint = new Checkpoint(request.taskId(), checkpoints.begin(request.taskId(), sessionId));
+            memoryBefore = new ArrayList<>(memory.messages());
+        }
+        
+        AgentResponse response = runSteps(request, task, freshSession);
+        if (task.checkpoint != null) {
+            checkpoints.replayed(task.checkpoint.replayed);
+            if (task.checkpoint.replayed > 0) {
+                log.info("Task {} resumed from {} recorded steps", request.taskId(), task.checkpoint.replayed);
+            }
+            if ("completed".equals(response.status())) {
+                checkpoints.complete(request.taskId());
+            } else {
+                // Failed, cancelled or out of time: keep the steps for a retry, and undo
+                // this attempt so the retry sees the same context
+                memory.clear();
+                memoryBefore.forEach(memory::add);
+            }
+        }
+        return response;
+    }
+
+    private AgentResponse runSteps(AgentRequest request, AgentTask task, boolean freshSession) {
+        String sessionId = task.sessionId;
+        ChatMemory memory = task.memory;
+        Deadline deadline = task.deadline;
         
         try {
-            List<ToolExecutionInfo> toolExecutions = new ArrayList<>();
-            
             // Build system prompt with tool descriptions
             String systemPrompt = buildSystemPromptWithTools();
             
@@ -101,28 +219,56 @@ public class AgentService {
             UserMessage userMessage = UserMessage.from(systemPrompt + "\n\nUser: " + request.message());
             memory.add(userMessage);
             
-            // Get response from model
-            String fullContext = buildContext(memory);
-            String response = chatModel.chat(fullContext);
-            
-            memory.add(AiMessage.from(response));
+            // Plain conversions are answered in-process without the model
+            Optional<ConversionFastPath.Answer> fastAnswer = request.enableTools()
+                ? fastPath.tryAnswer(request.message())
+                : Optional.empty();
+            if (fastAnswer.isPresent()) {
+                return answerLocally(task, fastAnswer.get());
+            }
             
-            // Parse response for tool calls and execute them
-            String finalAnswer = response;
-            if (responseContainsToolCall(response)) {
-                log.info("Response contains tool calls, processing...");
-                finalAnswer = processToolCalls(response, memory, toolExecutions, sessionId);
+            // Replay a known tool plan for a fresh task, or run the full loop
+            String finalAnswer = null;
+            if (freshSession) {
+                Optional<TrajectoryCache.Replay> replay = trajectoryCache.lookup(request.message());
+                if (replay.isPresent()) {
+                    finalAnswer = replayTrajectory(task, replay.get());
+                }
+            }
+            if (finalAnswer == null) {
+                finalAnswer = runAgentLoop(task);
+                if (freshSession) {
+                    trajectoryCache.record(request.message(), task.toolExecutions, task.modelCalls);
+                }
             }
             
-            log.info("Agent completed task. Tools used: {}", toolExecutions.size());
+            log.info("Agent completed task. Tools used: {}", task.toolExecutions.size());
             
             return new AgentResponse(
                 finalAnswer,
                 sessionId,
-                toolExecutions,
+                task.toolExecutions,
                 "completed"
             );
             
+        } catch (DeadlineExceededException e) {
+            log.warn("Agent task reached its {} ms deadline: {}", deadline.budget().toMillis(), e.getMessage());
+            String partialAnswer = partialAnswer(task);
+            memory.add(AiMessage.from(partialAnswer));
+            return new AgentResponse(
+                partialAnswer,
+                sessionId,
+                task.toolExecutions,
+                task.toolExecutions.isEmpty() ? "timeout" : "partial"
+            );
+        } catch (AgentCancelledException e) {
+            log.info("Agent task cancelled: {}", e.getMessage());
+            return new AgentResponse(
+                "The task was cancelled.",
+                sessionId,
+                new ArrayList<>(),
+                "cancelled"
+            );
         } catch (Exception e) {
             log.error("Agent task execution failed", e);
             return new AgentResponse(
@@ -134,6 +280,288 @@ public class AgentService {
         }
     }
 
+    /**
+     * Complete a task from a fast-path answer, recording the tool call as the loop would.
+     */
+    private AgentResponse answerLocally(AgentTask task, ConversionFastPath.Answer answer) {
+        log.info("Answered locally with {}({})", answer.toolName(), answer.params());
+        task.listener.onToolCall(1, answer.toolName(), answer.params());
+        ToolExecutionInfo execution = new ToolExecutionInfo(answer.toolName(), List.of(answer.params()), answer.result());
+        task.listener.onToolResult(1, execution);
+        task.toolExecutions.add(execution);
+        task.memory.add(AiMessage.from(answer.result()));
+        return new AgentResponse(answer.result(), task.sessionId, task.toolExecutions, "completed");
+    }
+
+    /**
+     * Run the full reason → tool → reason loop for the task's latest message.
+     */
+    private String runAgentLoop(AgentTask task) {
+        // Get response from model
+        AgentIterationEvent iterationEvent = new AgentIterationEvent();
+        iterationEvent.begin();
+        String response;
+        try {
+            response = callModel(task, 0);
+        } finally {
+            commit(iterationEvent, task, 0, 0);
+        }
+        
+        task.memory.add(AiMessage.from(response));
+        
+        // Parse response for tool calls and execute them
+        if (responseContainsToolCall(response)) {
+            log.info("Response contains tool calls, processing...");
+            return processToolCalls(task, response);
+        }
+        return response;
+    }
+
+    /**
+     * Replay a cached tool plan, then make a single model call to write the answer.
+     * Returns null, with memory untouched, when a replayed tool fails so that the
+     * caller can run the full loop instead.
+     */
+    private String replayTrajectory(AgentTask task, TrajectoryCache.Replay replay) {
+        log.info("Replaying cached tool plan for intent '{}'", replay.intent());
+        StringBuilder toolCalls = new StringBuilder();
+        StringBuilder results = new StringBuilder();
+        
+        for (TrajectoryCache.ToolCall call : replay.toolCalls()) {
+            checkCancelled();
+            if (task.deadline.isExpired()) {
+                throw new DeadlineExceededException("Deadline reached before tool call");
+            }
+            task.listener.onToolCall(1, call.toolName(), call.params());
+            
+            String result;
+            try {
+                result = runTool(task, call.toolName(), call.params());
+            } catch (AgentCancelledException | DeadlineExceededException e) {
+                throw e;
+            } catch (Exception e) {
+                result = "Error: " + e.getMessage();
+            }
+            ToolExecutionInfo execution = new ToolExecutionInfo(call.toolName(), List.of(call.params()), result);
+            task.listener.onToolResult(1, execution);
+            if (result.startsWith("Error")) {
+                log.info("Replayed tool {} failed, falling back to the full agent loop", call.toolName());
+                task.toolExecutions.clear();
+                trajectoryCache.fellBack(replay);
+                return null;
+            }
+            task.toolExecutions.add(execution);
+            toolCalls.append("TOOL_CALL: ").append(call.toolName()).append('(').append(call.params()).append(")\n");
+            results.append("Tool ").append(call.toolName()).append(" result: ").append(result).append("\n");
+        }
+        
+        task.memory.add(AiMessage.from(toolCalls.toString().trim()));
+        task.memory.add(UserMessage.from(toolResultsPrompt(results)));
+        String answer = callModel(task, 1);
+        task.memory.add(AiMessage.from(answer));
+        
+        if (responseContainsToolCall(answer)) {
+            // The model wanted more than the cached plan; continue with the normal loop
+            trajectoryCache.fellBack(replay);
+            return processToolCalls(task, answer);
+        }
+        trajectoryCache.replayed(replay);
+        return answer;
+    }
+
+    private static Duration min(Duration a, Duration b) {
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+
+    /**
+     * Resolve the time budget for a task: the requested timeout capped at the
+     * server maximum, or the server default when none was requested.
+     */
+    private Duration resolveTimeout(Long timeoutMs) {
+        if (timeoutMs == null) {
+            return defaultTimeout;
+        }
+        Duration requested = Duration.ofMillis(timeoutMs);
+        return requested.compareTo(maxTimeout) > 0 ? maxTimeout : requested;
+    }
+
+    /**
+     * Call the model with the current memory as context, streaming tokens to the
+     * listener when it asks for them. The call is bounded by the task deadline.
+     */
+    private String callModel(AgentTask task, int iteration) {
+        checkCancelled();
+        String context = buildContext(task.memory);
+        long key = fingerprint(context);
+        Optional<String> recorded = task.replay(StepCheckpointLog.Step.MODEL, key);
+        if (recorded.isPresent()) {
+            task.listener.onStep(iteration);
+            if (task.listener.streamsTokens()) {
+                task.listener.onToken(iteration, recorded.get());
+            }
+            task.lastResponse = recorded.get();
+            return task.lastResponse;
+        }
+        if (!task.deadline.hasAtLeast(minStepTime)) {
+            throw new DeadlineExceededException("Not enough time left for another model call");
+        }
+        task.listener.onStep(iteration);
+
+        ModelCallEvent event = new ModelCallEvent();
+        event.begin();
+        boolean streaming = task.listener.streamsTokens();
+        ChatResponse response = null;
+        try {
+            if (streaming) {
+                response = streamModel(task, context, iteration);
+            } else {
+                ChatRequest chatRequest = ChatRequest.builder()
+                    .messages(UserMessage.from(context))
+                    .build();
+                response = await(callExecutor.submit(() -> chatModel.chat(chatRequest)), task.deadline);
+            }
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.sessionId = task.sessionId;
+                event.iteration = iteration;
+                event.streaming = streaming;
+                event.promptCharacters = context.length();
+                event.succeeded = response != null;
+                TokenUsage usage = response != null ? response.tokenUsage() : null;
+                if (usage != null) {
+                    event.inputTokens = usage.inputTokenCount() != null ? usage.inputTokenCount() : -1;
+                    event.outputTokens = usage.outputTokenCount() != null ? usage.outputTokenCount() : -1;
+                }
+                event.commit();
+            }
+        }
+        task.modelCalls++;
+        task.lastResponse = response.aiMessage().text();
+        task.record(StepCheckpointLog.Step.MODEL, key, task.lastResponse);
+        return task.lastResponse;
+    }
+
+    /**
+     * Run a tool call bounded by the task deadline, or replay its recorded result.
+     * Failed calls are not recorded, and nothing after them is either, since a
+     * retry may take a different path from there.
+     */
+    private String runTool(AgentTask task, String toolName, String params) throws Exception {
+        long key = fingerprint(toolName + "(" + params + ")");
+        Optional<String> recorded = task.replay(StepCheckpointLog.Step.TOOL, key);
+        if (recorded.isPresent()) {
+            return recorded.get();
+        }
+        String result;
+        try {
+            result = await(callExecutor.submit(() -> executeToolByName(toolName, params, task.deadline)), task.deadline);
+        } catch (Exception e) {
+            task.stopRecording();
+            throw e;
+        }
+        if (result.startsWith("Error")) {
+            task.stopRecording();
+        } else {
+            task.record(StepCheckpointLog.Step.TOOL, key, result);
+        }
+        return result;
+    }
+
+    private static long fingerprint(String input) {
+        return UUID.nameUUIDFromBytes(input.getBytes(StandardCharsets.UTF_8)).getMostSignificantBits();
+    }
+
+    private ChatResponse streamModel(AgentTask task, String context, int iteration) {
+        CompletableFuture<ChatResponse> result = new CompletableFuture<>();
+        StreamingChatResponseHandler handler = new StreamingChatResponseHandler() {
+            @Override
+            public void onPartialResponse(String token) {
+                // Tokens already in flight when the call was given up are dropped
+                if (!result.isDone()) {
+                    task.listener.onToken(iteration, token);
+                }
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse response) {
+                result.complete(response);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                result.completeExceptionally(error);
+            }
+        };
+        Disposable stream = streamingChatModel.start(
+            ChatRequest.builder().messages(UserMessage.from(context)).build(), handler);
+        try {
+            return await(result, task.deadline);
+        } finally {
+            if (result.isCancelled()) {
+                // Deadline or cancellation: close the stream so the model stops generating
+                stream.dispose();
+            }
+        }
+    }
+
+    /**
+     * Wait for an in-flight model or tool call until the deadline.
+     * On expiry or cancellation the call is cancelled rather than left running.
+     */
+    private <T> T await(Future<T> call, Deadline deadline) {
+        try {
+            return call.get(deadline.remainingNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            call.cancel(true);
+            throw new DeadlineExceededException("Deadline reached during call", e);
+        } catch (InterruptedException e) {
+            call.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new AgentCancelledException("Agent task cancelled during call", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new AgentException("Call failed: " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Best answer available when the deadline cuts a task short:
+     * the tool results gathered so far.
+     */
+    private String partialAnswer(AgentTask task) {
+        if (task.toolExecutions.isEmpty()) {
+            return "I ran out of time before I could answer. Please try again.";
+        }
+        StringBuilder answer = new StringBuilder("I ran out of time before finishing. Here is what I found so far:");
+        for (ToolExecutionInfo execution : task.toolExecutions) {
+            answer.append("\n- ").append(execution.toolName()).append(": ").append(execution.status());
+        }
+        return answer.toString();
+    }
+
+    private static void commit(AgentIterationEvent event, AgentTask task, int iteration, int toolCalls) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.sessionId = task.sessionId;
+            event.iteration = iteration;
+            event.toolCalls = toolCalls;
+            event.commit();
+        }
+    }
+
+    /**
+     * Stop the task if the executing thread has been interrupted.
+     */
+    private void checkCancelled() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new AgentCancelledException("Agent task cancelled");
+        }
+    }
+
     /**
      * Build system prompt with available tools.
      */
@@ -155,6 +583,7 @@ public class AgentService {
             
             When you need to use a tool, respond with:
             TOOL_CALL: <tool_name>(<param1>=<value1>, <param2>=<value2>)
+            Put a value in double quotes if it contains a comma, e.g. location="Paris, France".
             
             After getting the tool result, provide your final answer to the user.
             If you don't need a tool, just answer directly.
@@ -165,17 +594,31 @@ public class AgentService {
      * Build context from memory.
      */
     private String buildContext(ChatMemory memory) {
+        ContextBuildEvent event = new ContextBuildEvent();
+        event.begin();
+        List<ChatMessage> messages = memory.messages();
         StringBuilder context = new StringBuilder();
-        for (ChatMessage msg : memory.messages()) {
+        for (ChatMessage msg : messages) {
             if (msg instanceof UserMessage um) {
                 context.append("User: ").append(um.singleText()).append("\n");
             } else if (msg instanceof AiMessage am) {
                 context.append("Assistant: ").append(am.text()).append("\n");
             }
         }
+        event.end();
+        if (event.shouldCommit()) {
+            event.messageCount = messages.size();
+            event.characters = context.length();
+            event.commit();
+        }
         return context.toString();
     }
 
+    private static String toolResultsPrompt(CharSequence results) {
+        return "Tool results:\n" + results + 
+               "\n\nUse these results to continue. If you need more tools, call them. Otherwise, provide your final answer.";
+    }
+
     /**
      * Check if response contains a tool call.
      */
@@ -186,58 +629,75 @@ public class AgentService {
     /**
      * Process tool calls in the response with support for multi-step execution.
      */
-    private String processToolCalls(String response, ChatMemory memory, 
-                                   List<ToolExecutionInfo> toolExecutions, String sessionId) {
-        int maxIterations = 5; // Prevent infinite loops
+    private String processToolCalls(AgentTask task, String response) {
         int iteration = 0;
         String currentResponse = response;
         
-        while (responseContainsToolCall(currentResponse) && iteration < maxIterations) {
+        while (responseContainsToolCall(currentResponse) && iteration < MAX_ITERATIONS) {
             iteration++;
             log.info("Tool execution iteration: {}", iteration);
             
-            Pattern pattern = Pattern.compile("TOOL_CALL:\\s*(\\w+)\\(([^)]+)\\)");
-            Matcher matcher = pattern.matcher(currentResponse);
+            AgentIterationEvent iterationEvent = new AgentIterationEvent();
+            iterationEvent.begin();
+            int toolCalls = 0;
+            try {
+                Matcher matcher = TOOL_CALL_PATTERN.matcher(currentResponse);
             
-            StringBuilder results = new StringBuilder();
-            boolean toolsExecuted = false;
+                StringBuilder results = new StringBuilder();
+                boolean toolsExecuted = false;
             
-            while (matcher.find()) {
-                String toolName = matcher.group(1);
-                String params = matcher.group(2);
+                while (matcher.find()) {
+                    String toolName = matcher.group(1);
+                    String params = matcher.group(2);
                 
-                log.info("Executing tool: {} with params: {}", toolName, params);
+                    log.info("Executing tool: {} with params: {}", toolName, params);
+                    checkCancelled();
+                    if (task.deadline.isExpired()) {
+                        throw new DeadlineExceededException("Deadline reached before tool call");
+                    }
+                    task.listener.onToolCall(iteration, toolName, params);
+                    toolCalls++;
                 
-                try {
-                    String result = executeToolByName(toolName, params);
-                    results.append("Tool ").append(toolName).append(" result: ").append(result).append("\n");
+                    try {
+                        String result = runTool(task, toolName, params);
+                        results.append("Tool ").append(toolName).append(" result: ").append(result).append("\n");
                     
-                    toolExecutions.add(new ToolExecutionInfo(
-                        toolName,
-                        List.of(params),
-                        result
-                    ));
-                    toolsExecuted = true;
-                } catch (Exception e) {
-                    log.error("Tool execution failed", e);
-                    results.append("Tool error: ").append(e.getMessage()).append("\n");
+                        ToolExecutionInfo execution = new ToolExecutionInfo(
+                            toolName,
+                            List.of(params),
+                            result
+                        );
+                        task.toolExecutions.add(execution);
+                        task.listener.onToolResult(iteration, execution);
+                        toolsExecuted = true;
+                    } catch (AgentCancelledException | DeadlineExceededException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        log.error("Tool execution failed", e);
+                        results.append("Tool error: ").append(e.getMessage()).append("\n");
+                        task.listener.onToolResult(iteration, new ToolExecutionInfo(
+                            toolName,
+                            List.of(params),
+                            "Error: " + e.getMessage()
+                        ));
+                    }
                 }
-            }
             
-            // If tools were executed, get next response from model
-            if (toolsExecuted) {
-                String prompt = "Tool results:\n" + results.toString() + 
-                              "\n\nUse these results to continue. If you need more tools, call them. Otherwise, provide your final answer.";
-                memory.add(UserMessage.from(prompt));
-                currentResponse = chatModel.chat(buildContext(memory));
-                memory.add(AiMessage.from(currentResponse));
-                log.info("Model response after tools (iteration {}): {}", iteration, currentResponse);
-            } else {
-                break; // No tools found in this iteration
+                // If tools were executed, get next response from model
+                if (toolsExecuted) {
+                    task.memory.add(UserMessage.from(toolResultsPrompt(results)));
+                    currentResponse = callModel(task, iteration);
+                    task.memory.add(AiMessage.from(currentResponse));
+                    log.info("Model response after tools (iteration {}): {}", iteration, currentResponse);
+                } else {
+                    break; // No tools found in this iteration
+                }
+            } finally {
+                commit(iterationEvent, task, iteration, toolCalls);
             }
         }
         
-        if (iteration >= maxIterations) {
+        if (iteration >= MAX_ITERATIONS) {
             log.warn("Max iterations reached for tool execution");
         }
         
@@ -247,8 +707,8 @@ public class AgentService {
     /**
      * Execute a tool by name with parameters.
      */
-    private String executeToolByName(String toolName, String params) {
-        Map<String, String> paramMap = parseParams(params);
+    private String executeToolByName(String toolName, String params, Deadline deadline) {
+        Map<String, String> paramMap = ToolParams.parse(params);
         
         // Build request body and URL
         Map<String, Object> requestBody = new HashMap<>();
@@ -292,8 +752,27 @@ public class AgentService {
         String url = toolsBaseUrl + path;
         log.info("Calling tool endpoint: {} with body: {}", url, requestBody);
         
-        @SuppressWarnings("unchecked")
-        Map<String, Object> response = restTemplate.postForObject(url, requestBody, Map.class);
+        ToolInvocationEvent event = new ToolInvocationEvent();
+        event.begin();
+        Map<String, Object> response = null;
+        try {
+            // Lets the tool endpoint stop waiting on a shared lookup once the task's deadline passes
+            HttpHeaders headers = new HttpHeaders();
+            headers.set(Deadline.HEADER, Long.toString(deadline.remaining().toMillis()));
+            @SuppressWarnings("unchecked")
+            Map<String, Object> body = restTemplate.postForObject(url, new HttpEntity<>(requestBody, headers), Map.class);
+            response = body;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.toolName = toolName;
+                event.argumentNames = String.join(", ", requestBody.keySet());
+                // Tool endpoints that serve from a cache flag it in the response
+                event.cacheHit = response != null && Boolean.TRUE.equals(response.get("cached"));
+                event.succeeded = response != null && !response.containsKey("error");
+                event.commit();
+            }
+        }
         
         if (response == null) {
             return "No response from tool";
@@ -322,21 +801,6 @@ public class AgentService {
         return response.toString();
     }
 
-    /**
-     * Parse parameter string into map.
-     */
-    private Map<String, String> parseParams(String params) {
-        Map<String, String> paramMap = new HashMap<>();
-        String[] pairs = params.split(",");
-        for (String pair : pairs) {
-            String[] kv = pair.trim().split("=");
-            if (kv.length == 2) {
-                paramMap.put(kv[0].trim(), kv[1].trim().replace("\"", ""));
-            }
-        }
-        return paramMap;
-    }
-
     /**
      * Simple chat for health checks.
      */
@@ -365,11 +829,124 @@ public class AgentService {
         );
     }
 
+    /**
+     * State of a single agent task while it runs.
+     */
+    private static final class AgentTask {
+        private final String sessionId;
+        private final ChatMemory memory;
+        private final AgentEventListener listener;
+        private final Deadline deadline;
+        private final List<ToolExecutionInfo> toolExecutions = new ArrayList<>();
+        private String lastResponse;
+        private int modelCalls;
+        private Checkpoint checkpoint;
+
+        private AgentTask(String sessionId, ChatMemory memory, AgentEventListener listener, Deadline deadline) {
+            this.sessionId = sessionId;
+            this.memory = memory;
+            this.listener = listener;
+            this.deadline = deadline;
+        }
+
+        private Optional<String> replay(byte kind, long key) {
+            return checkpoint != null ? checkpoint.replay(kind, key) : Optional.empty();
+        }
+
+        private void record(byte kind, long key, String output) {
+            if (checkpoint != null) {
+                checkpoint.record(kind, key, output);
+            }
+        }
+
+        private void stopRecording() {
+            if (checkpoint != null) {
+                checkpoint.recording = false;
+            }
+        }
+    }
+
+    /**
+     * Progress of a checkpointed task through the steps recorded by its earlier attempts.
+     */
+    private final class Checkpoint {
+        private final String taskId;
+        private List<StepCheckpointLog.Step> recorded;
+        private int next;
+        private int replayed;
+        private boolean recording = true;
+
+        private Checkpoint(String taskId, List<StepCheckpointLog.Step> recorded) {
+            this.taskId = taskId;
+            this.recorded = recorded;
+        }
+
+        /**
+         * The recorded output of the next step if it had the same input, otherwise empty.
+         * A mismatch means the task took a different path, so the rest of the record is dropped.
+         */
+        private Optional<String> replay(byte kind, long key) {
+            if (next >= recorded.size()) {
+                return Optional.empty();
+            }
+            StepCheckpointLog.Step step = recorded.get(next);
+            if (step.index() == next && step.kind() == kind && step.key() == key) {
+                next++;
+                replayed++;
+                return Optional.of(step.output());
+            }
+            checkpoints.truncate(taskId, next);
+            recorded = List.of();
+            return Optional.empty();
+        }
+
+        private void record(byte kind, long key, String output) {
+            if (recording) {
+                checkpoints.append(taskId, new StepCheckpointLog.Step(next, kind, key, output));
+            }
+            next++;
+        }
+    }
+
     /**
      * Clear agent session.
      */
     public void clearSession(String sessionId) {
-        sessionMemories.remove(sessionId);
+        sessionStore.remove(sessionId);
         log.info("Cleared session: {}", sessionId);
     }
+
+    /**
+     * Get step checkpoint metrics.
+     */
+    public Map<String, Object> getCheckpointStats() {
+        return checkpoints.stats();
+    }
+
+    /**
+     * Get conversion fast path metrics.
+     */
+    public Map<String, Object> getFastPathStats() {
+        return fastPath.stats();
+    }
+
+    /**
+     * Get session store and per-session turn ordering metrics.
+     */
+    public Map<String, Object> getSessionStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(sessionStore.stats());
+        stats.put("activeTurnSessions", sessionLocks.activeSessions());
+        stats.put("turns", sessionLocks.acquiredCount());
+        stats.put("contendedTurns", sessionLocks.contendedCount());
+        stats.put("busyRejections", sessionLocks.timedOutCount());
+        stats.put("queueFullRejections", sessionLocks.queueFullCount());
+        return stats;
+    }
+
+    /**
+     * Get trajectory cache metrics: hit rate and model calls saved.
+     */
+    public Map<String, Object> getTrajectoryStats() {
+        return trajectoryCache.stats();
+    }
 }
@@ -0,0 +1,339 @@
+package com.example.langchain4j.agents.service;
+
+import com.example.langchain4j.agents.session.SharedChatMemoryStore;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded store for agent session memories.
+ * Sessions expire after an idle TTL, and the least recently used session is
+ * evicted when the store is full. Evicted sessions can optionally be spilled
+ * to local disk and are reloaded transparently on their next use. A session
+ * whose turn holds or waits for its {@link SessionLocks} lock is never evicted,
+ * so the store can briefly hold more than its maximum while they run.
+ * <p>
+ * When a {@link SharedChatMemoryStore} is configured, session messages live in
+ * the shared backend instead and this store only tracks which sessions are in
+ * use on this replica; evicting a session then just drops the local handle.
+ */
+@Component
+public class AgentSessionStore {
+
+    private static final Logger log = LoggerFactory.getLogger(AgentSessionStore.class);
+
+    // Rough per-message overhead of the message object, its list slot and the string header
+    private static final long MESSAGE_OVERHEAD_BYTES = 96;
+    private static final long SESSION_OVERHEAD_BYTES = 256;
+
+    private final int maxSessions;
+    private final int maxMessages;
+    private final long idleTtlNanos;
+    private final Duration idleTtl;
+    private final SessionSpillStore spillStore;
+    private final SharedChatMemoryStore sharedStore;
+    private final SessionLocks sessionLocks;
+
+    // Access-ordered, so iteration starts at the least recently used session
+    private final LinkedHashMap<String, Session> sessions = new LinkedHashMap<>(16, 0.75f, true);
+    // Sessions evicted but not yet written to disk, so a concurrent reload still finds them
+    private final Map<String, ChatMemory> spilling = new ConcurrentHashMap<>();
+    // Spilling a session and deleting it exclude each other, so a delete cannot be undone by a late write
+    private final Object[] spillGuards = new Object[64];
+
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong spilled = new AtomicLong();
+    private final AtomicLong reloaded = new AtomicLong();
+
+    public AgentSessionStore(int maxSessions, int maxMessages, Duration idleTtl,
+                             boolean spillEnabled, Path spillDirectory) {
+        this(maxSessions, maxMessages, idleTtl, spillEnabled, spillDirectory, new SessionLocks(Integer.MAX_VALUE));
+    }
+
+    AgentSessionStore(int maxSessions, int maxMessages, Duration idleTtl,
+                      boolean spillEnabled, Path spillDirectory, SessionLocks sessionLocks) {
+        this(maxSessions, maxMessages, idleTtl, spillEnabled, spillDirectory, sessionLocks, Optional.empty());
+    }
+
+    @Autowired
+    public AgentSessionStore(
+            @Value("${agent.session.max-sessions:10000}") int maxSessions,
+            @Value("${agent.session.max-messages:20}") int maxMessages,
+            @Value("${agent.session.idle-ttl:30m}") Duration idleTtl,
+            @Value("${agent.session.spill.enabled:false}") boolean spillEnabled,
+            @Value("${agent.session.spill.directory:${java.io.tmpdir}/agent-sessions}") Path spillDirectory,
+            SessionLocks sessionLocks,
+            Optional<SharedChatMemoryStore> sharedStore) {
+        this.maxSessions = maxSessions;
+        this.maxMessages = maxMessages;
+        this.idleTtl = idleTtl;
+        this.idleTtlNanos = idleTtl.toNanos();
+        this.sharedStore = sharedStore.orElse(null);
+        this.sessionLocks = sessionLocks;
+        for (int i = 0; i < spillGuards.length; i++) {
+            spillGuards[i] = new Object();
+        }
+        // Nothing to spill when the messages already live in the shared backend
+        this.spillStore = spillEnabled && this.sharedStore == null ? new SessionSpillStore(spillDirectory) : null;
+        log.info("Agent session store: max {} sessions, idle TTL {}, spill {}, shared store {}",
+            maxSessions, idleTtl, spillStore != null ? "enabled" : "disabled",
+            this.sharedStore != null ? "enabled" : "disabled");
+    }
+
+    /**
+     * Create a new empty session.
+     *
+     * @return the new session ID
+     */
+    public String create() {
+        String sessionId = UUID.randomUUID().toString();
+        put(sessionId, newMemory(sessionId));
+        created.incrementAndGet();
+        return sessionId;
+    }
+
+    /**
+     * Get the memory for a session, reloading it from disk or creating it if needed.
+     *
+     * @param sessionId the session ID
+     * @return the session memory
+     */
+    public ChatMemory getOrCreate(String sessionId) {
+        synchronized (sessions) {
+            Session session = sessions.get(sessionId);
+            if (session != null) {
+                session.touch();
+                return session.memory;
+            }
+        }
+
+        ChatMemory memory = spilling.remove(sessionId);
+        if (memory == null && spillStore != null) {
+            memory = spillStore.take(sessionId)
+                .map(this::restore)
+                .orElse(null);
+        }
+        if (memory != null) {
+            reloaded.incrementAndGet();
+            log.debug("Reloaded evicted session: {}", sessionId);
+        } else {
+            memory = newMemory(sessionId);
+            created.incrementAndGet();
+        }
+        return put(sessionId, memory);
+    }
+
+    /**
+     * Remove a session from memory, disk and the shared store.
+     *
+     * @param sessionId the session ID
+     */
+    public void remove(String sessionId) {
+        synchronized (sessions) {
+            sessions.remove(sessionId);
+        }
+        synchronized (spillGuard(sessionId)) {
+            spilling.remove(sessionId);
+            if (spillStore != null) {
+                spillStore.delete(sessionId);
+            }
+        }
+        if (sharedStore != null) {
+            sharedStore.deleteMessages(sessionId);
+        }
+    }
+
+    /**
+     * Drop sessions that have been idle for longer than the TTL.
+     */
+    @Scheduled(fixedDelayString = "${agent.session.sweep-interval-ms:60000}")
+    public void evictIdleSessions() {
+        long now = System.nanoTime();
+        int count = 0;
+        synchronized (sessions) {
+            Iterator<Map.Entry<String, Session>> iterator = sessions.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, Session> entry = iterator.next();
+                if (now - entry.getValue().lastAccessNanos > idleTtlNanos && !sessionLocks.inUse(entry.getKey())) {
+                    iterator.remove();
+                    count++;
+                }
+            }
+        }
+        if (spillStore != null) {
+            count += spillStore.deleteOlderThan(idleTtl);
+        }
+        if (sharedStore != null) {
+            count += sharedStore.deleteOlderThan(idleTtl);
+        }
+        if (count > 0) {
+            expired.addAndGet(count);
+            log.info("Expired {} idle agent sessions", count);
+        }
+    }
+
+    /**
+     * Get session store metrics.
+     *
+     * @return live session count, eviction counters and estimated heap footprint
+     */
+    public Map<String, Object> stats() {
+        int live;
+        long estimatedBytes = 0;
+        synchronized (sessions) {
+            live = sessions.size();
+            // Shared sessions hold no messages in this store, and reading them would hit the backend
+            if (sharedStore == null) {
+                for (Session session : sessions.values()) {
+                    estimatedBytes += estimateBytes(session.memory);
+                }
+            }
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("liveSessions", live);
+        stats.put("maxSessions", maxSessions);
+        stats.put("estimatedMemoryBytes", estimatedBytes);
+        stats.put("created", created.get());
+        stats.put("evicted", evicted.get());
+        stats.put("expired", expired.get());
+        stats.put("spilled", spilled.get());
+        stats.put("reloaded", reloaded.get());
+        stats.put("spilledOnDisk", spillStore != null ? spillStore.count() : 0);
+        if (sharedStore != null) {
+            stats.put("sharedStore", sharedStore.stats());
+        }
+        return stats;
+    }
+
+    private ChatMemory put(String sessionId, ChatMemory memory) {
+        List<Map.Entry<String, Session>> victims = new ArrayList<>();
+        ChatMemory result;
+        synchronized (sessions) {
+            Session existing = sessions.get(sessionId);
+            if (existing != null) {
+                // Another request created or reloaded the session first
+                existing.touch();
+                return existing.memory;
+            }
+            sessions.put(sessionId, new Session(memory));
+            result = memory;
+
+            Iterator<Map.Entry<String, Session>> eldest = sessions.entrySet().iterator();
+            while (sessions.size() > maxSessions && eldest.hasNext()) {
+                Map.Entry<String, Session> victim = eldest.next();
+                if (victim.getKey().equals(sessionId) || sessionLocks.inUse(victim.getKey())) {
+                    continue;
+                }
+                eldest.remove();
+                victims.add(victim);
+                if (spillStore != null) {
+                    // Visible to reloads and deletes from the moment it leaves the map
+                    spilling.put(victim.getKey(), victim.getValue().memory);
+                }
+            }
+        }
+
+        for (Map.Entry<String, Session> victim : victims) {
+            evicted.incrementAndGet();
+            if (spillStore != null) {
+                spill(victim.getKey(), victim.getValue().memory);
+            }
+        }
+        return result;
+    }
+
+    private void spill(String sessionId, ChatMemory memory) {
+        synchronized (spillGuard(sessionId)) {
+            if (spilling.get(sessionId) != memory) {
+                // Deleted or reloaded before it was written
+                return;
+            }
+            try {
+                spillStore.write(sessionId, memory.messages());
+                spilled.incrementAndGet();
+            } finally {
+                if (!spilling.remove(sessionId, memory)) {
+                    // Reloaded while it was written: the live copy wins
+                    spillStore.delete(sessionId);
+                }
+            }
+        }
+    }
+
+    private Object spillGuard(String sessionId) {
+        return spillGuards[Math.floorMod(sessionId.hashCode(), spillGuards.length)];
+    }
+
+    private ChatMemory restore(List<ChatMessage> messages) {
+        ChatMemory memory = MessageWindowChatMemory.withMaxMessages(maxMessages);
+        messages.forEach(memory::add);
+        return memory;
+    }
+
+    private ChatMemory newMemory(String sessionId) {
+        if (sharedStore != null) {
+            return MessageWindowChatMemory.builder()
+                .id(sessionId)
+                .maxMessages(maxMessages)
+                .chatMemoryStore(sharedStore)
+                .build();
+        }
+        return MessageWindowChatMemory.withMaxMessages(maxMessages);
+    }
+
+    private static long estimateBytes(ChatMemory memory) {
+        long bytes = SESSION_OVERHEAD_BYTES;
+        for (ChatMessage message : memory.messages()) {
+            bytes += MESSAGE_OVERHEAD_BYTES + 2L * textLength(message);
+        }
+        return bytes;
+    }
+
+    private static int textLength(ChatMessage message) {
+        if (message instanceof UserMessage userMessage && userMessage.hasSingleText()) {
+            return userMessage.singleText().length();
+        } else if (message instanceof AiMessage aiMessage && aiMessage.text() != null) {
+            return aiMessage.text().length();
+        } else if (message instanceof SystemMessage systemMessage) {
+            return systemMessage.text().length();
+        }
+        return 0;
+    }
+
+    private static final class Session {
+        private final ChatMemory memory;
+        private volatile long lastAccessNanos = System.nanoTime();
+
+        private Session(ChatMemory memory) {
+            this.memory = memory;
+        }
+
+        private void touch() {
+            lastAccessNanos = System.nanoTime();
+        }
+    }
+}
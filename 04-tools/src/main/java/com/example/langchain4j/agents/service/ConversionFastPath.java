@@ -0,0 +1,161 @@
+package com.example.langchain4j.agents.service;
+
+import com.example.langchain4j.agents.tools.TemperatureTool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Answers plain temperature conversions without the model.
+ * <p>
+ * A request qualifies only when the whole message is a single conversion with
+ * a number, a source unit and a different target unit, for example
+ * "convert 300 K to Fahrenheit" or "what is 20°C in F?". The conversion runs
+ * in-process on {@link TemperatureTool}. Anything else, including a conversion
+ * the tool rejects, is left to the full agent loop.
+ */
+@Component
+public class ConversionFastPath {
+
+    private static final Logger log = LoggerFactory.getLogger(ConversionFastPath.class);
+
+    private static final String UNIT = "(°\\s*[cfk]|degrees?\\s+(?:celsius|centigrade|fahrenheit|kelvin)"
+        + "|celsius|centigrade|fahrenheit|kelvins?|[cfk])";
+
+    private static final Pattern CONVERSION = Pattern.compile(
+        "^(?:please\\s+)?(?:(?:can\\s+you\\s+)?convert|what\\s+is|what's|how\\s+much\\s+is)?\\s*"
+            + "(-?\\d+(?:\\.\\d+)?)\\s*" + UNIT
+            + "\\s+(?:to|in|into|as)\\s+" + UNIT
+            + "\\s*(?:please)?\\s*[?.!]*$",
+        Pattern.CASE_INSENSITIVE);
+
+    /**
+     * A conversion answered locally.
+     *
+     * @param toolName tool that performed the conversion
+     * @param params   tool arguments in the agent's "name=value" form
+     * @param result   tool result, which is also the answer
+     */
+    public record Answer(String toolName, String params, String result) {
+    }
+
+    private final TemperatureTool temperatureTool;
+    private final boolean enabled;
+
+    private final AtomicLong attempts = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+
+    public ConversionFastPath(
+            TemperatureTool temperatureTool,
+            @Value("${agent.fast-path.enabled:true}") boolean enabled) {
+        this.temperatureTool = temperatureTool;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Answer the message locally if it is an unambiguous temperature conversion.
+     *
+     * @param message the user's message
+     * @return the answer, or empty when the agent loop should handle the message
+     */
+    public Optional<Answer> tryAnswer(String message) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        attempts.incrementAndGet();
+
+        Matcher matcher = CONVERSION.matcher(message.trim());
+        if (!matcher.matches()) {
+            return Optional.empty();
+        }
+        double value = Double.parseDouble(matcher.group(1));
+        char from = unit(matcher.group(2));
+        char to = unit(matcher.group(3));
+
+        Conversion conversion = Conversion.of(from, to);
+        if (conversion == null) {
+            return Optional.empty();
+        }
+        try {
+            String result = conversion.apply(temperatureTool, value);
+            hits.incrementAndGet();
+            return Optional.of(new Answer(conversion.toolName, conversion.parameter + "=" + matcher.group(1), result));
+        } catch (IllegalArgumentException e) {
+            log.debug("Fast path declined '{}': {}", message, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Get fast path metrics.
+     *
+     * @return messages checked, messages answered locally and the hit rate
+     */
+    public Map<String, Object> stats() {
+        long checked = attempts.get();
+        long answered = hits.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("checked", checked);
+        stats.put("answered", answered);
+        stats.put("hitRate", checked == 0 ? 0.0 : (double) answered / checked);
+        return stats;
+    }
+
+    private static char unit(String text) {
+        String unit = text.toLowerCase(Locale.ROOT).replaceAll("^°\\s*|^degrees?\\s+", "");
+        return unit.startsWith("c") ? 'c' : unit.charAt(0);
+    }
+
+    private enum Conversion {
+        C_TO_F('c', 'f', "celsiusToFahrenheit", "celsius"),
+        F_TO_C('f', 'c', "fahrenheitToCelsius", "fahrenheit"),
+        C_TO_K('c', 'k', "celsiusToKelvin", "celsius"),
+        K_TO_C('k', 'c', "kelvinToCelsius", "kelvin"),
+        F_TO_K('f', 'k', "fahrenheitToKelvin", "fahrenheit"),
+        K_TO_F('k', 'f', "kelvinToFahrenheit", "kelvin");
+
+        private final char from;
+        private final char to;
+        private final String toolName;
+        private final String parameter;
+
+        Conversion(char from, char to, String toolName, String parameter) {
+            this.from = from;
+            this.to = to;
+            this.toolName = toolName;
+            this.parameter = parameter;
+        }
+
+        private static Conversion of(char from, char to) {
+            for (Conversion conversion : values()) {
+                if (conversion.from == from && conversion.to == to) {
+                    return conversion;
+                }
+            }
+            return null;
+        }
+
+        private String apply(TemperatureTool tool, double value) {
+            DoubleFunction<String> function = switch (this) {
+                case C_TO_F -> tool::celsiusToFahrenheit;
+                case F_TO_C -> tool::fahrenheitToCelsius;
+                case C_TO_K -> tool::celsiusToKelvin;
+                case K_TO_C -> tool::kelvinToCelsius;
+                case F_TO_K -> tool::fahrenheitToKelvin;
+                case K_TO_F -> tool::kelvinToFahrenheit;
+            };
+            return function.apply(value);
+        }
+    }
+}
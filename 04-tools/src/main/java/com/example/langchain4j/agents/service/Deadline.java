@@ -0,0 +1,59 @@
+package com.example.langchain4j.agents.service;
+
+import java.time.Duration;
+
+/**
+ * Time budget for a single agent task.
+ * Created once per request and passed to every model and tool call the task makes.
+ */
+public final class Deadline {
+
+    /**
+     * Header carrying the milliseconds left before the deadline on calls to the tool endpoints.
+     */
+    public static final String HEADER = "X-Deadline-Ms";
+
+    private final long deadlineNanos;
+    private final Duration budget;
+
+    private Deadline(Duration budget) {
+        this.budget = budget;
+        this.deadlineNanos = System.nanoTime() + budget.toNanos();
+    }
+
+    /**
+     * Create a deadline that expires after the given budget.
+     */
+    public static Deadline after(Duration budget) {
+        return new Deadline(budget);
+    }
+
+    /**
+     * The budget this deadline was created with.
+     */
+    public Duration budget() {
+        return budget;
+    }
+
+    /**
+     * Time left before the deadline, never negative.
+     */
+    public Duration remaining() {
+        return Duration.ofNanos(Math.max(0, deadlineNanos - System.nanoTime()));
+    }
+
+    public long remainingNanos() {
+        return Math.max(0, deadlineNanos - System.nanoTime());
+    }
+
+    public boolean isExpired() {
+        return deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * Whether at least the given amount of time is left.
+     */
+    public boolean hasAtLeast(Duration time) {
+        return deadlineNanos - System.nanoTime() >= time.toNanos();
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.langchain4j.agents.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Background health checks for the agent's dependencies.
+ * <p>
+ * The model and the tool endpoints are probed on a schedule, and each probe
+ * updates an exponentially weighted moving average of latency and error rate.
+ * Health endpoints read the latest snapshot, so a health check never waits for
+ * a model call and frequent probes do not generate model traffic.
+ * <p>
+ * The model is probed with a metadata call that lists the resource's models,
+ * so probes spend no tokens.
+ * <p>
+ * Liveness only reflects this process: it fails when the probe loop itself has
+ * stopped running. Readiness fails while a tool endpoint is down. The model is
+ * shared by every replica, so its outage would take all of them out of rotation
+ * at once; it is only reported on {@code /health}.
+ */
+@Component
+public class HealthMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(HealthMonitor.class);
+
+    /**
+     * Health of one dependency.
+     */
+    public enum Status {
+        UNKNOWN, UP, DEGRADED, DOWN
+    }
+
+    /**
+     * Latest probe results for one dependency.
+     *
+     * @param status              derived health
+     * @param latencyMs           EWMA of successful probe latency
+     * @param errorRate           EWMA of probe failures, between 0 and 1
+     * @param consecutiveFailures failed probes since the last success
+     * @param lastChecked         time of the last probe, or null before the first
+     * @param lastError           message of the last failure, or null
+     */
+    public record DependencyHealth(
+        Status status,
+        double latencyMs,
+        double errorRate,
+        int consecutiveFailures,
+        Instant lastChecked,
+        String lastError
+    ) {
+        static final DependencyHealth UNCHECKED = new DependencyHealth(Status.UNKNOWN, 0, 0, 0, null, null);
+    }
+
+    private final Map<String, Callable<?>> probes;
+    private final Set<String> reportOnly;
+    private final ExecutorService probeExecutor;
+    private final Duration probeTimeout;
+    private final double smoothing;
+    private final int failureThreshold;
+    private final double degradedErrorRate;
+    private final Duration degradedLatency;
+    private final long staleAfterNanos;
+
+    // Replaced as a whole after every probe, so readers never see a partial update
+    private volatile Map<String, DependencyHealth> snapshot;
+    private volatile long lastRoundNanos = System.nanoTime();
+
+    @Autowired
+    public HealthMonitor(
+            @Value("${azure.openai.endpoint}") String modelEndpoint,
+            @Value("${azure.openai.api-key}") String modelApiKey,
+            @Qualifier("agentCallExecutor") ExecutorService probeExecutor,
+            @Value("${azure.ai.agent.tools.base-url}") String toolsBaseUrl,
+            @Value("${agent.health.probe-timeout:10s}") Duration probeTimeout,
+            @Value("${agent.health.smoothing:0.3}") double smoothing,
+            @Value("${agent.health.failure-threshold:3}") int failureThreshold,
+            @Value("${agent.health.degraded-error-rate:0.2}") double degradedErrorRate,
+            @Value("${agent.health.degraded-latency:5s}") Duration degradedLatency,
+            @Value("${agent.health.stale-after:3m}") Duration staleAfter) {
+        this(defaultProbes(modelEndpoint, modelApiKey, toolsBaseUrl, probeTimeout), Set.of("model"),
+            probeExecutor, probeTimeout, smoothing, failureThreshold, degradedErrorRate, degradedLatency, staleAfter);
+    }
+
+    /**
+     * @param reportOnly dependencies that are probed and reported but do not affect readiness
+     */
+    HealthMonitor(Map<String, Callable<?>> probes, Set<String> reportOnly, ExecutorService probeExecutor,
+                  Duration probeTimeout, double smoothing, int failureThreshold, double degradedErrorRate,
+                  Duration degradedLatency, Duration staleAfter) {
+        this.probes = probes;
+        this.reportOnly = reportOnly;
+        this.probeExecutor = probeExecutor;
+        this.probeTimeout = probeTimeout;
+        this.smoothing = smoothing;
+        this.failureThreshold = failureThreshold;
+        this.degradedErrorRate = degradedErrorRate;
+        this.degradedLatency = degradedLatency;
+        this.staleAfterNanos = staleAfter.toNanos();
+
+        Map<String, DependencyHealth> initial = new LinkedHashMap<>();
+        probes.keySet().forEach(name -> initial.put(name, DependencyHealth.UNCHECKED));
+        this.snapshot = Map.copyOf(initial);
+    }
+
+    /**
+     * Probe every dependency once and update the snapshot.
+     */
+    @Scheduled(fixedDelayString = "${agent.health.probe-interval-ms:30000}",
+               initialDelayString = "${agent.health.initial-delay-ms:0}")
+    public void probe() {
+        Map<String, DependencyHealth> next = new LinkedHashMap<>(snapshot);
+        for (Map.Entry<String, Callable<?>> probe : probes.entrySet()) {
+            next.put(probe.getKey(), run(probe.getKey(), probe.getValue(), next.get(probe.getKey())));
+        }
+        snapshot = Map.copyOf(next);
+        lastRoundNanos = System.nanoTime();
+    }
+
+    /**
+     * @return latest health of each dependency
+     */
+    public Map<String, DependencyHealth> dependencies() {
+        return snapshot;
+    }
+
+    /**
+     * The process is alive as long as its probe loop keeps running.
+     */
+    public boolean isLive() {
+        return System.nanoTime() - lastRoundNanos < staleAfterNanos;
+    }
+
+    /**
+     * Ready to serve agent requests: every dependency that gates readiness has
+     * been probed and none is down.
+     */
+    public boolean isReady() {
+        return snapshot.entrySet().stream()
+            .filter(dependency -> !reportOnly.contains(dependency.getKey()))
+            .map(Map.Entry::getValue)
+            .allMatch(health -> health.status() == Status.UP || health.status() == Status.DEGRADED);
+    }
+
+    private DependencyHealth run(String name, Callable<?> probe, DependencyHealth previous) {
+        long start = System.nanoTime();
+        String error = null;
+        Future<?> future = probeExecutor.submit(probe);
+        try {
+            future.get(probeTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            error = "Probe timed out after " + probeTimeout.toMillis() + " ms";
+        } catch (ExecutionException e) {
+            error = String.valueOf(e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            return previous;
+        }
+        double latencyMs = (System.nanoTime() - start) / 1_000_000.0;
+
+        boolean first = previous.lastChecked() == null;
+        double errorSample = error == null ? 0 : 1;
+        double errorRate = first ? errorSample : ewma(previous.errorRate(), errorSample);
+        double latency = error != null ? previous.latencyMs()
+            : first || previous.latencyMs() == 0 ? latencyMs : ewma(previous.latencyMs(), latencyMs);
+        int failures = error == null ? 0 : previous.consecutiveFailures() + 1;
+
+        Status status;
+        if (failures >= failureThreshold) {
+            status = Status.DOWN;
+        } else if (errorRate > degradedErrorRate || latency > degradedLatency.toMillis()) {
+            status = Status.DEGRADED;
+        } else {
+            status = Status.UP;
+        }
+        if (status != previous.status()) {
+            log.info("Dependency '{}' is now {}{}", name, status, error != null ? ": " + error : "");
+        }
+        return new DependencyHealth(status, latency, errorRate, failures, Instant.now(), error);
+    }
+
+    private double ewma(double average, double sample) {
+        return smoothing * sample + (1 - smoothing) * average;
+    }
+
+    private static Map<String, Callable<?>> defaultProbes(String modelEndpoint, String modelApiKey,
+                                                          String toolsBaseUrl, Duration timeout) {
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(
+            HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .build());
+        requestFactory.setReadTimeout(timeout);
+        RestTemplate restTemplate = new RestTemplate(requestFactory);
+
+        // Listing models checks the endpoint and the key without generating anything
+        String modelsUrl = modelEndpoint.replaceAll("/+$", "") + "/openai/models?api-version=2024-10-21";
+        HttpHeaders modelHeaders = new HttpHeaders();
+        modelHeaders.set("api-key", modelApiKey);
+        HttpEntity<Void> modelRequest = new HttpEntity<>(modelHeaders);
+
+        Map<String, Callable<?>> probes = new LinkedHashMap<>();
+        probes.put("model", () -> restTemplate.exchange(modelsUrl, HttpMethod.GET, modelRequest, Void.class));
+        probes.put("tools", () -> restTemplate.getForObject(toolsBaseUrl + "/api/tools/health", Map.class));
+        return probes;
+    }
+}
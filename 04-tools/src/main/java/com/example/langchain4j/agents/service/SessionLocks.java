@@ -0,0 +1,140 @@
+package com.example.langchain4j.agents.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One fair lock per session, so turns of the same session run one at a time
+ * in arrival order while different sessions never wait on each other.
+ * A session's lock only exists while a turn holds or waits for it.
+ * <p>
+ * A waiting turn holds an agent executor worker, so at most
+ * {@code maxQueuedTurns} turns wait per session; further turns are turned away
+ * at once, and one busy session cannot take over the executor.
+ * <p>
+ * {@link AgentSessionStore} does not evict a session while a turn holds or waits for its lock.
+ */
+@Component
+final class SessionLocks {
+
+    private final int maxQueuedTurns;
+    private final Map<String, Entry> locks = new ConcurrentHashMap<>();
+    private final AtomicLong acquired = new AtomicLong();
+    private final AtomicLong contended = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicLong queueFull = new AtomicLong();
+
+    SessionLocks(@Value("${agent.session.max-queued-turns:4}") int maxQueuedTurns) {
+        this.maxQueuedTurns = maxQueuedTurns;
+    }
+
+    /**
+     * Held lock on a session; closing it releases the lock.
+     */
+    final class Lease implements AutoCloseable {
+        private final String sessionId;
+        private final Entry entry;
+
+        private Lease(String sessionId, Entry entry) {
+            this.sessionId = sessionId;
+            this.entry = entry;
+        }
+
+        @Override
+        public void close() {
+            entry.lock.unlock();
+            release(sessionId, entry);
+        }
+    }
+
+    /**
+     * Lock a session, waiting at most {@code maxWait} for an earlier turn to finish.
+     *
+     * @return the lease, or null if the session stayed busy for {@code maxWait}
+     *         or already has {@code maxQueuedTurns} turns waiting
+     */
+    Lease acquire(String sessionId, Duration maxWait) throws InterruptedException {
+        boolean[] full = new boolean[1];
+        Entry entry = locks.compute(sessionId, (id, existing) -> {
+            Entry e = existing != null ? existing : new Entry();
+            // One user holds the lock, the others wait
+            if (e.users > maxQueuedTurns) {
+                full[0] = true;
+                return e;
+            }
+            e.users++;
+            return e;
+        });
+        if (full[0]) {
+            queueFull.incrementAndGet();
+            return null;
+        }
+
+        boolean locked = false;
+        try {
+            locked = entry.lock.tryLock();
+            if (!locked) {
+                contended.incrementAndGet();
+                if (maxWait.isPositive()) {
+                    locked = entry.lock.tryLock(maxWait.toNanos(), TimeUnit.NANOSECONDS);
+                }
+            }
+        } finally {
+            if (!locked) {
+                release(sessionId, entry);
+            }
+        }
+
+        if (!locked) {
+            timedOut.incrementAndGet();
+            return null;
+        }
+        acquired.incrementAndGet();
+        return new Lease(sessionId, entry);
+    }
+
+    /**
+     * @return whether a turn of the session holds or waits for its lock
+     */
+    boolean inUse(String sessionId) {
+        return locks.containsKey(sessionId);
+    }
+
+    long acquiredCount() {
+        return acquired.get();
+    }
+
+    long contendedCount() {
+        return contended.get();
+    }
+
+    long timedOutCount() {
+        return timedOut.get();
+    }
+
+    long queueFullCount() {
+        return queueFull.get();
+    }
+
+    int activeSessions() {
+        return locks.size();
+    }
+
+    private void release(String sessionId, Entry entry) {
+        locks.computeIfPresent(sessionId, (id, existing) ->
+            existing == entry && --existing.users == 0 ? null : existing);
+    }
+
+    private static final class Entry {
+        private final ReentrantLock lock = new ReentrantLock(true);
+        // Turns holding or waiting for the lock; guarded by the map's compute
+        private int users;
+    }
+}
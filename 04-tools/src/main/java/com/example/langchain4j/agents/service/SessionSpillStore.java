@@ -0,0 +1,134 @@
+package com.example.langchain4j.agents.service;
+
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ChatMessageDeserializer;
+import dev.langchain4j.data.message.ChatMessageSerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Local disk store for sessions evicted from memory.
+ * Each session is written as one JSON file named after its encoded session ID.
+ */
+class SessionSpillStore {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionSpillStore.class);
+    private static final String SUFFIX = ".json";
+    private static final int MAX_RAW_ID_BYTES = 128;
+
+    private final Path directory;
+
+    SessionSpillStore(Path directory) {
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create session spill directory " + directory, e);
+        }
+        log.info("Spilling evicted agent sessions to {}", directory);
+    }
+
+    /**
+     * Write a session's messages, replacing any earlier copy.
+     */
+    void write(String sessionId, List<ChatMessage> messages) {
+        Path target = fileFor(sessionId);
+        try {
+            Path temp = Files.createTempFile(directory, "session-", ".tmp");
+            Files.writeString(temp, ChatMessageSerializer.messagesToJson(messages), StandardCharsets.UTF_8);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Failed to spill session {}: {}", sessionId, e.getMessage());
+        }
+    }
+
+    /**
+     * Read and remove a spilled session, if present.
+     */
+    Optional<List<ChatMessage>> take(String sessionId) {
+        Path file = fileFor(sessionId);
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+        try {
+            List<ChatMessage> messages = ChatMessageDeserializer.messagesFromJson(
+                Files.readString(file, StandardCharsets.UTF_8));
+            Files.deleteIfExists(file);
+            return Optional.of(messages);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to reload spilled session {}: {}", sessionId, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    void delete(String sessionId) {
+        try {
+            Files.deleteIfExists(fileFor(sessionId));
+        } catch (IOException e) {
+            log.warn("Failed to delete spilled session {}: {}", sessionId, e.getMessage());
+        }
+    }
+
+    /**
+     * Delete spilled sessions that have not been touched within the given TTL.
+     *
+     * @return number of files deleted
+     */
+    int deleteOlderThan(Duration ttl) {
+        Instant cutoff = Instant.now().minus(ttl);
+        int deleted = 0;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (file.toString().endsWith(SUFFIX)
+                        && Files.getLastModifiedTime(file).toInstant().isBefore(cutoff)) {
+                    Files.deleteIfExists(file);
+                    deleted++;
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to clean session spill directory: {}", e.getMessage());
+        }
+        return deleted;
+    }
+
+    long count() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(SUFFIX)).count();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private Path fileFor(String sessionId) {
+        // Session IDs come from clients, so never use them as raw file names
+        byte[] id = sessionId.getBytes(StandardCharsets.UTF_8);
+        if (id.length > MAX_RAW_ID_BYTES) {
+            id = sha256(id);
+        }
+        String encoded = Base64.getUrlEncoder().withoutPadding().encodeToString(id);
+        return directory.resolve(encoded + SUFFIX);
+    }
+
+    private static byte[] sha256(byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,426 @@
+package com.example.langchain4j.agents.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of completed agent steps, keyed by a client-supplied task id.
+ * <p>
+ * Each model turn and tool result of a task is appended as it completes. When
+ * the task fails and the client retries with the same id, {@link AgentService}
+ * replays the recorded steps instead of repeating their model and tool calls,
+ * and continues live from the first step that was not recorded.
+ * <p>
+ * Records are framed with a length and a CRC, so a torn write at the end of the
+ * log is dropped on startup. Finished tasks are tombstoned; a periodic compaction
+ * rewrites the log with only the unfinished tasks younger than the retention.
+ */
+@Component
+public class StepCheckpointLog implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(StepCheckpointLog.class);
+
+    private static final String LOG_FILE = "steps.log";
+
+    private static final byte BEGIN = 1;
+    private static final byte STEP = 2;
+    private static final byte TRUNCATE = 3;
+    private static final byte DONE = 4;
+
+    /**
+     * A completed step.
+     *
+     * @param index  position of the step within the task
+     * @param kind   {@link #MODEL} or {@link #TOOL}
+     * @param key    fingerprint of the step's input, checked before replaying it
+     * @param output the model's answer or the tool's result
+     */
+    public record Step(int index, byte kind, long key, String output) {
+        public static final byte MODEL = 1;
+        public static final byte TOOL = 2;
+    }
+
+    private static final class Task {
+        private final String sessionId;
+        private final long startedAtMillis;
+        private final TreeMap<Integer, Step> steps = new TreeMap<>();
+
+        private Task(String sessionId, long startedAtMillis) {
+            this.sessionId = sessionId;
+            this.startedAtMillis = startedAtMillis;
+        }
+    }
+
+    private final boolean enabled;
+    private final Path file;
+    private final Duration retention;
+    private final Map<String, Task> tasks = new HashMap<>();
+    // A lock rather than synchronized methods, so a virtual thread writing the log releases its carrier
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private OutputStream out;
+    private long appended;
+    private long replayed;
+    private long compactions;
+
+    @Autowired
+    public StepCheckpointLog(
+            @Value("${agent.checkpoint.enabled:true}") boolean enabled,
+            @Value("${agent.checkpoint.directory:${java.io.tmpdir}/agent-checkpoints}") Path directory,
+            @Value("${agent.checkpoint.retention:1h}") Duration retention) {
+        this.enabled = enabled;
+        this.file = directory.resolve(LOG_FILE);
+        this.retention = retention;
+        if (enabled) {
+            try {
+                Files.createDirectories(directory);
+                load();
+                out = open();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot open checkpoint log " + file, e);
+            }
+            log.info("Step checkpoint log: {} ({} unfinished tasks)", file, tasks.size());
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Session of an unfinished task, so that a retry without a session id resumes in the same session.
+     */
+    public String sessionOf(String taskId) {
+        lock.lock();
+        try {
+            Task task = tasks.get(taskId);
+            return task != null ? task.sessionId : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Start or resume a task.
+     *
+     * @return steps recorded by earlier attempts, in order
+     */
+    public List<Step> begin(String taskId, String sessionId) {
+        lock.lock();
+        try {
+            Task task = tasks.get(taskId);
+            if (task != null && task.sessionId.equals(sessionId)) {
+                return List.copyOf(task.steps.values());
+            }
+            Task started = new Task(sessionId, System.currentTimeMillis());
+            tasks.put(taskId, started);
+            write(BEGIN, taskId, record -> {
+                record.writeUTF(sessionId);
+                record.writeLong(started.startedAtMillis);
+            });
+            return List.of();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Record a completed step.
+     */
+    public void append(String taskId, Step step) {
+        lock.lock();
+        try {
+            Task task = tasks.get(taskId);
+            if (task == null) {
+                return;
+            }
+            task.steps.put(step.index(), step);
+            write(STEP, taskId, record -> writeStep(record, step));
+            appended++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forget recorded steps from {@code fromIndex} on, after the task took a different path.
+     */
+    public void truncate(String taskId, int fromIndex) {
+        lock.lock();
+        try {
+            Task task = tasks.get(taskId);
+            if (task == null || task.steps.tailMap(fromIndex).isEmpty()) {
+                return;
+            }
+            task.steps.tailMap(fromIndex).clear();
+            write(TRUNCATE, taskId, record -> record.writeInt(fromIndex));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Count steps served from the log instead of being executed again.
+     */
+    public void replayed(int steps) {
+        lock.lock();
+        try {
+            replayed += steps;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Mark a task finished; its steps are no longer needed.
+     */
+    public void complete(String taskId) {
+        lock.lock();
+        try {
+            if (tasks.remove(taskId) != null) {
+                write(DONE, taskId, record -> { });
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Rewrite the log with only unfinished tasks within the retention.
+     */
+    @Scheduled(fixedDelayString = "${agent.checkpoint.compact-interval-ms:300000}")
+    public void compact() {
+        lock.lock();
+        try {
+            if (!enabled) {
+                return;
+            }
+            long cutoff = System.currentTimeMillis() - retention.toMillis();
+            tasks.values().removeIf(task -> task.startedAtMillis < cutoff);
+            Path temp = null;
+            try {
+                out.close();
+                temp = Files.createTempFile(file.getParent(), "steps-", ".tmp");
+                // Any failed record aborts the rewrite, so the old log is never replaced by a partial one
+                try (OutputStream compacted = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                    for (Map.Entry<String, Task> entry : tasks.entrySet()) {
+                        Task task = entry.getValue();
+                        writeRecord(compacted, BEGIN, entry.getKey(), record -> {
+                            record.writeUTF(task.sessionId);
+                            record.writeLong(task.startedAtMillis);
+                        });
+                        for (Step step : task.steps.values()) {
+                            writeRecord(compacted, STEP, entry.getKey(), record -> writeStep(record, step));
+                        }
+                    }
+                }
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                compactions++;
+            } catch (IOException e) {
+                log.warn("Checkpoint log compaction failed, keeping the current log: {}", e.getMessage());
+                deleteQuietly(temp);
+            } finally {
+                try {
+                    out = open();
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Cannot reopen checkpoint log " + file, e);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get checkpoint metrics.
+     *
+     * @return unfinished tasks, steps recorded and replayed, compactions and log size
+     */
+    public Map<String, Object> stats() {
+        lock.lock();
+        try {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("enabled", enabled);
+            stats.put("unfinishedTasks", tasks.size());
+            stats.put("stepsRecorded", appended);
+            stats.put("stepsReplayed", replayed);
+            stats.put("compactions", compactions);
+            try {
+                stats.put("logBytes", enabled && Files.exists(file) ? Files.size(file) : 0L);
+            } catch (IOException e) {
+                stats.put("logBytes", -1L);
+            }
+            return stats;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        lock.lock();
+        try {
+            if (out != null) {
+                out.close();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private interface RecordBody {
+        void write(DataOutputStream record) throws IOException;
+    }
+
+    private void write(byte type, String taskId, RecordBody body) {
+        try {
+            writeRecord(out, type, taskId, body);
+        } catch (IOException e) {
+            // A missing checkpoint only costs a slower retry
+            log.warn("Failed to write checkpoint for task {}: {}", taskId, e.getMessage());
+        }
+    }
+
+    private static void writeRecord(OutputStream target, byte type, String taskId, RecordBody body) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream record = new DataOutputStream(buffer);
+        record.writeByte(type);
+        record.writeUTF(taskId);
+        body.write(record);
+        byte[] bytes = buffer.toByteArray();
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        DataOutputStream frame = new DataOutputStream(target);
+        frame.writeInt(bytes.length);
+        frame.write(bytes);
+        frame.writeLong(crc.getValue());
+        frame.flush();
+    }
+
+    private static void deleteQuietly(Path temp) {
+        if (temp == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(temp);
+        } catch (IOException e) {
+            log.debug("Could not delete {}: {}", temp, e.getMessage());
+        }
+    }
+
+    private static void writeStep(DataOutputStream record, Step step) throws IOException {
+        byte[] output = step.output().getBytes(StandardCharsets.UTF_8);
+        record.writeInt(step.index());
+        record.writeByte(step.kind());
+        record.writeLong(step.key());
+        record.writeInt(output.length);
+        record.write(output);
+    }
+
+    private void load() throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        long fileBytes = Files.size(file);
+        long validBytes = 0;
+        try (InputStream stream = Files.newInputStream(file);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(stream))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (length <= 0 || length > fileBytes - validBytes) {
+                    break;
+                }
+                byte[] bytes = new byte[length];
+                long checksum;
+                try {
+                    in.readFully(bytes);
+                    checksum = in.readLong();
+                } catch (EOFException e) {
+                    break;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(bytes);
+                if (crc.getValue() != checksum) {
+                    break;
+                }
+                apply(new DataInputStream(new ByteArrayInputStream(bytes)));
+                validBytes += Integer.BYTES + length + Long.BYTES;
+            }
+        }
+        if (validBytes < fileBytes) {
+            log.warn("Dropping torn record at the end of checkpoint log {}", file);
+            try (var channel = Files.newByteChannel(file, StandardOpenOption.WRITE)) {
+                channel.truncate(validBytes);
+            }
+        }
+    }
+
+    private void apply(DataInputStream record) throws IOException {
+        byte type = record.readByte();
+        String taskId = record.readUTF();
+        switch (type) {
+            case BEGIN -> tasks.put(taskId, new Task(record.readUTF(), record.readLong()));
+            case STEP -> {
+                Task task = tasks.get(taskId);
+                int index = record.readInt();
+                byte kind = record.readByte();
+                long key = record.readLong();
+                byte[] output = new byte[record.readInt()];
+                record.readFully(output);
+                if (task != null) {
+                    task.steps.put(index, new Step(index, kind, key, new String(output, StandardCharsets.UTF_8)));
+                }
+            }
+            case TRUNCATE -> {
+                Task task = tasks.get(taskId);
+                int fromIndex = record.readInt();
+                if (task != null) {
+                    task.steps.tailMap(fromIndex).clear();
+                }
+            }
+            case DONE -> tasks.remove(taskId);
+            default -> throw new IOException("Unknown checkpoint record type " + type);
+        }
+    }
+
+    private OutputStream open() throws IOException {
+        return new BufferedOutputStream(Files.newOutputStream(file,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE));
+    }
+}
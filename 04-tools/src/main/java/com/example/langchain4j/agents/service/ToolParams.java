@@ -0,0 +1,90 @@
+package com.example.langchain4j.agents.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Tool parameters in the form the agent prompt uses: {@code name=value, name=value}.
+ * <p>
+ * A value that contains a comma, an equals sign, a quote or a backslash, or
+ * that starts or ends with a space, is written in double quotes with quotes
+ * and backslashes escaped, e.g. {@code location="Paris, France"}. Unquoted
+ * values are read as before, with stray quotes dropped.
+ */
+final class ToolParams {
+
+    private ToolParams() {
+    }
+
+    /**
+     * Parse a parameter list; pairs without a name and a value are skipped.
+     */
+    static Map<String, String> parse(String params) {
+        Map<String, String> values = new LinkedHashMap<>();
+        int i = 0;
+        int length = params.length();
+        while (i < length) {
+            int equals = params.indexOf('=', i);
+            int comma = params.indexOf(',', i);
+            if (equals < 0 || (comma >= 0 && comma < equals)) {
+                // No value in this pair
+                if (comma < 0) {
+                    break;
+                }
+                i = comma + 1;
+                continue;
+            }
+            String name = params.substring(i, equals).trim();
+            i = skipSpaces(params, equals + 1);
+            String value;
+            if (i < length && params.charAt(i) == '"') {
+                StringBuilder quoted = new StringBuilder();
+                i++;
+                while (i < length && params.charAt(i) != '"') {
+                    char c = params.charAt(i++);
+                    if (c == '\\' && i < length) {
+                        c = params.charAt(i++);
+                    }
+                    quoted.append(c);
+                }
+                value = quoted.toString();
+                int next = params.indexOf(',', i);
+                i = next < 0 ? length : next + 1;
+            } else {
+                int end = params.indexOf(',', i);
+                if (end < 0) {
+                    end = length;
+                }
+                value = params.substring(i, end).trim().replace("\"", "");
+                i = end + 1;
+            }
+            if (!name.isEmpty() && !value.isEmpty()) {
+                values.put(name, value);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Write a value so that {@link #parse} reads it back unchanged.
+     */
+    static String quote(String value) {
+        boolean plain = !value.isEmpty() && value.equals(value.trim());
+        for (int i = 0; plain && i < value.length(); i++) {
+            char c = value.charAt(i);
+            plain = c != ',' && c != '=' && c != '"' && c != '\\';
+        }
+        if (plain) {
+            return value;
+        }
+        return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+    }
+
+    private static int skipSpaces(String text, int from) {
+        int i = from;
+        while (i < text.length() && Character.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+}
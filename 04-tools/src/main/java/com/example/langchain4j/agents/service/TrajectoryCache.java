@@ -0,0 +1,400 @@
+package com.example.langchain4j.agents.service;
+
+import com.example.langchain4j.agents.model.dto.ToolExecutionInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Cache of agent tool plans keyed on a normalized intent.
+ * <p>
+ * When a task completes, the tool arguments that appear in the user's message
+ * become slots: "weather in paris" calling getCurrentWeather(location=Paris) is
+ * stored as the intent "weather in {0}" with the plan getCurrentWeather(location={0}).
+ * A later message matching the intent replays the plan with the new slot values,
+ * so the agent only needs the final synthesis call instead of the full
+ * reason → tool → reason loop.
+ * <p>
+ * A plan is only replayed once it has been observed enough times and its
+ * confidence (agreeing observations and successful replays against conflicting
+ * observations and failed replays) is above the threshold.
+ */
+@Component
+public class TrajectoryCache {
+
+    private static final Logger log = LoggerFactory.getLogger(TrajectoryCache.class);
+    private static final Pattern NUMBER = Pattern.compile("-?\\d+(?:\\.\\d+)?");
+    private static final Pattern SLOT = Pattern.compile("\\{(\\d+)}");
+
+    private final boolean enabled;
+    private final int maxEntries;
+    private final int minObservations;
+    private final double confidenceThreshold;
+
+    // Access-ordered so the least recently used intent is evicted first
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong fallbacks = new AtomicLong();
+    private final AtomicLong savedModelCalls = new AtomicLong();
+    private final AtomicLong recorded = new AtomicLong();
+
+    public TrajectoryCache(
+            @Value("${agent.trajectory-cache.enabled:true}") boolean enabled,
+            @Value("${agent.trajectory-cache.max-entries:500}") int maxEntries,
+            @Value("${agent.trajectory-cache.min-observations:2}") int minObservations,
+            @Value("${agent.trajectory-cache.confidence-threshold:0.8}") double confidenceThreshold) {
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.minObservations = minObservations;
+        this.confidenceThreshold = confidenceThreshold;
+    }
+
+    /**
+     * A plan ready to replay: the tool calls with this message's slot values filled in.
+     */
+    public record Replay(String intent, List<ToolCall> toolCalls, int modelCallsSaved) {
+    }
+
+    /**
+     * A tool call in the form the agent prompt uses, e.g. {@code celsius=20}.
+     */
+    public record ToolCall(String toolName, String params) {
+    }
+
+    /**
+     * Find a confident plan for a message.
+     *
+     * @param message the user's message
+     * @return the plan with this message's slot values, if one is cached and trusted
+     */
+    public Optional<Replay> lookup(String message) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        lookups.incrementAndGet();
+        // Match case-insensitively so slot values keep the user's casing
+        String normalized = collapse(message);
+        synchronized (entries) {
+            for (Entry entry : entries.values()) {
+                Matcher matcher = entry.pattern.matcher(normalized);
+                if (matcher.matches() && entry.isTrusted()) {
+                    entries.get(entry.intent); // mark as recently used
+                    List<String> slots = entry.slotValues(matcher);
+                    return Optional.of(new Replay(entry.intent, entry.instantiate(slots), entry.modelCalls - 1));
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Record the tool plan of a task that ran the full agent loop.
+     *
+     * @param message the user's message
+     * @param toolExecutions tool calls made by the task, in order
+     * @param modelCalls number of model calls the task needed
+     */
+    public void record(String message, List<ToolExecutionInfo> toolExecutions, int modelCalls) {
+        if (!enabled || toolExecutions.isEmpty()) {
+            return;
+        }
+        for (ToolExecutionInfo execution : toolExecutions) {
+            if (execution.status() == null || execution.status().startsWith("Error")) {
+                return;
+            }
+        }
+
+        String normalized = normalize(message);
+        if (normalized.indexOf('{') >= 0) {
+            return; // would be confused with slot markers
+        }
+        Parameterized parameterized = parameterize(normalized, toolExecutions);
+        if (parameterized == null) {
+            return;
+        }
+        recorded.incrementAndGet();
+        synchronized (entries) {
+            Entry entry = entries.get(parameterized.intent);
+            if (entry == null) {
+                entries.put(parameterized.intent, new Entry(parameterized, modelCalls));
+                evictIfFull();
+            } else {
+                entry.observe(parameterized.plan, modelCalls, confidenceThreshold);
+            }
+        }
+    }
+
+    /**
+     * Report that a replayed plan answered the task.
+     */
+    public void replayed(Replay replay) {
+        hits.incrementAndGet();
+        savedModelCalls.addAndGet(Math.max(0, replay.modelCallsSaved()));
+        synchronized (entries) {
+            Entry entry = entries.get(replay.intent());
+            if (entry != null) {
+                entry.successes++;
+            }
+        }
+    }
+
+    /**
+     * Report that a replayed plan failed and the task fell back to the full loop.
+     */
+    public void fellBack(Replay replay) {
+        fallbacks.incrementAndGet();
+        synchronized (entries) {
+            Entry entry = entries.get(replay.intent());
+            if (entry != null) {
+                entry.failures++;
+            }
+        }
+    }
+
+    /**
+     * Get trajectory cache metrics.
+     *
+     * @return lookups, hits, fallbacks, hit rate and model calls saved
+     */
+    public Map<String, Object> stats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        long lookupCount = lookups.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("intents", size);
+        stats.put("recorded", recorded.get());
+        stats.put("lookups", lookupCount);
+        stats.put("hits", hits.get());
+        stats.put("fallbacks", fallbacks.get());
+        stats.put("hitRate", lookupCount == 0 ? 0.0 : (double) hits.get() / lookupCount);
+        stats.put("savedModelCalls", savedModelCalls.get());
+        return stats;
+    }
+
+    static String normalize(String message) {
+        return collapse(message.toLowerCase(Locale.ROOT));
+    }
+
+    private static String collapse(String message) {
+        return message.replaceAll("\\s+", " ")
+            .replaceAll("[?.!\\s]+$", "")
+            .trim();
+    }
+
+    /**
+     * Replace tool argument values found in the message with numbered slots.
+     * Values not found in the message stay constants in the plan, unless an
+     * earlier tool returned them: such a value depends on that tool's result
+     * (the temperature converted after a weather lookup), so the plan is not
+     * recorded.
+     *
+     * @return the parameterized plan, or null if it cannot be replayed safely
+     */
+    private static Parameterized parameterize(String message, List<ToolExecutionInfo> toolExecutions) {
+        Map<String, Integer> slotsByValue = new LinkedHashMap<>();
+        List<int[]> spans = new ArrayList<>();
+        List<Step> plan = new ArrayList<>();
+        List<String> earlierOutputs = new ArrayList<>();
+
+        for (ToolExecutionInfo execution : toolExecutions) {
+            List<Arg> args = new ArrayList<>();
+            String params = execution.arguments().isEmpty() ? "" : execution.arguments().get(0);
+            for (Map.Entry<String, String> param : ToolParams.parse(params).entrySet()) {
+                String value = param.getValue().toLowerCase(Locale.ROOT);
+                Integer slot = slotsByValue.get(value);
+                if (slot == null) {
+                    int start = find(message, value, spans);
+                    if (start >= 0) {
+                        slot = slotsByValue.size();
+                        slotsByValue.put(value, slot);
+                        spans.add(new int[] {start, start + value.length(), slot});
+                    }
+                }
+                if (slot == null && appearsIn(earlierOutputs, value)) {
+                    log.debug("Not recording plan: {}={} comes from an earlier tool result", param.getKey(), value);
+                    return null;
+                }
+                args.add(new Arg(param.getKey(), slot, slot == null ? param.getValue() : null));
+            }
+            plan.add(new Step(execution.toolName(), args));
+            earlierOutputs.add(execution.status().toLowerCase(Locale.ROOT));
+        }
+
+        spans.sort(Comparator.comparingInt(span -> span[0]));
+        StringBuilder intent = new StringBuilder();
+        int position = 0;
+        for (int[] span : spans) {
+            intent.append(message, position, span[0]).append('{').append(span[2]).append('}');
+            position = span[1];
+        }
+        intent.append(message.substring(position));
+
+        // An intent made only of slots would match any message
+        if (SLOT.matcher(intent).replaceAll("").isBlank()) {
+            return null;
+        }
+        return new Parameterized(intent.toString(), plan, List.copyOf(slotsByValue.keySet()));
+    }
+
+    /**
+     * Find a value in the message as a whole token, outside existing slots.
+     */
+    private static int find(String message, String value, List<int[]> spans) {
+        if (value.isEmpty()) {
+            return -1;
+        }
+        for (int i = message.indexOf(value); i >= 0; i = message.indexOf(value, i + 1)) {
+            int end = i + value.length();
+            boolean startsToken = i == 0 || !sameKind(message.charAt(i - 1), value.charAt(0));
+            boolean endsToken = end == message.length() || !sameKind(message.charAt(end), value.charAt(value.length() - 1));
+            if (startsToken && endsToken && !overlaps(spans, i, end)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean appearsIn(List<String> outputs, String value) {
+        for (String output : outputs) {
+            if (find(output, value, List.of()) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean sameKind(char a, char b) {
+        return (Character.isDigit(a) && Character.isDigit(b)) || (Character.isLetter(a) && Character.isLetter(b));
+    }
+
+    private static boolean overlaps(List<int[]> spans, int start, int end) {
+        for (int[] span : spans) {
+            if (start < span[1] && span[0] < end) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void evictIfFull() {
+        var eldest = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    private record Arg(String name, Integer slot, String constant) {
+    }
+
+    private record Step(String toolName, List<Arg> args) {
+    }
+
+    private record Parameterized(String intent, List<Step> plan, List<String> slotValues) {
+    }
+
+    private final class Entry {
+        private final String intent;
+        private final Pattern pattern;
+        // Slot number captured by each regex group, in message order
+        private int[] groupSlots;
+        private List<Step> plan;
+        private int modelCalls;
+        private int successes = 1;
+        private int failures;
+
+        private Entry(Parameterized parameterized, int modelCalls) {
+            this.intent = parameterized.intent;
+            this.pattern = toPattern(parameterized);
+            this.plan = parameterized.plan;
+            this.modelCalls = modelCalls;
+        }
+
+        private boolean isTrusted() {
+            return successes >= minObservations && confidence() >= confidenceThreshold;
+        }
+
+        private double confidence() {
+            return (double) successes / (successes + failures);
+        }
+
+        private void observe(List<Step> observedPlan, int observedModelCalls, double threshold) {
+            if (plan.equals(observedPlan)) {
+                successes++;
+                modelCalls = observedModelCalls;
+                return;
+            }
+            failures++;
+            if (confidence() < threshold) {
+                log.debug("Replacing tool plan for intent '{}'", intent);
+                plan = observedPlan;
+                modelCalls = observedModelCalls;
+                successes = 1;
+                failures = 0;
+            }
+        }
+
+        private List<ToolCall> instantiate(List<String> slots) {
+            List<ToolCall> toolCalls = new ArrayList<>();
+            for (Step step : plan) {
+                StringBuilder params = new StringBuilder();
+                for (Arg arg : step.args) {
+                    if (!params.isEmpty()) {
+                        params.append(", ");
+                    }
+                    params.append(arg.name).append('=')
+                        .append(ToolParams.quote(arg.slot != null ? slots.get(arg.slot) : arg.constant));
+                }
+                toolCalls.add(new ToolCall(step.toolName, params.toString()));
+            }
+            return toolCalls;
+        }
+
+        private Pattern toPattern(Parameterized parameterized) {
+            StringBuilder regex = new StringBuilder();
+            List<Integer> slotOrder = new ArrayList<>();
+            Matcher slot = SLOT.matcher(parameterized.intent);
+            int position = 0;
+            while (slot.find()) {
+                int index = Integer.parseInt(slot.group(1));
+                regex.append(Pattern.quote(parameterized.intent.substring(position, slot.start())));
+                // Slots that held a number only match numbers; other slots match any text
+                boolean numeric = NUMBER.matcher(parameterized.slotValues.get(index)).matches();
+                regex.append(numeric ? "(" + NUMBER.pattern() + ")" : "(.+?)");
+                slotOrder.add(index);
+                position = slot.end();
+            }
+            regex.append(Pattern.quote(parameterized.intent.substring(position)));
+            this.groupSlots = slotOrder.stream().mapToInt(Integer::intValue).toArray();
+            return Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+        }
+
+        /**
+         * Slot values of a matching message, indexed by slot number.
+         */
+        private List<String> slotValues(Matcher matcher) {
+            String[] values = new String[groupSlots.length];
+            for (int group = 1; group <= matcher.groupCount(); group++) {
+                values[groupSlots[group - 1]] = matcher.group(group);
+            }
+            return List.of(values);
+        }
+    }
+}
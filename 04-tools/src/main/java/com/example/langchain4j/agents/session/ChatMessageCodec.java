@@ -0,0 +1,233 @@
+package com.example.langchain4j.agents.session;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ChatMessageDeserializer;
+import dev.langchain4j.data.message.ChatMessageSerializer;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compact binary encoding of a session's messages for the shared session store.
+ * <p>
+ * Layout: a format byte, a flags byte, then a varint message count followed by
+ * one tagged record per message. Strings are a varint of (byte length + 1), with
+ * 0 meaning null, followed by UTF-8 bytes. Messages the compact records cannot
+ * represent (images, custom messages, attributes) fall back to LangChain4j's JSON.
+ * Large payloads are deflated when that makes them smaller.
+ */
+public final class ChatMessageCodec {
+
+    private static final byte FORMAT = 1;
+    private static final byte FLAG_DEFLATED = 1;
+    private static final int DEFLATE_THRESHOLD_BYTES = 512;
+
+    private static final byte TAG_JSON = 0;
+    private static final byte TAG_USER = 1;
+    private static final byte TAG_AI = 2;
+    private static final byte TAG_SYSTEM = 3;
+    private static final byte TAG_TOOL_RESULT = 4;
+
+    private ChatMessageCodec() {
+    }
+
+    public static byte[] encode(List<ChatMessage> messages) {
+        Writer out = new Writer();
+        out.varint(messages.size());
+        for (ChatMessage message : messages) {
+            writeMessage(out, message);
+        }
+        byte[] payload = out.toByteArray();
+
+        byte flags = 0;
+        if (payload.length > DEFLATE_THRESHOLD_BYTES) {
+            byte[] deflated = deflate(payload);
+            if (deflated.length < payload.length) {
+                payload = deflated;
+                flags |= FLAG_DEFLATED;
+            }
+        }
+        byte[] encoded = new byte[payload.length + 2];
+        encoded[0] = FORMAT;
+        encoded[1] = flags;
+        System.arraycopy(payload, 0, encoded, 2, payload.length);
+        return encoded;
+    }
+
+    public static List<ChatMessage> decode(byte[] encoded) {
+        if (encoded.length < 2 || encoded[0] != FORMAT) {
+            throw new IllegalArgumentException("Unsupported session encoding");
+        }
+        byte[] payload = new byte[encoded.length - 2];
+        System.arraycopy(encoded, 2, payload, 0, payload.length);
+        if ((encoded[1] & FLAG_DEFLATED) != 0) {
+            payload = inflate(payload);
+        }
+
+        ByteBuffer in = ByteBuffer.wrap(payload);
+        int count = varint(in);
+        List<ChatMessage> messages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            messages.add(readMessage(in));
+        }
+        return messages;
+    }
+
+    private static void writeMessage(Writer out, ChatMessage message) {
+        if (message instanceof UserMessage user && user.hasSingleText()) {
+            out.tag(TAG_USER);
+            out.string(user.name());
+            out.string(user.singleText());
+        } else if (message instanceof AiMessage ai && ai.attributes().isEmpty()) {
+            out.tag(TAG_AI);
+            out.string(ai.text());
+            out.string(ai.thinking());
+            List<ToolExecutionRequest> requests = ai.hasToolExecutionRequests() ? ai.toolExecutionRequests() : List.of();
+            out.varint(requests.size());
+            for (ToolExecutionRequest request : requests) {
+                out.string(request.id());
+                out.string(request.name());
+                out.string(request.arguments());
+            }
+        } else if (message instanceof SystemMessage system) {
+            out.tag(TAG_SYSTEM);
+            out.string(system.text());
+        } else if (message instanceof ToolExecutionResultMessage result) {
+            out.tag(TAG_TOOL_RESULT);
+            out.string(result.id());
+            out.string(result.toolName());
+            out.string(result.text());
+        } else {
+            out.tag(TAG_JSON);
+            out.string(ChatMessageSerializer.messageToJson(message));
+        }
+    }
+
+    private static ChatMessage readMessage(ByteBuffer in) {
+        byte tag = in.get();
+        return switch (tag) {
+            case TAG_USER -> {
+                String name = string(in);
+                String text = string(in);
+                yield name == null ? UserMessage.from(text) : UserMessage.from(name, text);
+            }
+            case TAG_AI -> {
+                String text = string(in);
+                String thinking = string(in);
+                int requestCount = varint(in);
+                List<ToolExecutionRequest> requests = new ArrayList<>(requestCount);
+                for (int i = 0; i < requestCount; i++) {
+                    requests.add(ToolExecutionRequest.builder()
+                        .id(string(in))
+                        .name(string(in))
+                        .arguments(string(in))
+                        .build());
+                }
+                AiMessage.Builder builder = AiMessage.builder().text(text).thinking(thinking);
+                if (!requests.isEmpty()) {
+                    builder.toolExecutionRequests(requests);
+                }
+                yield builder.build();
+            }
+            case TAG_SYSTEM -> SystemMessage.from(string(in));
+            case TAG_TOOL_RESULT -> ToolExecutionResultMessage.from(string(in), string(in), string(in));
+            case TAG_JSON -> ChatMessageDeserializer.messageFromJson(string(in));
+            default -> throw new IllegalArgumentException("Unknown message tag " + tag);
+        };
+    }
+
+    private static int varint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    private static String string(ByteBuffer in) {
+        int length = varint(in);
+        if (length == 0) {
+            return null;
+        }
+        String value = new String(in.array(), in.position(), length - 1, StandardCharsets.UTF_8);
+        in.position(in.position() + length - 1);
+        return value;
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] data) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 3);
+            byte[] buffer = new byte[4096];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("Truncated session payload");
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Corrupt session payload", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static final class Writer extends ByteArrayOutputStream {
+
+        void tag(byte tag) {
+            write(tag);
+        }
+
+        void varint(int value) {
+            while ((value & ~0x7F) != 0) {
+                write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            write(value);
+        }
+
+        void string(String value) {
+            if (value == null) {
+                varint(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            varint(bytes.length + 1);
+            write(bytes, 0, bytes.length);
+        }
+    }
+}
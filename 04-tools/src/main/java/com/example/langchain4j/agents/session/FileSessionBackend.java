@@ -0,0 +1,204 @@
+package com.example.langchain4j.agents.session;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Embedded session backend keeping one file per session in a local directory.
+ * Each file holds an 8-byte version followed by the encoded messages and is
+ * replaced atomically on every write, so sessions survive restarts of a node.
+ * <p>
+ * The version check and the replace run under an OS file lock as well as an
+ * in-process lock, so replicas sharing the directory do not lose each other's
+ * writes. The shared volume must support file locks (NFSv4, SMB/Azure Files).
+ */
+public class FileSessionBackend implements SessionBackend {
+
+    private static final Logger log = LoggerFactory.getLogger(FileSessionBackend.class);
+    private static final String SUFFIX = ".session";
+    private static final String LOCK_PREFIX = "stripe-";
+    private static final int MAX_RAW_KEY_BYTES = 128;
+    private static final int LOCK_STRIPES = 64;
+
+    private final Path directory;
+    // Writes to one key are serialized so the version check and the replace are atomic.
+    // Locks rather than monitors, so a virtual thread waiting on file I/O releases its carrier.
+    // Each stripe also has a lock file, locked by whichever process writes to the stripe. The
+    // in-process lock comes first and is shared by all backends on the directory, since the JVM
+    // refuses overlapping file locks of its own. String.hashCode is specified, so every replica
+    // maps a key to the same stripe.
+    private static final Map<Path, ReentrantLock[]> LOCKS = new ConcurrentHashMap<>();
+    private final ReentrantLock[] locks;
+
+    public FileSessionBackend(Path directory) {
+        this.directory = directory;
+        this.locks = LOCKS.computeIfAbsent(directory.toAbsolutePath().normalize(), key -> {
+            ReentrantLock[] stripes = new ReentrantLock[LOCK_STRIPES];
+            for (int i = 0; i < LOCK_STRIPES; i++) {
+                stripes[i] = new ReentrantLock();
+            }
+            return stripes;
+        });
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create session directory " + directory, e);
+        }
+        log.info("Storing agent sessions in {}", directory);
+    }
+
+    @Override
+    public Optional<VersionedValue> get(String key, long knownVersion) {
+        Path file = fileFor(key);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(Long.BYTES);
+            readFully(channel, header);
+            long version = header.flip().getLong();
+            if (version == knownVersion) {
+                return Optional.of(VersionedValue.unchanged(version));
+            }
+            ByteBuffer value = ByteBuffer.allocate((int) (channel.size() - Long.BYTES));
+            readFully(channel, value);
+            return Optional.of(new VersionedValue(value.array(), version));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read session " + key, e);
+        }
+    }
+
+    @Override
+    public Optional<Long> put(String key, byte[] value, long expectedVersion) {
+        Path file = fileFor(key);
+        int stripe = stripeOf(key);
+        locks[stripe].lock();
+        try (FileChannel lockFile = lockFile(stripe)) {
+            // Released when the channel closes
+            lockFile.lock();
+            long currentVersion = currentVersion(file);
+            if (currentVersion != expectedVersion) {
+                return Optional.empty();
+            }
+            long version = currentVersion + 1;
+            try {
+                Path temp = Files.createTempFile(directory, "session-", ".tmp");
+                ByteBuffer contents = ByteBuffer.allocate(Long.BYTES + value.length).putLong(version).put(value);
+                Files.write(temp, contents.array());
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to write session " + key, e);
+            }
+            return Optional.of(version);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to lock session " + key, e);
+        } finally {
+            locks[stripe].unlock();
+        }
+    }
+
+    @Override
+    public void delete(String key) {
+        int stripe = stripeOf(key);
+        locks[stripe].lock();
+        try (FileChannel lockFile = lockFile(stripe)) {
+            lockFile.lock();
+            Files.deleteIfExists(fileFor(key));
+        } catch (IOException e) {
+            log.warn("Failed to delete session {}: {}", key, e.getMessage());
+        } finally {
+            locks[stripe].unlock();
+        }
+    }
+
+    @Override
+    public int deleteOlderThan(Duration ttl) {
+        Instant cutoff = Instant.now().minus(ttl);
+        int deleted = 0;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (file.toString().endsWith(SUFFIX)
+                        && Files.getLastModifiedTime(file).toInstant().isBefore(cutoff)) {
+                    Files.deleteIfExists(file);
+                    deleted++;
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to clean session directory: {}", e.getMessage());
+        }
+        return deleted;
+    }
+
+    @Override
+    public String name() {
+        return "file";
+    }
+
+    private long currentVersion(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(Long.BYTES);
+            readFully(channel, header);
+            return header.flip().getLong();
+        } catch (NoSuchFileException e) {
+            return 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read session version " + file, e);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Truncated session file");
+            }
+        }
+    }
+
+    private static int stripeOf(String key) {
+        return Math.floorMod(key.hashCode(), LOCK_STRIPES);
+    }
+
+    private FileChannel lockFile(int stripe) throws IOException {
+        // Lock files are never deleted: a replica may be waiting on one
+        return FileChannel.open(directory.resolve(LOCK_PREFIX + stripe + ".lock"),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    }
+
+    private Path fileFor(String key) {
+        // Session IDs come from clients, so never use them as raw file names
+        byte[] id = key.getBytes(StandardCharsets.UTF_8);
+        if (id.length > MAX_RAW_KEY_BYTES) {
+            id = sha256(id);
+        }
+        String encoded = Base64.getUrlEncoder().withoutPadding().encodeToString(id);
+        return directory.resolve(encoded + SUFFIX);
+    }
+
+    private static byte[] sha256(byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
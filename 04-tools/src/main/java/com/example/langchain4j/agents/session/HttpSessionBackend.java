@@ -0,0 +1,121 @@
+package com.example.langchain4j.agents.session;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.RequestEntity;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.DefaultResponseErrorHandler;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Session backend on a networked key-value service shared by all replicas.
+ * <p>
+ * Protocol, with versions carried as ETags:
+ * <ul>
+ *   <li>{@code GET /sessions/{id}} with optional {@code If-None-Match}: 200 with the value, 304 if unchanged, 404 if absent</li>
+ *   <li>{@code PUT /sessions/{id}} with {@code If-Match} (or {@code If-None-Match: *} to create): 200/201, or 412 on a version conflict</li>
+ *   <li>{@code DELETE /sessions/{id}}: 204</li>
+ * </ul>
+ * Expiry of idle sessions is left to the service.
+ */
+public class HttpSessionBackend implements SessionBackend {
+
+    private final String baseUrl;
+    private final RestTemplate restTemplate;
+
+    public HttpSessionBackend(String baseUrl, Duration timeout) {
+        this.baseUrl = baseUrl;
+        HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(timeout)
+            .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(timeout);
+        this.restTemplate = new RestTemplate(requestFactory);
+        // 304, 404 and 412 are answers, not failures
+        this.restTemplate.setErrorHandler(new DefaultResponseErrorHandler() {
+            @Override
+            protected boolean hasError(HttpStatusCode statusCode) {
+                return statusCode.is5xxServerError()
+                    || (statusCode.is4xxClientError()
+                        && statusCode.value() != HttpStatus.NOT_FOUND.value()
+                        && statusCode.value() != HttpStatus.PRECONDITION_FAILED.value());
+            }
+        });
+    }
+
+    @Override
+    public Optional<VersionedValue> get(String key, long knownVersion) {
+        RequestEntity.HeadersBuilder<?> request = RequestEntity.get(uriFor(key));
+        if (knownVersion > 0) {
+            request.header(HttpHeaders.IF_NONE_MATCH, etag(knownVersion));
+        }
+        ResponseEntity<byte[]> response = restTemplate.exchange(request.build(), byte[].class);
+        if (response.getStatusCode().value() == HttpStatus.NOT_FOUND.value()) {
+            return Optional.empty();
+        }
+        if (response.getStatusCode().value() == HttpStatus.NOT_MODIFIED.value()) {
+            return Optional.of(VersionedValue.unchanged(knownVersion));
+        }
+        byte[] body = response.getBody() != null ? response.getBody() : new byte[0];
+        return Optional.of(new VersionedValue(body, version(response.getHeaders())));
+    }
+
+    @Override
+    public Optional<Long> put(String key, byte[] value, long expectedVersion) {
+        RequestEntity.BodyBuilder request = RequestEntity.put(uriFor(key))
+            .contentType(MediaType.APPLICATION_OCTET_STREAM);
+        if (expectedVersion > 0) {
+            request.header(HttpHeaders.IF_MATCH, etag(expectedVersion));
+        } else {
+            request.header(HttpHeaders.IF_NONE_MATCH, "*");
+        }
+        ResponseEntity<Void> response = restTemplate.exchange(request.body(value), Void.class);
+        if (response.getStatusCode().value() == HttpStatus.PRECONDITION_FAILED.value()) {
+            return Optional.empty();
+        }
+        return Optional.of(version(response.getHeaders()));
+    }
+
+    @Override
+    public void delete(String key) {
+        restTemplate.exchange(RequestEntity.delete(uriFor(key)).build(), Void.class);
+    }
+
+    @Override
+    public String name() {
+        return "http";
+    }
+
+    private URI uriFor(String key) {
+        return UriComponentsBuilder.fromHttpUrl(baseUrl)
+            .path("/sessions/{id}")
+            .buildAndExpand(key)
+            .encode()
+            .toUri();
+    }
+
+    private static String etag(long version) {
+        return "\"" + version + "\"";
+    }
+
+    private static long version(HttpHeaders headers) {
+        String etag = headers.getETag();
+        if (etag == null) {
+            throw new IllegalStateException("Session service response has no ETag");
+        }
+        if (etag.startsWith("W/")) {
+            etag = etag.substring(2);
+        }
+        return Long.parseLong(etag.replace("\"", ""));
+    }
+}
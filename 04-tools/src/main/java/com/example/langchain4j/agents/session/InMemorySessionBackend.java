@@ -0,0 +1,62 @@
+package com.example.langchain4j.agents.session;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Session backend in the local heap. Sessions do not survive a restart and are
+ * not shared between replicas; useful for a single node and as a stand-in in tests.
+ */
+public class InMemorySessionBackend implements SessionBackend {
+
+    private record Stored(byte[] value, long version, long writtenNanos) {
+    }
+
+    private final Map<String, Stored> values = new ConcurrentHashMap<>();
+
+    @Override
+    public Optional<VersionedValue> get(String key, long knownVersion) {
+        Stored stored = values.get(key);
+        if (stored == null) {
+            return Optional.empty();
+        }
+        if (stored.version() == knownVersion) {
+            return Optional.of(VersionedValue.unchanged(knownVersion));
+        }
+        return Optional.of(new VersionedValue(stored.value(), stored.version()));
+    }
+
+    @Override
+    public Optional<Long> put(String key, byte[] value, long expectedVersion) {
+        long[] written = {0};
+        values.compute(key, (k, current) -> {
+            long currentVersion = current == null ? 0 : current.version();
+            if (currentVersion != expectedVersion) {
+                return current;
+            }
+            written[0] = currentVersion + 1;
+            return new Stored(value.clone(), written[0], System.nanoTime());
+        });
+        return written[0] == 0 ? Optional.empty() : Optional.of(written[0]);
+    }
+
+    @Override
+    public void delete(String key) {
+        values.remove(key);
+    }
+
+    @Override
+    public int deleteOlderThan(Duration ttl) {
+        long cutoff = System.nanoTime() - ttl.toNanos();
+        int before = values.size();
+        values.values().removeIf(stored -> stored.writtenNanos() - cutoff < 0);
+        return Math.max(0, before - values.size());
+    }
+
+    @Override
+    public String name() {
+        return "memory";
+    }
+}
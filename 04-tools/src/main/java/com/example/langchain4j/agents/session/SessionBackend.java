@@ -0,0 +1,48 @@
+package com.example.langchain4j.agents.session;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Versioned key-value storage behind the shared session store.
+ * Versions start at 1 and increase with every write; 0 means "no value".
+ */
+public interface SessionBackend {
+
+    /**
+     * Read a value.
+     *
+     * @param key the key
+     * @param knownVersion version the caller already holds, or 0
+     * @return empty if absent; {@link VersionedValue#isUnchanged() unchanged} if the
+     *         stored version equals {@code knownVersion}; otherwise the value
+     */
+    Optional<VersionedValue> get(String key, long knownVersion);
+
+    /**
+     * Write a value if the stored version still equals {@code expectedVersion}.
+     *
+     * @param key the key
+     * @param value the new value
+     * @param expectedVersion the version the write is based on, or 0 if the key must not exist
+     * @return the new version, or empty if another write got there first
+     */
+    Optional<Long> put(String key, byte[] value, long expectedVersion);
+
+    void delete(String key);
+
+    /**
+     * Delete values not written within the TTL, for backends that do not expire
+     * values themselves.
+     *
+     * @return number of values deleted
+     */
+    default int deleteOlderThan(Duration ttl) {
+        return 0;
+    }
+
+    /**
+     * @return short backend name for logs and metrics
+     */
+    String name();
+}
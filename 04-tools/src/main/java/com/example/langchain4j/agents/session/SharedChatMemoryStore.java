@@ -0,0 +1,201 @@
+package com.example.langchain4j.agents.session;
+
+import com.example.langchain4j.agents.exception.SessionConflictException;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link ChatMemoryStore} that keeps session messages in a {@link SessionBackend}
+ * shared by all replicas, so any replica can serve any turn of a session.
+ * <p>
+ * Messages are stored with {@link ChatMessageCodec}. A bounded near cache keeps
+ * recently used sessions decoded in the local heap: entries younger than the
+ * near-cache TTL are served without contacting the backend, older ones are
+ * revalidated by version and only re-read when another replica changed them.
+ * <p>
+ * Writes are conditional on the version they were based on. When another replica
+ * wrote first, the latest messages are re-read and this write's new messages are
+ * appended to them, so concurrent turns on different replicas are not lost.
+ */
+public class SharedChatMemoryStore implements ChatMemoryStore {
+
+    private static final Logger log = LoggerFactory.getLogger(SharedChatMemoryStore.class);
+    private static final int MAX_WRITE_ATTEMPTS = 5;
+
+    private record Cached(List<ChatMessage> messages, long version, long validatedNanos) {
+    }
+
+    private final SessionBackend backend;
+    private final int maxMessages;
+    private final int nearCacheMaxEntries;
+    private final long nearCacheTtlNanos;
+
+    // Access-ordered, so the least recently used session is dropped first
+    private final LinkedHashMap<String, Cached> nearCache = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final AtomicLong nearCacheHits = new AtomicLong();
+    private final AtomicLong revalidated = new AtomicLong();
+    private final AtomicLong fetched = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong conflicts = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+
+    public SharedChatMemoryStore(SessionBackend backend, int maxMessages,
+                                 int nearCacheMaxEntries, Duration nearCacheTtl) {
+        this.backend = backend;
+        this.maxMessages = maxMessages;
+        this.nearCacheMaxEntries = nearCacheMaxEntries;
+        this.nearCacheTtlNanos = nearCacheTtl.toNanos();
+        log.info("Shared session store: {} backend, near cache {} entries / {}",
+            backend.name(), nearCacheMaxEntries, nearCacheTtl);
+    }
+
+    @Override
+    public List<ChatMessage> getMessages(Object memoryId) {
+        return load(memoryId.toString(), true).messages();
+    }
+
+    @Override
+    public void updateMessages(Object memoryId, List<ChatMessage> messages) {
+        String key = memoryId.toString();
+        Cached base = load(key, true);
+        List<ChatMessage> toWrite = trim(messages);
+
+        for (int attempt = 1; attempt <= MAX_WRITE_ATTEMPTS; attempt++) {
+            byte[] encoded = ChatMessageCodec.encode(toWrite);
+            Optional<Long> version = backend.put(key, encoded, base.version());
+            if (version.isPresent()) {
+                writes.incrementAndGet();
+                bytesWritten.addAndGet(encoded.length);
+                cache(key, new Cached(List.copyOf(toWrite), version.get(), System.nanoTime()));
+                return;
+            }
+
+            // Another replica wrote first: apply this write's new messages on top of theirs
+            conflicts.incrementAndGet();
+            Cached latest = load(key, false);
+            List<ChatMessage> added = addedSince(base.messages(), messages);
+            List<ChatMessage> merged = new ArrayList<>(latest.messages());
+            merged.addAll(added);
+            toWrite = added == messages ? trim(messages) : trim(merged);
+            base = latest;
+        }
+        throw new SessionConflictException(key, MAX_WRITE_ATTEMPTS);
+    }
+
+    @Override
+    public void deleteMessages(Object memoryId) {
+        String key = memoryId.toString();
+        backend.delete(key);
+        synchronized (nearCache) {
+            nearCache.remove(key);
+        }
+    }
+
+    /**
+     * Delete sessions idle for longer than the TTL from backends that do not
+     * expire them on their own.
+     *
+     * @return number of sessions deleted
+     */
+    public int deleteOlderThan(Duration ttl) {
+        return backend.deleteOlderThan(ttl);
+    }
+
+    /**
+     * Get shared store metrics.
+     *
+     * @return near-cache hit counts, backend reads, writes and conflicts
+     */
+    public Map<String, Object> stats() {
+        int cached;
+        synchronized (nearCache) {
+            cached = nearCache.size();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("backend", backend.name());
+        stats.put("nearCacheEntries", cached);
+        stats.put("nearCacheHits", nearCacheHits.get());
+        stats.put("revalidated", revalidated.get());
+        stats.put("fetched", fetched.get());
+        stats.put("writes", writes.get());
+        stats.put("conflicts", conflicts.get());
+        stats.put("bytesWritten", bytesWritten.get());
+        return stats;
+    }
+
+    private Cached load(String key, boolean useNearCache) {
+        Cached cached;
+        synchronized (nearCache) {
+            cached = nearCache.get(key);
+        }
+        long now = System.nanoTime();
+        if (useNearCache && cached != null && now - cached.validatedNanos() < nearCacheTtlNanos) {
+            nearCacheHits.incrementAndGet();
+            return cached;
+        }
+
+        Optional<VersionedValue> stored = backend.get(key, cached != null ? cached.version() : 0);
+        Cached result;
+        if (stored.isEmpty()) {
+            result = new Cached(List.of(), 0, now);
+        } else if (stored.get().isUnchanged()) {
+            revalidated.incrementAndGet();
+            result = new Cached(cached.messages(), cached.version(), now);
+        } else {
+            fetched.incrementAndGet();
+            result = new Cached(List.copyOf(ChatMessageCodec.decode(stored.get().value())), stored.get().version(), now);
+        }
+        cache(key, result);
+        return result;
+    }
+
+    private void cache(String key, Cached entry) {
+        synchronized (nearCache) {
+            if (entry.version() == 0) {
+                nearCache.remove(key);
+                return;
+            }
+            nearCache.put(key, entry);
+            var eldest = nearCache.entrySet().iterator();
+            while (nearCache.size() > nearCacheMaxEntries && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+    }
+
+    /**
+     * Messages in {@code updated} that come after the last message of {@code base}.
+     * Returns {@code updated} itself when it does not extend {@code base}.
+     */
+    private static List<ChatMessage> addedSince(List<ChatMessage> base, List<ChatMessage> updated) {
+        if (base.isEmpty()) {
+            return updated;
+        }
+        ChatMessage last = base.get(base.size() - 1);
+        for (int i = updated.size() - 1; i >= 0; i--) {
+            if (updated.get(i).equals(last)) {
+                return updated.subList(i + 1, updated.size());
+            }
+        }
+        return updated;
+    }
+
+    private List<ChatMessage> trim(List<ChatMessage> messages) {
+        if (maxMessages <= 0 || messages.size() <= maxMessages) {
+            return messages;
+        }
+        return messages.subList(messages.size() - maxMessages, messages.size());
+    }
+}
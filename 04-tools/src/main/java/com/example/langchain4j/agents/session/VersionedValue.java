@@ -0,0 +1,16 @@
+package com.example.langchain4j.agents.session;
+
+/**
+ * A stored value and the version it was written as.
+ * A null value means the caller's known version is still current.
+ */
+public record VersionedValue(byte[] value, long version) {
+
+    static VersionedValue unchanged(long version) {
+        return new VersionedValue(null, version);
+    }
+
+    public boolean isUnchanged() {
+        return value == null;
+    }
+}
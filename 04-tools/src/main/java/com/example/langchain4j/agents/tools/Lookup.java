@@ -0,0 +1,14 @@
+package com.example.langchain4j.agents.tools;
+
+import java.util.function.Function;
+
+/**
+ * Result of a tool lookup and whether it was served without a fresh upstream
+ * call, either from the cache or by sharing another caller's in-flight call.
+ */
+public record Lookup<T>(T value, boolean cached) {
+
+    public <R> Lookup<R> map(Function<T, R> mapper) {
+        return new Lookup<>(mapper.apply(value), cached);
+    }
+}
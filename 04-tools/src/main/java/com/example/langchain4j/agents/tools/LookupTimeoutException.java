@@ -0,0 +1,12 @@
+package com.example.langchain4j.agents.tools;
+
+/**
+ * Thrown when a lookup waiting on another caller's in-flight upstream call
+ * runs out of time before that call completes.
+ */
+public class LookupTimeoutException extends RuntimeException {
+
+    public LookupTimeoutException(String message) {
+        super(message);
+    }
+}
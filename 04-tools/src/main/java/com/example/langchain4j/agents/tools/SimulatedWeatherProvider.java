@@ -0,0 +1,76 @@
+package com.example.langchain4j.agents.tools;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stand-in weather provider returning random conditions.
+ * The configurable latency mimics a remote weather API, which makes the effect
+ * of caching and coalescing visible in tests and load runs.
+ */
+@Component
+@ConditionalOnProperty(name = "tools.weather.provider", havingValue = "simulated", matchIfMissing = true)
+public class SimulatedWeatherProvider implements WeatherProvider {
+
+    private static final String[] CONDITIONS = {"sunny", "cloudy", "partly cloudy", "rainy"};
+
+    private final Duration latency;
+    private final AtomicLong requests = new AtomicLong();
+
+    public SimulatedWeatherProvider(@Value("${tools.weather.simulated.latency:0ms}") Duration latency) {
+        this.latency = latency;
+    }
+
+    @Override
+    public Conditions current(String location) {
+        simulateLatency();
+        return randomConditions();
+    }
+
+    @Override
+    public List<Conditions> forecast(String location, int days) {
+        simulateLatency();
+        List<Conditions> forecast = new ArrayList<>(days);
+        for (int i = 0; i < days; i++) {
+            forecast.add(randomConditions());
+        }
+        return forecast;
+    }
+
+    @Override
+    public String name() {
+        return "simulated";
+    }
+
+    /**
+     * @return number of upstream requests served
+     */
+    public long requestCount() {
+        return requests.get();
+    }
+
+    private void simulateLatency() {
+        requests.incrementAndGet();
+        if (latency.isZero()) {
+            return;
+        }
+        try {
+            Thread.sleep(latency.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while fetching weather", e);
+        }
+    }
+
+    private static Conditions randomConditions() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return new Conditions(15 + random.nextInt(20), CONDITIONS[random.nextInt(CONDITIONS.length)]);
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.langchain4j.agents.tools;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * TTL cache whose concurrent misses for one key share a single load.
+ * The first caller runs the loader; callers arriving while it runs wait for
+ * its result, up to their own time limit, instead of starting their own.
+ * Failed loads are not cached. When full, the least recently used entry is evicted.
+ */
+final class SingleFlightCache<T> {
+
+    private record Entry<T>(T value, long expiresAtNanos) {
+    }
+
+    private final long ttlNanos;
+    private final int maxEntries;
+    // Access-ordered, so the eldest entry is the least recently used; guarded by itself
+    private final LinkedHashMap<String, Entry<T>> entries;
+    private final Map<String, CompletableFuture<T>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong waitTimeouts = new AtomicLong();
+
+    SingleFlightCache(Duration ttl, int maxEntries) {
+        this.ttlNanos = ttl.toNanos();
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry<T>> eldest) {
+                return size() > SingleFlightCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Get the cached value, or load it.
+     *
+     * @param maxWait how long to wait for another caller's load of the same key
+     * @throws LookupTimeoutException if that load does not complete in time
+     */
+    Lookup<T> get(String key, Supplier<T> loader, Duration maxWait) {
+        T cached = fresh(key);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return new Lookup<>(cached, true);
+        }
+
+        CompletableFuture<T> load = new CompletableFuture<>();
+        CompletableFuture<T> running = inFlight.putIfAbsent(key, load);
+        if (running != null) {
+            coalesced.incrementAndGet();
+            return new Lookup<>(await(key, running, maxWait), true);
+        }
+
+        try {
+            // Another caller may have finished loading between the cache check and taking the flight
+            cached = fresh(key);
+            if (cached != null) {
+                hits.incrementAndGet();
+                load.complete(cached);
+                return new Lookup<>(cached, true);
+            }
+            loads.incrementAndGet();
+            T value = loader.get();
+            put(key, value);
+            load.complete(value);
+            return new Lookup<>(value, false);
+        } catch (RuntimeException e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, load);
+        }
+    }
+
+    Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (entries) {
+            stats.put("entries", entries.size());
+        }
+        stats.put("hits", hits.get());
+        stats.put("coalesced", coalesced.get());
+        stats.put("waitTimeouts", waitTimeouts.get());
+        stats.put("upstreamCalls", loads.get());
+        return stats;
+    }
+
+    private T fresh(String key) {
+        synchronized (entries) {
+            Entry<T> entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (System.nanoTime() - entry.expiresAtNanos() >= 0) {
+                entries.remove(key);
+                return null;
+            }
+            return entry.value();
+        }
+    }
+
+    private void put(String key, T value) {
+        synchronized (entries) {
+            entries.put(key, new Entry<>(value, System.nanoTime() + ttlNanos));
+        }
+    }
+
+    private T await(String key, CompletableFuture<T> load, Duration maxWait) {
+        try {
+            return load.get(maxWait.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            waitTimeouts.incrementAndGet();
+            throw new LookupTimeoutException(
+                "Timed out after " + maxWait.toMillis() + " ms waiting for the lookup of '" + key + "'");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LookupTimeoutException("Interrupted waiting for the lookup of '" + key + "'");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
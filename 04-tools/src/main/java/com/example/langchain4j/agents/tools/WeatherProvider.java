@@ -0,0 +1,36 @@
+package com.example.langchain4j.agents.tools;
+
+import java.util.List;
+
+/**
+ * Source of weather data behind {@link WeatherTool}.
+ * Implementations call the upstream weather API; caching and coalescing of
+ * concurrent lookups is done by {@link WeatherService}.
+ */
+public interface WeatherProvider {
+
+    /**
+     * Current conditions at a location.
+     */
+    Conditions current(String location);
+
+    /**
+     * Daily forecast for a location, starting tomorrow.
+     *
+     * @param days number of days, 1 to {@link #MAX_FORECAST_DAYS}
+     */
+    List<Conditions> forecast(String location, int days);
+
+    /**
+     * Provider name reported in tool statistics.
+     */
+    String name();
+
+    int MAX_FORECAST_DAYS = 7;
+
+    /**
+     * Temperature and sky conditions.
+     */
+    record Conditions(int temperatureCelsius, String condition) {
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.langchain4j.agents.tools;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Weather lookups through the configured {@link WeatherProvider}, with a short
+ * TTL cache and coalescing of concurrent lookups for the same location.
+ * Locations are normalized, so "Seattle" and " seattle " share one upstream call.
+ * Forecasts are always fetched for the maximum number of days and trimmed,
+ * so requests for different day counts share an entry too.
+ * A caller waiting on another caller's lookup gives up at its own deadline,
+ * or after {@code tools.weather.cache.max-wait} when it has none.
+ */
+@Service
+public class WeatherService {
+
+    private static final Logger log = LoggerFactory.getLogger(WeatherService.class);
+
+    private final WeatherProvider provider;
+    private final SingleFlightCache<WeatherProvider.Conditions> current;
+    private final SingleFlightCache<List<WeatherProvider.Conditions>> forecasts;
+    private final Duration maxWait;
+
+    public WeatherService(
+            WeatherProvider provider,
+            @Value("${tools.weather.cache.ttl:60s}") Duration ttl,
+            @Value("${tools.weather.cache.max-entries:10000}") int maxEntries,
+            @Value("${tools.weather.cache.max-wait:10s}") Duration maxWait) {
+        this.provider = provider;
+        this.maxWait = maxWait;
+        this.current = new SingleFlightCache<>(ttl, maxEntries);
+        this.forecasts = new SingleFlightCache<>(ttl, maxEntries);
+        log.info("Weather provider: {}, cache TTL {}", provider.name(), ttl);
+    }
+
+    /**
+     * Current conditions at a location.
+     */
+    public Lookup<WeatherProvider.Conditions> current(String location) {
+        return current(location, maxWait);
+    }
+
+    /**
+     * Current conditions at a location, waiting at most {@code deadline} for another caller's lookup.
+     */
+    public Lookup<WeatherProvider.Conditions> current(String location, Duration deadline) {
+        return current.get(normalize(location), () -> provider.current(location), min(deadline, maxWait));
+    }
+
+    /**
+     * Daily forecast for a location.
+     *
+     * @param days number of days, 1 to {@link WeatherProvider#MAX_FORECAST_DAYS}
+     */
+    public Lookup<List<WeatherProvider.Conditions>> forecast(String location, int days) {
+        return forecast(location, days, maxWait);
+    }
+
+    /**
+     * Daily forecast for a location, waiting at most {@code deadline} for another caller's lookup.
+     *
+     * @param days number of days, 1 to {@link WeatherProvider#MAX_FORECAST_DAYS}
+     */
+    public Lookup<List<WeatherProvider.Conditions>> forecast(String location, int days, Duration deadline) {
+        return forecasts.get(normalize(location),
+                () -> List.copyOf(provider.forecast(location, WeatherProvider.MAX_FORECAST_DAYS)),
+                min(deadline, maxWait))
+            .map(forecast -> forecast.subList(0, Math.min(days, forecast.size())));
+    }
+
+    /**
+     * Get weather lookup metrics.
+     *
+     * @return cache hits, coalesced lookups and upstream calls for current conditions and forecasts
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("provider", provider.name());
+        stats.put("current", current.stats());
+        stats.put("forecast", forecasts.stats());
+        return stats;
+    }
+
+    private static Duration min(Duration a, Duration b) {
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+
+    static String normalize(String location) {
+        return location.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+}
@@ -6,17 +6,26 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
-import java.util.Random;
+import java.time.Duration;
+import java.util.List;
 
 /**
  * Weather tool demonstrating function calling with LangChain4j.
- * In production, this would integrate with a real weather API.
+ * Data comes from the configured {@link WeatherProvider} through {@link WeatherService}.
  */
 @Component
 public class WeatherTool {
 
     private static final Logger log = LoggerFactory.getLogger(WeatherTool.class);
-    private final Random random = new Random();
+
+    // Budget for callers without a deadline; WeatherService caps it at tools.weather.cache.max-wait
+    private static final Duration NO_DEADLINE = Duration.ofMillis(Long.MAX_VALUE);
+
+    private final WeatherService weatherService;
+
+    public WeatherTool(WeatherService weatherService) {
+        this.weatherService = weatherService;
+    }
 
     /**
      * Get the current weather for a given location.
@@ -26,15 +35,31 @@ public class WeatherTool {
      */
     @Tool("Get the current weather for a given location")
     public String getCurrentWeather(@P("Location name") String location) {
+        return currentWeather(location).value();
+    }
+
+    /**
+     * Get the current weather for a given location, and whether it was served from the cache.
+     *
+     * @param location the location to get weather for
+     * @return weather description
+     */
+    public Lookup<String> currentWeather(String location) {
+        return currentWeather(location, NO_DEADLINE);
+    }
+
+    /**
+     * Get the current weather for a given location within the caller's deadline.
+     *
+     * @param location the location to get weather for
+     * @param deadline time left to wait for a lookup another caller already started
+     * @return weather description
+     */
+    public Lookup<String> currentWeather(String location, Duration deadline) {
         log.info("Getting weather for location: {}", location);
-        
-        // Simulate weather data (in production, call real API)
-        int temperature = 15 + random.nextInt(20); // 15-35 degrees
-        String[] conditions = {"sunny", "cloudy", "partly cloudy", "rainy"};
-        String condition = conditions[random.nextInt(conditions.length)];
-        
-        return String.format("The weather in %s is currently %d°C and %s.", 
-            location, temperature, condition);
+        return weatherService.current(location, deadline).map(conditions -> String.format(
+            "The weather in %s is currently %d°C and %s.",
+            location, conditions.temperatureCelsius(), conditions.condition()));
     }
 
     /**
@@ -48,21 +73,47 @@ public class WeatherTool {
     public String getWeatherForecast(
             @P("Location name") String location, 
             @P("Number of days (1-7)") int days) {
+        return weatherForecast(location, days).value();
+    }
+
+    /**
+     * Get the weather forecast for a location, and whether it was served from the cache.
+     *
+     * @param location the location to get forecast for
+     * @param days number of days to forecast
+     * @return weather forecast
+     */
+    public Lookup<String> weatherForecast(String location, int days) {
+        return weatherForecast(location, days, NO_DEADLINE);
+    }
+
+    /**
+     * Get the weather forecast for a location within the caller's deadline.
+     *
+     * @param location the location to get forecast for
+     * @param days number of days to forecast
+     * @param deadline time left to wait for a lookup another caller already started
+     * @return weather forecast
+     */
+    public Lookup<String> weatherForecast(String location, int days, Duration deadline) {
         log.info("Getting {}-day forecast for location: {}", days, location);
-        
+
         // Validate input
-        if (days < 1 || days > 7) {
-            return "Forecast is available for 1 to 7 days only.";
+        if (days < 1 || days > WeatherProvider.MAX_FORECAST_DAYS) {
+            return new Lookup<>("Forecast is available for 1 to 7 days only.", false);
         }
-        
+
+        return weatherService.forecast(location, days, deadline).map(daily -> format(location, daily));
+    }
+
+    private static String format(String location, List<WeatherProvider.Conditions> daily) {
         StringBuilder forecast = new StringBuilder();
-        forecast.append(String.format("%d-day forecast for %s:\n", days, location));
+        forecast.append(String.format("%d-day forecast for %s:\n", daily.size(), location));
         
-        for (int i = 1; i <= days; i++) {
-            int temp = 15 + random.nextInt(20);
-            String[] conditions = {"sunny", "cloudy", "rainy", "partly cloudy"};
-            String condition = conditions[random.nextInt(conditions.length)];
-            forecast.append(String.format("Day %d: %d°C, %s\n", i, temp, condition));
+        for (int i = 0; i < daily.size(); i++) {
+            WeatherProvider.Conditions conditions = daily.get(i);
+            forecast.append(String.format("Day %d: %d°C, %s\n",
+                i + 1, conditions.temperatureCelsius(), conditions.condition()));
         }
         
         return forecast.toString();
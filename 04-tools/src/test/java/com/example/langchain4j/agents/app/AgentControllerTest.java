@@ -0,0 +1,226 @@
+package com.example.langchain4j.agents.app;
+
+import com.example.langchain4j.agents.config.ExecutorConfig;
+import com.example.langchain4j.agents.model.dto.AgentRequest;
+import com.example.langchain4j.agents.model.dto.AgentResponse;
+import com.example.langchain4j.agents.model.dto.ToolExecutionInfo;
+import com.example.langchain4j.agents.service.AgentEventListener;
+import com.example.langchain4j.agents.service.AgentService;
+import com.example.langchain4j.agents.service.HealthMonitor;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Unit tests for AgentController.
+ */
+@WebMvcTest(controllers = AgentController.class, properties = "agent.stream.heartbeat=50ms")
+@Import(ExecutorConfig.class)
+class AgentControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private AgentService agentService;
+
+    @MockBean
+    private HealthMonitor healthMonitor;
+
+    @Test
+    void testExecuteRunsAsynchronously() throws Exception {
+        // Given
+        when(agentService.executeTask(any(AgentRequest.class)))
+            .thenReturn(new AgentResponse("It is 68°F.", "session-1", List.of(), "completed"));
+
+        // When
+        MvcResult started = mockMvc.perform(post("/api/agent/execute")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"message\":\"Is 20C warm?\",\"enableTools\":true}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Then
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.answer").value("It is 68°F."));
+    }
+
+    @Test
+    void testRequestTimeoutCancelsTask() throws Exception {
+        // Given - a task blocked in a model call until it is interrupted
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        when(agentService.executeTask(any(AgentRequest.class))).thenAnswer(invocation -> {
+            running.countDown();
+            try {
+                Thread.sleep(Duration.ofMinutes(1));
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return new AgentResponse("The task was cancelled.", "session-1", List.of(), "cancelled");
+        });
+        MvcResult started = mockMvc.perform(post("/api/agent/chat")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"message\":\"Is 20C warm?\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        // When - the container times out the async request
+        MockAsyncContext context = (MockAsyncContext) started.getRequest().getAsyncContext();
+        for (AsyncListener listener : context.getListeners()) {
+            listener.onTimeout(new AsyncEvent(context));
+        }
+
+        // Then
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS), "The running task should be interrupted");
+    }
+
+    @Test
+    void testExecuteStreamEmitsProgressEvents() throws Exception {
+        // Given - a task that makes one tool call
+        when(agentService.executeTask(any(AgentRequest.class), any(AgentEventListener.class)))
+            .thenAnswer(invocation -> {
+                AgentEventListener listener = invocation.getArgument(1);
+                listener.onStep(0);
+                listener.onToken(0, "TOOL_CALL: celsiusToFahrenheit(celsius=20)");
+                listener.onToolCall(1, "celsiusToFahrenheit", "celsius=20");
+                ToolExecutionInfo execution =
+                    new ToolExecutionInfo("celsiusToFahrenheit", List.of("celsius=20"), "20.0°C = 68.0°F");
+                listener.onToolResult(1, execution);
+                listener.onStep(1);
+                listener.onToken(1, "It is 68°F.");
+                return new AgentResponse("It is 68°F.", "session-1", List.of(execution), "completed");
+            });
+
+        // When
+        MvcResult started = mockMvc.perform(post("/api/agent/execute/stream")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"message\":\"Convert 20C to F\",\"enableTools\":true}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(StandardCharsets.UTF_8);
+
+        // Then - events arrive in execution order and end with the answer
+        int step = body.indexOf("event:step");
+        int toolCall = body.indexOf("event:tool_call");
+        int toolResult = body.indexOf("event:tool_result");
+        int answer = body.indexOf("event:answer");
+        assertTrue(step >= 0 && step < toolCall, body);
+        assertTrue(toolCall < toolResult, body);
+        assertTrue(toolResult < answer, body);
+        assertTrue(body.contains("\"text\":\"It is 68°F.\""), body);
+        assertTrue(body.contains("\"status\":\"completed\""), body);
+    }
+
+    @Test
+    void testExecuteStreamWritesHeartbeatsWhileTaskRuns() throws Exception {
+        // Given - a task that is silent for several heartbeat intervals
+        when(agentService.executeTask(any(AgentRequest.class), any(AgentEventListener.class)))
+            .thenAnswer(invocation -> {
+                Thread.sleep(300);
+                return new AgentResponse("It is 68°F.", "session-1", List.of(), "completed");
+            });
+
+        // When
+        MvcResult started = mockMvc.perform(post("/api/agent/execute/stream")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"message\":\"Is 20C warm?\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andReturn()
+                .getResponse()
+                .getContentAsString(StandardCharsets.UTF_8);
+
+        // Then - heartbeats kept the connection checked before the answer
+        assertTrue(body.indexOf(":heartbeat") >= 0, body);
+        assertTrue(body.indexOf(":heartbeat") < body.indexOf("event:answer"), body);
+    }
+
+    @Test
+    void testExecuteStreamWithTooLongMessage() throws Exception {
+        // Given
+        String requestJson = "{\"message\":\"" + "x".repeat(1001) + "\"}";
+
+        // When & Then
+        mockMvc.perform(post("/api/agent/execute/stream")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(requestJson))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testExecuteStreamWithoutMessage() throws Exception {
+        // Given
+        String requestJson = "{\"sessionId\":\"s-1\"}";
+
+        // When & Then
+        mockMvc.perform(post("/api/agent/execute/stream")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(requestJson))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(agentService);
+    }
+
+    @Test
+    void testExecuteWithTooLongTaskId() throws Exception {
+        // Given
+        String requestJson = "{\"message\":\"hi\",\"taskId\":\"" + "x".repeat(129) + "\"}";
+
+        // When
+        MvcResult started = mockMvc.perform(post("/api/agent/execute")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(requestJson))
+                .andReturn();
+
+        // Then
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(agentService);
+    }
+
+    @Test
+    void testReadinessFailsWhileLivenessHolds() throws Exception {
+        // Given - the tool endpoints, which gate readiness, are down but the process is fine
+        when(healthMonitor.isLive()).thenReturn(true);
+        when(healthMonitor.isReady()).thenReturn(false);
+
+        // When & Then
+        mockMvc.perform(get("/api/agent/health/liveness"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("UP"));
+        mockMvc.perform(get("/api/agent/health/readiness"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.status").value("DOWN"));
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.langchain4j.agents.app;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A client that closes its connection while a JSON agent request runs
+ * stops the model call, over a real HTTP connection.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "agent.stream.heartbeat=100ms",
+    "agent.checkpoint.enabled=false",
+    "diagnostics.jfr.enabled=false",
+    // Only used by the unused Azure beans, which never connect
+    "azure.openai.endpoint=https://stub.invalid",
+    "azure.openai.api-key=stub",
+    "azure.openai.deployment=stub"
+})
+class ClientDisconnectTest {
+
+    private static final CountDownLatch MODEL_CALLED = new CountDownLatch(1);
+    private static final CountDownLatch MODEL_INTERRUPTED = new CountDownLatch(1);
+    private static final AtomicInteger MODEL_CALLS = new AtomicInteger();
+
+    @LocalServerPort
+    private int port;
+
+    @TestConfiguration
+    static class SlowModelConfig {
+
+        /**
+         * A model that takes a minute per answer unless its call is interrupted.
+         */
+        @Bean
+        @Primary
+        ChatModel slowChatModel() {
+            return new ChatModel() {
+                @Override
+                public ChatResponse doChat(ChatRequest request) {
+                    MODEL_CALLS.incrementAndGet();
+                    MODEL_CALLED.countDown();
+                    try {
+                        Thread.sleep(Duration.ofMinutes(1));
+                    } catch (InterruptedException e) {
+                        MODEL_INTERRUPTED.countDown();
+                        Thread.currentThread().interrupt();
+                    }
+                    return ChatResponse.builder().aiMessage(AiMessage.from("Too late.")).build();
+                }
+            };
+        }
+    }
+
+    @Test
+    void testClosedConnectionStopsModelCall() throws Exception {
+        // Given - a chat request whose model call is in flight
+        byte[] body = "{\"message\":\"Tell me about the weather today\"}".getBytes(StandardCharsets.UTF_8);
+        try (Socket socket = new Socket("localhost", port)) {
+            OutputStream out = socket.getOutputStream();
+            out.write(("POST /api/agent/chat HTTP/1.1\r\n"
+                + "Host: localhost\r\n"
+                + "Content-Type: application/json\r\n"
+                + "Content-Length: " + body.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.write(body);
+            out.flush();
+            assertTrue(MODEL_CALLED.await(10, TimeUnit.SECONDS), "The model was never called");
+
+            // When - the client goes away without reading the answer
+            socket.setSoLinger(true, 0);
+        }
+
+        // Then - a keep-alive write fails and the model call is interrupted long before it would finish
+        assertTrue(MODEL_INTERRUPTED.await(10, TimeUnit.SECONDS), "The model call should be interrupted");
+        Thread.sleep(500);
+        assertEquals(1, MODEL_CALLS.get());
+    }
+}
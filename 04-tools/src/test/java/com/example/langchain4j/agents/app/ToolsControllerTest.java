@@ -0,0 +1,107 @@
+package com.example.langchain4j.agents.app;
+
+import com.example.langchain4j.agents.config.ExecutorConfig;
+import com.example.langchain4j.agents.tools.SimulatedWeatherProvider;
+import com.example.langchain4j.agents.tools.TemperatureTool;
+import com.example.langchain4j.agents.tools.WeatherService;
+import com.example.langchain4j.agents.tools.WeatherTool;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Unit tests for the batch endpoints of ToolsController.
+ */
+@WebMvcTest(ToolsController.class)
+@Import({WeatherTool.class, WeatherService.class, SimulatedWeatherProvider.class, TemperatureTool.class, ExecutorConfig.class})
+class ToolsControllerTest {
+
+    private static final String BATCH_JSON = """
+        [
+          {"tool": "celsiusToFahrenheit", "arguments": {"celsius": 100}},
+          {"tool": "kelvinToCelsius", "arguments": {"kelvin": -5}},
+          {"tool": "unknownTool", "arguments": {}},
+          {"tool": "getCurrentWeather", "arguments": {"location": "Paris"}}
+        ]
+        """;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void testBatchReturnsResultsPositionally() throws Exception {
+        // When & Then - failing items are reported in place without failing the batch
+        mockMvc.perform(post("/api/tools/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(BATCH_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(4))
+                .andExpect(jsonPath("$.results[0].index").value(0))
+                .andExpect(jsonPath("$.results[0].status").value("success"))
+                .andExpect(jsonPath("$.results[0].result.result").value("100.0°C = 212.0°F"))
+                .andExpect(jsonPath("$.results[1].status").value("error"))
+                .andExpect(jsonPath("$.results[1].error").value("Temperature cannot be below absolute zero (0 K)"))
+                .andExpect(jsonPath("$.results[2].status").value("error"))
+                .andExpect(jsonPath("$.results[2].error").value("Unknown tool: unknownTool"))
+                .andExpect(jsonPath("$.results[3].tool").value("getCurrentWeather"))
+                .andExpect(jsonPath("$.results[3].result.location").value("Paris"))
+                .andExpect(jsonPath("$.results[3].result.cached").value(false));
+    }
+
+    @Test
+    void testBatchWithMissingArgument() throws Exception {
+        // Given
+        String requestJson = "[{\"tool\": \"celsiusToKelvin\", \"arguments\": {}}]";
+
+        // When & Then
+        mockMvc.perform(post("/api/tools/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(requestJson))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results[0].status").value("error"))
+                .andExpect(jsonPath("$.results[0].error").value("Missing or non-numeric argument 'celsius'"));
+    }
+
+    @Test
+    void testEmptyBatch() throws Exception {
+        // When & Then
+        mockMvc.perform(post("/api/tools/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").exists());
+    }
+
+    @Test
+    void testBatchStreamsNdjson() throws Exception {
+        // When
+        MvcResult started = mockMvc.perform(post("/api/tools/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept("application/x-ndjson")
+                .content(BATCH_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        // Then - one line per invocation, each tagged with its index
+        String[] lines = body.trim().split("\n");
+        assertEquals(4, lines.length);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(body.contains("\"index\":" + i), "Missing result for invocation " + i);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.langchain4j.agents.diagnostics;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for FlightRecording.
+ */
+class FlightRecordingTest {
+
+    @Test
+    void testDumpContainsAgentEvents() throws Exception {
+        // Given
+        FlightRecording flightRecording =
+            new FlightRecording(true, Duration.ofMinutes(5), DataSize.ofMegabytes(20));
+        assertTrue(flightRecording.isRunning());
+
+        ToolInvocationEvent event = new ToolInvocationEvent();
+        event.begin();
+        event.toolName = "celsiusToFahrenheit";
+        event.argumentNames = "celsius";
+        event.succeeded = true;
+        event.commit();
+
+        // When
+        Path dump = flightRecording.dump(Duration.ofMinutes(1));
+
+        // Then
+        try {
+            List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+            assertTrue(events.stream().anyMatch(recorded ->
+                    recorded.getEventType().getName().equals("com.example.agents.ToolInvocation")
+                        && "celsiusToFahrenheit".equals(recorded.getString("toolName"))),
+                "Dump should contain the tool invocation event");
+        } finally {
+            Files.deleteIfExists(dump);
+            flightRecording.destroy();
+        }
+    }
+
+    @Test
+    void testDumpLeavesOutEnvironmentAndSystemProperties() throws Exception {
+        // Given - another recording, as started with -XX:StartFlightRecording, captures them
+        FlightRecording flightRecording =
+            new FlightRecording(true, Duration.ofMinutes(5), DataSize.ofMegabytes(20));
+        Recording other = new Recording();
+        FlightRecording.EXCLUDED_EVENTS.forEach(other::enable);
+        other.start();
+
+        // When
+        Path dump = flightRecording.dump(Duration.ofMinutes(1));
+
+        // Then
+        try {
+            List<String> leaked = RecordingFile.readAllEvents(dump).stream()
+                .map(recorded -> recorded.getEventType().getName())
+                .filter(name -> name.startsWith("jdk.Initial") || FlightRecording.EXCLUDED_EVENTS.contains(name))
+                .distinct()
+                .toList();
+            assertEquals(List.of(), leaked);
+        } finally {
+            Files.deleteIfExists(dump);
+            other.close();
+            flightRecording.destroy();
+        }
+    }
+
+    @Test
+    void testDisabledRecordingCannotBeDumped() {
+        // Given
+        FlightRecording flightRecording =
+            new FlightRecording(false, Duration.ofMinutes(5), DataSize.ofMegabytes(20));
+
+        // When & Then
+        assertFalse(flightRecording.isRunning());
+        assertThrows(IllegalStateException.class, () -> flightRecording.dump(Duration.ofMinutes(1)));
+    }
+}
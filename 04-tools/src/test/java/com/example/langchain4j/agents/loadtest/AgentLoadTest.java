@@ -0,0 +1,277 @@
+package com.example.langchain4j.agents.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.openai.OpenAiChatModel;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Load-test harness for AgentController.
+ * <p>
+ * Starts the application against {@link ScriptedChatServer}, drives concurrent
+ * sessions through {@code /api/agent/execute} and {@code /api/agent/chat}, and
+ * prints throughput, latency percentiles, tool calls per task and heap/thread usage.
+ * It is tagged {@code benchmark}, so it only runs with the {@code benchmark} profile;
+ * scale it up with system properties, for example:
+ * <pre>
+ * mvn -pl 04-tools test -Pbenchmark -Dloadtest.sessions=64 -Dloadtest.tasks=20 -Dloadtest.latency-ms=300
+ * </pre>
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.DEFINED_PORT)
+class AgentLoadTest {
+
+    private static final int SESSIONS = Integer.getInteger("loadtest.sessions", 8);
+    private static final int TASKS_PER_SESSION = Integer.getInteger("loadtest.tasks", 6);
+    private static final Duration MODEL_LATENCY = Duration.ofMillis(Long.getLong("loadtest.latency-ms", 20));
+    private static final Duration MODEL_JITTER = Duration.ofMillis(Long.getLong("loadtest.jitter-ms", 10));
+
+    private static final List<String> MESSAGES = List.of(
+        "What is the weather in Seattle?",
+        "Please convert 20 degrees Celsius",
+        "What is the forecast for London?",
+        "Hello there"
+    );
+
+    private static final ScriptedChatServer STUB = startStub();
+    private static final int PORT = freePort();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient = HttpClient.newBuilder()
+        .connectTimeout(Duration.ofSeconds(5))
+        .build();
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("server.port", () -> PORT);
+        registry.add("azure.ai.agent.tools.base-url", () -> "http://localhost:" + PORT);
+        // Only used by the unused Azure beans, which never connect
+        registry.add("azure.openai.endpoint", () -> "https://stub.invalid");
+        registry.add("azure.openai.api-key", () -> "stub");
+        registry.add("azure.openai.deployment", () -> "stub");
+        registry.add("diagnostics.jfr.enabled", () -> false);
+    }
+
+    @TestConfiguration
+    static class StubModelConfig {
+
+        @Bean
+        @Primary
+        ChatModel stubChatModel() {
+            return OpenAiChatModel.builder()
+                .baseUrl(STUB.baseUrl())
+                .apiKey("stub")
+                .modelName("stub")
+                .timeout(Duration.ofSeconds(30))
+                .build();
+        }
+    }
+
+    @AfterAll
+    static void stopStub() {
+        STUB.close();
+    }
+
+    @Test
+    void testConcurrentSessions() throws Exception {
+        // Given
+        Metrics execute = new Metrics();
+        Metrics chat = new Metrics();
+        ResourceSampler sampler = new ResourceSampler();
+        ExecutorService clients = Executors.newFixedThreadPool(SESSIONS);
+
+        // When
+        sampler.start();
+        long start = System.nanoTime();
+        List<Future<?>> sessions = new ArrayList<>();
+        for (int s = 0; s < SESSIONS; s++) {
+            int session = s;
+            sessions.add(clients.submit(() -> runSession(session, execute, chat)));
+        }
+        for (Future<?> session : sessions) {
+            session.get(5, TimeUnit.MINUTES);
+        }
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+        sampler.stop();
+        clients.shutdown();
+
+        // Then
+        report(elapsed, execute, chat, sampler);
+        assertEquals(0, execute.failures.get() + chat.failures.get(), "All tasks should complete");
+        assertEquals(SESSIONS * TASKS_PER_SESSION, execute.count() + chat.count());
+        assertTrue(execute.toolCalls.get() + chat.toolCalls.get() > 0, "Scripted trajectories should call tools");
+    }
+
+    /**
+     * One simulated user: alternates one-shot tasks with turns in a chat session.
+     */
+    private void runSession(int session, Metrics execute, Metrics chat) {
+        String sessionId = null;
+        for (int task = 0; task < TASKS_PER_SESSION; task++) {
+            String message = MESSAGES.get((session + task) % MESSAGES.size());
+            if (task % 2 == 0) {
+                JsonNode response = post("/api/agent/execute",
+                    Map.of("message", message, "enableTools", true), execute);
+                if (response != null) {
+                    execute.toolCalls.addAndGet(response.path("toolExecutions").size());
+                }
+            } else {
+                Map<String, String> body = sessionId == null
+                    ? Map.of("message", message)
+                    : Map.of("message", message, "sessionId", sessionId);
+                JsonNode response = post("/api/agent/chat", body, chat);
+                if (response != null) {
+                    sessionId = response.path("sessionId").asText();
+                    chat.toolCalls.addAndGet(response.path("toolsUsed").asInt());
+                }
+            }
+        }
+    }
+
+    private JsonNode post(String path, Map<String, ?> body, Metrics metrics) {
+        long start = System.nanoTime();
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + PORT + path))
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(60))
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)))
+                .build();
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            metrics.latenciesNanos.add(System.nanoTime() - start);
+
+            JsonNode json = objectMapper.readTree(response.body());
+            if (response.statusCode() != 200 || !"completed".equals(json.path("status").asText())) {
+                metrics.failures.incrementAndGet();
+                return null;
+            }
+            return json;
+        } catch (IOException e) {
+            metrics.failures.incrementAndGet();
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            metrics.failures.incrementAndGet();
+            return null;
+        }
+    }
+
+    private static void report(Duration elapsed, Metrics execute, Metrics chat, ResourceSampler sampler) {
+        int tasks = execute.count() + chat.count();
+        System.out.printf("%n=== Agent load test: %d sessions x %d tasks, model latency %d ms (+%d ms jitter) ===%n",
+            SESSIONS, TASKS_PER_SESSION, MODEL_LATENCY.toMillis(), MODEL_JITTER.toMillis());
+        System.out.printf("Elapsed %d ms, throughput %.1f tasks/s, %d model calls%n",
+            elapsed.toMillis(), tasks * 1000.0 / Math.max(1, elapsed.toMillis()), STUB.requestCount());
+        execute.print("/api/agent/execute");
+        chat.print("/api/agent/chat");
+        System.out.printf("Heap used: peak %d MB, after run %d MB%n",
+            sampler.peakHeapBytes.get() / (1024 * 1024), sampler.memory.getHeapMemoryUsage().getUsed() / (1024 * 1024));
+        System.out.printf("Live threads: peak %d%n%n", sampler.peakThreads.get());
+    }
+
+    private static ScriptedChatServer startStub() {
+        try {
+            return new ScriptedChatServer(ScriptedChatServer.DEFAULT_TRAJECTORIES, MODEL_LATENCY, MODEL_JITTER);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int freePort() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Latencies, failures and tool calls for one endpoint.
+     */
+    private static final class Metrics {
+        private final Queue<Long> latenciesNanos = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger failures = new AtomicInteger();
+        private final AtomicLong toolCalls = new AtomicLong();
+
+        int count() {
+            return latenciesNanos.size();
+        }
+
+        void print(String endpoint) {
+            List<Long> sorted = new ArrayList<>(latenciesNanos);
+            Collections.sort(sorted);
+            System.out.printf("%-20s %4d tasks, %d failed, p50 %4d ms, p95 %4d ms, p99 %4d ms, %.2f tool calls/task%n",
+                endpoint, sorted.size(), failures.get(),
+                percentileMs(sorted, 50), percentileMs(sorted, 95), percentileMs(sorted, 99),
+                sorted.isEmpty() ? 0.0 : (double) toolCalls.get() / sorted.size());
+        }
+
+        private static long percentileMs(List<Long> sorted, int percentile) {
+            if (sorted.isEmpty()) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1;
+            return TimeUnit.NANOSECONDS.toMillis(sorted.get(Math.max(0, index)));
+        }
+    }
+
+    /**
+     * Samples heap usage and live thread count while the load runs.
+     */
+    private static final class ResourceSampler {
+        private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        private final AtomicLong peakHeapBytes = new AtomicLong();
+        private final AtomicInteger peakThreads = new AtomicInteger();
+        private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+        void start() {
+            scheduler.scheduleAtFixedRate(this::sample, 0, 50, TimeUnit.MILLISECONDS);
+        }
+
+        void stop() {
+            scheduler.shutdownNow();
+            sample();
+        }
+
+        private void sample() {
+            peakHeapBytes.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+            peakThreads.accumulateAndGet(threads.getThreadCount(), Math::max);
+        }
+    }
+}
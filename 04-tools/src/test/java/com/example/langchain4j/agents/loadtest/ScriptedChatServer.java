@@ -0,0 +1,177 @@
+package com.example.langchain4j.agents.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local OpenAI-compatible chat completions server that replays scripted
+ * tool-calling trajectories instead of calling a real model.
+ * <p>
+ * The agent sends its whole conversation as one prompt, so the server finds the
+ * current task from the last system prompt, picks the trajectory whose trigger
+ * appears in the question, and answers with the step given by the number of tool
+ * results already in the prompt.
+ */
+class ScriptedChatServer implements AutoCloseable {
+
+    private static final String TASK_MARKER = "You are a helpful AI assistant";
+    private static final String QUESTION_MARKER = "\n\nUser: ";
+    private static final String TOOL_RESULTS_MARKER = "Tool results:";
+
+    /**
+     * A scripted conversation: the model responses for each step of a task
+     * whose question contains the trigger.
+     */
+    record Trajectory(String trigger, List<String> responses) {
+    }
+
+    static final List<Trajectory> DEFAULT_TRAJECTORIES = List.of(
+        new Trajectory("weather", List.of(
+            "TOOL_CALL: getCurrentWeather(location=Seattle)",
+            "It is currently mild in Seattle.")),
+        new Trajectory("forecast", List.of(
+            "TOOL_CALL: getWeatherForecast(location=London, days=3)",
+            "London will see mixed weather over the next three days.")),
+        new Trajectory("convert", List.of(
+            "TOOL_CALL: celsiusToFahrenheit(celsius=20)",
+            "TOOL_CALL: celsiusToKelvin(celsius=20)",
+            "20°C is 68°F or 293.15K.")),
+        new Trajectory("", List.of(
+            "Hello! I can help with weather and temperature conversions."))
+    );
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<Trajectory> trajectories;
+    private final Duration latency;
+    private final Duration jitter;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final AtomicLong requests = new AtomicLong();
+
+    ScriptedChatServer(List<Trajectory> trajectories, Duration latency, Duration jitter) throws IOException {
+        this.trajectories = trajectories;
+        this.latency = latency;
+        this.jitter = jitter;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/v1/chat/completions", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * @return base URL to configure as the OpenAI endpoint
+     */
+    String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + "/v1";
+    }
+
+    long requestCount() {
+        return requests.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.incrementAndGet();
+            JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+            String prompt = lastUserMessage(request);
+            String answer = respond(prompt);
+            simulateLatency();
+
+            byte[] body = objectMapper.writeValueAsBytes(Map.of(
+                "id", "chatcmpl-" + requests.get(),
+                "object", "chat.completion",
+                "created", System.currentTimeMillis() / 1000,
+                "model", request.path("model").asText("stub"),
+                "choices", List.of(Map.of(
+                    "index", 0,
+                    "message", Map.of("role", "assistant", "content", answer),
+                    "finish_reason", "stop")),
+                "usage", Map.of(
+                    "prompt_tokens", prompt.length() / 4,
+                    "completion_tokens", answer.length() / 4,
+                    "total_tokens", (prompt.length() + answer.length()) / 4)));
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    private String respond(String prompt) {
+        int taskStart = prompt.lastIndexOf(TASK_MARKER);
+        String task = taskStart >= 0 ? prompt.substring(taskStart) : prompt;
+        String question = question(task).toLowerCase(Locale.ROOT);
+        int step = countOccurrences(task, TOOL_RESULTS_MARKER);
+
+        for (Trajectory trajectory : trajectories) {
+            if (question.contains(trajectory.trigger())) {
+                List<String> responses = trajectory.responses();
+                return responses.get(Math.min(step, responses.size() - 1));
+            }
+        }
+        return "I have no script for that.";
+    }
+
+    private static String question(String task) {
+        // The agent appends the user's message to its system prompt
+        int start = task.indexOf(QUESTION_MARKER);
+        if (start < 0) {
+            return task;
+        }
+        start += QUESTION_MARKER.length();
+        int end = task.indexOf('\n', start);
+        return end < 0 ? task.substring(start) : task.substring(start, end);
+    }
+
+    private String lastUserMessage(JsonNode request) {
+        String content = "";
+        for (JsonNode message : request.path("messages")) {
+            if ("user".equals(message.path("role").asText())) {
+                content = message.path("content").asText();
+            }
+        }
+        return content;
+    }
+
+    private void simulateLatency() {
+        long delayMs = latency.toMillis();
+        if (!jitter.isZero()) {
+            delayMs += ThreadLocalRandom.current().nextLong(jitter.toMillis() + 1);
+        }
+        try {
+            Thread.sleep(delayMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static int countOccurrences(String text, String marker) {
+        int count = 0;
+        for (int i = text.indexOf(marker); i >= 0; i = text.indexOf(marker, i + marker.length())) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,450 @@
+package com.example.langchain4j.agents.service;
+
+import com.example.langchain4j.agents.config.CancellableStreamingChatModel;
+import com.example.langchain4j.agents.exception.SessionBusyException;
+import com.example.langchain4j.agents.model.dto.AgentRequest;
+import com.example.langchain4j.agents.model.dto.AgentResponse;
+import com.example.langchain4j.agents.tools.TemperatureTool;
+import com.sun.net.httpserver.HttpServer;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.Disposable;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for AgentService.
+ */
+class AgentServiceTest {
+
+    @TempDir
+    Path spillDirectory;
+
+    @TempDir
+    Path checkpointDirectory;
+
+    private final ExecutorService callExecutor = Executors.newCachedThreadPool();
+    private final CancellableStreamingChatModel streamingChatModel = mock(CancellableStreamingChatModel.class);
+    private AgentSessionStore sessionStore;
+    private HttpServer toolServer;
+
+    @AfterEach
+    void tearDown() {
+        callExecutor.shutdownNow();
+        if (toolServer != null) {
+            toolServer.stop(0);
+        }
+    }
+
+    @Test
+    void testSlowModelCallIsCancelledAtDeadline() throws Exception {
+        // Given - a model call that blocks until it is interrupted
+        CountDownLatch interrupted = new CountDownLatch(1);
+        ChatModel chatModel = mock(ChatModel.class);
+        when(chatModel.chat(any(ChatRequest.class))).thenAnswer(invocation -> {
+            try {
+                Thread.sleep(Duration.ofMinutes(1));
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return ChatResponse.builder().aiMessage(AiMessage.from("too late")).build();
+        });
+        AgentService service = newService(chatModel);
+
+        // When
+        long start = System.nanoTime();
+        AgentResponse response = service.executeTask(new AgentRequest("Is 20C warm enough for a picnic?", null, true, 200L));
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // Then
+        assertEquals("timeout", response.status());
+        assertTrue(elapsedMs < 5_000, "Task should stop near its deadline, took " + elapsedMs + " ms");
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS), "The in-flight model call should be cancelled");
+    }
+
+    @Test
+    void testAbandonedStreamIsDisposedAtDeadline() throws Exception {
+        // Given - a stream that sends one token, then stalls until it is disposed
+        CountDownLatch disposed = new CountDownLatch(1);
+        AtomicReference<StreamingChatResponseHandler> handler = new AtomicReference<>();
+        when(streamingChatModel.start(any(ChatRequest.class), any(StreamingChatResponseHandler.class)))
+            .thenAnswer(invocation -> {
+                handler.set(invocation.getArgument(1));
+                handler.get().onPartialResponse("Let me check");
+                return (Disposable) disposed::countDown;
+            });
+        List<String> tokens = new CopyOnWriteArrayList<>();
+        AgentEventListener listener = new AgentEventListener() {
+            @Override
+            public boolean streamsTokens() {
+                return true;
+            }
+
+            @Override
+            public void onToken(int iteration, String token) {
+                tokens.add(token);
+            }
+        };
+        AgentService service = newService(mock(ChatModel.class));
+
+        // When
+        AgentResponse response = service.executeTask(
+            new AgentRequest("Is 20C warm enough for a picnic?", null, true, 200L), listener);
+        handler.get().onPartialResponse(" the weather");
+
+        // Then - the stream is closed and a token arriving afterwards is dropped
+        assertEquals("timeout", response.status());
+        assertTrue(disposed.await(5, TimeUnit.SECONDS), "The abandoned stream should be disposed");
+        assertEquals(List.of("Let me check"), tokens);
+    }
+
+    @Test
+    void testRequestWithinDeadlineCompletes() {
+        // Given
+        ChatModel chatModel = mock(ChatModel.class);
+        when(chatModel.chat(any(ChatRequest.class)))
+            .thenReturn(ChatResponse.builder().aiMessage(AiMessage.from("68°F")).build());
+        AgentService service = newService(chatModel);
+
+        // When
+        AgentResponse response = service.executeTask(new AgentRequest("Is 20C warm enough for a picnic?", null, true, 5_000L));
+
+        // Then
+        assertEquals("completed", response.status());
+        assertEquals("68°F", response.answer());
+    }
+
+    @Test
+    void testPlainConversionSkipsTheModel() {
+        // Given
+        ChatModel chatModel = mock(ChatModel.class);
+        AgentService service = newService(chatModel);
+
+        // When
+        AgentResponse response = service.executeTask(new AgentRequest("Convert 300 K to Fahrenheit", null, true));
+
+        // Then
+        assertEquals("completed", response.status());
+        assertEquals("300.00 K = 80.3°F", response.answer());
+        assertEquals("kelvinToFahrenheit", response.toolExecutions().get(0).toolName());
+        verify(chatModel, never()).chat(any(ChatRequest.class));
+        assertEquals(2, sessionStore.getOrCreate(response.sessionId()).messages().size());
+    }
+
+    @Test
+    void testConcurrentTurnsKeepTranscriptsOrdered() throws Exception {
+        // Given - a model that answers each question after a short random delay
+        ChatModel chatModel = mock(ChatModel.class);
+        when(chatModel.chat(any(ChatRequest.class))).thenAnswer(invocation -> {
+            Thread.sleep(ThreadLocalRandom.current().nextInt(1, 4));
+            ChatRequest request = invocation.getArgument(0);
+            return answer("ack:" + lastQuestion(request));
+        });
+        AgentService service = newService(chatModel, "queue", 1000);
+        int sessions = 8;
+        int turnsPerSession = 12;
+        ExecutorService clients = Executors.newFixedThreadPool(32);
+
+        // When - all turns of all sessions are submitted at once
+        List<Future<AgentResponse>> turns = new ArrayList<>();
+        for (int turn = 0; turn < turnsPerSession; turn++) {
+            for (int session = 0; session < sessions; session++) {
+                String sessionId = "session-" + session;
+                String message = "turn " + turn + " of " + sessionId;
+                turns.add(clients.submit(() ->
+                    service.executeTask(new AgentRequest(message, sessionId, true))));
+            }
+        }
+        for (Future<AgentResponse> turn : turns) {
+            assertEquals("completed", turn.get(30, TimeUnit.SECONDS).status());
+        }
+        clients.shutdown();
+
+        // Then - every transcript alternates question and matching answer
+        for (int session = 0; session < sessions; session++) {
+            List<ChatMessage> messages = sessionStore.getOrCreate("session-" + session).messages();
+            assertEquals(2 * turnsPerSession, messages.size());
+            for (int i = 0; i < messages.size(); i += 2) {
+                UserMessage question = assertInstanceOf(UserMessage.class, messages.get(i));
+                AiMessage answer = assertInstanceOf(AiMessage.class, messages.get(i + 1));
+                assertEquals("ack:" + lastQuestion(question.singleText()), answer.text());
+            }
+        }
+        assertEquals(0, service.getSessionStats().get("activeTurnSessions"));
+    }
+
+    @Test
+    void testSessionsDoNotWaitForEachOther() throws Exception {
+        // Given - every model call waits until all sessions are inside a model call,
+        // which can only happen if no session waits on another
+        int sessions = 16;
+        CountDownLatch allInside = new CountDownLatch(sessions);
+        ChatModel chatModel = mock(ChatModel.class);
+        when(chatModel.chat(any(ChatRequest.class))).thenAnswer(invocation -> {
+            allInside.countDown();
+            assertTrue(allInside.await(10, TimeUnit.SECONDS), "Sessions were serialized");
+            return answer("done");
+        });
+        AgentService service = newService(chatModel, "queue", 20);
+        ExecutorService clients = Executors.newFixedThreadPool(sessions);
+
+        // When
+        List<Future<AgentResponse>> turns = new ArrayList<>();
+        for (int session = 0; session < sessions; session++) {
+            String sessionId = "session-" + session;
+            turns.add(clients.submit(() -> service.executeTask(new AgentRequest("hello", sessionId, true))));
+        }
+
+        // Then
+        for (Future<AgentResponse> turn : turns) {
+            assertEquals("completed", turn.get(30, TimeUnit.SECONDS).status());
+        }
+        assertEquals(0L, service.getSessionStats().get("contendedTurns"));
+        clients.shutdown();
+    }
+
+    @Test
+    void testConcurrentTurnIsRejectedInRejectMode() throws Exception {
+        // Given - a turn that is still waiting for the model
+        CountDownLatch inside = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ChatModel chatModel = mock(ChatModel.class);
+        when(chatModel.chat(any(ChatRequest.class))).thenAnswer(invocation -> {
+            inside.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return answer("first");
+        });
+        AgentService service = newService(chatModel, "reject", 20);
+        Future<AgentResponse> first = callExecutor.submit(() ->
+            service.executeTask(new AgentRequest("first", "busy-session", true)));
+        assertTrue(inside.await(10, TimeUnit.SECONDS));
+
+        // When & Then
+        assertThrows(SessionBusyException.class, () ->
+            service.executeTask(new AgentRequest("second", "busy-session", true)));
+        release.countDown();
+        assertEquals("completed", first.get(10, TimeUnit.SECONDS).status());
+        assertEquals(1L, service.getSessionStats().get("busyRejections"));
+    }
+
+    @Test
+    void testTurnsBeyondTheSessionQueueAreRejected() throws Exception {
+        // Given - one turn waiting for the model and one more queued behind it
+        CountDownLatch inside = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ChatModel chatModel = mock(ChatModel.class);
+        when(chatModel.chat(any(ChatRequest.class))).thenAnswer(invocation -> {
+            inside.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return answer(lastQuestion(invocation.<ChatRequest>getArgument(0)));
+        });
+        AgentService service = newService(chatModel, "queue", 20, "http://localhost:0", 1);
+        Future<AgentResponse> first = callExecutor.submit(() ->
+            service.executeTask(new AgentRequest("first", "busy-session", true)));
+        assertTrue(inside.await(10, TimeUnit.SECONDS));
+        Future<AgentResponse> second = callExecutor.submit(() ->
+            service.executeTask(new AgentRequest("second", "busy-session", true)));
+        Thread.sleep(100);
+
+        // When & Then - the queue holds one turn, so a third is turned away without waiting
+        assertThrows(SessionBusyException.class, () ->
+            service.executeTask(new AgentRequest("third", "busy-session", true)));
+        release.countDown();
+        assertEquals("completed", first.get(10, TimeUnit.SECONDS).status());
+        assertEquals("completed", second.get(10, TimeUnit.SECONDS).status());
+        assertEquals(1L, service.getSessionStats().get("queueFullRejections"));
+    }
+
+    private static ChatResponse answer(String text) {
+        return ChatResponse.builder().aiMessage(AiMessage.from(text)).build();
+    }
+
+    private static String lastQuestion(ChatRequest request) {
+        return lastQuestion(((UserMessage) request.messages().get(0)).singleText());
+    }
+
+    private static String lastQuestion(String prompt) {
+        String marker = "\n\nUser: ";
+        int start = prompt.lastIndexOf(marker) + marker.length();
+        int end = prompt.indexOf('\n', start);
+        return end < 0 ? prompt.substring(start) : prompt.substring(start, end);
+    }
+
+    @Test
+    void testRetriedTaskResumesFromCheckpoint() throws Exception {
+        // Given - two tool steps succeed, then the model fails before the final answer
+        AtomicInteger toolHits = new AtomicInteger();
+        String toolsBaseUrl = startToolServer(toolHits);
+        ChatModel chatModel = mock(ChatModel.class);
+        when(chatModel.chat(any(ChatRequest.class)))
+            .thenReturn(ChatResponse.builder().aiMessage(AiMessage.from("TOOL_CALL: getCurrentWeather(location=Paris)")).build())
+            .thenReturn(ChatResponse.builder().aiMessage(AiMessage.from("TOOL_CALL: getCurrentWeather(location=Rome)")).build())
+            .thenThrow(new RuntimeException("connection reset"))
+            .thenReturn(ChatResponse.builder().aiMessage(AiMessage.from("Both are sunny")).build());
+        AgentService service = newService(chatModel, "queue", 20, toolsBaseUrl);
+        AgentRequest request = new AgentRequest("Compare the weather in Paris and Rome", null, true, null, "task-1");
+        AgentResponse failed = service.executeTask(request);
+        assertEquals("failed", failed.status());
+
+        // When
+        AgentResponse retried = service.executeTask(request);
+
+        // Then - only the failed model call is repeated
+        assertEquals("completed", retried.status());
+        assertEquals("Both are sunny", retried.answer());
+        assertEquals(failed.sessionId(), retried.sessionId());
+        assertEquals(2, retried.toolExecutions().size());
+        verify(chatModel, times(4)).chat(any(ChatRequest.class));
+        assertEquals(2, toolHits.get(), "Recorded tool results should be replayed, not called again");
+        assertEquals(4L, service.getCheckpointStats().get("stepsReplayed"));
+        assertEquals(0, service.getCheckpointStats().get("unfinishedTasks"));
+    }
+
+    @Test
+    void testTaskResumesFromCheckpointAfterItsDeadline() throws Exception {
+        // Given - two tool steps succeed, then the model is still thinking when the deadline passes
+        AtomicInteger toolHits = new AtomicInteger();
+        String toolsBaseUrl = startToolServer(toolHits);
+        ChatModel chatModel = mock(ChatModel.class);
+        when(chatModel.chat(any(ChatRequest.class)))
+            .thenReturn(ChatResponse.builder().aiMessage(AiMessage.from("TOOL_CALL: getCurrentWeather(location=Paris)")).build())
+            .thenReturn(ChatResponse.builder().aiMessage(AiMessage.from("TOOL_CALL: getCurrentWeather(location=Rome)")).build())
+            .thenAnswer(invocation -> {
+                try {
+                    Thread.sleep(Duration.ofMinutes(1));
+                } catch (InterruptedException e) {
+                    // Cancelled at the deadline
+                }
+                return ChatResponse.builder().aiMessage(AiMessage.from("too late")).build();
+            })
+            .thenReturn(ChatResponse.builder().aiMessage(AiMessage.from("Both are sunny")).build());
+        AgentService service = newService(chatModel, "queue", 20, toolsBaseUrl);
+        AgentResponse partial = service.executeTask(
+            new AgentRequest("Compare the weather in Paris and Rome", null, true, 1_000L, "task-2"));
+        assertEquals("partial", partial.status());
+        assertEquals(1, service.getCheckpointStats().get("unfinishedTasks"));
+
+        // When
+        AgentResponse retried = service.executeTask(
+            new AgentRequest("Compare the weather in Paris and Rome", null, true, null, "task-2"));
+
+        // Then - the recorded steps are replayed and only the timed-out model call is repeated
+        assertEquals("completed", retried.status());
+        assertEquals("Both are sunny", retried.answer());
+        assertEquals(partial.sessionId(), retried.sessionId());
+        verify(chatModel, times(4)).chat(any(ChatRequest.class));
+        assertEquals(2, toolHits.get(), "Recorded tool results should be replayed, not called again");
+        assertEquals(0, service.getCheckpointStats().get("unfinishedTasks"));
+    }
+
+    @Test
+    void testCancelledTaskMakesNoFurtherCalls() throws Exception {
+        // Given - the first model call asks for a tool but is still in flight when the task is cancelled
+        AtomicInteger toolHits = new AtomicInteger();
+        String toolsBaseUrl = startToolServer(toolHits);
+        CountDownLatch inModelCall = new CountDownLatch(1);
+        ChatModel chatModel = mock(ChatModel.class);
+        when(chatModel.chat(any(ChatRequest.class))).thenAnswer(invocation -> {
+            inModelCall.countDown();
+            try {
+                Thread.sleep(Duration.ofSeconds(2));
+            } catch (InterruptedException e) {
+                // Cancelled; a well-behaved client still returns
+            }
+            return ChatResponse.builder().aiMessage(AiMessage.from("TOOL_CALL: getCurrentWeather(location=Paris)")).build();
+        });
+        AgentService service = newService(chatModel, "queue", 20, toolsBaseUrl);
+        ExecutorService requests = Executors.newSingleThreadExecutor();
+        Future<AgentResponse> running = requests.submit(() ->
+            service.executeTask(new AgentRequest("What is the weather in Paris?", null, true)));
+        assertTrue(inModelCall.await(5, TimeUnit.SECONDS));
+
+        // When - the client disconnects
+        running.cancel(true);
+        requests.shutdown();
+        assertTrue(requests.awaitTermination(5, TimeUnit.SECONDS));
+        Thread.sleep(2_500);
+
+        // Then - the pending tool call and follow-up model call never happen
+        verify(chatModel, times(1)).chat(any(ChatRequest.class));
+        assertEquals(0, toolHits.get());
+    }
+
+    private String startToolServer(AtomicInteger hits) throws Exception {
+        toolServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        toolServer.createContext("/api/tools", exchange -> {
+            hits.incrementAndGet();
+            byte[] body = "{\"description\":\"Sunny, 22°C\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        toolServer.start();
+        return "http://localhost:" + toolServer.getAddress().getPort();
+    }
+
+    private AgentService newService(ChatModel chatModel) {
+        return newService(chatModel, "queue", 20);
+    }
+
+    private AgentService newService(ChatModel chatModel, String concurrentTurns, int maxMessages) {
+        return newService(chatModel, concurrentTurns, maxMessages, "http://localhost:0");
+    }
+
+    private AgentService newService(ChatModel chatModel, String concurrentTurns, int maxMessages, String toolsBaseUrl) {
+        return newService(chatModel, concurrentTurns, maxMessages, toolsBaseUrl, 20);
+    }
+
+    private AgentService newService(ChatModel chatModel, String concurrentTurns, int maxMessages, String toolsBaseUrl,
+                                    int maxQueuedTurns) {
+        SessionLocks sessionLocks = new SessionLocks(maxQueuedTurns);
+        sessionStore = new AgentSessionStore(100, maxMessages, Duration.ofMinutes(30), false, spillDirectory, sessionLocks);
+        return new AgentService(
+            chatModel,
+            streamingChatModel,
+            sessionStore,
+            sessionLocks,
+            new TrajectoryCache(true, 100, 2, 0.8),
+            new ConversionFastPath(new TemperatureTool(), true),
+            new StepCheckpointLog(true, checkpointDirectory, Duration.ofHours(1)),
+            callExecutor,
+            toolsBaseUrl,
+            Duration.ofSeconds(60),
+            Duration.ofMinutes(5),
+            Duration.ofMillis(50),
+            concurrentTurns,
+            Duration.ofSeconds(30)
+        );
+    }
+}
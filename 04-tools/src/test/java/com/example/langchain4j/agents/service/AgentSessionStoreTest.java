@@ -0,0 +1,110 @@
+package com.example.langchain4j.agents.service;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.ChatMemory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AgentSessionStore.
+ */
+class AgentSessionStoreTest {
+
+    @TempDir
+    Path spillDirectory;
+
+    @Test
+    void testLeastRecentlyUsedSessionIsEvicted() {
+        // Given
+        AgentSessionStore store = new AgentSessionStore(2, 20, Duration.ofMinutes(30), false, spillDirectory);
+        store.getOrCreate("a").add(UserMessage.from("hello a"));
+        store.getOrCreate("b").add(UserMessage.from("hello b"));
+
+        // When - touch "a" so that "b" becomes the eviction candidate
+        store.getOrCreate("a");
+        store.getOrCreate("c");
+
+        // Then
+        Map<String, Object> stats = store.stats();
+        assertEquals(2, stats.get("liveSessions"));
+        assertEquals(1L, stats.get("evicted"));
+        assertEquals(1, store.getOrCreate("a").messages().size());
+        assertTrue(store.getOrCreate("b").messages().isEmpty(), "Evicted session should start empty without spill");
+    }
+
+    @Test
+    void testSessionWithRunningTurnIsNotEvicted() throws Exception {
+        // Given - a turn of "a" holds its session lock
+        SessionLocks sessionLocks = new SessionLocks(4);
+        AgentSessionStore store = new AgentSessionStore(1, 20, Duration.ofMinutes(30), false, spillDirectory, sessionLocks);
+        store.getOrCreate("a").add(UserMessage.from("hello a"));
+
+        // When - a new session would normally evict "a"
+        try (SessionLocks.Lease lease = sessionLocks.acquire("a", Duration.ZERO)) {
+            assertNotNull(lease);
+            store.getOrCreate("b");
+
+            // Then - "a" stays live until its turn ends
+            assertEquals(2, store.stats().get("liveSessions"));
+            assertEquals(0L, store.stats().get("evicted"));
+        }
+        store.getOrCreate("c");
+        assertEquals(1, store.stats().get("liveSessions"));
+    }
+
+    @Test
+    void testEvictedSessionIsReloadedFromSpill() {
+        // Given
+        AgentSessionStore store = new AgentSessionStore(1, 20, Duration.ofMinutes(30), true, spillDirectory);
+        ChatMemory memory = store.getOrCreate("a");
+        memory.add(UserMessage.from("What is 20°C in Fahrenheit?"));
+        memory.add(AiMessage.from("68°F"));
+
+        // When - creating "b" evicts "a" to disk
+        store.getOrCreate("b");
+        assertEquals(1L, store.stats().get("spilledOnDisk"));
+        ChatMemory reloaded = store.getOrCreate("a");
+
+        // Then
+        assertEquals(2, reloaded.messages().size());
+        assertEquals("68°F", ((AiMessage) reloaded.messages().get(1)).text());
+        assertEquals(1L, store.stats().get("reloaded"));
+    }
+
+    @Test
+    void testIdleSessionsExpire() throws Exception {
+        // Given
+        AgentSessionStore store = new AgentSessionStore(10, 20, Duration.ofMillis(1), false, spillDirectory);
+        store.create();
+        store.create();
+        Thread.sleep(5);
+
+        // When
+        store.evictIdleSessions();
+
+        // Then
+        Map<String, Object> stats = store.stats();
+        assertEquals(0, stats.get("liveSessions"));
+        assertEquals(2L, stats.get("expired"));
+    }
+
+    @Test
+    void testRemoveDeletesSession() {
+        // Given
+        AgentSessionStore store = new AgentSessionStore(10, 20, Duration.ofMinutes(30), true, spillDirectory);
+        store.getOrCreate("a").add(UserMessage.from("hello"));
+
+        // When
+        store.remove("a");
+
+        // Then
+        assertTrue(store.getOrCreate("a").messages().isEmpty());
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.langchain4j.agents.service;
+
+import com.example.langchain4j.agents.tools.TemperatureTool;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ConversionFastPath.
+ */
+class ConversionFastPathTest {
+
+    private final ConversionFastPath fastPath = new ConversionFastPath(new TemperatureTool(), true);
+
+    @Test
+    void testRecognisesPlainConversions() {
+        // When
+        Optional<ConversionFastPath.Answer> kelvin = fastPath.tryAnswer("convert 300 K to Fahrenheit");
+        Optional<ConversionFastPath.Answer> symbol = fastPath.tryAnswer("What is 20°C in F?");
+        Optional<ConversionFastPath.Answer> words = fastPath.tryAnswer("Please convert -40 degrees Fahrenheit to celsius");
+
+        // Then
+        assertEquals(new ConversionFastPath.Answer("kelvinToFahrenheit", "kelvin=300", "300.00 K = 80.3°F"),
+            kelvin.orElseThrow());
+        assertEquals("20.0°C = 68.0°F", symbol.orElseThrow().result());
+        assertEquals("fahrenheitToCelsius", words.orElseThrow().toolName());
+        assertEquals("-40.0°F = -40.0°C", words.orElseThrow().result());
+    }
+
+    @Test
+    void testAmbiguousRequestsFallBack() {
+        // When & Then - anything beyond a single, complete conversion goes to the agent loop
+        assertTrue(fastPath.tryAnswer("Please convert 20 degrees Celsius").isEmpty(), "missing target unit");
+        assertTrue(fastPath.tryAnswer("convert 20 degrees to Fahrenheit").isEmpty(), "missing source unit");
+        assertTrue(fastPath.tryAnswer("convert 20 C to C").isEmpty(), "same unit");
+        assertTrue(fastPath.tryAnswer("convert 20C to F and tell me if it is warm").isEmpty(), "extra request");
+        assertTrue(fastPath.tryAnswer("What is the weather in Seattle?").isEmpty(), "not a conversion");
+        assertTrue(fastPath.tryAnswer("convert -5 K to Celsius").isEmpty(), "rejected by the tool");
+    }
+
+    @Test
+    void testHitRateIsReported() {
+        // Given
+        fastPath.tryAnswer("convert 100 C to F");
+        fastPath.tryAnswer("What is the forecast for London?");
+
+        // Then
+        assertEquals(2L, fastPath.stats().get("checked"));
+        assertEquals(1L, fastPath.stats().get("answered"));
+        assertEquals(0.5, fastPath.stats().get("hitRate"));
+    }
+
+    @Test
+    void testDisabledFastPathAnswersNothing() {
+        // Given
+        ConversionFastPath disabled = new ConversionFastPath(new TemperatureTool(), false);
+
+        // Then
+        assertTrue(disabled.tryAnswer("convert 100 C to F").isEmpty());
+    }
+}
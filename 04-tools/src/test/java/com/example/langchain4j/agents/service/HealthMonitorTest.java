@@ -0,0 +1,118 @@
+package com.example.langchain4j.agents.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for HealthMonitor.
+ */
+class HealthMonitorTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testNotReadyBeforeFirstProbe() {
+        // Given
+        HealthMonitor monitor = newMonitor(Map.of("model", () -> "OK"));
+
+        // Then
+        assertFalse(monitor.isReady());
+        assertTrue(monitor.isLive());
+        assertEquals(HealthMonitor.Status.UNKNOWN, monitor.dependencies().get("model").status());
+    }
+
+    @Test
+    void testDependencyGoesDownAfterConsecutiveFailures() {
+        // Given
+        AtomicBoolean failing = new AtomicBoolean(false);
+        Map<String, Callable<?>> probes = new LinkedHashMap<>();
+        probes.put("model", () -> {
+            if (failing.get()) {
+                throw new IllegalStateException("model unavailable");
+            }
+            return "OK";
+        });
+        HealthMonitor monitor = newMonitor(probes);
+        monitor.probe();
+        assertTrue(monitor.isReady());
+
+        // When
+        failing.set(true);
+        monitor.probe();
+        HealthMonitor.Status afterOneFailure = monitor.dependencies().get("model").status();
+        monitor.probe();
+        monitor.probe();
+
+        // Then
+        HealthMonitor.DependencyHealth model = monitor.dependencies().get("model");
+        assertEquals(HealthMonitor.Status.DEGRADED, afterOneFailure);
+        assertEquals(HealthMonitor.Status.DOWN, model.status());
+        assertEquals(3, model.consecutiveFailures());
+        assertEquals("model unavailable", model.lastError());
+        assertTrue(model.errorRate() > 0.5);
+        assertFalse(monitor.isReady());
+        assertTrue(monitor.isLive(), "Dependency failures must not fail liveness");
+    }
+
+    @Test
+    void testReportOnlyDependencyDoesNotAffectReadiness() {
+        // Given - the shared model is down, the tool endpoints are fine
+        Map<String, Callable<?>> probes = new LinkedHashMap<>();
+        probes.put("model", () -> {
+            throw new IllegalStateException("model unavailable");
+        });
+        probes.put("tools", () -> "OK");
+        HealthMonitor monitor = newMonitor(probes, Set.of("model"));
+
+        // When
+        monitor.probe();
+        monitor.probe();
+        monitor.probe();
+
+        // Then - reported, but the replica stays in rotation
+        assertEquals(HealthMonitor.Status.DOWN, monitor.dependencies().get("model").status());
+        assertTrue(monitor.isReady());
+    }
+
+    @Test
+    void testSlowProbeTimesOut() {
+        // Given
+        HealthMonitor monitor = newMonitor(Map.of("tools", () -> {
+            Thread.sleep(5_000);
+            return "OK";
+        }));
+
+        // When
+        long start = System.nanoTime();
+        monitor.probe();
+
+        // Then
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(2).toNanos());
+        assertTrue(monitor.dependencies().get("tools").lastError().contains("timed out"));
+    }
+
+    private HealthMonitor newMonitor(Map<String, Callable<?>> probes) {
+        return newMonitor(probes, Set.of());
+    }
+
+    private HealthMonitor newMonitor(Map<String, Callable<?>> probes, Set<String> reportOnly) {
+        return new HealthMonitor(probes, reportOnly, executor, Duration.ofMillis(200), 0.3, 3, 0.2,
+            Duration.ofSeconds(5), Duration.ofMinutes(3));
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.langchain4j.agents.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for StepCheckpointLog.
+ */
+class StepCheckpointLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testStepsSurviveRestart() throws Exception {
+        // Given
+        StepCheckpointLog checkpoints = new StepCheckpointLog(true, directory, Duration.ofHours(1));
+        checkpoints.begin("task-1", "session-1");
+        checkpoints.append("task-1", new StepCheckpointLog.Step(0, StepCheckpointLog.Step.MODEL, 42L, "TOOL_CALL: x(a=1)"));
+        checkpoints.append("task-1", new StepCheckpointLog.Step(1, StepCheckpointLog.Step.TOOL, 7L, "Sunny"));
+        checkpoints.destroy();
+
+        // When
+        StepCheckpointLog reopened = new StepCheckpointLog(true, directory, Duration.ofHours(1));
+        List<StepCheckpointLog.Step> steps = reopened.begin("task-1", "session-1");
+
+        // Then
+        assertEquals("session-1", reopened.sessionOf("task-1"));
+        assertEquals(2, steps.size());
+        assertEquals(42L, steps.get(0).key());
+        assertEquals("Sunny", steps.get(1).output());
+    }
+
+    @Test
+    void testTornTailIsDropped() throws Exception {
+        // Given - a crash in the middle of writing the last record
+        StepCheckpointLog checkpoints = new StepCheckpointLog(true, directory, Duration.ofHours(1));
+        checkpoints.begin("task-1", "session-1");
+        checkpoints.append("task-1", new StepCheckpointLog.Step(0, StepCheckpointLog.Step.MODEL, 1L, "first"));
+        checkpoints.destroy();
+        Files.write(directory.resolve("steps.log"), new byte[] {0, 0, 0, 40, 2, 0}, StandardOpenOption.APPEND);
+
+        // When
+        StepCheckpointLog reopened = new StepCheckpointLog(true, directory, Duration.ofHours(1));
+        reopened.append("task-1", new StepCheckpointLog.Step(1, StepCheckpointLog.Step.TOOL, 2L, "second"));
+        reopened.destroy();
+        List<StepCheckpointLog.Step> steps = new StepCheckpointLog(true, directory, Duration.ofHours(1))
+            .begin("task-1", "session-1");
+
+        // Then
+        assertEquals(List.of("first", "second"), steps.stream().map(StepCheckpointLog.Step::output).toList());
+    }
+
+    @Test
+    void testCompactionKeepsOnlyUnfinishedTasks() throws Exception {
+        // Given
+        StepCheckpointLog checkpoints = new StepCheckpointLog(true, directory, Duration.ofHours(1));
+        for (int i = 0; i < 20; i++) {
+            checkpoints.begin("done-" + i, "session");
+            checkpoints.append("done-" + i, new StepCheckpointLog.Step(0, StepCheckpointLog.Step.MODEL, i, "answer " + i));
+            checkpoints.complete("done-" + i);
+        }
+        checkpoints.begin("open", "session");
+        checkpoints.append("open", new StepCheckpointLog.Step(0, StepCheckpointLog.Step.TOOL, 3L, "kept"));
+        long before = Files.size(directory.resolve("steps.log"));
+
+        // When
+        checkpoints.compact();
+
+        // Then
+        assertTrue(Files.size(directory.resolve("steps.log")) < before, "Compaction should shrink the log");
+        assertEquals(1, checkpoints.stats().get("unfinishedTasks"));
+        checkpoints.destroy();
+        StepCheckpointLog reopened = new StepCheckpointLog(true, directory, Duration.ofHours(1));
+        assertEquals(1, reopened.stats().get("unfinishedTasks"));
+        assertEquals("kept", reopened.begin("open", "session").get(0).output());
+    }
+
+    @Test
+    void testFailedCompactionKeepsCurrentLog() throws Exception {
+        // Given - one task id too long to write, as a caller bypassing request validation would pass
+        StepCheckpointLog checkpoints = new StepCheckpointLog(true, directory, Duration.ofHours(1));
+        checkpoints.begin("open", "session");
+        checkpoints.append("open", new StepCheckpointLog.Step(0, StepCheckpointLog.Step.TOOL, 3L, "kept"));
+        checkpoints.begin("x".repeat(70_000), "session");
+        byte[] before = Files.readAllBytes(directory.resolve("steps.log"));
+
+        // When
+        checkpoints.compact();
+
+        // Then
+        assertArrayEquals(before, Files.readAllBytes(directory.resolve("steps.log")));
+        assertEquals(0L, checkpoints.stats().get("compactions"));
+        try (var files = Files.list(directory)) {
+            assertEquals(List.of(directory.resolve("steps.log")), files.toList());
+        }
+        checkpoints.destroy();
+        StepCheckpointLog reopened = new StepCheckpointLog(true, directory, Duration.ofHours(1));
+        assertEquals("kept", reopened.begin("open", "session").get(0).output());
+    }
+}
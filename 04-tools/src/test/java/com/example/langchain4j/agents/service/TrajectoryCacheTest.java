@@ -0,0 +1,125 @@
+package com.example.langchain4j.agents.service;
+
+import com.example.langchain4j.agents.model.dto.ToolExecutionInfo;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for TrajectoryCache.
+ */
+class TrajectoryCacheTest {
+
+    private static final List<ToolExecutionInfo> PARIS_WEATHER = List.of(
+        new ToolExecutionInfo("getCurrentWeather", List.of("location=Paris"), "The weather in Paris is 20°C and sunny."));
+
+    @Test
+    void testKnownIntentReplaysWithNewSlotValues() {
+        // Given - the same task shape observed twice
+        TrajectoryCache cache = new TrajectoryCache(true, 100, 2, 0.8);
+        cache.record("What is the weather in Paris?", PARIS_WEATHER, 2);
+        assertTrue(cache.lookup("What is the weather in Berlin?").isEmpty(),
+            "A plan seen once should not be trusted yet");
+        cache.record("What is the weather in Paris?", PARIS_WEATHER, 2);
+
+        // When
+        Optional<TrajectoryCache.Replay> replay = cache.lookup("What is the  weather in New York?");
+
+        // Then
+        assertTrue(replay.isPresent());
+        assertEquals(List.of(new TrajectoryCache.ToolCall("getCurrentWeather", "location=New York")),
+            replay.get().toolCalls());
+        assertEquals(1, replay.get().modelCallsSaved());
+        assertTrue(cache.lookup("Tell me a joke").isEmpty());
+    }
+
+    @Test
+    void testNumericSlotIsReusedAcrossToolCalls() {
+        // Given
+        TrajectoryCache cache = new TrajectoryCache(true, 100, 1, 0.8);
+        cache.record("Convert 20C to Fahrenheit and Kelvin", List.of(
+            new ToolExecutionInfo("celsiusToFahrenheit", List.of("celsius=20"), "68.0"),
+            new ToolExecutionInfo("celsiusToKelvin", List.of("celsius=20"), "293.15")), 3);
+
+        // When
+        Optional<TrajectoryCache.Replay> replay = cache.lookup("convert -3.5C to fahrenheit and kelvin");
+
+        // Then
+        assertTrue(replay.isPresent());
+        assertEquals(List.of(
+                new TrajectoryCache.ToolCall("celsiusToFahrenheit", "celsius=-3.5"),
+                new TrajectoryCache.ToolCall("celsiusToKelvin", "celsius=-3.5")),
+            replay.get().toolCalls());
+        assertEquals(2, replay.get().modelCallsSaved());
+        assertTrue(cache.lookup("Convert hotC to Fahrenheit and Kelvin").isEmpty(),
+            "A numeric slot should only match numbers");
+    }
+
+    @Test
+    void testSlotValueWithCommaIsQuotedInReplayedArguments() {
+        // Given
+        TrajectoryCache cache = new TrajectoryCache(true, 100, 1, 0.8);
+        cache.record("What is the weather in Paris, France?", List.of(
+            new ToolExecutionInfo("getCurrentWeather", List.of("location=\"Paris, France\", unit=celsius"),
+                "The weather in Paris is 20°C and sunny.")), 2);
+
+        // When
+        TrajectoryCache.Replay replay = cache.lookup("What is the weather in Lyon, France?").orElseThrow();
+
+        // Then
+        String params = replay.toolCalls().get(0).params();
+        assertEquals("location=\"Lyon, France\", unit=celsius", params);
+        assertEquals(Map.of("location", "Lyon, France", "unit", "celsius"), ToolParams.parse(params));
+    }
+
+    @Test
+    void testArgumentTakenFromEarlierToolResultIsNotFrozen() {
+        // Given - the converted temperature comes from the weather lookup, not from the message
+        TrajectoryCache cache = new TrajectoryCache(true, 100, 2, 0.8);
+        List<ToolExecutionInfo> parisInFahrenheit = List.of(
+            new ToolExecutionInfo("getCurrentWeather", List.of("location=Paris"), "The weather in Paris is 20°C and sunny."),
+            new ToolExecutionInfo("celsiusToFahrenheit", List.of("celsius=20"), "20°C is 68.0°F"));
+
+        // When
+        cache.record("What is the weather in Paris in Fahrenheit?", parisInFahrenheit, 3);
+        cache.record("What is the weather in Paris in Fahrenheit?", parisInFahrenheit, 3);
+
+        // Then - Berlin must not be answered with Paris' temperature
+        assertTrue(cache.lookup("What is the weather in Berlin in Fahrenheit?").isEmpty());
+        assertEquals(0, cache.stats().get("intents"));
+    }
+
+    @Test
+    void testFailedReplaysDropConfidence() {
+        // Given
+        TrajectoryCache cache = new TrajectoryCache(true, 100, 2, 0.8);
+        cache.record("What is the weather in Paris?", PARIS_WEATHER, 2);
+        cache.record("What is the weather in Paris?", PARIS_WEATHER, 2);
+        TrajectoryCache.Replay replay = cache.lookup("What is the weather in Oslo?").orElseThrow();
+
+        // When
+        cache.fellBack(replay);
+
+        // Then
+        assertTrue(cache.lookup("What is the weather in Oslo?").isEmpty());
+        assertEquals(1L, cache.stats().get("fallbacks"));
+        assertEquals(0L, cache.stats().get("hits"));
+    }
+
+    @Test
+    void testFailedToolCallsAreNotRecorded() {
+        // Given
+        TrajectoryCache cache = new TrajectoryCache(true, 100, 1, 0.8);
+
+        // When
+        cache.record("What is the weather in Paris?", List.of(
+            new ToolExecutionInfo("getCurrentWeather", List.of("location=Paris"), "Error: unavailable")), 2);
+
+        // Then
+        assertEquals(0, cache.stats().get("intents"));
+    }
+}
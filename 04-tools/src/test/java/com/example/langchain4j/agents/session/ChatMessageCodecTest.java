@@ -0,0 +1,74 @@
+package com.example.langchain4j.agents.session;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ChatMessageSerializer;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ChatMessageCodec.
+ */
+class ChatMessageCodecTest {
+
+    @Test
+    void testRoundTripPreservesMessages() {
+        // Given
+        ToolExecutionRequest toolCall = ToolExecutionRequest.builder()
+            .id("call_1")
+            .name("getCurrentWeather")
+            .arguments("{\"location\":\"Seattle\"}")
+            .build();
+        List<ChatMessage> messages = List.of(
+            SystemMessage.from("You are a helpful assistant."),
+            UserMessage.from("What is the weather in Seattle?"),
+            AiMessage.from(toolCall),
+            ToolExecutionResultMessage.from(toolCall, "{\"temperature\":12}"),
+            AiMessage.from("It is 12°C in Seattle."),
+            UserMessage.from("alice", "Thanks")
+        );
+
+        // When
+        List<ChatMessage> decoded = ChatMessageCodec.decode(ChatMessageCodec.encode(messages));
+
+        // Then
+        assertEquals(messages, decoded);
+    }
+
+    @Test
+    void testEncodingIsSmallerThanJson() {
+        // Given
+        List<ChatMessage> messages = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            messages.add(UserMessage.from("Convert " + i + " degrees Celsius to Fahrenheit"));
+            messages.add(AiMessage.from(i + "°C is " + (i * 9 / 5 + 32) + "°F"));
+        }
+
+        // When
+        byte[] encoded = ChatMessageCodec.encode(messages);
+        byte[] json = ChatMessageSerializer.messagesToJson(messages).getBytes(StandardCharsets.UTF_8);
+
+        // Then
+        assertTrue(encoded.length * 2 < json.length,
+            "Expected binary encoding (" + encoded.length + " bytes) to be well under JSON (" + json.length + " bytes)");
+        assertEquals(messages, ChatMessageCodec.decode(encoded));
+    }
+
+    @Test
+    void testEmptyListRoundTrips() {
+        // When
+        List<ChatMessage> decoded = ChatMessageCodec.decode(ChatMessageCodec.encode(List.of()));
+
+        // Then
+        assertTrue(decoded.isEmpty());
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.langchain4j.agents.session;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Optional;
+
+/**
+ * Minimal key-value service implementing the {@link HttpSessionBackend} protocol,
+ * backed by an {@link InMemorySessionBackend}.
+ */
+final class SessionServiceStub implements AutoCloseable {
+
+    private final InMemorySessionBackend store = new InMemorySessionBackend();
+    private final HttpServer server;
+
+    SessionServiceStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/sessions/", this::handle);
+        server.start();
+    }
+
+    String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String key = exchange.getRequestURI().getPath().substring("/sessions/".length());
+            switch (exchange.getRequestMethod()) {
+                case "GET" -> {
+                    Optional<VersionedValue> value = store.get(key, version(exchange.getRequestHeaders().getFirst("If-None-Match")));
+                    if (value.isEmpty()) {
+                        exchange.sendResponseHeaders(404, -1);
+                    } else if (value.get().isUnchanged()) {
+                        exchange.sendResponseHeaders(304, -1);
+                    } else {
+                        exchange.getResponseHeaders().set("ETag", "\"" + value.get().version() + "\"");
+                        exchange.sendResponseHeaders(200, value.get().value().length);
+                        exchange.getResponseBody().write(value.get().value());
+                    }
+                }
+                case "PUT" -> {
+                    byte[] body = exchange.getRequestBody().readAllBytes();
+                    long expected = version(exchange.getRequestHeaders().getFirst("If-Match"));
+                    Optional<Long> version = store.put(key, body, expected);
+                    if (version.isEmpty()) {
+                        exchange.sendResponseHeaders(412, -1);
+                    } else {
+                        exchange.getResponseHeaders().set("ETag", "\"" + version.get() + "\"");
+                        exchange.sendResponseHeaders(expected == 0 ? 201 : 200, -1);
+                    }
+                }
+                case "DELETE" -> {
+                    store.delete(key);
+                    exchange.sendResponseHeaders(204, -1);
+                }
+                default -> exchange.sendResponseHeaders(405, -1);
+            }
+        }
+    }
+
+    private static long version(String etag) {
+        return etag == null || etag.equals("*") ? 0 : Long.parseLong(etag.replace("\"", ""));
+    }
+}
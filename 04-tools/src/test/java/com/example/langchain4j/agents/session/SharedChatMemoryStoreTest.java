@@ -0,0 +1,175 @@
+package com.example.langchain4j.agents.session;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SharedChatMemoryStore and its backends.
+ */
+class SharedChatMemoryStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testReplicasShareSessionMessages() {
+        // Given - two replicas over one backend
+        SessionBackend backend = new InMemorySessionBackend();
+        ChatMemory first = memory(new SharedChatMemoryStore(backend, 20, 100, Duration.ZERO), "s1");
+        ChatMemory second = memory(new SharedChatMemoryStore(backend, 20, 100, Duration.ZERO), "s1");
+
+        // When - turns of the same session alternate between replicas
+        first.add(UserMessage.from("What is 20°C in Fahrenheit?"));
+        second.add(AiMessage.from("68°F"));
+
+        // Then
+        assertEquals(List.of(UserMessage.from("What is 20°C in Fahrenheit?"), AiMessage.from("68°F")), first.messages());
+        assertEquals(first.messages(), second.messages());
+    }
+
+    @Test
+    void testConflictingWritesAreMerged() {
+        // Given - both replicas have the session in their near cache
+        SessionBackend backend = new InMemorySessionBackend();
+        SharedChatMemoryStore firstStore = new SharedChatMemoryStore(backend, 20, 100, Duration.ofMinutes(1));
+        SharedChatMemoryStore secondStore = new SharedChatMemoryStore(backend, 20, 100, Duration.ofMinutes(1));
+        ChatMemory first = memory(firstStore, "s1");
+        ChatMemory second = memory(secondStore, "s1");
+        first.add(UserMessage.from("hello"));
+        second.messages();
+
+        // When - both append based on the same version
+        first.add(UserMessage.from("from first"));
+        second.add(UserMessage.from("from second"));
+
+        // Then
+        List<ChatMessage> expected = List.of(
+            UserMessage.from("hello"), UserMessage.from("from first"), UserMessage.from("from second"));
+        assertEquals(expected, ChatMessageCodec.decode(backend.get("s1", 0).orElseThrow().value()));
+        assertEquals(1L, secondStore.stats().get("conflicts"));
+    }
+
+    @Test
+    void testNearCacheRevalidatesByVersion() {
+        // Given
+        SharedChatMemoryStore store = new SharedChatMemoryStore(new InMemorySessionBackend(), 20, 100, Duration.ZERO);
+        store.updateMessages("s1", List.of(UserMessage.from("hello")));
+
+        // When
+        store.getMessages("s1");
+        store.getMessages("s1");
+
+        // Then - the backend confirmed the cached copy instead of sending it again
+        Map<String, Object> stats = store.stats();
+        assertEquals(2L, stats.get("revalidated"));
+        assertEquals(0L, stats.get("fetched"));
+    }
+
+    @Test
+    void testFileBackendPersistsSessions() {
+        // Given
+        new SharedChatMemoryStore(new FileSessionBackend(directory), 20, 100, Duration.ZERO)
+            .updateMessages("s1", List.of(UserMessage.from("hello"), AiMessage.from("hi")));
+
+        // When - a new process opens the same directory
+        SharedChatMemoryStore reopened = new SharedChatMemoryStore(new FileSessionBackend(directory), 20, 100, Duration.ZERO);
+
+        // Then
+        assertEquals(List.of(UserMessage.from("hello"), AiMessage.from("hi")), reopened.getMessages("s1"));
+        reopened.deleteMessages("s1");
+        assertTrue(reopened.getMessages("s1").isEmpty());
+    }
+
+    @Test
+    void testHttpBackendSharesSessions() throws Exception {
+        try (SessionServiceStub service = new SessionServiceStub()) {
+            // Given
+            ChatMemory first = memory(new SharedChatMemoryStore(
+                new HttpSessionBackend(service.baseUrl(), Duration.ofSeconds(2)), 20, 100, Duration.ZERO), "s1");
+            ChatMemory second = memory(new SharedChatMemoryStore(
+                new HttpSessionBackend(service.baseUrl(), Duration.ofSeconds(2)), 20, 100, Duration.ZERO), "s1");
+
+            // When
+            first.add(UserMessage.from("hello"));
+            second.add(AiMessage.from("hi"));
+
+            // Then
+            assertEquals(List.of(UserMessage.from("hello"), AiMessage.from("hi")), first.messages());
+        }
+    }
+
+    @Test
+    void testFileBackendReplicasInSeparateProcessesDoNotLoseWrites() throws Exception {
+        // Given - two more replicas, each in its own JVM, on the same directory
+        int writesPerReplica = 200;
+        List<Process> replicas = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            replicas.add(new ProcessBuilder(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"),
+                CountingReplica.class.getName(), directory.toString(), String.valueOf(writesPerReplica))
+                .inheritIO()
+                .start());
+        }
+
+        // When - all three increment one counter with conditional writes
+        CountingReplica.count(new FileSessionBackend(directory), writesPerReplica);
+        for (Process replica : replicas) {
+            assertTrue(replica.waitFor(2, TimeUnit.MINUTES));
+            assertEquals(0, replica.exitValue());
+        }
+
+        // Then - every write that reported success is in the count
+        VersionedValue stored = new FileSessionBackend(directory).get(CountingReplica.KEY, 0).orElseThrow();
+        assertEquals(3L * writesPerReplica, ByteBuffer.wrap(stored.value()).getLong());
+        assertEquals(3L * writesPerReplica, stored.version());
+    }
+
+    /**
+     * A replica that increments a counter through the file backend, retrying lost races.
+     */
+    static class CountingReplica {
+
+        static final String KEY = "counter";
+
+        public static void main(String[] args) {
+            count(new FileSessionBackend(Path.of(args[0])), Integer.parseInt(args[1]));
+        }
+
+        static void count(SessionBackend backend, int writes) {
+            for (int written = 0; written < writes; ) {
+                Optional<VersionedValue> current = backend.get(KEY, 0);
+                long count = current.map(value -> ByteBuffer.wrap(value.value()).getLong()).orElse(0L);
+                long version = current.map(VersionedValue::version).orElse(0L);
+                byte[] next = ByteBuffer.allocate(Long.BYTES).putLong(count + 1).array();
+                if (backend.put(KEY, next, version).isPresent()) {
+                    written++;
+                }
+            }
+        }
+    }
+
+    private static ChatMemory memory(SharedChatMemoryStore store, String sessionId) {
+        return MessageWindowChatMemory.builder()
+            .id(sessionId)
+            .maxMessages(20)
+            .chatMemoryStore(store)
+            .build();
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.langchain4j.agents.tools;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for WeatherService.
+ */
+class WeatherServiceTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(16);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testConcurrentLookupsShareOneUpstreamCall() throws Exception {
+        // Given - a slow upstream and sixteen sessions asking about the same city
+        SimulatedWeatherProvider provider = new SimulatedWeatherProvider(Duration.ofMillis(200));
+        WeatherService service = new WeatherService(provider, Duration.ofMinutes(1), 100, Duration.ofSeconds(5));
+        String[] spellings = {"Seattle", " seattle", "SEATTLE ", "Seattle"};
+        CountDownLatch start = new CountDownLatch(1);
+
+        // When
+        List<Future<Lookup<WeatherProvider.Conditions>>> lookups = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            String location = spellings[i % spellings.length];
+            lookups.add(executor.submit(() -> {
+                start.await();
+                return service.current(location);
+            }));
+        }
+        start.countDown();
+
+        // Then - everyone sees the same conditions, and only one caller paid for the fetch
+        WeatherProvider.Conditions first = lookups.get(0).get(5, TimeUnit.SECONDS).value();
+        int fresh = 0;
+        for (Future<Lookup<WeatherProvider.Conditions>> lookup : lookups) {
+            Lookup<WeatherProvider.Conditions> result = lookup.get(5, TimeUnit.SECONDS);
+            assertEquals(first, result.value());
+            fresh += result.cached() ? 0 : 1;
+        }
+        assertEquals(1, provider.requestCount());
+        assertEquals(1, fresh);
+    }
+
+    @Test
+    void testExpiredEntriesAreFetchedAgain() throws Exception {
+        // Given
+        SimulatedWeatherProvider provider = new SimulatedWeatherProvider(Duration.ZERO);
+        WeatherService service = new WeatherService(provider, Duration.ofMillis(20), 100, Duration.ofSeconds(5));
+        service.current("Paris");
+        assertTrue(service.current("paris").cached());
+
+        // When
+        Thread.sleep(40);
+        Lookup<WeatherProvider.Conditions> result = service.current("Paris");
+
+        // Then
+        assertFalse(result.cached());
+        assertEquals(2, provider.requestCount());
+    }
+
+    @Test
+    void testForecastsForDifferentDayCountsShareAnEntry() {
+        // Given
+        SimulatedWeatherProvider provider = new SimulatedWeatherProvider(Duration.ZERO);
+        WeatherService service = new WeatherService(provider, Duration.ofMinutes(1), 100, Duration.ofSeconds(5));
+
+        // When
+        List<WeatherProvider.Conditions> week = service.forecast("London", 7).value();
+        Lookup<List<WeatherProvider.Conditions>> threeDays = service.forecast("London", 3);
+
+        // Then
+        assertTrue(threeDays.cached());
+        assertEquals(week.subList(0, 3), threeDays.value());
+        assertEquals(1, provider.requestCount());
+    }
+
+    @Test
+    void testFailedLookupIsNotCached() {
+        // Given - an upstream that fails once
+        AtomicInteger calls = new AtomicInteger();
+        WeatherProvider flaky = new WeatherProvider() {
+            @Override
+            public Conditions current(String location) {
+                if (calls.incrementAndGet() == 1) {
+                    throw new IllegalStateException("upstream unavailable");
+                }
+                return new Conditions(20, "sunny");
+            }
+
+            @Override
+            public List<Conditions> forecast(String location, int days) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public String name() {
+                return "flaky";
+            }
+        };
+        WeatherService service = new WeatherService(flaky, Duration.ofMinutes(1), 100, Duration.ofSeconds(5));
+
+        // When & Then
+        assertThrows(IllegalStateException.class, () -> service.current("Oslo"));
+        assertEquals(new WeatherProvider.Conditions(20, "sunny"), service.current("Oslo").value());
+    }
+
+    @Test
+    void testWaitingCallerGivesUpAtItsDeadline() throws Exception {
+        // Given - a lookup that stays in flight until released
+        CountDownLatch fetching = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        WeatherProvider stuck = new WeatherProvider() {
+            @Override
+            public Conditions current(String location) {
+                fetching.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return new Conditions(18, "cloudy");
+            }
+
+            @Override
+            public List<Conditions> forecast(String location, int days) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public String name() {
+                return "stuck";
+            }
+        };
+        WeatherService service = new WeatherService(stuck, Duration.ofMinutes(1), 100, Duration.ofSeconds(5));
+        Future<Lookup<WeatherProvider.Conditions>> first = executor.submit(() -> service.current("Rome"));
+        assertTrue(fetching.await(5, TimeUnit.SECONDS));
+
+        // When & Then - the second caller stops waiting at its own deadline, the first still completes
+        long start = System.nanoTime();
+        assertThrows(LookupTimeoutException.class, () -> service.current("Rome", Duration.ofMillis(50)));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+        release.countDown();
+        assertEquals(new WeatherProvider.Conditions(18, "cloudy"), first.get(5, TimeUnit.SECONDS).value());
+        @SuppressWarnings("unchecked")
+        Map<String, Object> stats = (Map<String, Object>) service.stats().get("current");
+        assertEquals(1L, stats.get("waitTimeouts"));
+    }
+
+    @Test
+    void testFullCacheEvictsLeastRecentlyUsedEntry() {
+        // Given - room for two locations
+        SimulatedWeatherProvider provider = new SimulatedWeatherProvider(Duration.ZERO);
+        WeatherService service = new WeatherService(provider, Duration.ofMinutes(1), 2, Duration.ofSeconds(5));
+        service.current("Athens");
+        service.current("Berlin");
+        service.current("Athens");
+
+        // When
+        service.current("Cairo");
+
+        // Then - Berlin was the least recently used
+        assertTrue(service.current("Athens").cached());
+        assertFalse(service.current("Berlin").cached());
+        assertEquals(4, provider.requestCount());
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.langchain4j.mock;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+/**
+ * Mock Azure OpenAI / OpenAI server for offline tests and load tests.
+ * It answers chat completions (complete and streamed) and embeddings with
+ * generated content, simulating latency, generation speed, rate limits and
+ * errors, so any module can point {@code azure.openai.endpoint} at it.
+ */
+@SpringBootApplication
+public class MockOpenAiApplication {
+
+    public static void main(String[] args) {
+        SpringApplication.run(MockOpenAiApplication.class, args);
+    }
+}
@@ -0,0 +1,405 @@
+package com.example.langchain4j.mock.app;
+
+import com.example.langchain4j.mock.service.EmbeddingGenerator;
+import com.example.langchain4j.mock.service.FaultInjector;
+import com.example.langchain4j.mock.service.LatencyModel;
+import com.example.langchain4j.mock.service.RateLimiter;
+import com.example.langchain4j.mock.service.ReplyGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Chat completions and embeddings endpoints in the Azure OpenAI wire format
+ * ({@code /openai/deployments/{deployment}/...}) and the OpenAI one
+ * ({@code /v1/...}, also used by GitHub Models under {@code /inference/...}).
+ * <p>
+ * Every call is first checked against the API key, the injected errors and
+ * the deployment's rate limit, then answered after the simulated latency.
+ * Streamed answers ({@code "stream": true}) are sent as server-sent events,
+ * one token per event at the configured generation speed.
+ */
+@RestController
+public class MockOpenAiController {
+
+    static final String MOCK_ERROR_HEADER = "x-mock-error";
+
+    /**
+     * Either the response refusing a call, or the rate limit headers of an admitted one.
+     */
+    private record Admission(ResponseEntity<StreamingResponseBody> refusal, HttpHeaders headers) {
+    }
+
+    private final ObjectMapper objectMapper;
+    private final LatencyModel latency;
+    private final RateLimiter rateLimiter;
+    private final FaultInjector faults;
+    private final ReplyGenerator replies;
+    private final EmbeddingGenerator embeddings;
+    private final String apiKey;
+
+    private final AtomicLong chatCompletions = new AtomicLong();
+    private final AtomicLong streamed = new AtomicLong();
+    private final AtomicLong embeddingCalls = new AtomicLong();
+    private final AtomicLong unauthorized = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public MockOpenAiController(ObjectMapper objectMapper, LatencyModel latency, RateLimiter rateLimiter,
+                                FaultInjector faults, ReplyGenerator replies, EmbeddingGenerator embeddings,
+                                @Value("${mock.api-key:}") String apiKey) {
+        this.objectMapper = objectMapper;
+        this.latency = latency;
+        this.rateLimiter = rateLimiter;
+        this.faults = faults;
+        this.replies = replies;
+        this.embeddings = embeddings;
+        this.apiKey = apiKey;
+    }
+
+    /**
+     * Azure OpenAI chat completions, for the deployment in the path.
+     */
+    @PostMapping("/openai/deployments/{deployment}/chat/completions")
+    public ResponseEntity<StreamingResponseBody> azureChatCompletions(
+            @PathVariable("deployment") String deployment, @RequestBody JsonNode body, @RequestHeader HttpHeaders headers) {
+        return chatCompletions(deployment, body, headers);
+    }
+
+    /**
+     * OpenAI chat completions, for the model in the body.
+     */
+    @PostMapping({"/chat/completions", "/v1/chat/completions", "/inference/chat/completions"})
+    public ResponseEntity<StreamingResponseBody> openAiChatCompletions(
+            @RequestBody JsonNode body, @RequestHeader HttpHeaders headers) {
+        return chatCompletions(body.path("model").asText("mock"), body, headers);
+    }
+
+    /**
+     * Azure OpenAI embeddings, for the deployment in the path.
+     */
+    @PostMapping("/openai/deployments/{deployment}/embeddings")
+    public ResponseEntity<StreamingResponseBody> azureEmbeddings(
+            @PathVariable("deployment") String deployment, @RequestBody JsonNode body, @RequestHeader HttpHeaders headers) {
+        return embeddings(deployment, body, headers);
+    }
+
+    /**
+     * OpenAI embeddings, for the model in the body.
+     */
+    @PostMapping({"/embeddings", "/v1/embeddings", "/inference/embeddings"})
+    public ResponseEntity<StreamingResponseBody> openAiEmbeddings(
+            @RequestBody JsonNode body, @RequestHeader HttpHeaders headers) {
+        return embeddings(body.path("model").asText("mock"), body, headers);
+    }
+
+    /**
+     * Get mock server metrics.
+     *
+     * @return calls answered, calls refused by rate limit or key, and errors injected
+     */
+    @GetMapping("/mock/stats")
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("chatCompletions", chatCompletions.get());
+        stats.put("streamed", streamed.get());
+        stats.put("embeddings", embeddingCalls.get());
+        stats.put("inFlight", inFlight.get());
+        stats.put("unauthorized", unauthorized.get());
+        stats.put("rateLimit", rateLimiter.stats());
+        stats.put("errors", faults.stats());
+        return stats;
+    }
+
+    private ResponseEntity<StreamingResponseBody> chatCompletions(String model, JsonNode body, HttpHeaders headers) {
+        String prompt = promptOf(body.path("messages"));
+        Integer maxTokens = maxTokens(body);
+        List<String> answer = replies.reply(prompt, maxTokens);
+        int promptTokens = ReplyGenerator.countTokens(prompt);
+        Admission admission = admit(model, promptTokens + answer.size(), headers);
+        if (admission.refusal() != null) {
+            return admission.refusal();
+        }
+        chatCompletions.incrementAndGet();
+
+        String id = "chatcmpl-" + UUID.randomUUID();
+        long created = System.currentTimeMillis() / 1000;
+        String finishReason = maxTokens != null && answer.size() >= maxTokens ? "length" : "stop";
+        ObjectNode usage = usage(promptTokens, answer.size());
+
+        if (body.path("stream").asBoolean(false)) {
+            streamed.incrementAndGet();
+            boolean includeUsage = body.path("stream_options").path("include_usage").asBoolean(false);
+            StreamingResponseBody events = out -> answering(() -> {
+                sleep(latency.firstToken());
+                for (int i = 0; i < answer.size(); i++) {
+                    if (i > 0) {
+                        sleep(latency.perToken());
+                    }
+                    ObjectNode delta = objectMapper.createObjectNode();
+                    if (i == 0) {
+                        delta.put("role", "assistant");
+                    }
+                    delta.put("content", answer.get(i));
+                    event(out, chunk(id, created, model, delta, null));
+                }
+                event(out, chunk(id, created, model, objectMapper.createObjectNode(), finishReason));
+                if (includeUsage) {
+                    ObjectNode usageChunk = chunk(id, created, model, null, null);
+                    usageChunk.set("usage", usage);
+                    event(out, usageChunk);
+                }
+                out.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+                out.flush();
+            });
+            return ResponseEntity.ok().headers(admission.headers()).contentType(MediaType.TEXT_EVENT_STREAM).body(events);
+        }
+
+        ObjectNode message = objectMapper.createObjectNode();
+        message.put("role", "assistant");
+        message.put("content", String.join("", answer));
+        ObjectNode choice = objectMapper.createObjectNode();
+        choice.put("index", 0);
+        choice.set("message", message);
+        choice.put("finish_reason", finishReason);
+        ObjectNode completion = objectMapper.createObjectNode();
+        completion.put("id", id);
+        completion.put("object", "chat.completion");
+        completion.put("created", created);
+        completion.put("model", model);
+        completion.putArray("choices").add(choice);
+        completion.set("usage", usage);
+        Duration delay = latency.answer(answer.size());
+        return json(admission.headers(), out -> answering(() -> {
+            sleep(delay);
+            out.write(objectMapper.writeValueAsBytes(completion));
+        }));
+    }
+
+    private ResponseEntity<StreamingResponseBody> embeddings(String model, JsonNode body, HttpHeaders headers) {
+        List<String> inputs = new ArrayList<>();
+        JsonNode input = body.path("input");
+        if (input.isArray()) {
+            input.forEach(item -> inputs.add(item.isTextual() ? item.asText() : item.toString()));
+        } else {
+            inputs.add(input.asText(""));
+        }
+        Integer dimensions = body.hasNonNull("dimensions") ? body.get("dimensions").asInt() : null;
+        boolean base64 = "base64".equals(body.path("encoding_format").asText());
+        int tokens = inputs.stream().mapToInt(ReplyGenerator::countTokens).sum();
+        Admission admission = admit(model, tokens, headers);
+        if (admission.refusal() != null) {
+            return admission.refusal();
+        }
+        embeddingCalls.incrementAndGet();
+
+        ObjectNode response = objectMapper.createObjectNode();
+        response.put("object", "list");
+        ArrayNode data = response.putArray("data");
+        for (int i = 0; i < inputs.size(); i++) {
+            float[] vector = embeddings.embed(inputs.get(i), dimensions);
+            ObjectNode item = data.addObject();
+            item.put("object", "embedding");
+            item.put("index", i);
+            if (base64) {
+                ByteBuffer bytes = ByteBuffer.allocate(vector.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                for (float value : vector) {
+                    bytes.putFloat(value);
+                }
+                item.put("embedding", Base64.getEncoder().encodeToString(bytes.array()));
+            } else {
+                ArrayNode values = item.putArray("embedding");
+                for (float value : vector) {
+                    values.add(value);
+                }
+            }
+        }
+        response.put("model", model);
+        ObjectNode usage = response.putObject("usage");
+        usage.put("prompt_tokens", tokens);
+        usage.put("total_tokens", tokens);
+        Duration delay = latency.firstToken();
+        return json(admission.headers(), out -> answering(() -> {
+            sleep(delay);
+            out.write(objectMapper.writeValueAsBytes(response));
+        }));
+    }
+
+    /**
+     * Check a call against the API key, the injected errors and the rate limit, in that order.
+     */
+    private Admission admit(String deployment, long tokens, HttpHeaders headers) {
+        if (!apiKey.isEmpty() && !apiKey.equals(headers.getFirst("api-key"))
+                && !("Bearer " + apiKey).equals(headers.getFirst(HttpHeaders.AUTHORIZATION))) {
+            unauthorized.incrementAndGet();
+            return new Admission(error(401, "Access denied due to invalid subscription key or wrong API endpoint.",
+                new HttpHeaders()), null);
+        }
+
+        OptionalInt injected;
+        try {
+            injected = faults.nextError(headers.getFirst(MOCK_ERROR_HEADER));
+        } catch (IllegalArgumentException e) {
+            return new Admission(error(400, e.getMessage(), new HttpHeaders()), null);
+        }
+        if (injected.isPresent()) {
+            HttpHeaders errorHeaders = new HttpHeaders();
+            if (injected.getAsInt() == 429) {
+                retryAfter(errorHeaders, 1000);
+            }
+            return new Admission(error(injected.getAsInt(), "Injected error from the mock server.", errorHeaders), null);
+        }
+
+        RateLimiter.Decision decision = rateLimiter.admit(deployment, tokens);
+        HttpHeaders quotaHeaders = new HttpHeaders();
+        if (decision.remainingRequests() >= 0) {
+            quotaHeaders.set("x-ratelimit-remaining-requests", String.valueOf(decision.remainingRequests()));
+        }
+        if (decision.remainingTokens() >= 0) {
+            quotaHeaders.set("x-ratelimit-remaining-tokens", String.valueOf(decision.remainingTokens()));
+        }
+        if (!decision.admitted()) {
+            retryAfter(quotaHeaders, decision.retryAfterMillis());
+            String message = "Requests to the deployment " + deployment + " have exceeded the rate limit. "
+                + "Please retry after " + quotaHeaders.getFirst(HttpHeaders.RETRY_AFTER) + " seconds.";
+            return new Admission(error(429, message, quotaHeaders), null);
+        }
+        return new Admission(null, quotaHeaders);
+    }
+
+    private ResponseEntity<StreamingResponseBody> error(int status, String message, HttpHeaders headers) {
+        ObjectNode error = objectMapper.createObjectNode();
+        ObjectNode details = error.putObject("error");
+        details.put("code", switch (status) {
+            case 400 -> "BadRequest";
+            case 404 -> "DeploymentNotFound";
+            case 500 -> "InternalServerError";
+            case 503 -> "ServiceUnavailable";
+            default -> String.valueOf(status);
+        });
+        details.put("message", message);
+        return ResponseEntity.status(status)
+            .headers(headers)
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(out -> out.write(objectMapper.writeValueAsBytes(error)));
+    }
+
+    private static ResponseEntity<StreamingResponseBody> json(HttpHeaders headers, StreamingResponseBody body) {
+        return ResponseEntity.ok().headers(headers).contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    private static void retryAfter(HttpHeaders headers, long millis) {
+        headers.set("retry-after-ms", String.valueOf(millis));
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, (millis + 999) / 1000)));
+    }
+
+    private ObjectNode chunk(String id, long created, String model, ObjectNode delta, String finishReason) {
+        ObjectNode chunk = objectMapper.createObjectNode();
+        chunk.put("id", id);
+        chunk.put("object", "chat.completion.chunk");
+        chunk.put("created", created);
+        chunk.put("model", model);
+        ArrayNode choices = chunk.putArray("choices");
+        if (delta != null) {
+            ObjectNode choice = choices.addObject();
+            choice.put("index", 0);
+            choice.set("delta", delta);
+            choice.put("finish_reason", finishReason);
+        }
+        return chunk;
+    }
+
+    private void event(OutputStream out, ObjectNode chunk) throws IOException {
+        out.write("data: ".getBytes(StandardCharsets.UTF_8));
+        out.write(objectMapper.writeValueAsBytes(chunk));
+        out.write("\n\n".getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private ObjectNode usage(int promptTokens, int completionTokens) {
+        ObjectNode usage = objectMapper.createObjectNode();
+        usage.put("prompt_tokens", promptTokens);
+        usage.put("completion_tokens", completionTokens);
+        usage.put("total_tokens", promptTokens + completionTokens);
+        usage.putObject("prompt_tokens_details").put("cached_tokens", 0);
+        usage.putObject("completion_tokens_details").put("reasoning_tokens", 0);
+        return usage;
+    }
+
+    /**
+     * All text in the messages: string contents and the text parts of multi-part ones.
+     */
+    private static String promptOf(JsonNode messages) {
+        StringBuilder prompt = new StringBuilder();
+        for (JsonNode message : messages) {
+            JsonNode content = message.path("content");
+            if (content.isTextual()) {
+                prompt.append(content.asText()).append('\n');
+            } else if (content.isArray()) {
+                content.forEach(part -> prompt.append(part.path("text").asText("")).append('\n'));
+            }
+        }
+        return prompt.toString();
+    }
+
+    private static Integer maxTokens(JsonNode body) {
+        if (body.hasNonNull("max_completion_tokens")) {
+            return body.get("max_completion_tokens").asInt();
+        }
+        return body.hasNonNull("max_tokens") ? body.get("max_tokens").asInt() : null;
+    }
+
+    @FunctionalInterface
+    private interface Answer {
+        void write() throws IOException;
+    }
+
+    private void answering(Answer answer) throws IOException {
+        inFlight.incrementAndGet();
+        try {
+            answer.write();
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private static void sleep(Duration duration) throws InterruptedIOException {
+        if (duration.isZero()) {
+            return;
+        }
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while simulating latency");
+        }
+    }
+}
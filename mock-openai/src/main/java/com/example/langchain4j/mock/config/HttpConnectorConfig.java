@@ -0,0 +1,34 @@
+package com.example.langchain4j.mock.config;
+
+import org.apache.catalina.connector.Connector;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Adds a plain HTTP port next to the HTTPS one.
+ * <p>
+ * Azure OpenAI clients refuse to send an API key over plain HTTP, so the main
+ * port serves HTTPS with a self-signed certificate. OpenAI-compatible clients
+ * have no such rule and can use this port without trusting the certificate.
+ */
+@Configuration
+public class HttpConnectorConfig implements WebServerFactoryCustomizer<TomcatServletWebServerFactory> {
+
+    private final int httpPort;
+
+    public HttpConnectorConfig(@Value("${mock.http-port:-1}") int httpPort) {
+        this.httpPort = httpPort;
+    }
+
+    @Override
+    public void customize(TomcatServletWebServerFactory factory) {
+        if (httpPort < 0) {
+            return;
+        }
+        Connector connector = new Connector(TomcatServletWebServerFactory.DEFAULT_PROTOCOL);
+        connector.setPort(httpPort);
+        factory.addAdditionalTomcatConnectors(connector);
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.langchain4j.mock.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Random;
+
+/**
+ * Configuration shared by the simulated behaviours.
+ */
+@Configuration
+public class MockConfig {
+
+    /**
+     * Source of randomness for latency, error and fault sampling.
+     * Set {@code mock.seed} to repeat the same sequence from run to run.
+     *
+     * @param seed fixed seed, or empty for a different sequence each run
+     * @return random generator, safe to share between threads
+     */
+    @Bean
+    public Random mockRandom(@Value("${mock.seed:}") String seed) {
+        return seed.isBlank() ? new Random() : new Random(Long.parseLong(seed.trim()));
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.langchain4j.mock.config;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Creates the self-signed certificate the HTTPS port serves, before the server starts.
+ * <p>
+ * No private key is kept in the source tree. On first start the JDK's keytool
+ * generates a key pair and a certificate for {@code localhost} in
+ * {@code mock.ssl.directory}: {@code mock-openai.p12} for the server and
+ * {@code mock-openai.crt} for clients to trust. Later starts reuse them, so a
+ * trust store built from the certificate keeps working.
+ */
+public class SelfSignedCertificate implements EnvironmentPostProcessor {
+
+    static final String KEYSTORE = "mock-openai.p12";
+    static final String CERTIFICATE = "mock-openai.crt";
+    // Protects a throwaway key for localhost that never leaves this machine
+    static final String PASSWORD = "mock-openai";
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        String directory = environment.getProperty("mock.ssl.directory");
+        if (directory != null && !directory.isBlank()) {
+            ensure(Path.of(directory));
+        }
+    }
+
+    /**
+     * Generate the key store and certificate in {@code directory} unless both already exist.
+     *
+     * @return the certificate file
+     */
+    public static Path ensure(Path directory) {
+        Path keystore = directory.resolve(KEYSTORE);
+        Path certificate = directory.resolve(CERTIFICATE);
+        if (Files.exists(keystore) && Files.exists(certificate)) {
+            return certificate;
+        }
+        try {
+            Files.createDirectories(directory);
+            // Left over from a run that stopped between the two steps
+            Files.deleteIfExists(keystore);
+            keytool("-genkeypair", "-alias", "mock-openai", "-keyalg", "RSA", "-keysize", "2048",
+                "-dname", "CN=localhost, O=mock-openai", "-ext", "SAN=dns:localhost,ip:127.0.0.1,ip:::1",
+                "-validity", "3650", "-keystore", keystore.toString(), "-storetype", "PKCS12",
+                "-storepass", PASSWORD);
+            keytool("-exportcert", "-rfc", "-alias", "mock-openai", "-keystore", keystore.toString(),
+                "-storepass", PASSWORD, "-file", certificate.toString());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create the mock server certificate in " + directory, e);
+        }
+        return certificate;
+    }
+
+    private static void keytool(String... arguments) throws IOException {
+        boolean windows = System.getProperty("os.name").toLowerCase().startsWith("windows");
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", windows ? "keytool.exe" : "keytool").toString());
+        command.addAll(List.of(arguments));
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        try {
+            if (process.waitFor() != 0) {
+                throw new IOException("keytool " + arguments[0] + " failed: " + output.trim());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.destroy();
+            throw new IOException("Interrupted while running keytool", e);
+        }
+    }
+}
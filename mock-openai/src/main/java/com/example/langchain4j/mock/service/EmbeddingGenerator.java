@@ -0,0 +1,67 @@
+package com.example.langchain4j.mock.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.regex.Pattern;
+
+/**
+ * Deterministic embeddings.
+ * <p>
+ * Each word is mapped to a fixed random direction seeded by the word, and a
+ * text's embedding is the normalized sum of its words' directions. The same
+ * text always gets the same vector, and texts that share words get similar
+ * vectors, so similarity search in the RAG module still finds the chunks
+ * that mention what was asked.
+ */
+@Component
+public class EmbeddingGenerator {
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final int dimensions;
+
+    public EmbeddingGenerator(@Value("${mock.embedding.dimensions:1536}") int dimensions) {
+        this.dimensions = dimensions;
+    }
+
+    /**
+     * Embed a text.
+     *
+     * @param requestedDimensions dimensions asked for by the request, or null for the configured default
+     * @return unit-length vector
+     */
+    public float[] embed(String text, Integer requestedDimensions) {
+        int size = requestedDimensions != null && requestedDimensions > 0 ? requestedDimensions : dimensions;
+        double[] sum = new double[size];
+        boolean anyWord = false;
+        for (String word : NON_WORD.split(text.toLowerCase(Locale.ROOT))) {
+            if (!word.isEmpty()) {
+                addDirection(sum, word);
+                anyWord = true;
+            }
+        }
+        if (!anyWord) {
+            addDirection(sum, text);
+        }
+        double norm = 0;
+        for (double value : sum) {
+            norm += value * value;
+        }
+        norm = Math.sqrt(norm);
+        float[] vector = new float[size];
+        for (int i = 0; i < size; i++) {
+            vector[i] = (float) (sum[i] / norm);
+        }
+        return vector;
+    }
+
+    private static void addDirection(double[] sum, String word) {
+        SplittableRandom random = new SplittableRandom(ReplyGenerator.seed(word));
+        for (int i = 0; i < sum.length; i++) {
+            sum[i] += random.nextGaussian();
+        }
+    }
+}
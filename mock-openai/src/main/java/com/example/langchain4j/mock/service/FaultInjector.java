@@ -0,0 +1,88 @@
+package com.example.langchain4j.mock.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fails a configurable share of calls with an HTTP error status, picked at
+ * random from the configured ones. A client can also ask for a specific
+ * error on one call with the {@code x-mock-error} header, e.g. to test how it
+ * handles {@code 429} or {@code 503} without changing the server's settings.
+ */
+@Component
+public class FaultInjector {
+
+    private final double rate;
+    private final List<Integer> statuses;
+    private final Random random;
+    private final Map<Integer, AtomicLong> injected = new ConcurrentHashMap<>();
+
+    public FaultInjector(
+            @Value("${mock.errors.rate:0}") double rate,
+            @Value("${mock.errors.statuses:500,503}") List<Integer> statuses,
+            Random random) {
+        if (rate > 0 && statuses.isEmpty()) {
+            throw new IllegalArgumentException("mock.errors.statuses must list at least one status");
+        }
+        this.rate = rate;
+        this.statuses = List.copyOf(statuses);
+        this.random = random;
+    }
+
+    /**
+     * Decide whether this call fails.
+     *
+     * @param requested value of the {@code x-mock-error} header, or null
+     * @return the error status to answer with, or empty to answer normally
+     * @throws IllegalArgumentException if the header is not an error status
+     */
+    public OptionalInt nextError(String requested) {
+        int status;
+        if (requested != null && !requested.isBlank()) {
+            status = parseStatus(requested);
+        } else if (rate > 0 && random.nextDouble() < rate) {
+            status = statuses.get(random.nextInt(statuses.size()));
+        } else {
+            return OptionalInt.empty();
+        }
+        injected.computeIfAbsent(status, key -> new AtomicLong()).incrementAndGet();
+        return OptionalInt.of(status);
+    }
+
+    /**
+     * Get error injection metrics.
+     *
+     * @return configured error rate and errors injected per status
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> byStatus = new LinkedHashMap<>();
+        injected.entrySet().stream()
+            .sorted(Map.Entry.comparingByKey())
+            .forEach(entry -> byStatus.put(String.valueOf(entry.getKey()), entry.getValue().get()));
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("errorRate", rate);
+        stats.put("statuses", statuses);
+        stats.put("injected", byStatus);
+        return stats;
+    }
+
+    private static int parseStatus(String requested) {
+        try {
+            int status = Integer.parseInt(requested.trim());
+            if (status >= 400 && status <= 599) {
+                return status;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("x-mock-error must be an HTTP error status (400-599): " + requested);
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.langchain4j.mock.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Simulated model timing: a time to first token drawn from a configurable
+ * distribution, followed by a steady generation speed in tokens per second.
+ * <p>
+ * The lognormal distribution (the default) has the long right tail that real
+ * deployments show under load; its mean and standard deviation are those of
+ * the latency itself, not of its logarithm.
+ */
+@Component
+public class LatencyModel {
+
+    public enum Distribution { FIXED, UNIFORM, NORMAL, LOGNORMAL }
+
+    private final Distribution distribution;
+    private final double meanMillis;
+    private final double stddevMillis;
+    private final double maxMillis;
+    private final double tokensPerSecond;
+    private final Random random;
+
+    public LatencyModel(
+            @Value("${mock.latency.distribution:lognormal}") String distribution,
+            @Value("${mock.latency.mean:400ms}") Duration mean,
+            @Value("${mock.latency.stddev:200ms}") Duration stddev,
+            @Value("${mock.latency.max:30s}") Duration max,
+            @Value("${mock.tokens-per-second:60}") double tokensPerSecond,
+            Random random) {
+        this.distribution = Distribution.valueOf(distribution.trim().toUpperCase(Locale.ROOT));
+        this.meanMillis = mean.toNanos() / 1_000_000.0;
+        this.stddevMillis = stddev.toNanos() / 1_000_000.0;
+        this.maxMillis = max.toNanos() / 1_000_000.0;
+        this.tokensPerSecond = tokensPerSecond;
+        this.random = random;
+    }
+
+    /**
+     * Draw the time until the first token of an answer.
+     */
+    public Duration firstToken() {
+        double millis = switch (distribution) {
+            case FIXED -> meanMillis;
+            case UNIFORM -> meanMillis + (2 * random.nextDouble() - 1) * Math.sqrt(3) * stddevMillis;
+            case NORMAL -> meanMillis + random.nextGaussian() * stddevMillis;
+            case LOGNORMAL -> lognormal();
+        };
+        millis = Math.min(Math.max(millis, 0), maxMillis);
+        return Duration.ofNanos((long) (millis * 1_000_000));
+    }
+
+    /**
+     * Time to generate one token after the first, zero for unlimited speed.
+     */
+    public Duration perToken() {
+        return tokensPerSecond <= 0 ? Duration.ZERO : Duration.ofNanos((long) (1_000_000_000 / tokensPerSecond));
+    }
+
+    /**
+     * Time to generate a whole answer, as a complete (not streamed) response takes.
+     */
+    public Duration answer(int tokens) {
+        return firstToken().plus(perToken().multipliedBy(Math.max(tokens - 1, 0)));
+    }
+
+    private double lognormal() {
+        if (meanMillis <= 0) {
+            return 0;
+        }
+        double sigmaSquared = Math.log(1 + (stddevMillis * stddevMillis) / (meanMillis * meanMillis));
+        double mu = Math.log(meanMillis) - sigmaSquared / 2;
+        return Math.exp(mu + Math.sqrt(sigmaSquared) * random.nextGaussian());
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.langchain4j.mock.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-deployment quota in requests and tokens per minute, enforced the way
+ * Azure OpenAI does: a call that does not fit is refused with {@code 429}
+ * and told how long to wait, and every admitted call learns how much quota
+ * is left. A limit of 0 is not enforced.
+ */
+@Component
+public class RateLimiter {
+
+    /**
+     * Outcome of asking for quota.
+     *
+     * @param remainingRequests requests left this minute, -1 if not limited
+     * @param remainingTokens tokens left this minute, -1 if not limited
+     * @param retryAfterMillis wait before the call would fit, 0 if admitted
+     */
+    public record Decision(boolean admitted, long remainingRequests, long remainingTokens, long retryAfterMillis) {
+    }
+
+    private static final class Quota {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final TokenBucket requests;
+        private final TokenBucket tokens;
+
+        private Quota(long requestsPerMinute, long tokensPerMinute, long now) {
+            this.requests = requestsPerMinute > 0 ? new TokenBucket(requestsPerMinute, Duration.ofMinutes(1), now) : null;
+            this.tokens = tokensPerMinute > 0 ? new TokenBucket(tokensPerMinute, Duration.ofMinutes(1), now) : null;
+        }
+    }
+
+    private final long requestsPerMinute;
+    private final long tokensPerMinute;
+    private final LongSupplier nanoClock;
+    private final Map<String, Quota> quotas = new ConcurrentHashMap<>();
+
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong limited = new AtomicLong();
+
+    @Autowired
+    public RateLimiter(
+            @Value("${mock.rate-limit.requests-per-minute:0}") long requestsPerMinute,
+            @Value("${mock.rate-limit.tokens-per-minute:0}") long tokensPerMinute) {
+        this(requestsPerMinute, tokensPerMinute, System::nanoTime);
+    }
+
+    RateLimiter(long requestsPerMinute, long tokensPerMinute, LongSupplier nanoClock) {
+        this.requestsPerMinute = requestsPerMinute;
+        this.tokensPerMinute = tokensPerMinute;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Take one request and {@code tokens} tokens from a deployment's quota, if both are available.
+     */
+    public Decision admit(String deployment, long tokens) {
+        long now = nanoClock.getAsLong();
+        Quota quota = quotas.computeIfAbsent(deployment, key -> new Quota(requestsPerMinute, tokensPerMinute, now));
+        quota.lock.lock();
+        try {
+            long wait = Math.max(
+                quota.requests != null ? quota.requests.nanosUntil(1, now) : 0,
+                quota.tokens != null ? quota.tokens.nanosUntil(tokens, now) : 0);
+            if (wait > 0) {
+                limited.incrementAndGet();
+                return new Decision(false, remaining(quota.requests, now), remaining(quota.tokens, now),
+                    Math.max(TimeUnit.NANOSECONDS.toMillis(wait), 1));
+            }
+            if (quota.requests != null) {
+                quota.requests.take(1);
+            }
+            if (quota.tokens != null) {
+                quota.tokens.take(tokens);
+            }
+            admitted.incrementAndGet();
+            return new Decision(true, remaining(quota.requests, now), remaining(quota.tokens, now), 0);
+        } finally {
+            quota.lock.unlock();
+        }
+    }
+
+    /**
+     * Get rate limiting metrics.
+     *
+     * @return configured limits and calls admitted and refused
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("requestsPerMinute", requestsPerMinute);
+        stats.put("tokensPerMinute", tokensPerMinute);
+        stats.put("admitted", admitted.get());
+        stats.put("rateLimited", limited.get());
+        return stats;
+    }
+
+    private static long remaining(TokenBucket bucket, long now) {
+        return bucket != null ? bucket.available(now) : -1;
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.langchain4j.mock.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Generates answers and counts tokens.
+ * <p>
+ * Without a configured reply, the answer is filler text seeded by the prompt,
+ * so the same prompt always gets the same answer (which keeps caches and
+ * snapshot tests meaningful) while different prompts get different ones.
+ * Answers are returned as the pieces a stream would send, one per token;
+ * tokens are approximated as words, and prompts as four characters per token.
+ */
+@Component
+public class ReplyGenerator {
+
+    private static final String[] WORDS = {
+        "the", "model", "answer", "is", "a", "simulated", "response", "to", "your", "question",
+        "and", "it", "uses", "tokens", "from", "mock", "server", "with", "latency", "stream",
+        "data", "request", "every", "prompt", "gets", "same", "text", "for", "testing", "load",
+        "azure", "openai", "deployment", "quota", "context", "memory", "of", "chat", "this", "that",
+        "in", "on", "by", "each", "call", "result", "value", "more", "less", "then"
+    };
+
+    private final int completionTokens;
+    private final String reply;
+
+    public ReplyGenerator(
+            @Value("${mock.completion.tokens:40}") int completionTokens,
+            @Value("${mock.completion.reply:}") String reply) {
+        this.completionTokens = completionTokens;
+        this.reply = reply;
+    }
+
+    /**
+     * Answer a prompt.
+     *
+     * @param maxTokens the request's token limit, or null for none
+     * @return the answer, one piece per token
+     */
+    public List<String> reply(String prompt, Integer maxTokens) {
+        int limit = maxTokens != null && maxTokens > 0 ? maxTokens : Integer.MAX_VALUE;
+        List<String> pieces = new ArrayList<>();
+        if (!reply.isEmpty()) {
+            for (String piece : reply.split("(?= )")) {
+                if (pieces.size() == limit) {
+                    break;
+                }
+                pieces.add(piece);
+            }
+            return pieces;
+        }
+        SplittableRandom random = new SplittableRandom(seed(prompt));
+        int count = Math.min(completionTokens, limit);
+        for (int i = 0; i < count; i++) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            if (i == 0) {
+                pieces.add(Character.toUpperCase(word.charAt(0)) + word.substring(1));
+            } else {
+                pieces.add(" " + word);
+            }
+        }
+        if (!pieces.isEmpty()) {
+            pieces.set(pieces.size() - 1, pieces.get(pieces.size() - 1) + ".");
+        }
+        return pieces;
+    }
+
+    /**
+     * Approximate token count of a text, four characters per token.
+     */
+    public static int countTokens(String text) {
+        return Math.max(1, (text.length() + 3) / 4);
+    }
+
+    /**
+     * Stable 64-bit seed of a text.
+     */
+    static long seed(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.langchain4j.mock.service;
+
+import java.time.Duration;
+
+/**
+ * Token bucket refilled continuously at {@code capacity} per period.
+ * Not thread-safe; {@link RateLimiter} guards it with its lock.
+ */
+final class TokenBucket {
+
+    private final double capacity;
+    private final double refillPerNano;
+    private double available;
+    private long refilledAt;
+
+    TokenBucket(long capacity, Duration period, long now) {
+        this.capacity = capacity;
+        this.refillPerNano = (double) capacity / period.toNanos();
+        this.available = capacity;
+        this.refilledAt = now;
+    }
+
+    /**
+     * Time until {@code amount} tokens are available, or 0 if they already are.
+     * Amounts above the capacity only wait for a full bucket.
+     */
+    long nanosUntil(long amount, long now) {
+        refill(now);
+        double missing = Math.min(amount, capacity) - available;
+        return missing <= 0 ? 0 : (long) Math.ceil(missing / refillPerNano);
+    }
+
+    void take(long amount) {
+        available -= amount;
+    }
+
+    long available(long now) {
+        refill(now);
+        return (long) Math.max(available, 0);
+    }
+
+    private void refill(long now) {
+        available = Math.min(capacity, available + (now - refilledAt) * refillPerNano);
+        refilledAt = now;
+    }
+}
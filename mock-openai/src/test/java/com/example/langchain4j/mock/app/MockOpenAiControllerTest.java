@@ -0,0 +1,206 @@
+package com.example.langchain4j.mock.app;
+
+import com.example.langchain4j.mock.config.SelfSignedCertificate;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.exception.AuthenticationException;
+import dev.langchain4j.exception.InternalServerException;
+import dev.langchain4j.exception.RateLimitException;
+import dev.langchain4j.model.azure.AzureOpenAiChatModel;
+import dev.langchain4j.model.azure.AzureOpenAiEmbeddingModel;
+import dev.langchain4j.model.azure.AzureOpenAiStreamingChatModel;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.openai.OpenAiChatModel;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyStore;
+import java.security.cert.CertificateFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the mock server's wire formats with the LangChain4j clients the other modules use.
+ */
+@SpringBootTest(
+    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = {
+        "mock.api-key=test-key",
+        "mock.http-port=-1",
+        "mock.latency.distribution=fixed",
+        "mock.latency.mean=5ms",
+        "mock.tokens-per-second=0",
+        "mock.embedding.dimensions=256",
+        "mock.ssl.directory=target/test-ssl"
+    })
+class MockOpenAiControllerTest {
+
+    @LocalServerPort
+    int port;
+
+    /**
+     * Trust the server's self-signed certificate, as the README describes for the other modules.
+     * It is generated here, where the server will find it, because the clients read the trust
+     * store before the server has started.
+     */
+    @BeforeAll
+    static void trustMockCertificate(@TempDir Path directory) throws Exception {
+        KeyStore trustStore = KeyStore.getInstance("PKCS12");
+        trustStore.load(null, null);
+        try (InputStream certificate = Files.newInputStream(SelfSignedCertificate.ensure(Path.of("target/test-ssl")))) {
+            trustStore.setCertificateEntry("mock-openai",
+                CertificateFactory.getInstance("X.509").generateCertificate(certificate));
+        }
+        Path file = directory.resolve("mock-openai-trust.p12");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            trustStore.store(out, "changeit".toCharArray());
+        }
+        System.setProperty("javax.net.ssl.trustStore", file.toString());
+        System.setProperty("javax.net.ssl.trustStorePassword", "changeit");
+        System.setProperty("javax.net.ssl.trustStoreType", "PKCS12");
+    }
+
+    @Autowired
+    MockOpenAiController controller;
+
+    @Test
+    void testAzureChatAnswersAreDeterministicPerPrompt() {
+        // Given
+        ChatModel model = azureChatModel("test-key", Map.of());
+        long answeredBefore = (Long) controller.stats().get("chatCompletions");
+
+        // When
+        ChatResponse first = model.chat(UserMessage.from("Hello"));
+        ChatResponse again = model.chat(UserMessage.from("Hello"));
+        ChatResponse other = model.chat(UserMessage.from("Goodbye"));
+
+        // Then
+        assertEquals(first.aiMessage().text(), again.aiMessage().text());
+        assertNotEquals(first.aiMessage().text(), other.aiMessage().text());
+        assertEquals(40, first.tokenUsage().outputTokenCount());
+        assertEquals(answeredBefore + 3, controller.stats().get("chatCompletions"));
+    }
+
+    @Test
+    void testStreamedAnswerArrivesTokenByToken() throws Exception {
+        // Given
+        AzureOpenAiStreamingChatModel model = AzureOpenAiStreamingChatModel.builder()
+            .endpoint("https://localhost:" + port)
+            .apiKey("test-key")
+            .deploymentName("gpt-5-mini")
+            .maxRetries(0)
+            .build();
+        List<String> tokens = new ArrayList<>();
+        CompletableFuture<ChatResponse> done = new CompletableFuture<>();
+
+        // When
+        model.chat("Tell me a story", new StreamingChatResponseHandler() {
+            @Override
+            public void onPartialResponse(String partialResponse) {
+                tokens.add(partialResponse);
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse completeResponse) {
+                done.complete(completeResponse);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                done.completeExceptionally(error);
+            }
+        });
+        ChatResponse response = done.get(10, TimeUnit.SECONDS);
+
+        // Then - the same answer as a complete response, one token per event
+        assertEquals(40, tokens.size());
+        assertEquals(String.join("", tokens), response.aiMessage().text());
+        assertEquals(azureChatModel("test-key", Map.of()).chat("Tell me a story"), response.aiMessage().text());
+    }
+
+    @Test
+    void testEmbeddingsAreDeterministicAndCloserForSharedWords() {
+        // Given
+        AzureOpenAiEmbeddingModel model = AzureOpenAiEmbeddingModel.builder()
+            .endpoint("https://localhost:" + port)
+            .apiKey("test-key")
+            .deploymentName("text-embedding-3-small")
+            .maxRetries(0)
+            .build();
+
+        // When
+        Embedding cat = model.embed("The cat sat on the mat").content();
+        Embedding sameCat = model.embed("The cat sat on the mat").content();
+        Embedding similar = model.embed("A cat on a mat").content();
+        Embedding unrelated = model.embed("Quarterly revenue report").content();
+
+        // Then
+        assertEquals(256, cat.dimension());
+        assertArrayEquals(cat.vector(), sameCat.vector());
+        assertEquals(1.0, dot(cat, cat), 1e-4);
+        assertTrue(dot(cat, similar) > dot(cat, unrelated) + 0.2);
+    }
+
+    @Test
+    void testOpenAiCompatibleClientGetsTheSameAnswer() {
+        // Given
+        ChatModel openAi = OpenAiChatModel.builder()
+            .baseUrl("https://localhost:" + port + "/v1")
+            .apiKey("test-key")
+            .modelName("gpt-4o-mini")
+            .maxRetries(0)
+            .build();
+
+        // When
+        String answer = openAi.chat("Hello");
+
+        // Then
+        assertEquals(azureChatModel("test-key", Map.of()).chat("Hello"), answer);
+    }
+
+    @Test
+    void testErrorsUseTheStatusCodesClientsMapToExceptions() {
+        // Given
+        ChatModel throttled = azureChatModel("test-key", Map.of(MockOpenAiController.MOCK_ERROR_HEADER, "429"));
+        ChatModel failing = azureChatModel("test-key", Map.of(MockOpenAiController.MOCK_ERROR_HEADER, "503"));
+        ChatModel wrongKey = azureChatModel("wrong-key", Map.of());
+
+        // When / Then
+        assertThrows(RateLimitException.class, () -> throttled.chat("Hello"));
+        assertThrows(InternalServerException.class, () -> failing.chat("Hello"));
+        assertThrows(AuthenticationException.class, () -> wrongKey.chat("Hello"));
+    }
+
+    private ChatModel azureChatModel(String apiKey, Map<String, String> headers) {
+        return AzureOpenAiChatModel.builder()
+            .endpoint("https://localhost:" + port)
+            .apiKey(apiKey)
+            .deploymentName("gpt-5-mini")
+            .customHeaders(headers)
+            .maxRetries(0)
+            .build();
+    }
+
+    private static double dot(Embedding a, Embedding b) {
+        double sum = 0;
+        for (int i = 0; i < a.dimension(); i++) {
+            sum += a.vector()[i] * b.vector()[i];
+        }
+        return sum;
+    }
+}
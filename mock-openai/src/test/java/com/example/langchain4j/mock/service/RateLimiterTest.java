@@ -0,0 +1,55 @@
+package com.example.langchain4j.mock.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the simulated per-deployment quota.
+ */
+class RateLimiterTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void testRequestsOverTheLimitAreToldWhenToRetry() {
+        // Given
+        RateLimiter limiter = new RateLimiter(2, 0, clock::get);
+        limiter.admit("gpt-5-mini", 100);
+        limiter.admit("gpt-5-mini", 100);
+
+        // When
+        RateLimiter.Decision refused = limiter.admit("gpt-5-mini", 100);
+        RateLimiter.Decision otherDeployment = limiter.admit("gpt-4o", 100);
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        RateLimiter.Decision later = limiter.admit("gpt-5-mini", 100);
+
+        // Then - one request comes back every 30 seconds
+        assertFalse(refused.admitted());
+        assertEquals(30_000, refused.retryAfterMillis());
+        assertEquals(0, refused.remainingRequests());
+        assertEquals(-1, refused.remainingTokens());
+        assertTrue(otherDeployment.admitted());
+        assertTrue(later.admitted());
+        assertEquals(1L, limiter.stats().get("rateLimited"));
+    }
+
+    @Test
+    void testTokenQuotaCountsPromptAndAnswer() {
+        // Given
+        RateLimiter limiter = new RateLimiter(0, 1000, clock::get);
+
+        // When
+        RateLimiter.Decision first = limiter.admit("gpt-5-mini", 800);
+        RateLimiter.Decision second = limiter.admit("gpt-5-mini", 800);
+
+        // Then
+        assertTrue(first.admitted());
+        assertEquals(200, first.remainingTokens());
+        assertFalse(second.admitted());
+        assertEquals(36_000, second.retryAfterMillis());
+    }
+}